@@ -67,13 +67,21 @@ public abstract class AbstractLogCompactor {
      */
     public static class Throttler {
         private final RateLimiter rateLimiter;
+        private final double maxRate;
         private final boolean isThrottleByBytes;
         private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        // When set, the rate is scaled down by the I/O budget left by the foreground operations
+        private volatile CompactionIoScheduler ioScheduler;
 
         Throttler(ServerConfiguration conf) {
             this.isThrottleByBytes  = conf.getIsThrottleByBytes();
-            this.rateLimiter = RateLimiter.create(this.isThrottleByBytes
-                ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries());
+            this.maxRate = this.isThrottleByBytes
+                ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries();
+            this.rateLimiter = RateLimiter.create(maxRate);
+        }
+
+        void setIoScheduler(CompactionIoScheduler ioScheduler) {
+            this.ioScheduler = ioScheduler;
         }
 
         // acquire. if bybytes: bytes of this entry; if byentries: 1.
@@ -85,6 +93,15 @@ public abstract class AbstractLogCompactor {
         // If the compactor is being stopped by other threads,
         // and the GC thread is still limited, the compact task will be stopped.
         public void acquire(int permits) throws IOException {
+            CompactionIoScheduler scheduler = ioScheduler;
+            if (scheduler != null) {
+                // May pause the compaction, in the middle of an entry log, until there is budget
+                double rate = maxRate * scheduler.awaitBudget(cancelled);
+                if (rate != rateLimiter.getRate()) {
+                    rateLimiter.setRate(rate);
+                }
+            }
+
             long timeout = 100;
             long start = System.currentTimeMillis();
             while (!tryAcquire(permits, timeout, TimeUnit.MILLISECONDS)) {
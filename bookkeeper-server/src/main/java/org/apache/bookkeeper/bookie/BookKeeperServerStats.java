@@ -38,6 +38,8 @@ public interface BookKeeperServerStats {
 
     // Stats
     String CHANNEL_WRITE = "CHANNEL_WRITE";
+    String CHANNEL_FLUSH_SIZE = "CHANNEL_FLUSH_SIZE";
+    String CHANNEL_FLUSHES_SAVED = "CHANNEL_FLUSHES_SAVED";
 
     //
     // Server Operations
@@ -69,6 +71,10 @@ public interface BookKeeperServerStats {
     String GET_BOOKIE_INFO = "GET_BOOKIE_INFO";
     String GET_LIST_OF_ENTRIES_OF_LEDGER = "GET_LIST_OF_ENTRIES_OF_LEDGER";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST = "GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST";
+    String RANGE_READ_ENTRY = "RANGE_READ_ENTRY";
+    String RANGE_READ_ENTRY_REQUEST = "RANGE_READ_ENTRY_REQUEST";
+    String RANGE_READ_ENTRY_COUNT = "RANGE_READ_ENTRY_COUNT";
+    String RANGE_ADD_ENTRY_COUNT = "RANGE_ADD_ENTRY_COUNT";
 
     // Ensemble Stats
     String WATCHER_SCOPE = "bookie_watcher";
@@ -109,6 +115,7 @@ public interface BookKeeperServerStats {
     String JOURNAL_FORCE_WRITE_ENQUEUE = "JOURNAL_FORCE_WRITE_ENQUEUE";
     String JOURNAL_FORCE_WRITE_BATCH_ENTRIES = "JOURNAL_FORCE_WRITE_BATCH_ENTRIES";
     String JOURNAL_FORCE_WRITE_BATCH_BYTES = "JOURNAL_FORCE_WRITE_BATCH_BYTES";
+    String JOURNAL_FORCE_WRITE_PIPELINE_WAIT = "JOURNAL_FORCE_WRITE_PIPELINE_WAIT";
     String JOURNAL_FLUSH_LATENCY = "JOURNAL_FLUSH_LATENCY";
     String JOURNAL_QUEUE_LATENCY = "JOURNAL_QUEUE_LATENCY";
     String JOURNAL_QUEUE_MAX_SIZE = "JOURNAL_QUEUE_MAX_SIZE";
@@ -152,11 +159,14 @@ public interface BookKeeperServerStats {
     String MINOR_COMPACTION_COUNT = "MINOR_COMPACTION_TOTAL";
     String ACTIVE_LEDGER_COUNT = "ACTIVE_LEDGER_TOTAL";
     String DELETED_LEDGER_COUNT = "DELETED_LEDGER_TOTAL";
+    String COMPACTION_IO_BUDGET_PAUSE_COUNT = "COMPACTION_IO_BUDGET_PAUSE_TOTAL";
+    String COMPACTION_IO_BUDGET_RATE_PERCENT = "COMPACTION_IO_BUDGET_RATE_PERCENT";
 
     // Index Related Counters
     String INDEX_INMEM_ILLEGAL_STATE_RESET = "INDEX_INMEM_ILLEGAL_STATE_RESET";
     String INDEX_INMEM_ILLEGAL_STATE_DELETE = "INDEX_INMEM_ILLEGAL_STATE_DELETE";
     String JOURNAL_FORCE_WRITE_QUEUE_SIZE = "JOURNAL_FORCE_WRITE_QUEUE_SIZE";
+    String JOURNAL_FORCE_WRITE_IN_FLIGHT = "JOURNAL_FORCE_WRITE_IN_FLIGHT";
     String JOURNAL_NUM_FLUSH_EMPTY_QUEUE = "JOURNAL_NUM_FLUSH_EMPTY_QUEUE";
     String JOURNAL_NUM_FLUSH_MAX_OUTSTANDING_BYTES = "JOURNAL_NUM_FLUSH_MAX_OUTSTANDING_BYTES";
     String JOURNAL_NUM_FLUSH_MAX_WAIT = "JOURNAL_NUM_FLUSH_MAX_WAIT";
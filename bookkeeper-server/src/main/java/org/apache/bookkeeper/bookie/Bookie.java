@@ -20,6 +20,7 @@ package org.apache.bookkeeper.bookie;
 
 import io.netty.buffer.ByteBuf;
 import java.io.IOException;
+import java.util.List;
 import java.util.PrimitiveIterator;
 import java.util.concurrent.CompletableFuture;
 import org.apache.bookkeeper.common.util.Watcher;
@@ -45,6 +46,8 @@ public interface Bookie {
             throws IOException, BookieException, InterruptedException;
     void recoveryAddEntry(ByteBuf entry, WriteCallback cb, Object ctx, byte[] masterKey)
             throws IOException, BookieException, InterruptedException;
+    int addEntries(ByteBuf[] entries, WriteCallback[] cbs, int offset, int length, Object ctx, byte[] masterKey)
+            throws IOException, BookieException, InterruptedException;
     void forceLedger(long ledgerId, WriteCallback cb, Object ctx);
     void setExplicitLac(ByteBuf entry, WriteCallback writeCallback, Object ctx, byte[] masterKey)
             throws IOException, InterruptedException, BookieException;
@@ -57,6 +60,34 @@ public interface Bookie {
     // TODO: Shouldn't this be async?
     ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException;
+
+    /**
+     * Read up to {@code maxCount} consecutive entries, stopping before the total size goes over
+     * {@code maxSize}. The first entry is always returned whatever its size, and the range ends at
+     * the first entry that cannot be read.
+     */
+    List<ByteBuf> readEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, NoLedgerException, BookieException;
+
+    /**
+     * Read an entry, or get the region of the file where it is stored so that it can be sent without being
+     * copied in memory.
+     *
+     * @return the region of the entry, or the entry if it is smaller than minEntrySize or cannot be sent from a file
+     */
+    default EntryReadResult readEntryOrRegion(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, NoLedgerException, BookieException {
+        return readEntryResult(ledgerId, entryId);
+    }
+
+    /**
+     * Read an entry, flagged with whether its checksum was verified by the bookie, so that the reader can skip
+     * verifying it.
+     */
+    default EntryReadResult readEntryResult(long ledgerId, long entryId)
+            throws IOException, NoLedgerException, BookieException {
+        return new EntryReadResult(readEntry(ledgerId, entryId), false);
+    }
     long readLastAddConfirmed(long ledgerId) throws IOException, BookieException;
     PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException, NoLedgerException;
 
@@ -490,6 +490,12 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         ledgerStorage.setCheckpointSource(checkpointSource);
         ledgerStorage.setCheckpointer(syncThread);
         ledgerStorage.registerLedgerDeletionListener(ledgerDeletionListener);
+        if (conf.isCompactionIoBudgetEnabled()) {
+            // Compaction adapts its I/O to the latency of the journal force writes
+            IoLatencyTracker journalLatencyTracker = new IoLatencyTracker();
+            journals.forEach(journal -> journal.setForceWriteLatencyTracker(journalLatencyTracker));
+            ledgerStorage.setJournalLatencyTracker(journalLatencyTracker);
+        }
         handles = new HandleFactoryImpl(ledgerStorage);
 
         // Expose Stats
@@ -933,19 +939,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
 
         // journal `addEntry` should happen after the entry is added to ledger storage.
         // otherwise the journal entry can potentially be rolled before the ledger is created in ledger storage.
-        if (masterKeyCache.get(ledgerId) == null) {
-            // Force the load into masterKey cache
-            byte[] oldValue = masterKeyCache.putIfAbsent(ledgerId, masterKey);
-            if (oldValue == null) {
-                ByteBuf masterKeyEntry = createMasterKeyEntry(ledgerId, masterKey);
-                try {
-                    getJournal(ledgerId).logAddEntry(
-                            masterKeyEntry, false /* ackBeforeSync */, new NopWriteCallback(), null);
-                } finally {
-                    ReferenceCountUtil.release(masterKeyEntry);
-                }
-            }
-        }
+        logMasterKeyIfNeeded(ledgerId, masterKey);
 
         if (!writeDataToJournal) {
             cb.writeComplete(0, ledgerId, entryId, null, ctx);
@@ -961,6 +955,22 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         getJournal(ledgerId).logAddEntry(entry, ackBeforeSync, cb, ctx);
     }
 
+    private void logMasterKeyIfNeeded(long ledgerId, byte[] masterKey) throws InterruptedException {
+        if (masterKeyCache.get(ledgerId) == null) {
+            // Force the load into masterKey cache
+            byte[] oldValue = masterKeyCache.putIfAbsent(ledgerId, masterKey);
+            if (oldValue == null) {
+                ByteBuf masterKeyEntry = createMasterKeyEntry(ledgerId, masterKey);
+                try {
+                    getJournal(ledgerId).logAddEntry(
+                            masterKeyEntry, false /* ackBeforeSync */, new NopWriteCallback(), null);
+                } finally {
+                    ReferenceCountUtil.release(masterKeyEntry);
+                }
+            }
+        }
+    }
+
     /**
      * Add entry to a ledger, even if the ledger has previous been fenced. This should only
      * happen in bookie recovery or ledger recovery cases, where entries are being replicates
@@ -1090,6 +1100,78 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    /**
+     * Add a run of consecutive entries of the same ledger, logging them to the journal as a single
+     * batch. Each entry is acknowledged through its own callback.
+     *
+     * <p>The run ends at the first entry that belongs to another ledger or that cannot be added to
+     * the ledger storage. Unlike {@link #addEntry}, the entry buffers are not released, and the
+     * failure of the first entry is not recorded, since the caller retries it on its own.
+     *
+     * @return the number of entries added, starting at {@code offset}
+     * @throws BookieException if the first entry cannot be added
+     * @throws IOException if the first entry cannot be added
+     */
+    @Override
+    public int addEntries(ByteBuf[] entries, WriteCallback[] cbs, int offset, int length, Object ctx,
+                          byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        long requestNanos = MathUtils.nowInNano();
+        int added = 0;
+        try {
+            LedgerDescriptor handle = getLedgerForEntry(entries[offset], masterKey);
+            long ledgerId = handle.getLedgerId();
+            synchronized (handle) {
+                if (handle.isFenced()) {
+                    throw BookieException
+                            .create(BookieException.Code.LedgerFencedException);
+                }
+                for (; added < length; added++) {
+                    ByteBuf entry = entries[offset + added];
+                    if (entry.getLong(entry.readerIndex()) != ledgerId) {
+                        break;
+                    }
+                    try {
+                        handle.addEntry(entry);
+                    } catch (IOException | BookieException e) {
+                        if (added == 0) {
+                            throw e;
+                        }
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Ending batch of ledger {} at entry {}", ledgerId,
+                                    entry.getLong(entry.readerIndex() + 8), e);
+                        }
+                        break;
+                    }
+                    bookieStats.getWriteBytes().addCount(entry.readableBytes());
+                }
+
+                logMasterKeyIfNeeded(ledgerId, masterKey);
+
+                if (!writeDataToJournal) {
+                    for (int i = offset; i < offset + added; i++) {
+                        cbs[i].writeComplete(0, ledgerId, entries[i].getLong(entries[i].readerIndex() + 8), null, ctx);
+                    }
+                    if (ctx instanceof BookieRequestHandler) {
+                        ((BookieRequestHandler) ctx).flushPendingResponse();
+                    }
+                } else {
+                    getJournal(ledgerId).logAddEntries(entries, cbs, offset, added, false, ctx);
+                }
+            }
+        } catch (NoWritableLedgerDirException e) {
+            stateManager.transitionToReadOnlyMode();
+            throw new IOException(e);
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+            for (int i = offset; i < offset + added; i++) {
+                bookieStats.getAddEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getAddBytesStats().registerSuccessfulValue(entries[i].readableBytes());
+            }
+        }
+        return added;
+    }
+
     /**
      * Fences a ledger. From this point on, clients will be unable to
      * write to this ledger. Only recoveryAddEntry will be
@@ -1119,15 +1201,91 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             bookieStats.getReadBytes().addCount(entrySize);
             success = true;
             return entry;
+        } finally {
+            recordReadEntry(requestNanos, success, entrySize);
+        }
+    }
+
+    @Override
+    public EntryReadResult readEntryResult(long ledgerId, long entryId)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        int entrySize = 0;
+        try {
+            LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Reading {}@{}", entryId, ledgerId);
+            }
+            EntryReadResult result = handle.readEntryResult(entryId);
+            entrySize = result.getEntry().readableBytes();
+            bookieStats.getReadBytes().addCount(entrySize);
+            success = true;
+            return result;
+        } finally {
+            recordReadEntry(requestNanos, success, entrySize);
+        }
+    }
+
+    private void recordReadEntry(long requestNanos, boolean success, int entrySize) {
+        long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+        if (success) {
+            bookieStats.getReadEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            bookieStats.getReadBytesStats().registerSuccessfulValue(entrySize);
+        } else {
+            bookieStats.getReadEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            bookieStats.getReadBytesStats().registerFailedValue(entrySize);
+        }
+    }
+
+    @Override
+    public List<ByteBuf> readEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        List<ByteBuf> entries = null;
+        try {
+            LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Reading up to {} entries from {}@{}", maxCount, firstEntryId, ledgerId);
+            }
+            entries = handle.readEntries(firstEntryId, maxCount, maxSize);
+            success = true;
+            return entries;
         } finally {
             long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
             if (success) {
                 bookieStats.getReadEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
-                bookieStats.getReadBytesStats().registerSuccessfulValue(entrySize);
+                for (ByteBuf entry : entries) {
+                    bookieStats.getReadBytes().addCount(entry.readableBytes());
+                    bookieStats.getReadBytesStats().registerSuccessfulValue(entry.readableBytes());
+                }
             } else {
                 bookieStats.getReadEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
-                bookieStats.getReadBytesStats().registerFailedValue(entrySize);
+                bookieStats.getReadBytesStats().registerFailedValue(0);
+            }
+        }
+    }
+
+    @Override
+    public EntryReadResult readEntryOrRegion(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        int entrySize = 0;
+        try {
+            LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Reading {}@{}", entryId, ledgerId);
             }
+            EntryReadResult result = handle.readEntryOrRegion(entryId, minEntrySize);
+            entrySize = result.getRegion() != null
+                    ? (int) result.getRegion().count() : result.getEntry().readableBytes();
+            bookieStats.getReadBytes().addCount(entrySize);
+            success = true;
+            return result;
+        } finally {
+            recordReadEntry(requestNanos, success, entrySize);
         }
     }
 
@@ -0,0 +1,214 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gives the compaction an I/O budget derived from the latency of the foreground journal force writes
+ * and entry reads.
+ *
+ * <p>The budget is a fraction of the configured compaction rate, adjusted once per interval with an
+ * AIMD policy: it is halved when the average latency of the last interval is above its target, and
+ * raised linearly otherwise. Below a minimum fraction the compaction is paused, in the middle of the
+ * entry log being compacted, until the foreground latencies recover.
+ */
+class CompactionIoScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(CompactionIoScheduler.class);
+
+    private static final long UPDATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double MIN_RATE_FACTOR = 1.0 / 64;
+    private static final double RATE_FACTOR_INCREMENT = 0.1;
+    private static final long PAUSE_CHECK_INTERVAL_MILLIS = 100;
+    // Upper bound of a single pause, so that compaction still progresses under a sustained load
+    private static final long MAX_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    // Fixed I/O of compacting an entry log whatever its size: reading its header and ledgers map, then
+    // flushing the compaction log and the ledger index, expressed as the bytes read in the same time
+    private static final long ENTRY_LOG_FIXED_COST_BYTES = 4 * 1024 * 1024;
+
+    private final long journalLatencyTargetNanos;
+    private final long readLatencyTargetNanos;
+    private final IoLatencyTracker readLatency = new IoLatencyTracker();
+    private volatile IoLatencyTracker journalLatency = new IoLatencyTracker();
+    private final Counter pauseCounter;
+    private final LongSupplier clock;
+
+    // Sampling state and rate factor updates, guarded by this
+    private long lastUpdateNanos;
+    private long lastJournalCount;
+    private long lastJournalLatencyNanos;
+    private long lastReadCount;
+    private long lastReadLatencyNanos;
+
+    private volatile double rateFactor = 1.0;
+
+    CompactionIoScheduler(ServerConfiguration conf, Counter pauseCounter) {
+        this(conf, pauseCounter, MathUtils::nowInNano);
+    }
+
+    @VisibleForTesting
+    CompactionIoScheduler(ServerConfiguration conf, Counter pauseCounter, LongSupplier clock) {
+        this.journalLatencyTargetNanos =
+                TimeUnit.MILLISECONDS.toNanos(conf.getCompactionIoBudgetJournalLatencyTargetMs());
+        this.readLatencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(conf.getCompactionIoBudgetReadLatencyTargetMs());
+        this.pauseCounter = pauseCounter;
+        this.clock = clock;
+        this.lastUpdateNanos = clock.getAsLong();
+    }
+
+    void setJournalLatencyTracker(IoLatencyTracker tracker) {
+        this.journalLatency = tracker;
+    }
+
+    IoLatencyTracker getReadLatencyTracker() {
+        return readLatency;
+    }
+
+    int getRatePercent() {
+        return (int) (rateFactor * 100);
+    }
+
+    /**
+     * Wait until the compaction has some I/O budget.
+     *
+     * <p>A paused compaction sleeps without holding the monitor, which only guards the sampling.
+     *
+     * @param cancelled flag set when the compaction is being stopped
+     * @return the fraction of the configured compaction rate that can be used
+     * @throws IOException if the compaction was stopped while paused
+     */
+    double awaitBudget(AtomicBoolean cancelled) throws IOException {
+        double factor = maybeUpdate();
+        if (factor > 0) {
+            return factor;
+        }
+
+        LOG.info("Pausing compaction, foreground I/O latency is above target");
+        pauseCounter.inc();
+        long pauseStart = clock.getAsLong();
+        while (factor == 0) {
+            if (cancelled.get()) {
+                throw new IOException("Compaction stopped while paused, may be compactor has been shutting down");
+            }
+            if (clock.getAsLong() - pauseStart > MAX_PAUSE_NANOS) {
+                factor = resumeAtMinRate();
+                break;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(PAUSE_CHECK_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compaction was paused", e);
+            }
+            factor = maybeUpdate();
+        }
+        LOG.info("Resuming compaction after {} ms",
+                TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - pauseStart));
+        return factor;
+    }
+
+    private synchronized double resumeAtMinRate() {
+        if (rateFactor == 0) {
+            rateFactor = MIN_RATE_FACTOR;
+        }
+        return rateFactor;
+    }
+
+    /**
+     * Update the rate factor if the sampling interval elapsed.
+     *
+     * @return the current rate factor
+     */
+    private synchronized double maybeUpdate() {
+        long now = clock.getAsLong();
+        if (now - lastUpdateNanos < UPDATE_INTERVAL_NANOS) {
+            return rateFactor;
+        }
+        lastUpdateNanos = now;
+
+        IoLatencyTracker journal = journalLatency;
+        long journalCount = journal.getCount();
+        long journalLatencyNanos = journal.getTotalLatencyNanos();
+        long readCount = readLatency.getCount();
+        long readLatencyNanos = readLatency.getTotalLatencyNanos();
+
+        double pressure = Math.max(
+                pressure(journalCount - lastJournalCount, journalLatencyNanos - lastJournalLatencyNanos,
+                        journalLatencyTargetNanos),
+                pressure(readCount - lastReadCount, readLatencyNanos - lastReadLatencyNanos,
+                        readLatencyTargetNanos));
+
+        lastJournalCount = journalCount;
+        lastJournalLatencyNanos = journalLatencyNanos;
+        lastReadCount = readCount;
+        lastReadLatencyNanos = readLatencyNanos;
+
+        double factor = rateFactor;
+        if (pressure > 1.0) {
+            factor /= 2;
+            if (factor < MIN_RATE_FACTOR) {
+                factor = 0;
+            }
+        } else if (factor == 0) {
+            factor = MIN_RATE_FACTOR;
+        } else {
+            factor = Math.min(1.0, factor + RATE_FACTOR_INCREMENT);
+        }
+        rateFactor = factor;
+        return factor;
+    }
+
+    /**
+     * @return the ratio between the average latency and its target, or 0 if there were no operations
+     */
+    private static double pressure(long count, long totalLatencyNanos, long targetNanos) {
+        if (count <= 0 || targetNanos <= 0) {
+            return 0;
+        }
+        return (double) totalLatencyNanos / count / targetNanos;
+    }
+
+    /**
+     * Reclaimable bytes per byte of I/O needed to compact an entry log: the whole log is read, its
+     * remaining live data is written again, and the fixed cost of compacting a log is paid once.
+     *
+     * <p>The fixed cost makes a small log less efficient to compact than a large log of the same usage,
+     * as it reclaims fewer bytes for the same flushes.
+     */
+    static double compactionEfficiency(EntryLogMetadata meta) {
+        long totalSize = meta.getTotalSize();
+        long remainingSize = meta.getRemainingSize();
+        if (totalSize <= 0) {
+            return 0;
+        }
+        return (double) (totalSize - remainingSize) / (totalSize + remainingSize + ENTRY_LOG_FIXED_COST_BYTES);
+    }
+}
@@ -31,7 +31,12 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.BufferedReader;
 import java.io.File;
@@ -417,7 +422,63 @@ public class DefaultEntryLogger implements EntryLogger {
      * and don't cause a change in the channel's position. We use this map to store the file channels. Each
      * file channel is mapped to a log id which represents an open log file.
      */
-    private final ConcurrentMap<Long, FileChannel> logid2FileChannel = new ConcurrentHashMap<Long, FileChannel>();
+    private final ConcurrentMap<Long, LogFileChannel> logid2FileChannel =
+            new ConcurrentHashMap<Long, LogFileChannel>();
+
+    /**
+     * The file channel shared for reading a log file. The map holds one reference to it, and each file
+     * region sent from it holds another one, so that the channel is closed once the log is removed from
+     * the map and the last region is released.
+     */
+    static class LogFileChannel extends AbstractReferenceCounted {
+        private final long logId;
+        private final FileChannel fc;
+
+        LogFileChannel(long logId, FileChannel fc) {
+            this.logId = logId;
+            this.fc = fc;
+        }
+
+        FileChannel getFileChannel() {
+            return fc;
+        }
+
+        @Override
+        protected void deallocate() {
+            try {
+                fc.close();
+            } catch (IOException e) {
+                LOG.warn("Exception while closing channel for log file:" + logId);
+            }
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+    }
+
+    /**
+     * A region of a log file, that holds a reference to the shared channel of the log instead of
+     * closing it when the region is released.
+     */
+    static class LogFileRegion extends DefaultFileRegion {
+        private final LogFileChannel channel;
+
+        LogFileRegion(LogFileChannel channel, long position, long count) {
+            super(channel.getFileChannel(), position, count);
+            this.channel = channel;
+        }
+
+        LogFileChannel getLogFileChannel() {
+            return channel;
+        }
+
+        @Override
+        protected void deallocate() {
+            channel.release();
+        }
+    }
 
     /**
      * Put the logId, bc pair in the map responsible for the current thread.
@@ -434,13 +495,16 @@ public class DefaultEntryLogger implements EntryLogger {
      * @param logId
      */
     public void removeFromChannelsAndClose(long logId) {
-        FileChannel fileChannel = logid2FileChannel.remove(logId);
+        LogFileChannel fileChannel = logid2FileChannel.remove(logId);
         if (null != fileChannel) {
-            try {
-                fileChannel.close();
-            } catch (IOException e) {
-                LOG.warn("Exception while closing channel for log file:" + logId);
-            }
+            // the channel stays open until the regions being sent from it are released
+            fileChannel.release();
+        }
+    }
+
+    private void closeReadChannels() {
+        for (Long logId : new ArrayList<>(logid2FileChannel.keySet())) {
+            removeFromChannelsAndClose(logId);
         }
     }
 
@@ -819,13 +883,66 @@ public class DefaultEntryLogger implements EntryLogger {
         return internalReadEntry(location, -1L, -1L, false /* validateEntry */);
     }
 
+    @Override
+    public EntryReadResult readEntryOrRegion(long ledgerId, long entryId, long location, int minEntrySize)
+            throws IOException, Bookie.NoEntryException {
+        long entryLogId = logIdForOffset(location);
+        long pos = posForOffset(location);
+
+        BufferedReadChannel fc;
+        int entrySize;
+        try {
+            fc = getFCForEntryInternal(ledgerId, entryId, entryLogId, pos);
+            ByteBuf sizeBuff = readEntrySize(ledgerId, entryId, entryLogId, pos, fc);
+            entrySize = sizeBuff.getInt(0);
+            validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
+        } catch (EntryLookupException e) {
+            throw new IOException("Bad entry read from log file id: " + entryLogId, e);
+        }
+        if (entrySize >= minEntrySize) {
+            FileRegion region = getEntryRegion(entryLogId, pos, entrySize);
+            if (region != null) {
+                return new EntryReadResult(region);
+            }
+        }
+        // The entry is read from the channel that was used to read its size
+        return new EntryReadResult(readEntryData(ledgerId, entryId, entryLogId, pos, fc, entrySize), false);
+    }
+
+    /**
+     * Get the region of an entry of the given size, or null if it cannot be read from the file.
+     */
+    private FileRegion getEntryRegion(long entryLogId, long pos, int entrySize) throws IOException {
+        BufferedLogChannel bc = entryLogManager.getCurrentLogIfPresent(entryLogId);
+        if (null != bc) {
+            synchronized (bc) {
+                if (pos + entrySize > bc.getFileChannelPosition()) {
+                    // The entry is still in the write buffer of the current log
+                    return null;
+                }
+            }
+        }
+
+        // The region shares the read channel of the log, and holds a reference to it so that it stays
+        // readable if the entry log is removed before the region is sent.
+        LogFileChannel logFc = logid2FileChannel.get(entryLogId);
+        if (null == logFc) {
+            return null;
+        }
+        try {
+            logFc.retain();
+        } catch (IllegalReferenceCountException e) {
+            // the log was removed concurrently
+            return null;
+        }
+        return new LogFileRegion(logFc, pos, entrySize);
+    }
 
     private ByteBuf internalReadEntry(long ledgerId, long entryId, long location, boolean validateEntry)
             throws IOException, Bookie.NoEntryException {
         long entryLogId = logIdForOffset(location);
         long pos = posForOffset(location);
 
-
         BufferedReadChannel fc = null;
         int entrySize = -1;
         try {
@@ -840,6 +957,11 @@ public class DefaultEntryLogger implements EntryLogger {
             throw new IOException("Bad entry read from log file id: " + entryLogId, e);
         }
 
+        return readEntryData(ledgerId, entryId, entryLogId, pos, fc, entrySize);
+    }
+
+    private ByteBuf readEntryData(long ledgerId, long entryId, long entryLogId, long pos,
+                                  BufferedReadChannel fc, int entrySize) throws IOException {
         ByteBuf data = allocator.buffer(entrySize, entrySize);
         int rc = readFromLogChannel(entryLogId, fc, data, pos);
         if (rc != entrySize) {
@@ -889,15 +1011,15 @@ public class DefaultEntryLogger implements EntryLogger {
         File file = findFile(entryLogId);
         // get channel is used to open an existing entry log file
         // it would be better to open using read mode
-        FileChannel newFc = new RandomAccessFile(file, "r").getChannel();
-        FileChannel oldFc = logid2FileChannel.putIfAbsent(entryLogId, newFc);
+        LogFileChannel newFc = new LogFileChannel(entryLogId, new RandomAccessFile(file, "r").getChannel());
+        LogFileChannel oldFc = logid2FileChannel.putIfAbsent(entryLogId, newFc);
         if (null != oldFc) {
-            newFc.close();
+            newFc.release();
             newFc = oldFc;
         }
         // We set the position of the write buffer of this buffered channel to Long.MAX_VALUE
         // so that there are no overlaps with the write buffer while reading
-        fc = new BufferedReadChannel(newFc, conf.getReadBufferBytes());
+        fc = new BufferedReadChannel(newFc.getFileChannel(), conf.getReadBufferBytes());
         putInReadChannels(entryLogId, fc);
         return fc;
     }
@@ -1166,11 +1288,8 @@ public class DefaultEntryLogger implements EntryLogger {
         LOG.info("Stopping EntryLogger");
         try {
             flush();
-            for (FileChannel fc : logid2FileChannel.values()) {
-                fc.close();
-            }
             // clear the mapping, so we don't need to go through the channels again in finally block in normal case.
-            logid2FileChannel.clear();
+            closeReadChannels();
             entryLogManager.close();
             synchronized (compactionLogLock) {
                 if (compactionLogChannel != null) {
@@ -1182,9 +1301,7 @@ public class DefaultEntryLogger implements EntryLogger {
             // we have no idea how to avoid io exception during shutting down, so just ignore it
             LOG.error("Error flush entry log during shutting down, which may cause entry log corrupted.", ie);
         } finally {
-            for (FileChannel fc : logid2FileChannel.values()) {
-                IOUtils.close(LOG, fc);
-            }
+            closeReadChannels();
 
             entryLogManager.forceClose();
             synchronized (compactionLogLock) {
@@ -0,0 +1,221 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import org.apache.bookkeeper.common.util.nativeio.NativeIO;
+
+/**
+ * A {@link BufferedChannel} that writes to the file with direct I/O, bypassing the page cache.
+ *
+ * <p>Data is staged in a page aligned buffer and written with pwrite on a file descriptor opened
+ * with O_DIRECT, so every write covers whole aligned blocks. When the data written so far does not
+ * end on a block boundary, the last partial block is kept at the head of the aligned buffer and
+ * rewritten, together with the new data, by the next flush. The rest of the block is padded with
+ * zeros, which is also what the journal preallocation leaves in the file. The preallocation is
+ * written through the same descriptor, see {@link #preallocate(long)}.
+ *
+ * <p>Force writes use fdatasync (or fsync when metadata is also requested) on the direct descriptor.
+ */
+class DirectIOBufferedChannel extends BufferedChannel {
+    /* Some devices can live with 512 alignment, but others
+     * require 4096, so go with page alignment. */
+    static final int ALIGNMENT = 4096;
+    private static final int MAX_SHORT_WRITE_RETRIES = 10;
+
+    private final NativeIO nativeIO;
+    private final int fd;
+    private final ByteBuf alignedBufferHolder;
+    private final ByteBuf alignedBuffer;
+    private final long alignedPointer;
+    // File position of the first byte in the aligned buffer, always a multiple of ALIGNMENT
+    private long alignedStartPosition;
+    // Zeros written by the preallocation, allocated on first use
+    private ByteBuf zeroBlockHolder;
+    private long zeroBlockPointer;
+    private boolean closed = false;
+
+    DirectIOBufferedChannel(ByteBufAllocator allocator, NativeIO nativeIO, File file, FileChannel fc,
+                            int capacity) throws IOException {
+        super(allocator, fc, capacity);
+        this.nativeIO = nativeIO;
+
+        // One extra block for the partial block carried over from the previous flush
+        int alignedCapacity = alignUp(capacity) + ALIGNMENT;
+        this.alignedBufferHolder = allocator.directBuffer(alignedCapacity + ALIGNMENT);
+        if (!alignedBufferHolder.hasMemoryAddress()) {
+            ReferenceCountUtil.release(alignedBufferHolder);
+            ReferenceCountUtil.release(writeBuffer);
+            throw new IOException("Direct I/O requires buffers with a memory address");
+        }
+        long addr = alignedBufferHolder.memoryAddress();
+        int alignOffset = (int) ((ALIGNMENT - (addr & (ALIGNMENT - 1))) & (ALIGNMENT - 1));
+        this.alignedPointer = addr + alignOffset;
+        this.alignedBuffer = alignedBufferHolder.slice(alignOffset, alignedCapacity);
+
+        int fd = -1;
+        try {
+            fd = nativeIO.open(file.getPath(), NativeIO.O_WRONLY | NativeIO.O_DIRECT, 00644);
+
+            // Load the partial block that precedes the current position (i.e. the journal header),
+            // since it is going to be rewritten by the first flush
+            this.alignedStartPosition = alignDown(position);
+            int headLength = (int) (position - alignedStartPosition);
+            int read = 0;
+            while (read < headLength) {
+                int n = alignedBuffer.setBytes(read, fc, alignedStartPosition + read, headLength - read);
+                if (n <= 0) {
+                    throw new IOException("Short read of " + file + " at position " + (alignedStartPosition + read));
+                }
+                read += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (fd >= 0) {
+                nativeIO.close(fd);
+            }
+            // Leave the file channel open, the caller can still fall back to a regular buffered channel
+            ReferenceCountUtil.release(alignedBufferHolder);
+            ReferenceCountUtil.release(writeBuffer);
+            throw e;
+        }
+        this.fd = fd;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        int length = writeBuffer.writerIndex();
+        if (length == 0) {
+            return;
+        }
+        long startPosition = writeBufferStartPosition.get();
+        int headLength = (int) (startPosition - alignedStartPosition);
+        alignedBuffer.setBytes(headLength, writeBuffer, 0, length);
+
+        int dataLength = headLength + length;
+        int writeLength = alignUp(dataLength);
+        alignedBuffer.setZero(dataLength, writeLength - dataLength);
+
+        pwriteFully(alignedPointer, writeLength, alignedStartPosition);
+
+        // Keep the trailing partial block, it will be completed by the next flush
+        long endPosition = startPosition + length;
+        long newAlignedStartPosition = alignDown(endPosition);
+        int tailLength = (int) (endPosition - newAlignedStartPosition);
+        int tailOffset = (int) (newAlignedStartPosition - alignedStartPosition);
+        if (tailLength > 0 && tailOffset > 0) {
+            alignedBuffer.setBytes(0, alignedBuffer, tailOffset, tailLength);
+        }
+        alignedStartPosition = newAlignedStartPosition;
+
+        writeBuffer.clear();
+        writeBufferStartPosition.set(endPosition);
+    }
+
+    /**
+     * Preallocate the file up to the given position by writing zeros to the block that ends there.
+     *
+     * <p>The zeros go through the direct descriptor, like the data. The block is skipped when it
+     * may still hold buffered data, which extends the file when it is flushed anyway.
+     */
+    synchronized void preallocate(long endPosition) throws IOException {
+        long blockPosition = alignDown(endPosition - 1);
+        if (closed || blockPosition < alignUp(position)) {
+            return;
+        }
+        if (zeroBlockHolder == null) {
+            zeroBlockHolder = alignedBufferHolder.alloc().directBuffer(2 * ALIGNMENT);
+            long addr = zeroBlockHolder.memoryAddress();
+            int alignOffset = (int) ((ALIGNMENT - (addr & (ALIGNMENT - 1))) & (ALIGNMENT - 1));
+            zeroBlockHolder.setZero(0, zeroBlockHolder.capacity());
+            zeroBlockPointer = addr + alignOffset;
+        }
+        pwriteFully(zeroBlockPointer, ALIGNMENT, blockPosition);
+    }
+
+    private void pwriteFully(long pointer, int length, long filePosition) throws IOException {
+        int written = 0;
+        int retries = 0;
+        while (written < length) {
+            int n = nativeIO.pwrite(fd, pointer + written, length - written, filePosition + written);
+            if (n <= 0) {
+                throw new IOException("Failed to write " + (length - written) + " bytes at position "
+                        + (filePosition + written));
+            }
+            // A short write may end within a block, retry from the start of that block so that the
+            // next write is still aligned
+            int alignedWritten = (int) alignDown(written + n);
+            if (alignedWritten == written) {
+                if (++retries > MAX_SHORT_WRITE_RETRIES) {
+                    throw new IOException("Too many short writes at position " + (filePosition + written));
+                }
+            } else {
+                retries = 0;
+            }
+            written = Math.min(alignedWritten, length);
+        }
+    }
+
+    @Override
+    public long forceWrite(boolean forceMetadata) throws IOException {
+        long positionForceWrite = writeBufferStartPosition.get();
+        if (forceMetadata) {
+            nativeIO.fsync(fd);
+        } else {
+            nativeIO.fdatasync(fd);
+        }
+        return positionForceWrite;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            nativeIO.close(fd);
+        } finally {
+            ReferenceCountUtil.release(alignedBufferHolder);
+            if (zeroBlockHolder != null) {
+                ReferenceCountUtil.release(zeroBlockHolder);
+            }
+            super.close();
+        }
+    }
+
+    private static int alignUp(int size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    private static long alignUp(long pos) {
+        return (pos + ALIGNMENT - 1) & ~((long) ALIGNMENT - 1);
+    }
+
+    private static long alignDown(long pos) {
+        return pos & ~((long) ALIGNMENT - 1);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+
+/**
+ * An entry read from the ledger storage, flagged with whether the storage verified its checksum.
+ *
+ * <p>The flag comes from the same lookup that returned the entry, so it always describes the returned bytes.
+ * A large entry read from a file can be returned as the region of the file where it is stored instead, so
+ * that it can be sent without being copied in memory.
+ */
+public final class EntryReadResult {
+
+    private final ByteBuf entry;
+    private final FileRegion region;
+    private final boolean checksumVerified;
+
+    public EntryReadResult(ByteBuf entry, boolean checksumVerified) {
+        this.entry = entry;
+        this.region = null;
+        this.checksumVerified = checksumVerified;
+    }
+
+    public EntryReadResult(FileRegion region) {
+        this.entry = null;
+        this.region = region;
+        this.checksumVerified = false;
+    }
+
+    /**
+     * @return the entry, that the caller has to release, or null if the entry was returned as a region
+     */
+    public ByteBuf getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return the region of the file where the entry is stored, that the caller has to release, or null if the
+     *         entry was read in memory
+     */
+    public FileRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * @return true if the entry was verified against its CRC32C checksum by the storage
+     */
+    public boolean isChecksumVerified() {
+        return checksumVerified;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.GarbageCollector.GarbageCleaner;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates the ledger garbage collection of several ledger storages of the same bookie, like the
+ * per-directory storages of the DbLedgerStorage.
+ *
+ * <p>Instead of each storage listing all the ledgers of the metadata store, a GC cycle takes the set of
+ * active ledgers of every registered storage, scans the metadata store once, and computes the set of
+ * ledgers to delete of every storage. The same sets of active ledgers are checked for over-replicated
+ * ledgers. The per-storage work of a cycle runs in parallel, on at most the configured number of threads,
+ * and a storage that fails it is left out of the cycle without failing the cycle of the others. A single
+ * cycle runs at a time, the storages that need new results while it runs wait for it instead of starting
+ * another one.
+ *
+ * <p>The ledgers are still deleted by the garbage collector thread of their own storage, when it next
+ * runs, so that deletions never overlap with the compaction of the same storage.
+ */
+public class GarbageCollectionCoordinator {
+    private static final Logger LOG = LoggerFactory.getLogger(GarbageCollectionCoordinator.class);
+
+    private final LedgerManager ledgerManager;
+    private final ServerConfiguration conf;
+    private final long maxCycleAgeNanos;
+    private final ExecutorService executor;
+    private final List<Participant> participants = new ArrayList<>();
+    // The cycle being run by one of the garbage collector threads, null if there is none
+    private CompletableFuture<Void> runningCycle;
+
+    private static class Participant {
+        final ScanAndCompareGarbageCollector garbageCollector;
+        // Ledgers to delete found by the last cycle and not yet deleted, null if there are none
+        List<Long> pendingDeletions;
+        // Active ledgers of the storage when the last cycle started, null once taken
+        NavigableSet<Long> activeLedgers;
+        long pendingDeletionsTimeNanos;
+
+        Participant(ScanAndCompareGarbageCollector garbageCollector) {
+            this.garbageCollector = garbageCollector;
+        }
+    }
+
+    public GarbageCollectionCoordinator(ServerConfiguration conf, LedgerManager ledgerManager,
+                                        int maxConcurrentDirectories) {
+        this.conf = conf;
+        this.ledgerManager = ledgerManager;
+        // Results of a cycle older than a GC period are not handed out anymore
+        this.maxCycleAgeNanos = TimeUnit.MILLISECONDS.toNanos(conf.getGcWaitTime());
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentDirectories),
+                new DefaultThreadFactory("GarbageCollectionCoordinator"));
+    }
+
+    synchronized void register(ScanAndCompareGarbageCollector garbageCollector) {
+        participants.add(new Participant(garbageCollector));
+    }
+
+    /**
+     * Garbage collect the ledgers of a registered storage, running a new GC cycle for all the storages
+     * unless one already found the ledgers to delete of this storage.
+     */
+    void gc(ScanAndCompareGarbageCollector garbageCollector, GarbageCleaner garbageCleaner) {
+        if (null == ledgerManager) {
+            // if ledger manager is null, the bookie is not started to connect to metadata store.
+            // so skip garbage collection
+            return;
+        }
+
+        try {
+            // The lock only guards the state of the participants, the cycle runs outside of it so that the
+            // other storages can register, or take the results of the cycle, in the meantime
+            Participant participant;
+            CompletableFuture<Void> cycle = null;
+            List<Participant> cycleParticipants = null;
+            synchronized (this) {
+                participant = getParticipant(garbageCollector);
+                if (participant.pendingDeletions == null
+                        || MathUtils.elapsedNanos(participant.pendingDeletionsTimeNanos) > maxCycleAgeNanos) {
+                    if (runningCycle == null) {
+                        runningCycle = new CompletableFuture<>();
+                        cycleParticipants = new ArrayList<>(participants);
+                    }
+                    cycle = runningCycle;
+                }
+            }
+
+            if (cycleParticipants != null) {
+                runCycle(cycle, cycleParticipants);
+            }
+            if (cycle != null) {
+                // wait for the cycle, that another storage may be running
+                cycle.get();
+            }
+
+            List<Long> ledgersToDelete;
+            NavigableSet<Long> activeLedgers;
+            synchronized (this) {
+                ledgersToDelete = participant.pendingDeletions;
+                activeLedgers = participant.activeLedgers;
+                participant.pendingDeletions = null;
+                participant.activeLedgers = null;
+            }
+
+            if (activeLedgers != null) {
+                garbageCollector.gcOverReplicatedLedgersIfDue(activeLedgers, garbageCleaner);
+            }
+            if (ledgersToDelete != null) {
+                for (long ledgerId : ledgersToDelete) {
+                    garbageCleaner.clean(ledgerId);
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while waiting for the GC cycle", ie);
+        } catch (Throwable t) {
+            // ignore exception, collecting garbage next time
+            LOG.warn("Exception when iterating over the metadata", t);
+        }
+    }
+
+    private Participant getParticipant(ScanAndCompareGarbageCollector garbageCollector) {
+        for (Participant participant : participants) {
+            if (participant.garbageCollector == garbageCollector) {
+                return participant;
+            }
+        }
+        throw new IllegalStateException("Garbage collector is not registered to the coordinator");
+    }
+
+    private void runCycle(CompletableFuture<Void> cycle, List<Participant> participants) throws Exception {
+        try {
+            List<NavigableSet<Long>> activeLedgers = new ArrayList<>(participants.size());
+            List<List<Long>> ledgersToDelete = computeLedgersToDelete(participants, activeLedgers);
+            long cycleTime = MathUtils.nowInNano();
+            synchronized (this) {
+                for (int i = 0; i < participants.size(); i++) {
+                    Participant participant = participants.get(i);
+                    participant.pendingDeletions = ledgersToDelete.get(i);
+                    participant.activeLedgers = activeLedgers.get(i);
+                    participant.pendingDeletionsTimeNanos = cycleTime;
+                }
+                runningCycle = null;
+            }
+            cycle.complete(null);
+        } catch (Throwable t) {
+            synchronized (this) {
+                runningCycle = null;
+            }
+            cycle.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Compute the ledgers to delete of every storage, with a single scan of the metadata store.
+     *
+     * @param participants the storages of the cycle
+     * @param bkActiveLedgers list where the active ledgers of each storage are added, null if they could not
+     *                        be listed
+     * @return the ledgers to delete of each storage, null if they could not be computed
+     */
+    private List<List<Long>> computeLedgersToDelete(List<Participant> participants,
+                                                    List<NavigableSet<Long>> bkActiveLedgers) throws Exception {
+        long startTime = MathUtils.nowInNano();
+        int numParticipants = participants.size();
+
+        // Get the active ledgers of every storage before listing the metadata
+        List<Future<NavigableSet<Long>>> activeLedgersFutures = new ArrayList<>(numParticipants);
+        for (Participant participant : participants) {
+            activeLedgersFutures.add(executor.submit(participant.garbageCollector::getActiveLedgers));
+        }
+        List<NavigableSet<Long>> scannedLedgers = new ArrayList<>(numParticipants);
+        List<List<Long>> ledgersNotInMetadata = new ArrayList<>(numParticipants);
+        for (Future<NavigableSet<Long>> future : activeLedgersFutures) {
+            NavigableSet<Long> activeLedgers = getResult(future, "active ledgers");
+            bkActiveLedgers.add(activeLedgers);
+            scannedLedgers.add(activeLedgers != null ? activeLedgers : Collections.emptyNavigableSet());
+            ledgersNotInMetadata.add(new ArrayList<>());
+        }
+
+        ScanAndCompareGarbageCollector.scanMetadata(ledgerManager, conf, scannedLedgers, ledgersNotInMetadata);
+
+        List<Future<List<Long>>> ledgersToDeleteFutures = new ArrayList<>(numParticipants);
+        for (int i = 0; i < numParticipants; i++) {
+            if (bkActiveLedgers.get(i) == null) {
+                ledgersToDeleteFutures.add(null);
+                continue;
+            }
+            ScanAndCompareGarbageCollector garbageCollector = participants.get(i).garbageCollector;
+            List<Long> candidates = ledgersNotInMetadata.get(i);
+            ledgersToDeleteFutures.add(executor.submit(() -> garbageCollector.verifyLedgersToDelete(candidates)));
+        }
+        List<List<Long>> ledgersToDelete = new ArrayList<>(numParticipants);
+        for (Future<List<Long>> future : ledgersToDeleteFutures) {
+            ledgersToDelete.add(future == null ? null : getResult(future, "ledgers to delete"));
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Completed GC cycle of {} ledger storages in {} ms", numParticipants,
+                    TimeUnit.NANOSECONDS.toMillis(MathUtils.elapsedNanos(startTime)));
+        }
+        return ledgersToDelete;
+    }
+
+    private static <T> T getResult(Future<T> future, String result) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // collecting the garbage of this storage next time
+            LOG.warn("Failed to get the {} of a ledger storage, leaving it out of the GC cycle", result,
+                    e.getCause());
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -29,7 +29,10 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -117,12 +120,16 @@ public class GarbageCollectorThread implements Runnable {
 
     final ScanAndCompareGarbageCollector garbageCollector;
     final GarbageCleaner garbageCleaner;
+    // Shares the metadata scan with the other ledger storages of the bookie, null when not shared
+    private volatile GarbageCollectionCoordinator gcCoordinator;
 
     final ServerConfiguration conf;
     final LedgerDirsManager ledgerDirsManager;
 
     private static final AtomicLong threadNum = new AtomicLong(0);
     final AbstractLogCompactor.Throttler throttler;
+    // Adapts the compaction rate to the foreground I/O latency, null when disabled
+    final CompactionIoScheduler ioScheduler;
 
     /**
      * Create a garbage collector thread.
@@ -171,7 +178,8 @@ public class GarbageCollectorThread implements Runnable {
             statsLogger,
             () -> numActiveEntryLogs,
             () -> totalEntryLogSize,
-            () -> garbageCollector.getNumActiveLedgers()
+            () -> garbageCollector.getNumActiveLedgers(),
+            this::getCompactionRatePercent
         );
 
         this.garbageCleaner = ledgerId -> {
@@ -217,6 +225,13 @@ public class GarbageCollectorThread implements Runnable {
         }
 
         this.throttler = new AbstractLogCompactor.Throttler(conf);
+        if (conf.isCompactionIoBudgetEnabled()) {
+            this.ioScheduler = new CompactionIoScheduler(conf, gcStats.getCompactionIoBudgetPauseCounter());
+            this.compactor.throttler.setIoScheduler(ioScheduler);
+            this.throttler.setIoScheduler(ioScheduler);
+        } else {
+            this.ioScheduler = null;
+        }
         if (minorCompactionInterval > 0 && minorCompactionThreshold > 0) {
             if (minorCompactionThreshold > 1.0d) {
                 throw new IOException("Invalid minor compaction threshold "
@@ -326,6 +341,28 @@ public class GarbageCollectorThread implements Runnable {
             });
     }
 
+    /**
+     * Set the tracker of the journal force write latency, used as a signal to budget the compaction I/O.
+     */
+    public void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {
+        if (ioScheduler != null) {
+            ioScheduler.setJournalLatencyTracker(journalLatencyTracker);
+        }
+    }
+
+    /**
+     * Record the latency of a foreground entry read, used as a signal to budget the compaction I/O.
+     */
+    public void recordReadLatency(long latencyNanos) {
+        if (ioScheduler != null) {
+            ioScheduler.getReadLatencyTracker().record(latencyNanos);
+        }
+    }
+
+    private int getCompactionRatePercent() {
+        return ioScheduler != null ? ioScheduler.getRatePercent() : 100;
+    }
+
     public boolean isInForceGC() {
         return forceGarbageCollection.get();
     }
@@ -478,7 +515,21 @@ public class GarbageCollectorThread implements Runnable {
      * Do garbage collection ledger index files.
      */
     private void doGcLedgers() {
-        garbageCollector.gc(garbageCleaner);
+        GarbageCollectionCoordinator coordinator = gcCoordinator;
+        if (coordinator != null) {
+            coordinator.gc(garbageCollector, garbageCleaner);
+        } else {
+            garbageCollector.gc(garbageCleaner);
+        }
+    }
+
+    /**
+     * Garbage collect the ledgers through a coordinator shared with the other ledger storages of the
+     * bookie, instead of scanning the metadata store on its own.
+     */
+    public void setGcCoordinator(GarbageCollectionCoordinator gcCoordinator) {
+        gcCoordinator.register(garbageCollector);
+        this.gcCoordinator = gcCoordinator;
     }
 
     /**
@@ -560,6 +611,7 @@ public class GarbageCollectorThread implements Runnable {
         long start = System.currentTimeMillis();
         MutableLong end = new MutableLong(start);
         MutableLong timeDiff = new MutableLong(0);
+        Map<Long, Double> compactionEfficiency = new HashMap<>();
 
         entryLogMetaMap.forEach((entryLogId, meta) -> {
             double usage = meta.getUsage();
@@ -582,8 +634,20 @@ public class GarbageCollectorThread implements Runnable {
             }
 
             compactableBuckets.get(bucketIndex).add(meta.getEntryLogId());
+            if (ioScheduler != null) {
+                compactionEfficiency.put(meta.getEntryLogId(), CompactionIoScheduler.compactionEfficiency(meta));
+            }
         });
 
+        if (ioScheduler != null) {
+            // With a limited I/O budget, compact first the entry logs that reclaim the most space
+            // for the I/O needed to compact them
+            Comparator<Long> byEfficiency = Comparator.comparingDouble(compactionEfficiency::get);
+            for (LinkedList<Long> bucket : compactableBuckets) {
+                bucket.sort(byEfficiency.reversed());
+            }
+        }
+
         LOG.info(
                 "Compaction: entry log usage buckets before compaction [10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}",
                 entryLogUsageBuckets);
@@ -174,6 +174,11 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
         this.checkpointer = checkpointer;
     }
 
+    @Override
+    public void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {
+        gcThread.setJournalLatencyTracker(journalLatencyTracker);
+    }
+
     public void initializeWithEntryLogger(ServerConfiguration conf,
                 LedgerManager ledgerManager,
                 LedgerDirsManager ledgerDirsManager,
@@ -439,7 +444,9 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
             return retBytes;
         } finally {
             if (success) {
-                getEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                long elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
+                getEntryStats.registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                gcThread.recordReadLatency(elapsedNanos);
             } else {
                 getEntryStats.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
             }
@@ -0,0 +1,49 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the latency of a foreground I/O operation (e.g. journal force writes or entry reads),
+ * so that background tasks can adapt the amount of I/O they issue.
+ *
+ * <p>Counters are cumulative, readers compute averages over their own sampling windows by taking
+ * the difference between two samples.
+ */
+public class IoLatencyTracker {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+
+    public void record(long latencyNanos) {
+        count.increment();
+        totalLatencyNanos.add(latencyNanos);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotalLatencyNanos() {
+        return totalLatencyNanos.sum();
+    }
+}
@@ -32,6 +32,7 @@ import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -39,8 +40,14 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.LedgerDirsManager.NoWritableLedgerDirException;
@@ -51,7 +58,10 @@ import org.apache.bookkeeper.common.collections.BlockingMpscQueue;
 import org.apache.bookkeeper.common.collections.RecyclableArrayList;
 import org.apache.bookkeeper.common.util.MemoryLimitController;
 import org.apache.bookkeeper.common.util.affinity.CpuAffinity;
+import org.apache.bookkeeper.common.util.nativeio.NativeIO;
+import org.apache.bookkeeper.common.util.nativeio.NativeIOImpl;
 import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.proto.BookieProtocol;
 import org.apache.bookkeeper.proto.BookieRequestHandler;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.stats.Counter;
@@ -90,6 +100,10 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 int capacity) -> new BufferedChannel(UnpooledByteBufAllocator.DEFAULT, fc, capacity);
 
         BufferedChannel create(FileChannel fc, int capacity) throws IOException;
+
+        default BufferedChannel create(File file, FileChannel fc, int capacity) throws IOException {
+            return create(fc, capacity);
+        }
     }
 
 
@@ -334,6 +348,15 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             recycle();
         }
 
+        /**
+         * Complete the entry with an error, when it could not be made durable.
+         */
+        void fail(int rc) {
+            journalAddEntryStats.registerFailedEvent(MathUtils.elapsedNanos(enqueueTime), TimeUnit.NANOSECONDS);
+            cb.writeComplete(rc, ledgerId, entryId, null, ctx);
+            recycle();
+        }
+
         private Object getCtx() {
             return ctx;
         }
@@ -391,6 +414,26 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             return forceWriteWaiters.size();
         }
 
+        /**
+         * Fail the waiters of a force write that did not succeed, or that was queued behind one that did not.
+         */
+        public int fail(int rc, ObjectHashSet<BookieRequestHandler> writeHandlers) {
+            closeFileIfNecessary();
+
+            for (int i = 0; i < forceWriteWaiters.size(); i++) {
+                QueueEntry qe = forceWriteWaiters.get(i);
+                if (qe != null) {
+                    if (qe.getCtx() instanceof BookieRequestHandler
+                            && qe.entryId != BookieImpl.METAENTRY_ID_FORCE_LEDGER) {
+                        writeHandlers.add((BookieRequestHandler) qe.getCtx());
+                    }
+                    qe.fail(rc);
+                }
+            }
+
+            return forceWriteWaiters.size();
+        }
+
         private void flushFileToDisk() throws IOException {
             if (!flushed) {
                 logFile.forceWrite(false);
@@ -465,14 +508,18 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
         // should we group force writes
         private final boolean enableGroupForceWrites;
+        // max number of force writes in flight
+        private final int pipelineDepth;
         private final Counter forceWriteThreadTime;
 
         public ForceWriteThread(Thread threadToNotifyOnEx,
                                 boolean enableGroupForceWrites,
+                                int pipelineDepth,
                                 StatsLogger statsLogger) {
             super("ForceWriteThread");
             this.threadToNotifyOnEx = threadToNotifyOnEx;
             this.enableGroupForceWrites = enableGroupForceWrites;
+            this.pipelineDepth = pipelineDepth;
             this.forceWriteThreadTime = statsLogger.getThreadScopedCounter("force-write-thread-time");
         }
         @Override
@@ -488,6 +535,12 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 }
             }
 
+            if (pipelineDepth > 1) {
+                runPipelined();
+                threadToNotifyOnEx.interrupt();
+                return;
+            }
+
             final ObjectHashSet<BookieRequestHandler> writeHandlers = new ObjectHashSet<>();
             final ForceWriteRequest[] localRequests = new ForceWriteRequest[conf.getJournalQueueSize()];
 
@@ -533,13 +586,137 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             threadToNotifyOnEx.interrupt();
         }
 
+        /**
+         * Pipelined variant of the force write loop.
+         *
+         * <p>Up to {@link #pipelineDepth} groups of requests are synced concurrently, each on its own thread, while
+         * new requests keep being grouped. The requests are still completed in order: a group is only completed
+         * once its own sync and all the previous groups are done. Once a sync fails, its group and all the groups
+         * behind it are failed, since the journal can no longer be made durable past the failed sync.
+         */
+        private void runPipelined() {
+            final ExecutorService syncExecutor = Executors.newFixedThreadPool(pipelineDepth,
+                    new DefaultThreadFactory("ForceWriteThread-sync"));
+            final Semaphore pipelineSlots = new Semaphore(pipelineDepth);
+            final ObjectHashSet<BookieRequestHandler> writeHandlers = new ObjectHashSet<>();
+            final ForceWriteRequest[] localRequests = new ForceWriteRequest[conf.getJournalQueueSize()];
+            // completes with whether all the groups so far succeeded, it never completes exceptionally
+            CompletableFuture<Boolean> lastCompletion = CompletableFuture.completedFuture(true);
+            boolean interrupted = false;
+
+            while (running) {
+                try {
+                    long waitStartTime = MathUtils.nowInNano();
+                    pipelineSlots.acquire();
+                    journalStats.getForceWritePipelineWaitStats()
+                            .registerSuccessfulEvent(MathUtils.elapsedNanos(waitStartTime), TimeUnit.NANOSECONDS);
+
+                    int requestsCount;
+                    try {
+                        requestsCount = forceWriteRequests.takeAll(localRequests);
+                    } catch (InterruptedException e) {
+                        pipelineSlots.release();
+                        throw e;
+                    }
+
+                    journalStats.getForceWriteQueueSize().addCount(-requestsCount);
+                    journalStats.getForceWriteInFlight().inc();
+
+                    final ForceWriteRequest[] requests = Arrays.copyOf(localRequests, requestsCount);
+                    Arrays.fill(localRequests, 0, requestsCount, null);
+
+                    final CompletableFuture<Throwable> sync = CompletableFuture.runAsync(() -> {
+                        try {
+                            forceWrite(requests[requests.length - 1]);
+                        } catch (IOException ioe) {
+                            throw new CompletionException(ioe);
+                        }
+                    }, syncExecutor).handle((ignore, ex) -> ex);
+                    lastCompletion = sync.thenCombine(lastCompletion, (syncException, previousSucceeded) -> {
+                        boolean succeeded = previousSucceeded && syncException == null;
+                        try {
+                            completeForceWrites(requests, succeeded, writeHandlers);
+                        } catch (Throwable t) {
+                            LOG.error("Failed to complete journal force write requests", t);
+                            succeeded = false;
+                        } finally {
+                            journalStats.getForceWriteInFlight().dec();
+                            pipelineSlots.release();
+                        }
+                        if (syncException != null && running) {
+                            LOG.error("I/O exception in ForceWrite thread", syncException);
+                            running = false;
+                            this.interrupt();
+                        }
+                        return succeeded;
+                    });
+                } catch (InterruptedException e) {
+                    // the interrupt flag is restored once the force writes in flight are done, otherwise they
+                    // would not be waited for
+                    interrupted = true;
+                    LOG.info("ForceWrite thread interrupted");
+                    running = false;
+                }
+            }
+
+            // Let the force writes in flight complete
+            syncExecutor.shutdown();
+            try {
+                if (!syncExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    LOG.warn("Timed out waiting for journal force writes in flight to complete");
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void completeForceWrites(ForceWriteRequest[] requests, boolean succeeded,
+                                         ObjectHashSet<BookieRequestHandler> writeHandlers) {
+            if (succeeded) {
+                ForceWriteRequest lastRequest = requests[requests.length - 1];
+                lastLogMark.setCurLogMark(lastRequest.logId, lastRequest.lastFlushedPosition);
+            }
+
+            int numEntriesInLastForceWrite = 0;
+            try {
+                for (ForceWriteRequest req : requests) {
+                    if (succeeded) {
+                        numEntriesInLastForceWrite += req.process(writeHandlers);
+                    } else {
+                        req.fail(BookieProtocol.EIO, writeHandlers);
+                    }
+                    req.recycle();
+                }
+            } finally {
+                if (succeeded) {
+                    journalStats.getForceWriteGroupingCountStats()
+                            .registerSuccessfulValue(numEntriesInLastForceWrite);
+                }
+                writeHandlers.forEach(
+                        (ObjectProcedure<? super BookieRequestHandler>)
+                                BookieRequestHandler::flushPendingResponse);
+                writeHandlers.clear();
+            }
+        }
+
         private void syncJournal(ForceWriteRequest lastRequest) throws IOException {
+            forceWrite(lastRequest);
+            lastLogMark.setCurLogMark(lastRequest.logId, lastRequest.lastFlushedPosition);
+        }
+
+        private void forceWrite(ForceWriteRequest lastRequest) throws IOException {
             long fsyncStartTime = MathUtils.nowInNano();
             try {
                 lastRequest.flushFileToDisk();
-                journalStats.getJournalSyncStats().registerSuccessfulEvent(MathUtils.elapsedNanos(fsyncStartTime),
-                        TimeUnit.NANOSECONDS);
-                lastLogMark.setCurLogMark(lastRequest.logId, lastRequest.lastFlushedPosition);
+                long fsyncNanos = MathUtils.elapsedNanos(fsyncStartTime);
+                journalStats.getJournalSyncStats().registerSuccessfulEvent(fsyncNanos, TimeUnit.NANOSECONDS);
+                IoLatencyTracker latencyTracker = forceWriteLatencyTracker;
+                if (latencyTracker != null) {
+                    latencyTracker.record(fsyncNanos);
+                }
             } catch (IOException ioe) {
                 journalStats.getJournalSyncStats()
                         .registerFailedEvent(MathUtils.elapsedNanos(fsyncStartTime), TimeUnit.NANOSECONDS);
@@ -625,12 +802,17 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
     private final long journalPageCacheFlushIntervalMSec;
     // Whether reuse journal files, it will use maxBackupJournal as the journal file pool.
     private final boolean journalReuseFiles;
+    // Whether to write journal files with direct I/O, null when disabled or not supported
+    private volatile NativeIO directIO;
 
     // Should data be fsynced on disk before triggering the callback
     private final boolean syncData;
 
     private final LastLogMark lastLogMark = new LastLogMark(0, 0);
 
+    // Latency of the force writes, shared with the background tasks that budget their I/O on it
+    private volatile IoLatencyTracker forceWriteLatencyTracker;
+
     private static final String LAST_MARK_DEFAULT_NAME = "lastMark";
 
     private final String lastMarkFileName;
@@ -687,7 +869,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         this.syncData = conf.getJournalSyncData();
         this.maxBackupJournals = conf.getMaxBackupJournals();
         this.forceWriteThread = new ForceWriteThread(this, conf.getJournalAdaptiveGroupWrites(),
-                journalStatsLogger);
+                conf.getJournalForceWritePipelineDepth(), journalStatsLogger);
         this.maxGroupWaitInNanos = TimeUnit.MILLISECONDS.toNanos(conf.getJournalMaxGroupWaitMSec());
         this.bufferedWritesThreshold = conf.getJournalBufferedWritesThreshold();
         this.bufferedEntriesThreshold = conf.getJournalBufferedEntriesThreshold();
@@ -695,6 +877,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         this.journalAlignmentSize = conf.getJournalAlignmentSize();
         this.journalPageCacheFlushIntervalMSec = conf.getJournalPageCacheFlushIntervalMSec();
         this.journalReuseFiles = conf.getJournalReuseFiles();
+        this.directIO = conf.getJournalDirectIO() ? new NativeIOImpl() : null;
         this.callbackTime = journalStatsLogger.getThreadScopedCounter("callback-time");
 
         this.journalTime = journalStatsLogger.getThreadScopedCounter("journal-thread-time");
@@ -906,6 +1089,33 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 callbackTime));
     }
 
+    /**
+     * Log a batch of entries, handing them to the journal thread with a single queue operation.
+     * Each entry is still acknowledged through its own callback.
+     */
+    public void logAddEntries(ByteBuf[] entries, WriteCallback[] cbs, int offset, int length,
+                              boolean ackBeforeSync, Object ctx)
+            throws InterruptedException {
+        QueueEntry[] queueEntries = new QueueEntry[length];
+        long enqueueTime = MathUtils.nowInNano();
+        long totalSize = 0;
+        for (int i = 0; i < length; i++) {
+            ByteBuf entry = entries[offset + i];
+            // Retain entry until it gets written to journal
+            entry.retain();
+            totalSize += entry.readableBytes();
+            queueEntries[i] = QueueEntry.create(
+                    entry, ackBeforeSync, entry.getLong(entry.readerIndex()), entry.getLong(entry.readerIndex() + 8),
+                    cbs[offset + i], ctx, enqueueTime, journalStats.getJournalAddEntryStats(), callbackTime);
+        }
+
+        journalStats.getJournalQueueSize().addCount(length);
+
+        memoryLimitController.reserveMemory(totalSize);
+
+        queue.putAll(queueEntries, 0, length);
+    }
+
     void forceLedger(long ledgerId, WriteCallback cb, Object ctx) {
         queue.add(QueueEntry.create(
                 null, false /* ackBeforeSync */, ledgerId,
@@ -1223,8 +1433,36 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         LOG.info("Journal exited loop!");
     }
 
+    /**
+     * Set the tracker where the latency of the journal force writes is recorded.
+     */
+    public void setForceWriteLatencyTracker(IoLatencyTracker forceWriteLatencyTracker) {
+        this.forceWriteLatencyTracker = forceWriteLatencyTracker;
+    }
+
     public BufferedChannelBuilder getBufferedChannelBuilder() {
-        return (FileChannel fc, int capacity) -> new BufferedChannel(allocator, fc, capacity);
+        return new BufferedChannelBuilder() {
+            @Override
+            public BufferedChannel create(FileChannel fc, int capacity) throws IOException {
+                return new BufferedChannel(allocator, fc, capacity);
+            }
+
+            @Override
+            public BufferedChannel create(File file, FileChannel fc, int capacity) throws IOException {
+                NativeIO nativeIO = directIO;
+                if (nativeIO != null) {
+                    try {
+                        return new DirectIOBufferedChannel(allocator, nativeIO, file, fc, capacity);
+                    } catch (IOException | LinkageError e) {
+                        // Native library not available or filesystem without O_DIRECT support
+                        LOG.warn("Unable to write journal {} with direct I/O, falling back to buffered writes: {}",
+                                file, e.toString());
+                        directIO = null;
+                    }
+                }
+                return create(fc, capacity);
+            }
+        };
     }
 
     /**
@@ -185,11 +185,11 @@ class JournalChannel implements Closeable {
             }
             fc = channel.getFileChannel();
             formatVersion = formatVersionToWrite;
-            writeHeader(bcBuilder, writeBufferSize);
+            writeHeader(fn, bcBuilder, writeBufferSize);
         } else if (reuseFile) { // Open an existing journal to write, it needs fileChannelProvider support reuse file.
             fc = channel.getFileChannel();
             formatVersion = formatVersionToWrite;
-            writeHeader(bcBuilder, writeBufferSize);
+            writeHeader(fn, bcBuilder, writeBufferSize);
         } else {  // open an existing file to read.
             fc = channel.getFileChannel();
             bc = null; // readonly
@@ -247,7 +247,7 @@ class JournalChannel implements Closeable {
         }
     }
 
-    private void writeHeader(Journal.BufferedChannelBuilder bcBuilder,
+    private void writeHeader(File fn, Journal.BufferedChannelBuilder bcBuilder,
                              int writeBufferSize) throws IOException {
         int headerSize = (V4 == formatVersion) ? VERSION_HEADER_SIZE : HEADER_SIZE;
         ByteBuffer bb = ByteBuffer.allocate(headerSize);
@@ -258,10 +258,10 @@ class JournalChannel implements Closeable {
         bb.clear();
         fc.write(bb);
 
-        bc = bcBuilder.create(fc, writeBufferSize);
+        bc = bcBuilder.create(fn, fc, writeBufferSize);
         forceWrite(true);
         nextPrealloc = this.preAllocSize;
-        fc.write(zeros, nextPrealloc - journalAlignSize);
+        preallocate();
     }
 
     public static void renameJournalFile(File source, File target) throws IOException {
@@ -285,6 +285,15 @@ class JournalChannel implements Closeable {
     void preAllocIfNeeded(long size) throws IOException {
         if (bc.position() + size > nextPrealloc) {
             nextPrealloc += preAllocSize;
+            preallocate();
+        }
+    }
+
+    private void preallocate() throws IOException {
+        if (bc instanceof DirectIOBufferedChannel) {
+            // Don't mix buffered writes with the direct writes of the journal
+            ((DirectIOBufferedChannel) bc).preallocate(nextPrealloc);
+        } else {
             zeros.clear();
             fc.write(zeros, nextPrealloc - journalAlignSize);
         }
@@ -62,6 +62,12 @@ public interface LedgerStorage {
     void setCheckpointSource(CheckpointSource checkpointSource);
     void setCheckpointer(Checkpointer checkpointer);
 
+    /**
+     * Set the tracker of the journal force write latency, that the storage can use to
+     * budget its background I/O, like entry log compaction.
+     */
+    default void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {}
+
     /**
      * Start any background threads belonging to the storage system. For example, garbage collection.
      */
@@ -144,6 +150,67 @@ public interface LedgerStorage {
      */
     ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException;
 
+    /**
+     * Read up to {@code maxCount} consecutive entries, stopping before the total size goes over
+     * {@code maxSize}. The first entry is always returned whatever its size, and the range ends at
+     * the first entry that cannot be read.
+     *
+     * @throws IOException if the first entry cannot be read
+     * @throws BookieException if the first entry cannot be read
+     */
+    default List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, BookieException {
+        List<ByteBuf> entries = new ArrayList<>(Math.min(Math.max(maxCount, 1), 64));
+        ByteBuf first = getEntry(ledgerId, firstEntryId);
+        entries.add(first);
+        long totalSize = first.readableBytes();
+        boolean success = false;
+        try {
+            for (long entryId = firstEntryId + 1; entries.size() < maxCount; entryId++) {
+                ByteBuf entry;
+                try {
+                    entry = getEntry(ledgerId, entryId);
+                } catch (IOException | BookieException e) {
+                    break;
+                }
+                totalSize += entry.readableBytes();
+                if (totalSize > maxSize) {
+                    entry.release();
+                    break;
+                }
+                entries.add(entry);
+            }
+            success = true;
+            return entries;
+        } finally {
+            if (!success) {
+                entries.forEach(ByteBuf::release);
+            }
+        }
+    }
+
+    /**
+     * Read an entry, or get the region of the file where it is stored so that it can be sent without being
+     * copied in memory, with a single lookup of its location.
+     *
+     * @return the region of the entry, or the entry if it is cached in memory, smaller than minEntrySize, or
+     *         cannot be read from a file
+     */
+    default EntryReadResult getEntryOrRegion(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, BookieException {
+        return getEntryReadResult(ledgerId, entryId);
+    }
+
+    /**
+     * Read an entry, flagged with whether its checksum was verified by the storage, like when it was read from
+     * or inserted in a read cache that verifies the checksums.
+     *
+     * @return the entry, flagged as verified only if it is known to match its checksum
+     */
+    default EntryReadResult getEntryReadResult(long ledgerId, long entryId) throws IOException, BookieException {
+        return new EntryReadResult(getEntry(ledgerId, entryId), false);
+    }
+
     /**
      * Get last add confirmed.
      *
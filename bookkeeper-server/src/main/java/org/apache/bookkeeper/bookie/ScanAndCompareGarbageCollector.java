@@ -26,6 +26,8 @@ import static org.apache.bookkeeper.common.concurrent.FutureUtils.result;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.Set;
@@ -121,100 +123,163 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
         try {
             // Get a set of all ledgers on the bookie
-            NavigableSet<Long> bkActiveLedgers = Sets.newTreeSet(ledgerStorage.getActiveLedgersInRange(0,
-                    Long.MAX_VALUE));
-            this.activeLedgerCounter = bkActiveLedgers.size();
-
-            long curTime = System.currentTimeMillis();
-            boolean checkOverreplicatedLedgers = (enableGcOverReplicatedLedger && curTime
-                    - lastOverReplicatedLedgerGcTimeMillis > gcOverReplicatedLedgerIntervalMillis);
-            if (checkOverreplicatedLedgers) {
-                LOG.info("Start removing over-replicated ledgers. activeLedgerCounter={}", activeLedgerCounter);
-
-                // remove all the overreplicated ledgers from the local bookie
-                Set<Long> overReplicatedLedgers = removeOverReplicatedledgers(bkActiveLedgers, garbageCleaner);
-                if (overReplicatedLedgers.isEmpty()) {
-                    LOG.info("No over-replicated ledgers found.");
-                } else {
-                    LOG.info("Removed over-replicated ledgers: {}", overReplicatedLedgers);
-                }
-                lastOverReplicatedLedgerGcTimeMillis = System.currentTimeMillis();
+            NavigableSet<Long> bkActiveLedgers = getActiveLedgers();
+
+            gcOverReplicatedLedgersIfDue(bkActiveLedgers, garbageCleaner);
+
+            List<Long> ledgersNotInMetadata = new ArrayList<>();
+            scanMetadata(ledgerManager, conf, Collections.singletonList(bkActiveLedgers),
+                    Collections.singletonList(ledgersNotInMetadata));
+            for (long ledgerId : verifyLedgersToDelete(ledgersNotInMetadata)) {
+                garbageCleaner.clean(ledgerId);
             }
+        } catch (Throwable t) {
+            // ignore exception, collecting garbage next time
+            LOG.warn("Exception when iterating over the metadata", t);
+        }
+    }
 
-            // Iterate over all the ledger on the metadata store
-            long zkOpTimeoutMs = this.conf.getZkTimeout() * 2;
-            LedgerRangeIterator ledgerRangeIterator = ledgerManager
-                    .getLedgerRanges(zkOpTimeoutMs);
-            Set<Long> ledgersInMetadata = null;
-            long start;
-            long end = -1;
-            boolean done = false;
-            AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
-            Versioned<LedgerMetadata> metadata = null;
-            while (!done) {
-                start = end + 1;
-                if (ledgerRangeIterator.hasNext()) {
-                    LedgerRange lRange = ledgerRangeIterator.next();
-                    ledgersInMetadata = lRange.getLedgers();
-                    end = lRange.end();
-                } else {
-                    ledgersInMetadata = new TreeSet<>();
-                    end = Long.MAX_VALUE;
-                    done = true;
-                }
+    /**
+     * Get the set of all ledgers on the bookie.
+     */
+    NavigableSet<Long> getActiveLedgers() throws IOException {
+        NavigableSet<Long> bkActiveLedgers = Sets.newTreeSet(ledgerStorage.getActiveLedgersInRange(0,
+                Long.MAX_VALUE));
+        this.activeLedgerCounter = bkActiveLedgers.size();
+        return bkActiveLedgers;
+    }
+
+    /**
+     * Remove the over-replicated ledgers among the active ledgers of the bookie, if it is time to check them
+     * again.
+     */
+    void gcOverReplicatedLedgersIfDue(NavigableSet<Long> bkActiveLedgers, GarbageCleaner garbageCleaner)
+            throws Exception {
+        if (isOverReplicatedLedgerGcDue()) {
+            gcOverReplicatedLedgers(bkActiveLedgers, garbageCleaner);
+        }
+    }
+
+    private boolean isOverReplicatedLedgerGcDue() {
+        return enableGcOverReplicatedLedger
+                && System.currentTimeMillis() - lastOverReplicatedLedgerGcTimeMillis
+                > gcOverReplicatedLedgerIntervalMillis;
+    }
+
+    private void gcOverReplicatedLedgers(NavigableSet<Long> bkActiveLedgers, GarbageCleaner garbageCleaner)
+            throws Exception {
+        LOG.info("Start removing over-replicated ledgers. activeLedgerCounter={}", activeLedgerCounter);
+
+        // remove all the overreplicated ledgers from the local bookie
+        Set<Long> overReplicatedLedgers = removeOverReplicatedledgers(bkActiveLedgers, garbageCleaner);
+        if (overReplicatedLedgers.isEmpty()) {
+            LOG.info("No over-replicated ledgers found.");
+        } else {
+            LOG.info("Removed over-replicated ledgers: {}", overReplicatedLedgers);
+        }
+        lastOverReplicatedLedgerGcTimeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Iterate once over all the ledgers on the metadata store, and collect the active ledgers of each
+     * set that are missing in the metadata.
+     *
+     * <p>The sets of active ledgers must be taken before the scan starts, so that a ledger created during
+     * the scan is never seen as missing.
+     *
+     * @param bkActiveLedgers sets of active ledgers on the bookie
+     * @param ledgersNotInMetadata lists where the ledgers of the set at the same index that are missing in
+     *                             the metadata are added
+     */
+    static void scanMetadata(LedgerManager ledgerManager, ServerConfiguration conf,
+                             List<NavigableSet<Long>> bkActiveLedgers, List<List<Long>> ledgersNotInMetadata)
+            throws IOException {
+        long zkOpTimeoutMs = conf.getZkTimeout() * 2;
+        LedgerRangeIterator ledgerRangeIterator = ledgerManager
+                .getLedgerRanges(zkOpTimeoutMs);
+        Set<Long> ledgersInMetadata = null;
+        long start;
+        long end = -1;
+        boolean done = false;
+        while (!done) {
+            start = end + 1;
+            if (ledgerRangeIterator.hasNext()) {
+                LedgerRange lRange = ledgerRangeIterator.next();
+                ledgersInMetadata = lRange.getLedgers();
+                end = lRange.end();
+            } else {
+                ledgersInMetadata = new TreeSet<>();
+                end = Long.MAX_VALUE;
+                done = true;
+            }
 
-                Iterable<Long> subBkActiveLedgers = bkActiveLedgers.subSet(start, true, end, true);
+            for (int i = 0; i < bkActiveLedgers.size(); i++) {
+                Iterable<Long> subBkActiveLedgers = bkActiveLedgers.get(i).subSet(start, true, end, true);
 
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Active in metadata {}, Active in bookie {}", ledgersInMetadata, subBkActiveLedgers);
                 }
                 for (Long bkLid : subBkActiveLedgers) {
                     if (!ledgersInMetadata.contains(bkLid)) {
-                        if (verifyMetadataOnGc) {
-                            isBookieInEnsembles.set(false);
-                            metadata = null;
-                            int rc = BKException.Code.OK;
-                            try {
-                                metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
-                                        TimeUnit.MILLISECONDS);
-                            } catch (BKException | TimeoutException e) {
-                                if (e instanceof BKException) {
-                                    rc = ((BKException) e).getCode();
-                                } else {
-                                    LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
-                                            e.getMessage());
-
-                                    continue;
-                                }
-                            }
-                            // check bookie should be part of ensembles in one
-                            // of the segment else ledger should be deleted from
-                            // local storage
-                            if (metadata != null && metadata.getValue() != null) {
-                                metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
-                                    if (ensembles != null && ensembles.contains(selfBookieAddress)) {
-                                        isBookieInEnsembles.set(true);
-                                    }
-                                });
-                                if (isBookieInEnsembles.get()) {
-                                    continue;
-                                }
-                            } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
-                                LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
-                                        bkLid, rc);
-                                continue;
-                            }
-                        }
-                        garbageCleaner.clean(bkLid);
+                        ledgersNotInMetadata.get(i).add(bkLid);
                     }
                 }
             }
-        } catch (Throwable t) {
-            // ignore exception, collecting garbage next time
-            LOG.warn("Exception when iterating over the metadata", t);
         }
     }
 
+    /**
+     * Filter the ledgers missing in the metadata listing down to the ones that can be deleted. When the
+     * metadata is verified on GC, each ledger is read again from the metadata store, and is kept if it
+     * still exists with this bookie in one of its ensembles, or if its metadata could not be read.
+     */
+    List<Long> verifyLedgersToDelete(List<Long> ledgersNotInMetadata) throws Exception {
+        if (!verifyMetadataOnGc) {
+            return ledgersNotInMetadata;
+        }
+
+        long zkOpTimeoutMs = this.conf.getZkTimeout() * 2;
+        List<Long> ledgersToDelete = new ArrayList<>(ledgersNotInMetadata.size());
+        AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
+        for (Long bkLid : ledgersNotInMetadata) {
+            isBookieInEnsembles.set(false);
+            Versioned<LedgerMetadata> metadata = null;
+            int rc = BKException.Code.OK;
+            try {
+                metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
+                        TimeUnit.MILLISECONDS);
+            } catch (BKException | TimeoutException e) {
+                if (e instanceof BKException) {
+                    rc = ((BKException) e).getCode();
+                } else {
+                    LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
+                            e.getMessage());
+
+                    continue;
+                }
+            }
+            // check bookie should be part of ensembles in one
+            // of the segment else ledger should be deleted from
+            // local storage
+            if (metadata != null && metadata.getValue() != null) {
+                metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
+                    if (ensembles != null && ensembles.contains(selfBookieAddress)) {
+                        isBookieInEnsembles.set(true);
+                    }
+                });
+                if (isBookieInEnsembles.get()) {
+                    continue;
+                }
+            } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+                LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
+                        bkLid, rc);
+                continue;
+            }
+            ledgersToDelete.add(bkLid);
+        }
+        return ledgersToDelete;
+    }
+
     private Set<Long> removeOverReplicatedledgers(Set<Long> bkActiveledgers, final GarbageCleaner garbageCleaner)
             throws Exception {
         final Set<Long> overReplicatedLedgers = Sets.newHashSet();
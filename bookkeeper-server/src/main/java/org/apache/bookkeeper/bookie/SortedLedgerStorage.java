@@ -118,6 +118,11 @@ public class SortedLedgerStorage
         interleavedLedgerStorage.setCheckpointer(checkpointer);
     }
 
+    @Override
+    public void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {
+        interleavedLedgerStorage.setJournalLatencyTracker(journalLatencyTracker);
+    }
+
     @VisibleForTesting
     ScheduledExecutorService getScheduler() {
         return scheduler;
@@ -24,6 +24,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ACTIVE_ENTRY_LO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ACTIVE_LEDGER_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.BOOKIE_SCOPE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.COMPACTION_IO_BUDGET_PAUSE_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.COMPACTION_IO_BUDGET_RATE_PERCENT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.DELETED_LEDGER_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MAJOR_COMPACTION_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MINOR_COMPACTION_COUNT;
@@ -96,11 +98,22 @@ public class GarbageCollectorStats {
         help = "Current number of active ledgers"
     )
     private final Gauge<Integer> activeLedgerCountGauge;
+    @StatsDoc(
+        name = COMPACTION_IO_BUDGET_PAUSE_COUNT,
+        help = "Number of times compaction was paused because of the foreground I/O latency"
+    )
+    private final Counter compactionIoBudgetPauseCounter;
+    @StatsDoc(
+        name = COMPACTION_IO_BUDGET_RATE_PERCENT,
+        help = "Current compaction rate, as a percentage of the configured compaction rate"
+    )
+    private final Gauge<Integer> compactionIoBudgetRateGauge;
 
     public GarbageCollectorStats(StatsLogger statsLogger,
                                  Supplier<Integer> activeEntryLogCountSupplier,
                                  Supplier<Long> activeEntryLogSpaceBytesSupplier,
-                                 Supplier<Integer> activeLedgerCountSupplier) {
+                                 Supplier<Integer> activeLedgerCountSupplier,
+                                 Supplier<Integer> compactionRatePercentSupplier) {
         this.statsLogger = statsLogger;
 
         this.minorCompactionCounter = statsLogger.getCounter(MINOR_COMPACTION_COUNT);
@@ -109,6 +122,7 @@ public class GarbageCollectorStats {
         this.reclaimedSpaceViaDeletes = statsLogger.getCounter(RECLAIMED_DELETION_SPACE_BYTES);
         this.gcThreadRuntime = statsLogger.getOpStatsLogger(THREAD_RUNTIME);
         this.deletedLedgerCounter = statsLogger.getCounter(DELETED_LEDGER_COUNT);
+        this.compactionIoBudgetPauseCounter = statsLogger.getCounter(COMPACTION_IO_BUDGET_PAUSE_COUNT);
 
         this.activeEntryLogCountGauge = new Gauge<Integer>() {
             @Override
@@ -146,6 +160,18 @@ public class GarbageCollectorStats {
             }
         };
         statsLogger.registerGauge(ACTIVE_LEDGER_COUNT, activeLedgerCountGauge);
+        this.compactionIoBudgetRateGauge = new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 100;
+            }
+
+            @Override
+            public Integer getSample() {
+                return compactionRatePercentSupplier.get();
+            }
+        };
+        statsLogger.registerGauge(COMPACTION_IO_BUDGET_RATE_PERCENT, compactionIoBudgetRateGauge);
     }
 
 }
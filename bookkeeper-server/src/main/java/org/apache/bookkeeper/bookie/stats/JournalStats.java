@@ -30,6 +30,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_W
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_BATCH_ENTRIES;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_ENQUEUE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_GROUPING_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_IN_FLIGHT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_PIPELINE_WAIT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_QUEUE_SIZE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_MEMORY_MAX;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_MEMORY_USED;
@@ -140,6 +142,16 @@ public class JournalStats {
         help = "The force write queue size"
     )
     private final Counter forceWriteQueueSize;
+    @StatsDoc(
+        name = JOURNAL_FORCE_WRITE_IN_FLIGHT,
+        help = "The number of force writes in flight, when force writes are pipelined"
+    )
+    private final Counter forceWriteInFlight;
+    @StatsDoc(
+        name = JOURNAL_FORCE_WRITE_PIPELINE_WAIT,
+        help = "operation stats of waiting for a free slot in the force write pipeline"
+    )
+    private final OpStatsLogger forceWritePipelineWaitStats;
 
     @StatsDoc(
         name = JOURNAL_NUM_FLUSH_MAX_WAIT,
@@ -189,6 +201,9 @@ public class JournalStats {
         forceWriteBatchBytesStats = statsLogger.getOpStatsLogger(BookKeeperServerStats.JOURNAL_FORCE_WRITE_BATCH_BYTES);
         journalQueueSize = statsLogger.getCounter(BookKeeperServerStats.JOURNAL_QUEUE_SIZE);
         forceWriteQueueSize = statsLogger.getCounter(BookKeeperServerStats.JOURNAL_FORCE_WRITE_QUEUE_SIZE);
+        forceWriteInFlight = statsLogger.getCounter(BookKeeperServerStats.JOURNAL_FORCE_WRITE_IN_FLIGHT);
+        forceWritePipelineWaitStats =
+                statsLogger.getOpStatsLogger(BookKeeperServerStats.JOURNAL_FORCE_WRITE_PIPELINE_WAIT);
         flushMaxWaitCounter = statsLogger.getCounter(BookKeeperServerStats.JOURNAL_NUM_FLUSH_MAX_WAIT);
         flushMaxOutstandingBytesCounter =
                 statsLogger.getCounter(BookKeeperServerStats.JOURNAL_NUM_FLUSH_MAX_OUTSTANDING_BYTES);
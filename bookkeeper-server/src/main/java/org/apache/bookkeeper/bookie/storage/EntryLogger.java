@@ -26,6 +26,7 @@ import java.util.Collection;
 import org.apache.bookkeeper.bookie.AbstractLogCompactor;
 import org.apache.bookkeeper.bookie.Bookie.NoEntryException;
 import org.apache.bookkeeper.bookie.EntryLogMetadata;
+import org.apache.bookkeeper.bookie.EntryReadResult;
 
 
 /**
@@ -67,6 +68,22 @@ public interface EntryLogger extends AutoCloseable {
     ByteBuf readEntry(long ledgerId, long entryId, long entryLocation)
             throws IOException, NoEntryException;
 
+    /**
+     * Read an entry from an entrylog location, after verifying that it matches the expected ledger and
+     * entry ID, or get the region of the entrylog file where it is stored if it is large enough to be sent
+     * without being copied in memory. The location and the size of the entry are only looked up once.
+     * @param ledgerId the ledgerID to match
+     * @param entryId the entryID to match
+     * @param entryLocation the location of the entry
+     * @param minEntrySize the minimum size of the entry for a region to be returned
+     * @return the region of the entry, or the entry if it is smaller than minEntrySize or the region
+     *         cannot be read from the file
+     */
+    default EntryReadResult readEntryOrRegion(long ledgerId, long entryId, long entryLocation, int minEntrySize)
+            throws IOException, NoEntryException {
+        return new EntryReadResult(readEntry(ledgerId, entryId, entryLocation), false);
+    }
+
     /**
      * Flush any outstanding writes to disk.
      */
@@ -117,7 +117,7 @@ public class ArrayGroupSort {
     private static void insertionSort(long[] a, int low, int high) {
         for (int i = low + GROUP_SIZE; i <= high; i += GROUP_SIZE) {
             int j = i;
-            while (j > 0 && isLess(a, j, j - GROUP_SIZE)) {
+            while (j > low && isLess(a, j, j - GROUP_SIZE)) {
                 swap(a, j, j - GROUP_SIZE);
                 j -= GROUP_SIZE;
             }
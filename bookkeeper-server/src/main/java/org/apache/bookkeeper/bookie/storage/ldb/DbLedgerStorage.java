@@ -48,7 +48,10 @@ import org.apache.bookkeeper.bookie.CheckpointSource;
 import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.bookie.Checkpointer;
 import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.bookie.GarbageCollectionCoordinator;
 import org.apache.bookkeeper.bookie.GarbageCollectionStatus;
+import org.apache.bookkeeper.bookie.IoLatencyTracker;
 import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
 import org.apache.bookkeeper.bookie.LedgerCache;
 import org.apache.bookkeeper.bookie.LedgerDirsManager;
@@ -104,6 +107,24 @@ public class DbLedgerStorage implements LedgerStorage {
     static final String READ_AHEAD_CACHE_BATCH_SIZE = "dbStorage_readAheadCacheBatchSize";
     private static final int DEFAULT_READ_AHEAD_CACHE_BATCH_SIZE = 100;
 
+    static final String FLUSH_PARALLELISM = "dbStorage_flushParallelism";
+    static final int DEFAULT_FLUSH_PARALLELISM = 1;
+    static final String FLUSH_SYNC_CONCURRENTLY = "dbStorage_flushSyncConcurrently";
+
+    static final String READ_AHEAD_ADAPTIVE = "dbStorage_readAheadAdaptive";
+    static final String READ_AHEAD_THREADS = "dbStorage_readAheadThreads";
+    static final int DEFAULT_READ_AHEAD_THREADS = 1;
+
+    static final String READ_CACHE_SHARDED = "dbStorage_readCacheSharded";
+    static final String READ_CACHE_SHARDS = "dbStorage_readCacheShards";
+    static final int DEFAULT_READ_CACHE_SHARDS = 16;
+    // Verify the CRC32C checksum of the entries inserted in the read cache, so the clients can skip verifying them
+    static final String READ_CACHE_VERIFY_CHECKSUMS = "dbStorage_readCacheVerifyChecksums";
+
+    static final String GC_SHARED_METADATA_SCAN = "dbStorage_gcSharedMetadataScan";
+    static final String GC_MAX_CONCURRENT_DIRECTORIES = "dbStorage_gcMaxConcurrentDirectories";
+    static final int DEFAULT_GC_MAX_CONCURRENT_DIRECTORIES = 4;
+
     private static final long DEFAULT_DIRECT_IO_TOTAL_WRITEBUFFER_SIZE_MB =
         (long) (0.125 * PlatformDependent.estimateMaxDirectMemory())
             / MB;
@@ -114,6 +135,9 @@ public class DbLedgerStorage implements LedgerStorage {
 
     private static final int DEFAULT_DIRECT_IO_MAX_FD_CACHE_TIME_SECONDS = 300;
 
+    // max number of entries whose locations are looked up with a single index scan
+    public static final int LOCATIONS_LOOKUP_BATCH_SIZE = 1000;
+
     // use the storage assigned to ledger 0 for flags.
     // if the storage configuration changes, the flags may be lost
     // but in that case data integrity should kick off anyhow.
@@ -123,6 +147,7 @@ public class DbLedgerStorage implements LedgerStorage {
 
     private ExecutorService entryLoggerWriteExecutor = null;
     private ExecutorService entryLoggerFlushExecutor = null;
+    private GarbageCollectionCoordinator gcCoordinator = null;
 
     protected ByteBufAllocator allocator;
 
@@ -172,6 +197,13 @@ public class DbLedgerStorage implements LedgerStorage {
         long perDirectoryReadCacheSize = readCacheMaxSize / numberOfDirs;
         int readAheadCacheBatchSize = conf.getInt(READ_AHEAD_CACHE_BATCH_SIZE, DEFAULT_READ_AHEAD_CACHE_BATCH_SIZE);
 
+        if (numberOfDirs > 1 && conf.getBoolean(GC_SHARED_METADATA_SCAN, false)) {
+            int gcMaxConcurrentDirectories = conf.getInt(GC_MAX_CONCURRENT_DIRECTORIES,
+                    DEFAULT_GC_MAX_CONCURRENT_DIRECTORIES);
+            log.info(" - GC shared metadata scan, max concurrent directories: {}", gcMaxConcurrentDirectories);
+            gcCoordinator = new GarbageCollectionCoordinator(conf, ledgerManager, gcMaxConcurrentDirectories);
+        }
+
         ledgerStorageList = Lists.newArrayList();
         for (int i = 0; i < ledgerDirsManager.getAllLedgerDirs().size(); i++) {
             File ledgerDir = ledgerDirsManager.getAllLedgerDirs().get(i);
@@ -233,11 +265,15 @@ public class DbLedgerStorage implements LedgerStorage {
             } else {
                 entrylogger = new DefaultEntryLogger(conf, ldm, null, statsLogger, allocator);
             }
-            ledgerStorageList.add(newSingleDirectoryDbLedgerStorage(conf, ledgerManager, ldm,
-                idm, entrylogger,
+            SingleDirectoryDbLedgerStorage ledgerStorage = newSingleDirectoryDbLedgerStorage(conf, ledgerManager,
+                ldm, idm, entrylogger,
                 statsLogger, perDirectoryWriteCacheSize,
                 perDirectoryReadCacheSize,
-                readAheadCacheBatchSize));
+                readAheadCacheBatchSize);
+            if (gcCoordinator != null) {
+                ledgerStorage.setGcCoordinator(gcCoordinator);
+            }
+            ledgerStorageList.add(ledgerStorage);
             ldm.getListeners().forEach(ledgerDirsManager::addLedgerDirsListener);
             if (!lDirs[0].getPath().equals(iDirs[0].getPath())) {
                 idm.getListeners().forEach(indexDirsManager::addLedgerDirsListener);
@@ -296,6 +332,11 @@ public class DbLedgerStorage implements LedgerStorage {
         ledgerStorageList.forEach(s -> s.setCheckpointer(checkpointer));
     }
 
+    @Override
+    public void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {
+        ledgerStorageList.forEach(s -> s.setJournalLatencyTracker(journalLatencyTracker));
+    }
+
     @Override
     public void start() {
         ledgerStorageList.forEach(LedgerStorage::start);
@@ -313,6 +354,9 @@ public class DbLedgerStorage implements LedgerStorage {
         if (entryLoggerFlushExecutor != null) {
             entryLoggerFlushExecutor.shutdown();
         }
+        if (gcCoordinator != null) {
+            gcCoordinator.shutdown();
+        }
     }
 
     @Override
@@ -356,6 +400,23 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntry(ledgerId, entryId);
     }
 
+    @Override
+    public List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntries(ledgerId, firstEntryId, maxCount, maxSize);
+    }
+
+    @Override
+    public EntryReadResult getEntryOrRegion(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryOrRegion(ledgerId, entryId, minEntrySize);
+    }
+
+    @Override
+    public EntryReadResult getEntryReadResult(long ledgerId, long entryId) throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryReadResult(ledgerId, entryId);
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
@@ -421,6 +482,10 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntryLocationIndex().getLocation(ledgerId, entryId);
     }
 
+    public long[] getLocations(long ledgerId, long firstEntryId, int count) throws IOException {
+        return getLedgerStorage(ledgerId).getEntryLocationIndex().getLocations(ledgerId, firstEntryId, count);
+    }
+
     private SingleDirectoryDbLedgerStorage getLedgerStorage(long ledgerId) {
         return ledgerStorageList.get(MathUtils.signSafeMod(ledgerId, numberOfDirs));
     }
@@ -485,15 +550,19 @@ public class DbLedgerStorage implements LedgerStorage {
                 indexBasePath, NullStatsLogger.INSTANCE);
         try {
             long lastEntryId = entryLocationIndex.getLastEntryInLedger(ledgerId);
-            for (long currentEntry = 0; currentEntry <= lastEntryId; currentEntry++) {
-                long offset = entryLocationIndex.getLocation(ledgerId, currentEntry);
-                if (offset <= 0) {
-                    // entry not found in this bookie
-                    continue;
+            for (long firstEntry = 0; firstEntry <= lastEntryId; firstEntry += LOCATIONS_LOOKUP_BATCH_SIZE) {
+                int count = (int) Math.min(LOCATIONS_LOOKUP_BATCH_SIZE, lastEntryId - firstEntry + 1);
+                long[] offsets = entryLocationIndex.getLocations(ledgerId, firstEntry, count);
+                for (int i = 0; i < count; i++) {
+                    long offset = offsets[i];
+                    if (offset <= 0) {
+                        // entry not found in this bookie
+                        continue;
+                    }
+                    long entryLogId = offset >> 32L;
+                    long position = offset & 0xffffffffL;
+                    processor.process(firstEntry + i, entryLogId, position);
                 }
-                long entryLogId = offset >> 32L;
-                long position = offset & 0xffffffffL;
-                processor.process(currentEntry, entryLogId, position);
             }
         } finally {
             entryLocationIndex.close();
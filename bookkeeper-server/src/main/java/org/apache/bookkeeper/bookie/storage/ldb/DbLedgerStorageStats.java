@@ -55,11 +55,17 @@ class DbLedgerStorageStats {
     private static final String READAHEAD_BATCH_COUNT = "readahead-batch-count";
     private static final String READAHEAD_BATCH_SIZE = "readahead-batch-size";
     private static final String READAHEAD_TIME = "readahead-time";
+    private static final String READAHEAD_PREFETCHED_ENTRIES = "readahead-prefetched-entries";
+    private static final String READAHEAD_PREFETCH_HITS = "readahead-prefetch-hits";
+    private static final String READAHEAD_PREFETCH_HIT_RATIO = "readahead-prefetch-hit-ratio";
     private static final String FLUSH = "flush";
     private static final String FLUSH_ENTRYLOG = "flush-entrylog";
     private static final String FLUSH_LOCATIONS_INDEX = "flush-locations-index";
     private static final String FLUSH_LEDGER_INDEX = "flush-ledger-index";
     private static final String FLUSH_SIZE = "flush-size";
+    private static final String FLUSH_SORT = "flush-sort";
+    private static final String FLUSH_ENTRYLOG_WRITE = "flush-entrylog-write";
+    private static final String FLUSH_LOCATIONS_INDEX_BUILD = "flush-locations-index-build";
 
     @Deprecated
     private static final String THROTTLED_WRITE_REQUESTS = "throttled-write-requests";
@@ -134,6 +140,22 @@ class DbLedgerStorageStats {
             help = "Time spent on readahead operations"
     )
     private final Counter readAheadTime;
+    @StatsDoc(
+            name = READAHEAD_PREFETCHED_ENTRIES,
+            help = "number of entries inserted in the read cache by adaptive readahead"
+    )
+    private final Counter readAheadPrefetchedEntriesCounter;
+    @StatsDoc(
+            name = READAHEAD_PREFETCH_HITS,
+            help = "number of read cache hits on entries inserted by adaptive readahead",
+            parent = READ_ENTRY
+    )
+    private final Counter readAheadPrefetchHitCounter;
+    @StatsDoc(
+            name = READAHEAD_PREFETCH_HIT_RATIO,
+            help = "percentage of the entries inserted by adaptive readahead that were later read"
+    )
+    private final Gauge<Long> readAheadPrefetchHitRatioGauge;
     @StatsDoc(
         name = FLUSH,
         help = "operation stats of flushing write cache to entry log files"
@@ -159,6 +181,21 @@ class DbLedgerStorageStats {
         help = "the distribution of number of bytes flushed from write cache to entry log files"
     )
     private final OpStatsLogger flushSizeStats;
+    @StatsDoc(
+            name = FLUSH_SORT,
+            help = "time spent waiting for the write cache to be sorted, when flushing in parallel"
+    )
+    private final OpStatsLogger flushSortStats;
+    @StatsDoc(
+            name = FLUSH_ENTRYLOG_WRITE,
+            help = "operation stats of writing the write cache entries to the entry log, when flushing in parallel"
+    )
+    private final OpStatsLogger flushEntryLogWriteStats;
+    @StatsDoc(
+            name = FLUSH_LOCATIONS_INDEX_BUILD,
+            help = "operation stats of building the locations index batch, when flushing in parallel"
+    )
+    private final OpStatsLogger flushLocationIndexBuildStats;
     @StatsDoc(
         name = THROTTLED_WRITE_REQUESTS,
         help = "The number of requests throttled due to write cache is full"
@@ -212,11 +249,16 @@ class DbLedgerStorageStats {
         readAheadBatchCountStats = stats.getOpStatsLogger(READAHEAD_BATCH_COUNT);
         readAheadBatchSizeStats = stats.getOpStatsLogger(READAHEAD_BATCH_SIZE);
         readAheadTime = stats.getThreadScopedCounter(READAHEAD_TIME);
+        readAheadPrefetchedEntriesCounter = stats.getCounter(READAHEAD_PREFETCHED_ENTRIES);
+        readAheadPrefetchHitCounter = stats.getCounter(READAHEAD_PREFETCH_HITS);
         flushStats = stats.getOpStatsLogger(FLUSH);
         flushEntryLogStats = stats.getOpStatsLogger(FLUSH_ENTRYLOG);
         flushLocationIndexStats = stats.getOpStatsLogger(FLUSH_LOCATIONS_INDEX);
         flushLedgerIndexStats = stats.getOpStatsLogger(FLUSH_LEDGER_INDEX);
         flushSizeStats = stats.getOpStatsLogger(FLUSH_SIZE);
+        flushSortStats = stats.getOpStatsLogger(FLUSH_SORT);
+        flushEntryLogWriteStats = stats.getOpStatsLogger(FLUSH_ENTRYLOG_WRITE);
+        flushLocationIndexBuildStats = stats.getOpStatsLogger(FLUSH_LOCATIONS_INDEX_BUILD);
 
         throttledWriteRequests = stats.getThreadScopedCounter(THROTTLED_WRITE_REQUESTS);
         throttledWriteStats = stats.getOpStatsLogger(THROTTLED_WRITE);
@@ -271,6 +313,22 @@ class DbLedgerStorageStats {
             }
         };
         stats.registerGauge(READ_CACHE_COUNT, readCacheCountGauge);
+        readAheadPrefetchHitRatioGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                long prefetched = readAheadPrefetchedEntriesCounter.get();
+                if (prefetched == 0) {
+                    return 0L;
+                }
+                return Math.min(100L, readAheadPrefetchHitCounter.get() * 100 / prefetched);
+            }
+        };
+        stats.registerGauge(READAHEAD_PREFETCH_HIT_RATIO, readAheadPrefetchHitRatioGauge);
     }
 
 }
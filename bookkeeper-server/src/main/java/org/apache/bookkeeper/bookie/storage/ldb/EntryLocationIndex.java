@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.EntryLocation;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -98,6 +99,46 @@ public class EntryLocationIndex implements Closeable {
         }
     }
 
+    /**
+     * Get the locations of a contiguous range of entries of a ledger, with a single scan of the index
+     * instead of one lookup per entry.
+     *
+     * @return the location of each entry in [firstEntryId, firstEntryId + count), or 0 for the entries
+     *         that are not found in the index
+     */
+    public long[] getLocations(long ledgerId, long firstEntryId, int count) throws IOException {
+        long[] locations = new long[count];
+        if (count == 0) {
+            return locations;
+        }
+
+        LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, firstEntryId);
+        LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, firstEntryId + count);
+
+        long startTimeNanos = MathUtils.nowInNano();
+        boolean operationSuccess = false;
+        try (CloseableIterator<Entry<byte[], byte[]>> iterator = locationsDb.iterator(firstKey.array,
+                lastKey.array)) {
+            while (iterator.hasNext()) {
+                Entry<byte[], byte[]> entry = iterator.next();
+                long entryId = ArrayUtil.getLong(entry.getKey(), 8);
+                locations[(int) (entryId - firstEntryId)] = ArrayUtil.getLong(entry.getValue(), 0);
+            }
+            operationSuccess = true;
+            return locations;
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+            if (operationSuccess) {
+                stats.getLookupEntryLocationsStats()
+                        .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                stats.getLookupEntryLocationsStats()
+                        .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
     public long getLastEntryInLedger(long ledgerId) throws IOException {
         if (deletedLedgers.contains(ledgerId)) {
             // Ledger already deleted
@@ -219,6 +260,8 @@ public class EntryLocationIndex implements Closeable {
 
         log.info("Deleting indexes for ledgers: {}", ledgersToDelete);
         long startTime = System.nanoTime();
+        long deletedEntries = 0;
+        boolean operationSuccess = false;
 
         try (Batch batch = locationsDb.newBatch()) {
             for (long ledgerId : ledgersToDelete) {
@@ -229,6 +272,9 @@ public class EntryLocationIndex implements Closeable {
                 firstKeyWrapper.set(ledgerId, 0);
                 lastKeyWrapper.set(ledgerId, Long.MAX_VALUE);
 
+                deletedEntries += countEntriesInRange(ledgerId, firstKeyWrapper.array, lastKeyWrapper.array);
+
+                // A single range tombstone per ledger, instead of a point delete for each of its entries
                 batch.deleteRange(firstKeyWrapper.array, lastKeyWrapper.array);
             }
 
@@ -236,13 +282,39 @@ public class EntryLocationIndex implements Closeable {
             for (long ledgerId : ledgersToDelete) {
                 deletedLedgers.remove(ledgerId);
             }
+            operationSuccess = true;
         } finally {
             firstKeyWrapper.recycle();
             lastKeyWrapper.recycle();
+            long elapsedNanos = System.nanoTime() - startTime;
+            if (operationSuccess) {
+                stats.getDeletedLedgerEntriesCounter().addCount(deletedEntries);
+                stats.getDeleteLedgersStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            } else {
+                stats.getDeleteLedgersStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        log.info("Deleted indexes from {} ledgers ({} entries) in {} seconds", ledgersToDelete.size(),
+                deletedEntries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) / 1000.0);
+    }
+
+    /**
+     * Estimate the number of entries of a ledger in the index, from its first and last entry ids. This
+     * only takes two seeks, while the exact count would require a scan of all the entries.
+     */
+    private long countEntriesInRange(long ledgerId, byte[] firstKey, byte[] lastKey) throws IOException {
+        Entry<byte[], byte[]> first = locationsDb.getCeil(firstKey);
+        if (first == null || ArrayUtil.getLong(first.getKey(), 0) != ledgerId) {
+            return 0;
         }
+        long firstEntryId = ArrayUtil.getLong(first.getKey(), 8);
 
-        log.info("Deleted indexes from {} ledgers in {} seconds", ledgersToDelete.size(),
-                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) / 1000.0);
+        Entry<byte[], byte[]> last = locationsDb.getFloor(lastKey);
+        if (last == null || ArrayUtil.getLong(last.getKey(), 0) != ledgerId) {
+            return 0;
+        }
+        return ArrayUtil.getLong(last.getKey(), 8) - firstEntryId + 1;
     }
 
     private static final Logger log = LoggerFactory.getLogger(EntryLocationIndex.class);
@@ -24,6 +24,7 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER
 
 import java.util.function.Supplier;
 import lombok.Getter;
+import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -42,6 +43,9 @@ class EntryLocationIndexStats {
 
     private static final String ENTRIES_COUNT = "entries-count";
     private static final String LOOKUP_ENTRY_LOCATION = "lookup-entry-location";
+    private static final String LOOKUP_ENTRY_LOCATIONS = "lookup-entry-locations";
+    private static final String DELETED_LEDGER_ENTRIES = "deleted-ledger-entries";
+    private static final String DELETE_LEDGERS = "delete-ledgers-entry-locations";
 
     @StatsDoc(
         name = ENTRIES_COUNT,
@@ -55,6 +59,24 @@ class EntryLocationIndexStats {
     )
     private final OpStatsLogger lookupEntryLocationStats;
 
+    @StatsDoc(
+            name = LOOKUP_ENTRY_LOCATIONS,
+            help = "operation stats of looking up the locations of a range of entries with a single index scan"
+    )
+    private final OpStatsLogger lookupEntryLocationsStats;
+
+    @StatsDoc(
+            name = DELETED_LEDGER_ENTRIES,
+            help = "estimated number of entry locations removed from the index for deleted ledgers"
+    )
+    private final Counter deletedLedgerEntriesCounter;
+
+    @StatsDoc(
+            name = DELETE_LEDGERS,
+            help = "operation stats of range deleting the entry locations of deleted ledgers"
+    )
+    private final OpStatsLogger deleteLedgersStats;
+
     EntryLocationIndexStats(StatsLogger statsLogger,
                             Supplier<Long> entriesCountSupplier) {
         entriesCountGauge = new Gauge<Long>() {
@@ -70,6 +92,9 @@ class EntryLocationIndexStats {
         };
         statsLogger.registerGauge(ENTRIES_COUNT, entriesCountGauge);
         lookupEntryLocationStats = statsLogger.getOpStatsLogger(LOOKUP_ENTRY_LOCATION);
+        lookupEntryLocationsStats = statsLogger.getOpStatsLogger(LOOKUP_ENTRY_LOCATIONS);
+        deletedLedgerEntriesCounter = statsLogger.getCounter(DELETED_LEDGER_ENTRIES);
+        deleteLedgersStats = statsLogger.getOpStatsLogger(DELETE_LEDGERS);
     }
 
 }
@@ -0,0 +1,70 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import java.io.Closeable;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+
+/**
+ * Cache of entries that were read from (or read-ahead from) the entry logs.
+ *
+ * <p>Implementations are selected by {@link SingleDirectoryDbLedgerStorage} based on the
+ * {@link DbLedgerStorage#READ_CACHE_SHARDED} setting.
+ */
+public interface EntryReadCache extends Closeable {
+
+    /**
+     * Insert a copy of the entry in the cache.
+     *
+     * @return true if the checksum of the entry was verified when inserting it
+     */
+    boolean put(long ledgerId, long entryId, ByteBuf entry);
+
+    /**
+     * @return a copy of the cached entry, or null if the entry is not in the cache
+     */
+    ByteBuf get(long ledgerId, long entryId);
+
+    /**
+     * @return a copy of the cached entry, flagged as verified if its checksum was verified when it was inserted,
+     *         or null if the entry is not in the cache
+     */
+    default EntryReadResult getEntryReadResult(long ledgerId, long entryId) {
+        ByteBuf entry = get(ledgerId, entryId);
+        return entry != null ? new EntryReadResult(entry, false) : null;
+    }
+
+    boolean hasEntry(long ledgerId, long entryId);
+
+    /**
+     * @return the total size of cached entries
+     */
+    long size();
+
+    /**
+     * @return the total number of cached entries
+     */
+    long count();
+
+    @Override
+    void close();
+}
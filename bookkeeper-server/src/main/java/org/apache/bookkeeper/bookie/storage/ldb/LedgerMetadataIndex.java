@@ -30,6 +30,7 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.Arrays;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.bookkeeper.bookie.Bookie;
@@ -39,6 +40,7 @@ import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterato
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -315,21 +317,73 @@ public class LedgerMetadataIndex implements Closeable {
     }
 
     public void removeDeletedLedgers() throws IOException {
-        LongWrapper key = LongWrapper.get();
-
-        int deletedLedgers = 0;
+        long[] deletedLedgers = new long[pendingDeletedLedgers.size()];
+        int count = 0;
         while (!pendingDeletedLedgers.isEmpty()) {
             long ledgerId = pendingDeletedLedgers.poll();
-            key.set(ledgerId);
-            ledgersDb.delete(key.array);
+            if (count == deletedLedgers.length) {
+                deletedLedgers = Arrays.copyOf(deletedLedgers, count * 2 + 1);
+            }
+            deletedLedgers[count++] = ledgerId;
         }
 
-        if (log.isDebugEnabled()) {
-            log.debug("Persisting deletes of ledgers {}", deletedLedgers);
+        if (count == 0) {
+            ledgersDb.sync();
+            return;
         }
 
-        ledgersDb.sync();
-        key.recycle();
+        long startTime = MathUtils.nowInNano();
+        boolean operationSuccess = false;
+        int removedKeys = 0;
+        int deletedRanges = 0;
+        LongWrapper firstKey = LongWrapper.get();
+        LongWrapper lastKey = LongWrapper.get();
+
+        // Ledgers are often deleted in bulk with contiguous ids, remove each run of contiguous ids
+        // with a single range delete, and the rest with point deletes, all in one write batch
+        Arrays.sort(deletedLedgers, 0, count);
+        try (KeyValueStorage.Batch batch = ledgersDb.newBatch()) {
+            int i = 0;
+            while (i < count) {
+                long first = deletedLedgers[i];
+                long last = first;
+                removedKeys++;
+                while (i + 1 < count && deletedLedgers[i + 1] <= last + 1) {
+                    if (deletedLedgers[++i] != last) {
+                        last = deletedLedgers[i];
+                        removedKeys++;
+                    }
+                }
+                i++;
+
+                if (first == last) {
+                    firstKey.set(first);
+                    batch.remove(firstKey.array);
+                } else {
+                    firstKey.set(first);
+                    lastKey.set(last + 1);
+                    batch.deleteRange(firstKey.array, lastKey.array);
+                    deletedRanges++;
+                }
+            }
+
+            batch.flush();
+            operationSuccess = true;
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+            long elapsedNanos = MathUtils.elapsedNanos(startTime);
+            if (operationSuccess) {
+                stats.getDeletedLedgersCounter().addCount(removedKeys);
+                stats.getDeleteLedgersStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            } else {
+                stats.getDeleteLedgersStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Persisting deletes of {} ledgers, with {} range deletes", removedKeys, deletedRanges);
+        }
     }
 
     private ReentrantLock lockForLedger(long ledgerId) {
@@ -24,7 +24,9 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER
 
 import java.util.function.Supplier;
 import lombok.Getter;
+import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.annotations.StatsDoc;
 
@@ -40,6 +42,8 @@ import org.apache.bookkeeper.stats.annotations.StatsDoc;
 class LedgerMetadataIndexStats {
 
     private static final String LEDGERS_COUNT = "ledgers-count";
+    private static final String DELETED_LEDGERS = "deleted-ledgers";
+    private static final String DELETE_LEDGERS = "delete-ledgers-metadata";
 
     @StatsDoc(
         name = LEDGERS_COUNT,
@@ -47,6 +51,18 @@ class LedgerMetadataIndexStats {
     )
     private final Gauge<Long> ledgersCountGauge;
 
+    @StatsDoc(
+        name = DELETED_LEDGERS,
+        help = "Number of deleted ledgers removed from the ledger metadata index"
+    )
+    private final Counter deletedLedgersCounter;
+
+    @StatsDoc(
+        name = DELETE_LEDGERS,
+        help = "operation stats of removing deleted ledgers from the ledger metadata index"
+    )
+    private final OpStatsLogger deleteLedgersStats;
+
     LedgerMetadataIndexStats(StatsLogger statsLogger,
                              Supplier<Long> ledgersCountSupplier) {
         ledgersCountGauge = new Gauge<Long>() {
@@ -61,6 +77,8 @@ class LedgerMetadataIndexStats {
             }
         };
         statsLogger.registerGauge(LEDGERS_COUNT, ledgersCountGauge);
+        deletedLedgersCounter = statsLogger.getCounter(DELETED_LEDGERS);
+        deleteLedgersStats = statsLogger.getOpStatsLogger(DELETE_LEDGERS);
     }
 
 }
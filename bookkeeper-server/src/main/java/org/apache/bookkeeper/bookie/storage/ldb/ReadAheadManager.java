@@ -0,0 +1,384 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.apache.commons.lang.mutable.MutableLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills the read cache with the entries following a read cache miss.
+ *
+ * <p>By default, read-ahead is done inline on the reading thread, reading a fixed number of entries
+ * after every cache miss.
+ *
+ * <p>In adaptive mode, the access pattern of every ledger is tracked and the read-ahead window
+ * grows while the ledger is read sequentially and shrinks when reads are random. Read-ahead is
+ * done asynchronously on a dedicated pool, and is triggered ahead of time while the reader is
+ * consuming the previously prefetched entries, so that sequential readers are not stalled.
+ */
+class ReadAheadManager implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReadAheadManager.class);
+
+    private static final long STATE_CACHING_TIME_NANOS =
+            TimeUnit.MINUTES.toNanos(TransientLedgerInfo.LEDGER_INFO_CACHING_TIME_MINUTES);
+
+    private final EntryLogger entryLogger;
+    private final EntryReadCache readCache;
+    private final DbLedgerStorageStats stats;
+
+    private final int maxReadAheadEntries;
+    private final long maxReadAheadBytesSize;
+
+    private final boolean adaptive;
+    private final ExecutorService readAheadExecutor;
+    private final ConcurrentLongHashMap<LedgerReadAheadState> ledgerStates;
+    private volatile boolean closed = false;
+
+    ReadAheadManager(EntryLogger entryLogger, EntryReadCache readCache, DbLedgerStorageStats stats,
+                     int maxReadAheadEntries, long maxReadAheadBytesSize, boolean adaptive, int numThreads) {
+        this(entryLogger, readCache, stats, maxReadAheadEntries, maxReadAheadBytesSize,
+                adaptive ? Executors.newFixedThreadPool(Math.max(1, numThreads),
+                        new DefaultThreadFactory("db-storage-readahead")) : null);
+    }
+
+    /**
+     * Create a read-ahead manager, in adaptive mode when a read-ahead executor is given.
+     */
+    @VisibleForTesting
+    ReadAheadManager(EntryLogger entryLogger, EntryReadCache readCache, DbLedgerStorageStats stats,
+                     int maxReadAheadEntries, long maxReadAheadBytesSize, ExecutorService readAheadExecutor) {
+        this.entryLogger = entryLogger;
+        this.readCache = readCache;
+        this.stats = stats;
+        this.maxReadAheadEntries = maxReadAheadEntries;
+        this.maxReadAheadBytesSize = maxReadAheadBytesSize;
+        this.adaptive = readAheadExecutor != null;
+        this.readAheadExecutor = readAheadExecutor;
+
+        if (adaptive) {
+            this.ledgerStates = ConcurrentLongHashMap.<LedgerReadAheadState>newBuilder()
+                    .expectedItems(16 * 1024)
+                    .concurrencyLevel(Runtime.getRuntime().availableProcessors() * 2)
+                    .build();
+        } else {
+            this.ledgerStates = null;
+        }
+    }
+
+    /**
+     * Notify that an entry was found in the read cache.
+     */
+    void onCacheHit(long ledgerId, long entryId) {
+        if (!adaptive) {
+            return;
+        }
+
+        LedgerReadAheadState state = ledgerStates.get(ledgerId);
+        if (state == null) {
+            return;
+        }
+
+        long startEntryId;
+        long startLocation;
+        int window;
+        long generation;
+        synchronized (state) {
+            boolean sequential = state.recordAccess(entryId);
+            if (entryId >= state.prefetchStart && entryId < state.prefetchEnd) {
+                stats.getReadAheadPrefetchHitCounter().inc();
+            }
+
+            // Start fetching the next window while the reader is still consuming the second half
+            // of the current one
+            if (!sequential || state.inProgress || state.nextLocation == 0
+                    || entryId < state.prefetchEnd - state.window / 2) {
+                return;
+            }
+
+            state.grow(maxReadAheadEntries);
+            state.inProgress = true;
+            startEntryId = state.prefetchEnd;
+            startLocation = state.nextLocation;
+            window = state.window;
+            generation = state.generation;
+        }
+
+        prefetchAsync(state, ledgerId, generation, startEntryId, startLocation, window);
+    }
+
+    /**
+     * Notify that an entry was not found in the read cache and was read from the entry log.
+     *
+     * @param nextEntryLocation the location in the entry log right after the entry that was read
+     */
+    void onCacheMiss(long ledgerId, long entryId, long nextEntryLocation) {
+        if (!adaptive) {
+            fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation, maxReadAheadEntries, new MutableLong());
+            return;
+        }
+
+        LedgerReadAheadState state = ledgerStates.computeIfAbsent(ledgerId,
+                k -> new LedgerReadAheadState(Math.max(1, maxReadAheadEntries / 8)));
+
+        int window;
+        long generation;
+        synchronized (state) {
+            if (state.recordAccess(entryId)) {
+                // Sequential reader went past the prefetched entries
+                state.grow(maxReadAheadEntries);
+            } else {
+                // Random read, read-ahead would likely be wasted
+                state.shrink();
+            }
+
+            // The prefetch in progress, if any, is superseded by the one starting after this entry
+            state.generation++;
+            state.prefetchStart = entryId + 1;
+            state.prefetchEnd = entryId + 1;
+            state.nextLocation = 0;
+
+            if (state.window == 0) {
+                state.pendingLocation = 0;
+                return;
+            }
+            if (state.inProgress) {
+                // Started once the prefetch in progress completes
+                state.pendingLocation = nextEntryLocation;
+                return;
+            }
+
+            state.inProgress = true;
+            window = state.window;
+            generation = state.generation;
+        }
+
+        prefetchAsync(state, ledgerId, generation, entryId + 1, nextEntryLocation, window);
+    }
+
+    private void prefetchAsync(LedgerReadAheadState state, long ledgerId, long generation, long firstEntryId,
+                               long firstEntryLocation, int window) {
+        try {
+            readAheadExecutor.execute(() -> {
+                MutableLong nextLocation = new MutableLong(0);
+                int count = 0;
+                try {
+                    count = fillReadAheadCache(ledgerId, firstEntryId, firstEntryLocation, window, nextLocation);
+                } finally {
+                    onPrefetchComplete(state, ledgerId, generation, firstEntryId + count, nextLocation.longValue());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (state) {
+                state.inProgress = false;
+                state.pendingLocation = 0;
+            }
+        }
+    }
+
+    private void onPrefetchComplete(LedgerReadAheadState state, long ledgerId, long generation,
+                                    long prefetchEnd, long nextLocation) {
+        long startEntryId;
+        long startLocation;
+        int window;
+        long pendingGeneration;
+        synchronized (state) {
+            if (state.generation == generation) {
+                state.inProgress = false;
+                state.prefetchEnd = prefetchEnd;
+                state.nextLocation = nextLocation;
+                return;
+            }
+
+            // A cache miss reset the prefetched range while this prefetch was in progress, continue the
+            // read-ahead from the entry following the miss
+            if (state.pendingLocation == 0 || state.window == 0 || closed) {
+                state.inProgress = false;
+                state.pendingLocation = 0;
+                return;
+            }
+            startEntryId = state.prefetchEnd;
+            startLocation = state.pendingLocation;
+            window = state.window;
+            pendingGeneration = state.generation;
+            state.pendingLocation = 0;
+        }
+
+        prefetchAsync(state, ledgerId, pendingGeneration, startEntryId, startLocation, window);
+    }
+
+    void removeLedger(long ledgerId) {
+        if (adaptive) {
+            ledgerStates.remove(ledgerId);
+        }
+    }
+
+    /**
+     * Evict the state of all the ledgers that were not read recently.
+     */
+    void cleanupStaleStates() {
+        if (adaptive) {
+            long now = MathUtils.nowInNano();
+            ledgerStates.removeIf((ledgerId, state) -> now - state.lastAccessNanos > STATE_CACHING_TIME_NANOS);
+        }
+    }
+
+    /**
+     * Stop the read-ahead. It waits for the prefetches in progress, so that none of them inserts entries in the
+     * read cache once it is closed.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        if (readAheadExecutor != null) {
+            readAheadExecutor.shutdownNow();
+            while (!readAheadExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Waiting for the read-ahead in progress to complete");
+            }
+        }
+    }
+
+    /**
+     * Read entries from the entry log, starting at the given location, and insert them in the read cache.
+     *
+     * <p>Read-ahead stops when reaching an entry of a different ledger or the end of the current entry log.
+     *
+     * @param nextLocation set to the location following the last entry inserted in the cache, or 0 if the
+     *                     following location is not known to belong to the same ledger
+     * @return the number of entries inserted in the read cache
+     */
+    private int fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation,
+                                   int maxEntries, MutableLong nextLocation) {
+        long readAheadStartNano = MathUtils.nowInNano();
+        int count = 0;
+        long size = 0;
+
+        try {
+            long firstEntryLogId = (firstEntryLocation >> 32);
+            long currentEntryLogId = firstEntryLogId;
+            long currentEntryLocation = firstEntryLocation;
+
+            while (count < maxEntries
+                    && !closed
+                    && size < maxReadAheadBytesSize
+                    && currentEntryLogId == firstEntryLogId) {
+                ByteBuf entry = entryLogger.readEntry(orginalLedgerId,
+                        firstEntryId, currentEntryLocation);
+
+                try {
+                    long currentEntryLedgerId = entry.getLong(0);
+                    long currentEntryId = entry.getLong(8);
+
+                    if (currentEntryLedgerId != orginalLedgerId) {
+                        // Found an entry belonging to a different ledger, stopping read-ahead
+                        currentEntryLocation = 0;
+                        break;
+                    }
+
+                    // Insert entry in read cache
+                    readCache.put(orginalLedgerId, currentEntryId, entry);
+
+                    count++;
+                    firstEntryId++;
+                    size += entry.readableBytes();
+
+                    currentEntryLocation += 4 + entry.readableBytes();
+                    currentEntryLogId = currentEntryLocation >> 32;
+                } finally {
+                    ReferenceCountUtil.release(entry);
+                }
+            }
+
+            nextLocation.setValue(currentEntryLogId == firstEntryLogId ? currentEntryLocation : 0);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Exception during read ahead for ledger: {}: e", orginalLedgerId, e);
+            }
+            nextLocation.setValue(0);
+        } finally {
+            stats.getReadAheadBatchCountStats().registerSuccessfulValue(count);
+            stats.getReadAheadBatchSizeStats().registerSuccessfulValue(size);
+            stats.getReadAheadTime().addLatency(
+                    MathUtils.elapsedNanos(readAheadStartNano), TimeUnit.NANOSECONDS);
+            if (adaptive) {
+                stats.getReadAheadPrefetchedEntriesCounter().addCount(count);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Read-ahead state of a single ledger, guarded by its own monitor.
+     */
+    private static final class LedgerReadAheadState {
+        // Number of entries to read in the next read-ahead
+        int window;
+        long lastEntryId = -1;
+        long lastAccessNanos;
+
+        // Range of entries already inserted in the read cache by read-ahead
+        long prefetchStart;
+        long prefetchEnd;
+        // Location of the entry prefetchEnd, or 0 if not known
+        long nextLocation;
+        boolean inProgress;
+        // Incremented when a cache miss resets the prefetched range, a prefetch only extends the range if it
+        // was started in the current generation
+        long generation;
+        // Location of the entry prefetchStart, when a cache miss happened while a prefetch was in progress,
+        // or 0
+        long pendingLocation;
+
+        LedgerReadAheadState(int initialWindow) {
+            this.window = initialWindow;
+        }
+
+        /**
+         * @return true if the access is sequential with respect to the previous one
+         */
+        boolean recordAccess(long entryId) {
+            boolean sequential = entryId == lastEntryId + 1;
+            lastEntryId = entryId;
+            lastAccessNanos = MathUtils.nowInNano();
+            return sequential;
+        }
+
+        void grow(int maxWindow) {
+            window = Math.min(maxWindow, Math.max(1, window * 2));
+        }
+
+        void shrink() {
+            window /= 2;
+        }
+    }
+}
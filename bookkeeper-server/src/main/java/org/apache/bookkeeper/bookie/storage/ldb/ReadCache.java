@@ -26,11 +26,12 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
-import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
 import org.slf4j.Logger;
@@ -46,11 +47,14 @@ import org.slf4j.LoggerFactory;
  * is cleared and rotated to make space for new entries to be added to
  * the read cache.
  */
-public class ReadCache implements Closeable {
+public class ReadCache implements EntryReadCache {
     private static final Logger log = LoggerFactory.getLogger(ReadCache.class);
 
     private static final int DEFAULT_MAX_SEGMENT_SIZE = 1 * 1024 * 1024 * 1024;
 
+    // Set in the size of the indexed entries whose checksum was verified, above the 32 bits of the size
+    static final long VERIFIED_ENTRY_FLAG = 1L << 32;
+
     private final List<ByteBuf> cacheSegments;
     private final List<ConcurrentLongLongPairHashMap> cacheIndexes;
 
@@ -58,6 +62,7 @@ public class ReadCache implements Closeable {
     private final AtomicInteger currentSegmentOffset = new AtomicInteger(0);
 
     private final int segmentSize;
+    private final boolean verifyChecksums;
 
     private ByteBufAllocator allocator;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -66,8 +71,21 @@ public class ReadCache implements Closeable {
         this(allocator, maxCacheSize, DEFAULT_MAX_SEGMENT_SIZE);
     }
 
+    public ReadCache(ByteBufAllocator allocator, long maxCacheSize, boolean verifyChecksums) {
+        this(allocator, maxCacheSize, DEFAULT_MAX_SEGMENT_SIZE, verifyChecksums);
+    }
+
     public ReadCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize) {
+        this(allocator, maxCacheSize, maxSegmentSize, false);
+    }
+
+    /**
+     * @param verifyChecksums whether to verify the CRC32C checksum of the entries when they are inserted, so that the
+     *                        readers can skip verifying them again
+     */
+    public ReadCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize, boolean verifyChecksums) {
         this.allocator = allocator;
+        this.verifyChecksums = verifyChecksums;
         int segmentsCount = Math.max(2, (int) (maxCacheSize / maxSegmentSize));
         segmentSize = (int) (maxCacheSize / segmentsCount);
 
@@ -89,16 +107,22 @@ public class ReadCache implements Closeable {
         cacheSegments.forEach(ReferenceCountUtil::safeRelease);
     }
 
-    public void put(long ledgerId, long entryId, ByteBuf entry) {
+    @Override
+    public boolean put(long ledgerId, long entryId, ByteBuf entry) {
         int entrySize = entry.readableBytes();
         int alignedSize = align64(entrySize);
+        long indexedSize = entrySize;
+        boolean verified = verifyChecksums && DigestManager.verifyCrc32cDigest(entry);
+        if (verified) {
+            indexedSize |= VERIFIED_ENTRY_FLAG;
+        }
 
         lock.readLock().lock();
 
         try {
             if (entrySize > segmentSize) {
                 log.warn("entrySize {} > segmentSize {}, skip update read cache!", entrySize, segmentSize);
-                return;
+                return verified;
             }
             int offset = currentSegmentOffset.getAndAdd(alignedSize);
             if (offset + entrySize > segmentSize) {
@@ -107,8 +131,8 @@ public class ReadCache implements Closeable {
                 // Copy entry into read cache segment
                 cacheSegments.get(currentSegmentIdx).setBytes(offset, entry, entry.readerIndex(),
                         entry.readableBytes());
-                cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, entrySize);
-                return;
+                cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, indexedSize);
+                return verified;
             }
         } finally {
             lock.readLock().unlock();
@@ -130,13 +154,21 @@ public class ReadCache implements Closeable {
 
             // Copy entry into read cache segment
             cacheSegments.get(currentSegmentIdx).setBytes(offset, entry, entry.readerIndex(), entry.readableBytes());
-            cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, entrySize);
+            cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, indexedSize);
         } finally {
             lock.writeLock().unlock();
         }
+        return verified;
     }
 
+    @Override
     public ByteBuf get(long ledgerId, long entryId) {
+        EntryReadResult result = getEntryReadResult(ledgerId, entryId);
+        return result != null ? result.getEntry() : null;
+    }
+
+    @Override
+    public EntryReadResult getEntryReadResult(long ledgerId, long entryId) {
         lock.readLock().lock();
 
         try {
@@ -154,7 +186,7 @@ public class ReadCache implements Closeable {
 
                     ByteBuf entry = allocator.buffer(entryLen, entryLen);
                     entry.writeBytes(cacheSegments.get(segmentIdx), entryOffset, entryLen);
-                    return entry;
+                    return new EntryReadResult(entry, (res.second & VERIFIED_ENTRY_FLAG) != 0);
                 }
             }
         } finally {
@@ -165,6 +197,7 @@ public class ReadCache implements Closeable {
         return null;
     }
 
+    @Override
     public boolean hasEntry(long ledgerId, long entryId) {
         lock.readLock().lock();
 
@@ -189,6 +222,7 @@ public class ReadCache implements Closeable {
     /**
      * @return the total size of cached entries
      */
+    @Override
     public long size() {
         lock.readLock().lock();
 
@@ -213,6 +247,7 @@ public class ReadCache implements Closeable {
     /**
      * @return the total number of cached entries
      */
+    @Override
     public long count() {
         lock.readLock().lock();
 
@@ -0,0 +1,517 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.BOOKIE_SCOPE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.storage.ldb.WriteCache.align64;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read cache implementation that is split in independent shards, selected by ledger id.
+ *
+ * <p>Each shard has its own ring of segments, like {@link ReadCache}, but lookups never acquire a
+ * lock: they are done optimistically and validated against the shard rollover stamp.
+ *
+ * <p>Segments are evicted with a CLOCK policy: every segment keeps a (hashed) reference bit per
+ * entry, which is set when the entry is read from the cache. When the oldest segment is reclaimed,
+ * the entries that were referenced since they were inserted get a second chance and are compacted
+ * at the head of the reclaimed segment, so that entries read by tailing readers survive the
+ * rollovers caused by catch-up reads.
+ *
+ * <p>The cache uses fewer shards than requested when needed for the segments to fit the largest entries.
+ * The entries larger than a segment are not cached, and counted in the stats of the shard.
+ */
+public class ShardedReadCache implements EntryReadCache {
+    private static final Logger log = LoggerFactory.getLogger(ShardedReadCache.class);
+
+    private static final int DEFAULT_MAX_SEGMENT_SIZE = 1 * 1024 * 1024 * 1024;
+    // Default netty max frame size, that no entry can exceed
+    private static final int DEFAULT_MAX_ENTRY_SIZE = 5 * 1024 * 1024;
+
+    // Max fraction of a segment that can be used for entries promoted during a rollover, so
+    // that every rollover is guaranteed to free up space for new entries
+    private static final int MAX_PROMOTED_FRACTION = 2;
+
+    private final Shard[] shards;
+    private final int shardsMask;
+    private final ByteBufAllocator allocator;
+    private final boolean verifyChecksums;
+
+    public ShardedReadCache(ByteBufAllocator allocator, long maxCacheSize, int numShards, StatsLogger statsLogger) {
+        this(allocator, maxCacheSize, numShards, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_MAX_ENTRY_SIZE, false,
+                statsLogger);
+    }
+
+    public ShardedReadCache(ByteBufAllocator allocator, long maxCacheSize, int numShards, int maxEntrySize,
+                            boolean verifyChecksums, StatsLogger statsLogger) {
+        this(allocator, maxCacheSize, numShards, DEFAULT_MAX_SEGMENT_SIZE, maxEntrySize, verifyChecksums,
+                statsLogger);
+    }
+
+    public ShardedReadCache(ByteBufAllocator allocator, long maxCacheSize, int numShards, int maxSegmentSize,
+                            StatsLogger statsLogger) {
+        this(allocator, maxCacheSize, numShards, maxSegmentSize, DEFAULT_MAX_ENTRY_SIZE, false, statsLogger);
+    }
+
+    /**
+     * @param maxEntrySize the size of the largest entries, the number of shards is lowered if needed for the
+     *                     segments of a shard to fit them
+     * @param verifyChecksums whether to verify the CRC32C checksum of the entries when they are inserted, so that the
+     *                        readers can skip verifying them again
+     */
+    public ShardedReadCache(ByteBufAllocator allocator, long maxCacheSize, int numShards, int maxSegmentSize,
+                            int maxEntrySize, boolean verifyChecksums, StatsLogger statsLogger) {
+        this.allocator = allocator;
+        this.verifyChecksums = verifyChecksums;
+        int shardsCount = Integer.highestOneBit(Math.max(1, numShards));
+        // A shard has at least 2 segments
+        while (shardsCount > 1 && maxCacheSize / shardsCount / 2 < maxEntrySize) {
+            shardsCount >>= 1;
+        }
+        if (shardsCount < numShards) {
+            log.info("Read cache of {} bytes split in {} shards, for the entries of up to {} bytes to fit",
+                    maxCacheSize, shardsCount, maxEntrySize);
+        }
+        this.shardsMask = shardsCount - 1;
+        this.shards = new Shard[shardsCount];
+
+        long shardSize = maxCacheSize / shardsCount;
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new Shard(shardSize, maxSegmentSize,
+                    new ShardStats(statsLogger.scopeLabel("shard", Integer.toString(i))));
+        }
+    }
+
+    int getNumShards() {
+        return shards.length;
+    }
+
+    private Shard getShard(long ledgerId) {
+        return shards[(int) (hash(ledgerId) & shardsMask)];
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    @Override
+    public boolean put(long ledgerId, long entryId, ByteBuf entry) {
+        return getShard(ledgerId).put(ledgerId, entryId, entry);
+    }
+
+    @Override
+    public ByteBuf get(long ledgerId, long entryId) {
+        EntryReadResult result = getShard(ledgerId).get(ledgerId, entryId);
+        return result != null ? result.getEntry() : null;
+    }
+
+    @Override
+    public EntryReadResult getEntryReadResult(long ledgerId, long entryId) {
+        return getShard(ledgerId).get(ledgerId, entryId);
+    }
+
+    @Override
+    public boolean hasEntry(long ledgerId, long entryId) {
+        return getShard(ledgerId).hasEntry(ledgerId, entryId);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.count();
+        }
+        return count;
+    }
+
+    private static long hash(long key) {
+        // Fibonacci hashing, to spread sequential ledger ids across the shards
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static long hash(long ledgerId, long entryId) {
+        return hash(ledgerId ^ hash(entryId));
+    }
+
+    private final class Shard {
+        private final Segment[] segments;
+        private final int segmentSize;
+
+        // Updated only while holding the write lock
+        private volatile int currentSegmentIdx;
+        private final AtomicInteger currentSegmentOffset = new AtomicInteger(0);
+
+        // Read lock is taken when appending in the current segment, write lock when rolling over
+        // to the next segment. Lookups only use optimistic reads.
+        private final StampedLock lock = new StampedLock();
+
+        private final ShardStats stats;
+
+        Shard(long shardSize, int maxSegmentSize, ShardStats stats) {
+            this.stats = stats;
+            int segmentsCount = Math.max(2, (int) (shardSize / maxSegmentSize));
+            segmentSize = (int) (shardSize / segmentsCount);
+
+            segments = new Segment[segmentsCount];
+            for (int i = 0; i < segmentsCount; i++) {
+                segments[i] = new Segment(segmentSize);
+            }
+        }
+
+        void close() {
+            for (Segment segment : segments) {
+                ReferenceCountUtil.safeRelease(segment.buffer);
+            }
+        }
+
+        boolean put(long ledgerId, long entryId, ByteBuf entry) {
+            int entrySize = entry.readableBytes();
+            int alignedSize = align64(entrySize);
+
+            if (entrySize > segmentSize) {
+                stats.skippedEntries.inc();
+                if (log.isDebugEnabled()) {
+                    log.debug("entrySize {} > segmentSize {}, skip update read cache!", entrySize, segmentSize);
+                }
+                return false;
+            }
+            long indexedSize = entrySize;
+            boolean verified = verifyChecksums && DigestManager.verifyCrc32cDigest(entry);
+            if (verified) {
+                indexedSize |= ReadCache.VERIFIED_ENTRY_FLAG;
+            }
+
+            long stamp = lock.readLock();
+            try {
+                int offset = currentSegmentOffset.getAndAdd(alignedSize);
+                if (offset + entrySize <= segmentSize) {
+                    segments[currentSegmentIdx].insert(ledgerId, entryId, entry, offset, indexedSize);
+                    return verified;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            // We could not insert in the current segment, roll-over to next segment
+            stamp = lock.writeLock();
+            try {
+                int offset = currentSegmentOffset.getAndAdd(alignedSize);
+                if (offset + entrySize > segmentSize) {
+                    offset = rollover();
+                    currentSegmentOffset.set(offset + alignedSize);
+                }
+
+                segments[currentSegmentIdx].insert(ledgerId, entryId, entry, offset, indexedSize);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return verified;
+        }
+
+        /**
+         * Reclaim the oldest segment and make it the current one.
+         *
+         * <p>Must be called while holding the write lock.
+         *
+         * @return the offset of the first free byte in the new current segment
+         */
+        private int rollover() {
+            int nextSegmentIdx = (currentSegmentIdx + 1) % segments.length;
+            Segment victim = segments[nextSegmentIdx];
+
+            // Collect all the entries that were accessed since they were inserted in the victim segment
+            List<long[]> promoted = new ArrayList<>();
+            long evictedEntries = victim.index.size();
+            victim.index.forEach((ledgerId, entryId, offset, length) -> {
+                if (victim.isReferenced(ledgerId, entryId)) {
+                    promoted.add(new long[] { ledgerId, entryId, offset, length });
+                }
+            });
+
+            victim.index.clear();
+            victim.clearReferences();
+
+            // Compact the promoted entries at the beginning of the segment. Since the entries are
+            // moved in offset order, the destination is always before the source.
+            promoted.sort(Comparator.comparingLong(e -> e[2]));
+            int maxPromotedSize = segmentSize / MAX_PROMOTED_FRACTION;
+            int writeOffset = 0;
+            for (long[] e : promoted) {
+                int length = (int) e[3];
+                if (writeOffset + align64(length) > maxPromotedSize) {
+                    break;
+                }
+
+                victim.move((int) e[2], writeOffset, length);
+                // keep the indexed size as is, with the verified flag
+                victim.index.put(e[0], e[1], writeOffset, e[3]);
+                writeOffset += align64(length);
+                evictedEntries--;
+                stats.promotions.inc();
+            }
+
+            stats.evictions.addCount(evictedEntries);
+            currentSegmentIdx = nextSegmentIdx;
+            return writeOffset;
+        }
+
+        EntryReadResult get(long ledgerId, long entryId) {
+            long stamp = lock.tryOptimisticRead();
+            EntryReadResult result = stamp != 0 ? doGet(ledgerId, entryId) : null;
+            if (!lock.validate(stamp)) {
+                // A rollover happened while we were reading, the copied data might be invalid
+                if (result != null) {
+                    ReferenceCountUtil.release(result.getEntry());
+                }
+                stamp = lock.readLock();
+                try {
+                    result = doGet(ledgerId, entryId);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            if (result != null) {
+                stats.hits.inc();
+            } else {
+                stats.misses.inc();
+            }
+            return result;
+        }
+
+        private EntryReadResult doGet(long ledgerId, long entryId) {
+            // Check all the segments, starting from the current one and looking backward to
+            // minimize the checks for recently inserted entries
+            int currentIdx = currentSegmentIdx;
+            int size = segments.length;
+            for (int i = 0; i < size; i++) {
+                Segment segment = segments[(currentIdx + (size - i)) % size];
+
+                LongPair res = segment.index.get(ledgerId, entryId);
+                if (res != null) {
+                    int entryOffset = (int) res.first;
+                    int entryLen = (int) res.second;
+
+                    segment.markReferenced(ledgerId, entryId);
+                    ByteBuf entry = allocator.buffer(entryLen, entryLen);
+                    entry.writeBytes(segment.buffer, entryOffset, entryLen);
+                    return new EntryReadResult(entry, (res.second & ReadCache.VERIFIED_ENTRY_FLAG) != 0);
+                }
+            }
+
+            return null;
+        }
+
+        boolean hasEntry(long ledgerId, long entryId) {
+            long stamp = lock.tryOptimisticRead();
+            boolean found = stamp != 0 && doHasEntry(ledgerId, entryId);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    found = doHasEntry(ledgerId, entryId);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        private boolean doHasEntry(long ledgerId, long entryId) {
+            for (Segment segment : segments) {
+                if (segment.index.containsKey(ledgerId, entryId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long size() {
+            long stamp = lock.readLock();
+            try {
+                long size = 0;
+                for (int i = 0; i < segments.length; i++) {
+                    if (i == currentSegmentIdx) {
+                        size += Math.min(currentSegmentOffset.get(), segmentSize);
+                    } else if (!segments[i].index.isEmpty()) {
+                        size += segmentSize;
+                    }
+                }
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (Segment segment : segments) {
+                count += segment.index.size();
+            }
+            return count;
+        }
+    }
+
+    private static final class Segment {
+        // One reference bit for every 64 bytes of segment, since that's the minimum space taken by an entry
+        private static final int BYTES_PER_REFERENCE_BIT = 64;
+
+        private final ByteBuf buffer;
+        private final ConcurrentLongLongPairHashMap index;
+        private final AtomicLongArray references;
+        private final int referencesMask;
+
+        Segment(int segmentSize) {
+            buffer = Unpooled.directBuffer(segmentSize, segmentSize);
+            index = ConcurrentLongLongPairHashMap.newBuilder()
+                    .expectedItems(4096)
+                    .concurrencyLevel(2 * Runtime.getRuntime().availableProcessors())
+                    .build();
+
+            int referenceWords = Integer.highestOneBit(Math.max(1, segmentSize / BYTES_PER_REFERENCE_BIT / 64));
+            references = new AtomicLongArray(referenceWords);
+            referencesMask = referenceWords - 1;
+        }
+
+        void insert(long ledgerId, long entryId, ByteBuf entry, int offset, long indexedSize) {
+            // Copy entry into the segment before making it visible in the index
+            buffer.setBytes(offset, entry, entry.readerIndex(), entry.readableBytes());
+            index.put(ledgerId, entryId, offset, indexedSize);
+        }
+
+        void move(int sourceOffset, int targetOffset, int length) {
+            if (sourceOffset == targetOffset) {
+                return;
+            }
+
+            // Copy in chunks that never overlap with their own source
+            int chunkSize = Math.min(length, sourceOffset - targetOffset);
+            for (int copied = 0; copied < length; copied += chunkSize) {
+                int len = Math.min(chunkSize, length - copied);
+                buffer.setBytes(targetOffset + copied, buffer, sourceOffset + copied, len);
+            }
+        }
+
+        void markReferenced(long ledgerId, long entryId) {
+            long h = hash(ledgerId, entryId);
+            int idx = (int) (h >>> 6) & referencesMask;
+            long bit = 1L << (h & 63);
+            // Avoid the write when the bit is already set, which is the common case for hot entries
+            if ((references.get(idx) & bit) == 0) {
+                references.accumulateAndGet(idx, bit, (a, b) -> a | b);
+            }
+        }
+
+        boolean isReferenced(long ledgerId, long entryId) {
+            long h = hash(ledgerId, entryId);
+            int idx = (int) (h >>> 6) & referencesMask;
+            return (references.get(idx) & (1L << (h & 63))) != 0;
+        }
+
+        void clearReferences() {
+            for (int i = 0; i < references.length(); i++) {
+                references.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Stats of a single read cache shard.
+     */
+    @StatsDoc(
+        name = BOOKIE_SCOPE,
+        category = CATEGORY_SERVER,
+        help = "Sharded read cache related stats"
+    )
+    private static final class ShardStats {
+        private static final String READ_CACHE_SHARD_HITS = "read-cache-shard-hits";
+        private static final String READ_CACHE_SHARD_MISSES = "read-cache-shard-misses";
+        private static final String READ_CACHE_SHARD_EVICTIONS = "read-cache-shard-evictions";
+        private static final String READ_CACHE_SHARD_PROMOTIONS = "read-cache-shard-promotions";
+        private static final String READ_CACHE_SHARD_SKIPPED_ENTRIES = "read-cache-shard-skipped-entries";
+
+        @StatsDoc(
+            name = READ_CACHE_SHARD_HITS,
+            help = "number of read cache hits in the shard"
+        )
+        private final Counter hits;
+        @StatsDoc(
+            name = READ_CACHE_SHARD_MISSES,
+            help = "number of read cache misses in the shard"
+        )
+        private final Counter misses;
+        @StatsDoc(
+            name = READ_CACHE_SHARD_EVICTIONS,
+            help = "number of entries evicted from the shard when reclaiming a segment"
+        )
+        private final Counter evictions;
+        @StatsDoc(
+            name = READ_CACHE_SHARD_PROMOTIONS,
+            help = "number of referenced entries retained in the shard when reclaiming a segment"
+        )
+        private final Counter promotions;
+        @StatsDoc(
+            name = READ_CACHE_SHARD_SKIPPED_ENTRIES,
+            help = "number of entries not cached in the shard because they are larger than its segments"
+        )
+        private final Counter skippedEntries;
+
+        ShardStats(StatsLogger stats) {
+            hits = stats.getCounter(READ_CACHE_SHARD_HITS);
+            misses = stats.getCounter(READ_CACHE_SHARD_MISSES);
+            evictions = stats.getCounter(READ_CACHE_SHARD_EVICTIONS);
+            promotions = stats.getCounter(READ_CACHE_SHARD_PROMOTIONS);
+            skippedEntries = stats.getCounter(READ_CACHE_SHARD_SKIPPED_ENTRIES);
+        }
+    }
+}
@@ -35,14 +35,20 @@ import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -57,8 +63,11 @@ import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.bookie.Checkpointer;
 import org.apache.bookkeeper.bookie.CompactableLedgerStorage;
 import org.apache.bookkeeper.bookie.EntryLocation;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.bookie.GarbageCollectionCoordinator;
 import org.apache.bookkeeper.bookie.GarbageCollectionStatus;
 import org.apache.bookkeeper.bookie.GarbageCollectorThread;
+import org.apache.bookkeeper.bookie.IoLatencyTracker;
 import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
 import org.apache.bookkeeper.bookie.LedgerCache;
 import org.apache.bookkeeper.bookie.LedgerDirsManager;
@@ -79,6 +88,7 @@ import org.apache.bookkeeper.stats.ThreadRegistry;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang.mutable.MutableInt;
 import org.apache.commons.lang.mutable.MutableLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,7 +116,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     protected volatile WriteCache writeCacheBeingFlushed;
 
     // Cache where we insert entries for speculative reading
-    private final ReadCache readCache;
+    private final EntryReadCache readCache;
 
     private final StampedLock writeCacheRotationLock = new StampedLock();
 
@@ -132,6 +142,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     private final long writeCacheMaxSize;
     private final long readCacheMaxSize;
     private final int readAheadCacheBatchSize;
+    private final ReadAheadManager readAheadManager;
 
     private final long maxThrottleTimeNanos;
 
@@ -143,6 +154,14 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     private final Counter flushExecutorTime;
 
+    private static final int FLUSH_LOCATIONS_CHUNK_SIZE = 3 * 1024;
+    private static final int FLUSH_LOCATIONS_QUEUE_SIZE = 64;
+    private final int flushParallelism;
+    // Executor used for parallel write cache flushes, null when flushing serially
+    private final ExecutorService flushExecutor;
+    // Whether the parallel flush syncs the indexes without waiting for the entry log to be synced
+    private final boolean flushSyncConcurrently;
+
     public SingleDirectoryDbLedgerStorage(ServerConfiguration conf, LedgerManager ledgerManager,
                                           LedgerDirsManager ledgerDirsManager, LedgerDirsManager indexDirsManager,
                                           EntryLogger entryLogger, StatsLogger statsLogger, ByteBufAllocator allocator,
@@ -181,7 +200,25 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 DEFAULT_MAX_THROTTLE_TIME_MILLIS);
         maxThrottleTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxThrottleTimeMillis);
 
-        readCache = new ReadCache(allocator, readCacheMaxSize);
+        flushParallelism = conf.getInt(DbLedgerStorage.FLUSH_PARALLELISM, DbLedgerStorage.DEFAULT_FLUSH_PARALLELISM);
+        if (flushParallelism > 1) {
+            // One additional thread to build the locations index while the partitions are being sorted
+            flushExecutor = Executors.newFixedThreadPool(flushParallelism + 1,
+                    new DefaultThreadFactory("db-storage-flush"));
+        } else {
+            flushExecutor = null;
+        }
+        flushSyncConcurrently = conf.getBoolean(DbLedgerStorage.FLUSH_SYNC_CONCURRENTLY, false);
+
+        boolean readCacheVerifyChecksums = conf.getBoolean(DbLedgerStorage.READ_CACHE_VERIFY_CHECKSUMS, false);
+        if (conf.getBoolean(DbLedgerStorage.READ_CACHE_SHARDED, false)) {
+            int readCacheShards = conf.getInt(DbLedgerStorage.READ_CACHE_SHARDS,
+                    DbLedgerStorage.DEFAULT_READ_CACHE_SHARDS);
+            readCache = new ShardedReadCache(allocator, readCacheMaxSize, readCacheShards,
+                    conf.getNettyMaxFrameSizeBytes(), readCacheVerifyChecksums, ledgerIndexDirStatsLogger);
+        } else {
+            readCache = new ReadCache(allocator, readCacheMaxSize, readCacheVerifyChecksums);
+        }
 
         ledgerIndex = new LedgerMetadataIndex(conf,
                 KeyValueStorageRocksDB.factory, indexBaseDir, ledgerIndexDirStatsLogger);
@@ -208,6 +245,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             () -> readCache.count()
         );
 
+        readAheadManager = new ReadAheadManager(entryLogger, readCache, dbLedgerStorageStats,
+                readAheadCacheBatchSize, maxReadAheadBytesSize,
+                conf.getBoolean(DbLedgerStorage.READ_AHEAD_ADAPTIVE, false),
+                conf.getInt(DbLedgerStorage.READ_AHEAD_THREADS, DbLedgerStorage.DEFAULT_READ_AHEAD_THREADS));
+
         flushExecutorTime = ledgerIndexDirStatsLogger.getThreadScopedCounter("db-storage-thread-time");
 
         executor.submit(() -> {
@@ -240,6 +282,15 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     @Override
     public void setCheckpointer(Checkpointer checkpointer) { }
 
+    @Override
+    public void setJournalLatencyTracker(IoLatencyTracker journalLatencyTracker) {
+        gcThread.setJournalLatencyTracker(journalLatencyTracker);
+    }
+
+    void setGcCoordinator(GarbageCollectionCoordinator gcCoordinator) {
+        gcThread.setGcCoordinator(gcCoordinator);
+    }
+
     /**
      * Evict all the ledger info object that were not used recently.
      */
@@ -252,6 +303,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
             return isStale;
         });
+        readAheadManager.cleanupStaleStates();
     }
 
     @Override
@@ -331,6 +383,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         try {
             flush();
 
+            // stop the read-ahead before the entry logger and the read cache it uses
+            readAheadManager.close();
+
             gcThread.shutdown();
             entryLogger.close();
 
@@ -340,6 +395,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             ledgerIndex.close();
             entryLocationIndex.close();
 
+            if (flushExecutor != null) {
+                flushExecutor.shutdown();
+            }
             writeCache.close();
             writeCacheBeingFlushed.close();
             readCache.close();
@@ -550,26 +608,150 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     @Override
     public ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException {
+        return getEntryReadResult(ledgerId, entryId).getEntry();
+    }
+
+    /**
+     * Read an entry, flagged as verified when it was read from the read cache with its verified flag set, or read
+     * from an entry log and verified when inserted in the read cache.
+     */
+    @Override
+    public EntryReadResult getEntryReadResult(long ledgerId, long entryId) throws IOException, BookieException {
+        // No entry is large enough to be returned as a region
+        return getEntryOrRegion(ledgerId, entryId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read an entry from the caches, or from an entry log with a single lookup of its location and size, where
+     * it is returned as a region if it is at least minEntrySize bytes. The regions are not added to the read cache,
+     * nor do they trigger a read-ahead, so that large entries read once do not evict the cached entries.
+     */
+    @Override
+    public EntryReadResult getEntryOrRegion(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, BookieException {
         long startTime = MathUtils.nowInNano();
         try {
-            ByteBuf entry = doGetEntry(ledgerId, entryId);
+            EntryReadResult result = doGetEntry(ledgerId, entryId, minEntrySize);
             recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
-            return entry;
+            return result;
         } catch (IOException e) {
             recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
             throw e;
         }
     }
 
-    private ByteBuf doGetEntry(long ledgerId, long entryId) throws IOException, BookieException {
+    private EntryReadResult doGetEntry(long ledgerId, long entryId, int minEntrySize)
+            throws IOException, BookieException {
         if (log.isDebugEnabled()) {
             log.debug("Get Entry: {}@{}", ledgerId, entryId);
         }
 
         if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
-            return getLastEntry(ledgerId);
+            return new EntryReadResult(getLastEntry(ledgerId), false);
+        }
+
+        EntryReadResult cached = getCachedEntry(ledgerId, entryId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Read from main storage
+        long entryLocation;
+        long locationIndexStartNano = MathUtils.nowInNano();
+        try {
+            entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
+            if (entryLocation == 0) {
+                // Only a negative result while in limbo equates to unknown
+                throwIfLimbo(ledgerId);
+
+                throw new NoEntryException(ledgerId, entryId);
+            }
+        } finally {
+            dbLedgerStorageStats.getReadFromLocationIndexTime().addLatency(
+                    MathUtils.elapsedNanos(locationIndexStartNano), TimeUnit.NANOSECONDS);
+        }
+
+        EntryReadResult result = readFromEntryLog(ledgerId, entryId, entryLocation, minEntrySize);
+        if (result.getRegion() != null) {
+            return result;
         }
 
+        // Try to read more entries
+        long nextEntryLocation = entryLocation + 4 /* size header */ + result.getEntry().readableBytes();
+        readAheadManager.onCacheMiss(ledgerId, entryId, nextEntryLocation);
+
+        return result;
+    }
+
+    /**
+     * Read consecutive entries of a ledger. The entries that are not cached are read from the entry logs
+     * at the locations found with a single scan of the locations index, instead of one lookup per entry.
+     * Unlike single entry reads, the entries read do not trigger a read-ahead.
+     */
+    @Override
+    public List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, BookieException {
+        List<ByteBuf> entries = new ArrayList<>(Math.min(Math.max(maxCount, 1), 64));
+        ByteBuf first = getEntry(ledgerId, firstEntryId);
+        entries.add(first);
+        long totalSize = first.readableBytes();
+
+        // The locations of the entries following the first one that is not cached
+        long[] locations = null;
+        long locationsFirstEntryId = -1;
+        boolean success = false;
+        try {
+            for (long entryId = firstEntryId + 1; entries.size() < maxCount; entryId++) {
+                EntryReadResult cached = getCachedEntry(ledgerId, entryId);
+                ByteBuf entry;
+                if (cached != null) {
+                    entry = cached.getEntry();
+                } else {
+                    if (locations == null) {
+                        locationsFirstEntryId = entryId;
+                        long locationIndexStartNano = MathUtils.nowInNano();
+                        try {
+                            locations = entryLocationIndex.getLocations(ledgerId, entryId, maxCount - entries.size());
+                        } finally {
+                            dbLedgerStorageStats.getReadFromLocationIndexTime().addLatency(
+                                    MathUtils.elapsedNanos(locationIndexStartNano), TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    long entryLocation = locations[(int) (entryId - locationsFirstEntryId)];
+                    if (entryLocation == 0) {
+                        break;
+                    }
+                    try {
+                        entry = readFromEntryLog(ledgerId, entryId, entryLocation).getEntry();
+                    } catch (IOException e) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Ending range read of ledger {} at entry {}", ledgerId, entryId, e);
+                        }
+                        break;
+                    }
+                }
+                totalSize += entry.readableBytes();
+                if (totalSize > maxSize) {
+                    entry.release();
+                    break;
+                }
+                entries.add(entry);
+            }
+            success = true;
+            return entries;
+        } finally {
+            if (!success) {
+                entries.forEach(ByteBuf::release);
+            }
+        }
+    }
+
+    /**
+     * Read an entry from the write caches or from the read cache.
+     *
+     * @return the entry, flagged as verified if it was verified by the read cache, or null if it is not cached
+     */
+    private EntryReadResult getCachedEntry(long ledgerId, long entryId) {
         // We need to try to read from both write caches, since recent entries could be found in either of the two. The
         // write caches are already thread safe on their own, here we just need to make sure we get references to both
         // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
@@ -591,108 +773,52 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         ByteBuf entry = localWriteCache.get(ledgerId, entryId);
         if (entry != null) {
             dbLedgerStorageStats.getWriteCacheHitCounter().inc();
-            return entry;
+            return new EntryReadResult(entry, false);
         }
 
         // If there's a flush going on, the entry might be in the flush buffer
         entry = localWriteCacheBeingFlushed.get(ledgerId, entryId);
         if (entry != null) {
             dbLedgerStorageStats.getWriteCacheHitCounter().inc();
-            return entry;
+            return new EntryReadResult(entry, false);
         }
 
         dbLedgerStorageStats.getWriteCacheMissCounter().inc();
 
         // Try reading from read-ahead cache
-        entry = readCache.get(ledgerId, entryId);
-        if (entry != null) {
+        EntryReadResult cached = readCache.getEntryReadResult(ledgerId, entryId);
+        if (cached != null) {
             dbLedgerStorageStats.getReadCacheHitCounter().inc();
-            return entry;
+            readAheadManager.onCacheHit(ledgerId, entryId);
+            return cached;
         }
 
         dbLedgerStorageStats.getReadCacheMissCounter().inc();
+        return null;
+    }
 
-        // Read from main storage
-        long entryLocation;
-        long locationIndexStartNano = MathUtils.nowInNano();
-        try {
-            entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
-            if (entryLocation == 0) {
-                // Only a negative result while in limbo equates to unknown
-                throwIfLimbo(ledgerId);
-
-                throw new NoEntryException(ledgerId, entryId);
-            }
-        } finally {
-            dbLedgerStorageStats.getReadFromLocationIndexTime().addLatency(
-                    MathUtils.elapsedNanos(locationIndexStartNano), TimeUnit.NANOSECONDS);
-        }
+    private EntryReadResult readFromEntryLog(long ledgerId, long entryId, long entryLocation) throws IOException {
+        return readFromEntryLog(ledgerId, entryId, entryLocation, Integer.MAX_VALUE);
+    }
 
+    private EntryReadResult readFromEntryLog(long ledgerId, long entryId, long entryLocation, int minEntrySize)
+            throws IOException {
+        EntryReadResult result;
         long readEntryStartNano = MathUtils.nowInNano();
         try {
-            entry = entryLogger.readEntry(ledgerId, entryId, entryLocation);
+            result = entryLogger.readEntryOrRegion(ledgerId, entryId, entryLocation, minEntrySize);
         } finally {
-            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
-                    MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
+            long readEntryNanos = MathUtils.elapsedNanos(readEntryStartNano);
+            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(readEntryNanos, TimeUnit.NANOSECONDS);
+            gcThread.recordReadLatency(readEntryNanos);
         }
-
-        readCache.put(ledgerId, entryId, entry);
-
-        // Try to read more entries
-        long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
-        fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
-
-        return entry;
-    }
-
-    private void fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation) {
-        long readAheadStartNano = MathUtils.nowInNano();
-        int count = 0;
-        long size = 0;
-
-        try {
-            long firstEntryLogId = (firstEntryLocation >> 32);
-            long currentEntryLogId = firstEntryLogId;
-            long currentEntryLocation = firstEntryLocation;
-
-            while (count < readAheadCacheBatchSize
-                    && size < maxReadAheadBytesSize
-                    && currentEntryLogId == firstEntryLogId) {
-                ByteBuf entry = entryLogger.readEntry(orginalLedgerId,
-                        firstEntryId, currentEntryLocation);
-
-                try {
-                    long currentEntryLedgerId = entry.getLong(0);
-                    long currentEntryId = entry.getLong(8);
-
-                    if (currentEntryLedgerId != orginalLedgerId) {
-                        // Found an entry belonging to a different ledger, stopping read-ahead
-                        break;
-                    }
-
-                    // Insert entry in read cache
-                    readCache.put(orginalLedgerId, currentEntryId, entry);
-
-                    count++;
-                    firstEntryId++;
-                    size += entry.readableBytes();
-
-                    currentEntryLocation += 4 + entry.readableBytes();
-                    currentEntryLogId = currentEntryLocation >> 32;
-                } finally {
-                    ReferenceCountUtil.release(entry);
-                }
-            }
-        } catch (Exception e) {
-            if (log.isDebugEnabled()) {
-                log.debug("Exception during read ahead for ledger: {}: e", orginalLedgerId, e);
-            }
-        } finally {
-            dbLedgerStorageStats.getReadAheadBatchCountStats().registerSuccessfulValue(count);
-            dbLedgerStorageStats.getReadAheadBatchSizeStats().registerSuccessfulValue(size);
-            dbLedgerStorageStats.getReadAheadTime().addLatency(
-                    MathUtils.elapsedNanos(readAheadStartNano), TimeUnit.NANOSECONDS);
+        if (result.getRegion() != null) {
+            return result;
         }
+
+        ByteBuf entry = result.getEntry();
+        boolean verified = readCache.put(ledgerId, entryId, entry);
+        return new EntryReadResult(entry, verified);
     }
 
     public ByteBuf getLastEntry(long ledgerId) throws IOException, BookieException {
@@ -801,28 +927,32 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             // Write all the pending entries into the entry logger and collect the offset
             // position for each entry
 
-            Batch batch = entryLocationIndex.newBatch();
-            writeCacheBeingFlushed.forEach((ledgerId, entryId, entry) -> {
-                long location = entryLogger.addEntry(ledgerId, entry);
-                entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
-            });
+            if (flushExecutor != null) {
+                flushWriteCacheParallel();
+            } else {
+                Batch batch = entryLocationIndex.newBatch();
+                writeCacheBeingFlushed.forEach((ledgerId, entryId, entry) -> {
+                    long location = entryLogger.addEntry(ledgerId, entry);
+                    entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
+                });
 
-            long entryLoggerStart = MathUtils.nowInNano();
-            entryLogger.flush();
-            recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
+                long entryLoggerStart = MathUtils.nowInNano();
+                entryLogger.flush();
+                recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
 
-            long batchFlushStartTime = MathUtils.nowInNano();
-            batch.flush();
-            batch.close();
-            recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
-            if (log.isDebugEnabled()) {
-                log.debug("DB batch flushed time : {} s",
-                        MathUtils.elapsedNanos(batchFlushStartTime) / (double) TimeUnit.SECONDS.toNanos(1));
-            }
+                long batchFlushStartTime = MathUtils.nowInNano();
+                batch.flush();
+                batch.close();
+                recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
+                if (log.isDebugEnabled()) {
+                    log.debug("DB batch flushed time : {} s",
+                            MathUtils.elapsedNanos(batchFlushStartTime) / (double) TimeUnit.SECONDS.toNanos(1));
+                }
 
-            long ledgerIndexStartTime = MathUtils.nowInNano();
-            ledgerIndex.flush();
-            recordSuccessfulEvent(dbLedgerStorageStats.getFlushLedgerIndexStats(), ledgerIndexStartTime);
+                long ledgerIndexStartTime = MathUtils.nowInNano();
+                ledgerIndex.flush();
+                recordSuccessfulEvent(dbLedgerStorageStats.getFlushLedgerIndexStats(), ledgerIndexStartTime);
+            }
 
             cleanupExecutor.execute(() -> {
                 // There can only be one single cleanup task running because the cleanupExecutor
@@ -922,6 +1052,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         if (tli != null) {
             tli.close();
         }
+        readAheadManager.removeLedger(ledgerId);
     }
 
     @Override
@@ -942,6 +1073,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return entryLogger;
     }
 
+    @VisibleForTesting
+    EntryReadCache getReadCache() {
+        return readCache;
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         throwIfLimbo(ledgerId);
@@ -1075,6 +1211,157 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return entryLocationIndex;
     }
 
+    /**
+     * Flush the write cache being flushed, overlapping the different phases.
+     *
+     * <p>The write cache partitions are sorted in parallel, and the locations index batch is built on a
+     * separate thread while the entries are appended to the entry log. As in the serial flush, the indexes
+     * are synced after the entry log, unless {@code dbStorage_flushSyncConcurrently} is set: the indexes
+     * might then be persisted before the entry log, and rely on the entries being replayed from the
+     * journal after a crash, since the checkpoint is only completed once both are durable.
+     */
+    private void flushWriteCacheParallel() throws IOException {
+        Batch batch = entryLocationIndex.newBatch();
+        BlockingQueue<long[]> locationsQueue = new ArrayBlockingQueue<>(FLUSH_LOCATIONS_QUEUE_SIZE);
+        Future<?> indexBuilder = flushExecutor.submit(() -> {
+            buildLocationsIndexBatch(batch, locationsQueue);
+            return null;
+        });
+
+        boolean success = false;
+        try {
+            long writeStartTime = MathUtils.nowInNano();
+            try {
+                long[] chunk = new long[FLUSH_LOCATIONS_CHUNK_SIZE];
+                MutableInt chunkIdx = new MutableInt();
+                writeCacheBeingFlushed.forEach((ledgerId, entryId, entry) -> {
+                    long location = entryLogger.addEntry(ledgerId, entry);
+                    int idx = chunkIdx.intValue();
+                    chunk[idx] = ledgerId;
+                    chunk[idx + 1] = entryId;
+                    chunk[idx + 2] = location;
+                    chunkIdx.setValue(idx + 3);
+                    if (idx + 3 == FLUSH_LOCATIONS_CHUNK_SIZE) {
+                        putLocations(locationsQueue, chunk.clone());
+                        chunkIdx.setValue(0);
+                    }
+                }, flushExecutor, flushParallelism, dbLedgerStorageStats.getFlushSortStats());
+
+                // The last chunk is always shorter than a full chunk and marks the end of the entries
+                putLocations(locationsQueue, Arrays.copyOf(chunk, chunkIdx.intValue()));
+                recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogWriteStats(), writeStartTime);
+            } catch (Throwable t) {
+                recordFailedEvent(dbLedgerStorageStats.getFlushEntryLogWriteStats(), writeStartTime);
+                // Make sure the index builder terminates, whatever the failure
+                locationsQueue.clear();
+                locationsQueue.offer(new long[0]);
+                throw t;
+            }
+
+            waitFlushTask(indexBuilder);
+
+            if (flushSyncConcurrently) {
+                Future<?> entryLogFlush = flushExecutor.submit(() -> {
+                    flushEntryLog();
+                    return null;
+                });
+                try {
+                    flushIndexes(batch);
+                } finally {
+                    waitFlushTask(entryLogFlush);
+                }
+            } else {
+                flushEntryLog();
+                flushIndexes(batch);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                // The batch cannot be closed while the index builder is still using it
+                try {
+                    waitFlushTask(indexBuilder);
+                } catch (IOException e) {
+                    log.warn("Failed to build the locations index batch", e);
+                }
+            }
+            batch.close();
+        }
+    }
+
+    private void flushEntryLog() throws IOException {
+        long entryLoggerStart = MathUtils.nowInNano();
+        entryLogger.flush();
+        recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
+    }
+
+    private void flushIndexes(Batch batch) throws IOException {
+        long batchFlushStartTime = MathUtils.nowInNano();
+        batch.flush();
+        recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
+
+        long ledgerIndexStartTime = MathUtils.nowInNano();
+        ledgerIndex.flush();
+        recordSuccessfulEvent(dbLedgerStorageStats.getFlushLedgerIndexStats(), ledgerIndexStartTime);
+    }
+
+    private void buildLocationsIndexBatch(Batch batch, BlockingQueue<long[]> locationsQueue)
+            throws IOException, InterruptedException {
+        long startTime = MathUtils.nowInNano();
+        IOException failure = null;
+        long[] chunk;
+        do {
+            chunk = locationsQueue.take();
+            if (failure != null) {
+                // Keep draining the queue until the end, so that the writer is never blocked
+                continue;
+            }
+
+            try {
+                for (int i = 0; i < chunk.length; i += 3) {
+                    addFlushedLocation(batch, chunk[i], chunk[i + 1], chunk[i + 2]);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (Throwable t) {
+                failure = new IOException("Failed to build the locations index batch", t);
+            }
+        } while (chunk.length == FLUSH_LOCATIONS_CHUNK_SIZE);
+
+        if (failure != null) {
+            recordFailedEvent(dbLedgerStorageStats.getFlushLocationIndexBuildStats(), startTime);
+            throw failure;
+        }
+        recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexBuildStats(), startTime);
+    }
+
+    @VisibleForTesting
+    void addFlushedLocation(Batch batch, long ledgerId, long entryId, long location) throws IOException {
+        entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
+    }
+
+    private static void putLocations(BlockingQueue<long[]> locationsQueue, long[] chunk) throws IOException {
+        try {
+            locationsQueue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing write cache", e);
+        }
+    }
+
+    private static void waitFlushTask(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing write cache", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     private void recordSuccessfulEvent(OpStatsLogger logger, long startTimeNanos) {
         logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
     }
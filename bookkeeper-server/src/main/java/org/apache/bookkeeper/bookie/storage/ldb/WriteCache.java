@@ -27,10 +27,18 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
@@ -281,6 +289,111 @@ public class WriteCache implements Closeable {
         }
     }
 
+    /**
+     * Iterate through the stored entries, sorting them in parallel.
+     *
+     * <p>Entries are split in partitions by ledger id, and each partition is sorted by (ledgerId, entryId) on the
+     * given executor. The consumer is invoked on the calling thread, one partition after the other, as soon as
+     * each partition is sorted. All the entries of a ledger are passed to the consumer in order, though the
+     * ledgers are not globally ordered.
+     *
+     * @param sortTimeStats stats logger where to record the time spent waiting for the partitions to be sorted
+     */
+    public void forEach(EntryConsumer consumer, ExecutorService sortExecutor, int numPartitions,
+                        OpStatsLogger sortTimeStats) throws IOException {
+        if (numPartitions <= 1) {
+            forEach(consumer);
+            return;
+        }
+
+        sortedEntriesLock.lock();
+
+        try {
+            // First pass to size each partition, so that the shared array can be reused across flushes
+            int[] partitionStart = new int[numPartitions + 1];
+            index.forEach((ledgerId, entryId, offset, length) -> {
+                partitionStart[partition(ledgerId, numPartitions) + 1] += 4;
+            });
+            for (int i = 1; i <= numPartitions; i++) {
+                partitionStart[i] += partitionStart[i - 1];
+            }
+
+            int arrayLen = partitionStart[numPartitions];
+            if (sortedEntries == null || sortedEntries.length < arrayLen) {
+                sortedEntries = new long[(int) (arrayLen * 2)];
+            }
+
+            int[] partitionEnd = Arrays.copyOf(partitionStart, numPartitions);
+            index.forEach((ledgerId, entryId, offset, length) -> {
+                int partition = partition(ledgerId, numPartitions);
+                int idx = partitionEnd[partition];
+                if (deletedLedgers.contains(ledgerId) || idx == partitionStart[partition + 1]) {
+                    // Ignore deleted ledgers
+                    return;
+                }
+
+                sortedEntries[idx] = ledgerId;
+                sortedEntries[idx + 1] = entryId;
+                sortedEntries[idx + 2] = offset;
+                sortedEntries[idx + 3] = length;
+                partitionEnd[partition] = idx + 4;
+            });
+
+            long startTime = MathUtils.nowInNano();
+            List<Future<?>> sortTasks = new ArrayList<>(numPartitions);
+            for (int i = 0; i < numPartitions; i++) {
+                int start = partitionStart[i];
+                int len = partitionEnd[i] - start;
+                sortTasks.add(sortExecutor.submit(() -> ArrayGroupSort.sort(sortedEntries, start, len)));
+            }
+
+            ByteBuf[] entrySegments = new ByteBuf[segmentsCount];
+            for (int i = 0; i < segmentsCount; i++) {
+                entrySegments[i] = cacheSegments[i].slice(0, cacheSegments[i].capacity());
+            }
+
+            long sortWaitNanos = 0;
+            for (int p = 0; p < numPartitions; p++) {
+                long waitStartTime = MathUtils.nowInNano();
+                try {
+                    sortTasks.get(p).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    sortTasks.forEach(f -> f.cancel(true));
+                    throw new IOException("Interrupted while sorting write cache", e);
+                } catch (ExecutionException e) {
+                    sortTasks.forEach(f -> f.cancel(true));
+                    throw new IOException("Failed to sort write cache", e.getCause());
+                }
+                sortWaitNanos += MathUtils.elapsedNanos(waitStartTime);
+
+                for (int i = partitionStart[p]; i < partitionEnd[p]; i += 4) {
+                    long ledgerId = sortedEntries[i];
+                    long entryId = sortedEntries[i + 1];
+                    long offset = sortedEntries[i + 2];
+                    long length = sortedEntries[i + 3];
+
+                    int localOffset = (int) (offset & segmentOffsetMask);
+                    int segmentIdx = (int) (offset >>> segmentOffsetBits);
+                    ByteBuf entry = entrySegments[segmentIdx];
+                    entry.setIndex(localOffset, localOffset + (int) length);
+                    consumer.accept(ledgerId, entryId, entry);
+                }
+            }
+
+            sortTimeStats.registerSuccessfulEvent(sortWaitNanos, TimeUnit.NANOSECONDS);
+            if (log.isDebugEnabled()) {
+                log.debug("parallel sorting and entry log adding {} ms", MathUtils.elapsedNanos(startTime) / 1e6);
+            }
+        } finally {
+            sortedEntriesLock.unlock();
+        }
+    }
+
+    private static int partition(long ledgerId, int numPartitions) {
+        return (int) ((ledgerId & Long.MAX_VALUE) % numPartitions);
+    }
+
     public long size() {
         return cacheSize.get();
     }
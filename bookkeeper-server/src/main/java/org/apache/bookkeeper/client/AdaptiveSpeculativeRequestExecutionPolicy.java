@@ -0,0 +1,221 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SpeculativeRequestExecutionPolicy} whose timeouts follow the recent latency of the bookies.
+ *
+ * <p>The first speculative request is issued once the first request has taken longer than a percentile of the
+ * recent latency of the bookie it was sent to, capped by {@code maxSpeculativeRequestTimeout}. The
+ * {@code firstSpeculativeRequestTimeout} is used while the latency of the bookie is not known. The next
+ * speculative requests back off as with {@link DefaultSpeculativeRequestExecutionPolicy}.
+ *
+ * <p>A low timeout speculates on all the requests when all the bookies slow down, so the speculative requests are
+ * limited to {@code maxSpeculativeRequestRatePercent} percent of the requests, with a burst allowance of
+ * {@link #MAX_BURST_REQUESTS} requests.
+ */
+public class AdaptiveSpeculativeRequestExecutionPolicy implements SpeculativeRequestExecutionPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveSpeculativeRequestExecutionPolicy.class);
+
+    static final int MAX_BURST_REQUESTS = 100;
+    // the credits to issue speculative requests are counted in hundredths of request
+    private static final long CREDITS_PER_REQUEST = 100;
+
+    final double quantile;
+    final int firstSpeculativeRequestTimeout;
+    final int maxSpeculativeRequestTimeout;
+    final float backoffMultiplier;
+    final int maxSpeculativeRequestRatePercent;
+
+    private final long maxCredits;
+    private final AtomicLong credits;
+    private final LongAdder numRequests = new LongAdder();
+    private final LongAdder numSpeculativeRequests = new LongAdder();
+    private final OpStatsLogger speculativeRequestTimeoutStats;
+    private final Counter throttledCounter;
+
+    public AdaptiveSpeculativeRequestExecutionPolicy(double quantile,
+                                                     int firstSpeculativeRequestTimeout,
+                                                     int maxSpeculativeRequestTimeout,
+                                                     float backoffMultiplier,
+                                                     int maxSpeculativeRequestRatePercent,
+                                                     BookKeeperClientStats clientStats) {
+        this.quantile = quantile;
+        this.firstSpeculativeRequestTimeout = firstSpeculativeRequestTimeout;
+        this.maxSpeculativeRequestTimeout = maxSpeculativeRequestTimeout;
+        this.backoffMultiplier = backoffMultiplier;
+        this.maxSpeculativeRequestRatePercent = maxSpeculativeRequestRatePercent;
+
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("Invalid value provided for quantile");
+        }
+        if (backoffMultiplier <= 0) {
+            throw new IllegalArgumentException("Invalid value provided for backoffMultiplier");
+        }
+        if (maxSpeculativeRequestRatePercent < 0) {
+            throw new IllegalArgumentException("Invalid value provided for maxSpeculativeRequestRatePercent");
+        }
+        // Prevent potential over flow
+        if (Math.round((double) maxSpeculativeRequestTimeout * (double) backoffMultiplier) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid values for maxSpeculativeRequestTimeout and backoffMultiplier");
+        }
+
+        this.maxCredits = MAX_BURST_REQUESTS * CREDITS_PER_REQUEST;
+        this.credits = new AtomicLong(maxCredits);
+        this.speculativeRequestTimeoutStats = clientStats.getSpeculativeReadTimeoutLogger();
+        this.throttledCounter = clientStats.getSpeculativeReadThrottledCounter();
+        clientStats.registerSpeculativeReadRateGauge(new Gauge<Double>() {
+            private long lastNumRequests = 0;
+            private long lastNumSpeculativeRequests = 0;
+
+            @Override
+            public Double getDefaultValue() {
+                return 0.0;
+            }
+
+            @Override
+            public synchronized Double getSample() {
+                // the rate since the previous sample, in percent of the requests
+                long requests = numRequests.sum();
+                long speculativeRequests = numSpeculativeRequests.sum();
+                long deltaRequests = requests - lastNumRequests;
+                long deltaSpeculativeRequests = speculativeRequests - lastNumSpeculativeRequests;
+                lastNumRequests = requests;
+                lastNumSpeculativeRequests = speculativeRequests;
+                return deltaRequests <= 0 ? 0.0 : 100.0 * deltaSpeculativeRequests / deltaRequests;
+            }
+        });
+    }
+
+    /**
+     * Initialize the speculative request execution policy.
+     *
+     * @param scheduler The scheduler service to issue the speculative request
+     * @param requestExecutor The executor is used to issue the actual speculative requests
+     * @return ScheduledFuture, in case caller needs to cancel it.
+     */
+    @Override
+    public ScheduledFuture<?> initiateSpeculativeRequest(final ScheduledExecutorService scheduler,
+            final SpeculativeRequestExecutor requestExecutor) {
+        numRequests.increment();
+        addCredits(maxSpeculativeRequestRatePercent);
+
+        int speculativeRequestTimeout = firstSpeculativeRequestTimeout;
+        long latencyNanos = requestExecutor.getRequestLatencyNanos(quantile);
+        if (latencyNanos >= 0) {
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(latencyNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+            speculativeRequestTimeout = (int) Math.max(1, Math.min(maxSpeculativeRequestTimeout, latencyMs));
+        }
+        speculativeRequestTimeoutStats.registerSuccessfulValue(speculativeRequestTimeout);
+        return scheduleSpeculativeRead(scheduler, requestExecutor, speculativeRequestTimeout);
+    }
+
+    private void addCredits(long amount) {
+        long current;
+        do {
+            current = credits.get();
+            if (current >= maxCredits) {
+                return;
+            }
+        } while (!credits.compareAndSet(current, Math.min(maxCredits, current + amount)));
+    }
+
+    private boolean tryAcquireCredits() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDITS_PER_REQUEST) {
+                return false;
+            }
+        } while (!credits.compareAndSet(current, current - CREDITS_PER_REQUEST));
+        return true;
+    }
+
+    private ScheduledFuture<?> scheduleSpeculativeRead(final ScheduledExecutorService scheduler,
+                                         final SpeculativeRequestExecutor requestExecutor,
+                                         final int speculativeRequestTimeout) {
+        try {
+            return scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!tryAcquireCredits()) {
+                        throttledCounter.inc();
+                        if (LOG.isTraceEnabled()) {
+                            LOG.trace("Throttled speculative requests for {}, speculativeReadTimeout = {}",
+                                    requestExecutor, speculativeRequestTimeout);
+                        }
+                        return;
+                    }
+                    ListenableFuture<Boolean> issueNextRequest = requestExecutor.issueSpeculativeRequest();
+                    Futures.addCallback(issueNextRequest, new FutureCallback<Boolean>() {
+                        // we want this handler to run immediately after we push the big red button!
+                        @Override
+                        public void onSuccess(Boolean issueNextRequest) {
+                            if (issueNextRequest) {
+                                numSpeculativeRequests.increment();
+                                scheduleSpeculativeRead(scheduler, requestExecutor,
+                                        Math.min(maxSpeculativeRequestTimeout,
+                                        Math.round((float) speculativeRequestTimeout * backoffMultiplier)));
+                            } else {
+                                // no request was issued
+                                addCredits(CREDITS_PER_REQUEST);
+                                if (LOG.isTraceEnabled()) {
+                                    LOG.trace("Stopped issuing speculative requests for {}, "
+                                        + "speculativeReadTimeout = {}", requestExecutor, speculativeRequestTimeout);
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Throwable thrown) {
+                            addCredits(CREDITS_PER_REQUEST);
+                            LOG.warn("Failed to issue speculative request for {}, speculativeReadTimeout = {} : ",
+                                    requestExecutor, speculativeRequestTimeout, thrown);
+                        }
+                    }, directExecutor());
+                }
+            }, speculativeRequestTimeout, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException re) {
+            if (!scheduler.isShutdown()) {
+                LOG.warn("Failed to schedule speculative request for {}, speculativeReadTimeout = {} : ",
+                        requestExecutor, speculativeRequestTimeout, re);
+            }
+        }
+        return null;
+    }
+}
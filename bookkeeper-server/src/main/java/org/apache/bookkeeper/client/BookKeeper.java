@@ -40,6 +40,8 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -71,6 +73,7 @@ import org.apache.bookkeeper.conf.AbstractConfiguration;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.feature.FeatureProvider;
 import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.meta.CachingLedgerManager;
 import org.apache.bookkeeper.meta.CleanupLedgerManager;
 import org.apache.bookkeeper.meta.LedgerIdGenerator;
 import org.apache.bookkeeper.meta.LedgerManager;
@@ -132,6 +135,8 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     final boolean ownTimer;
     final FeatureProvider featureProvider;
     final ScheduledExecutorService bookieInfoScheduler;
+    // helps computing the checksums of large entries, null if the parallel checksums are disabled
+    final ExecutorService parallelChecksumExecutor;
 
     final MetadataClientDriver metadataDriver;
     // Ledger manager responsible for how to store ledger meta data
@@ -420,8 +425,6 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             this.featureProvider = featureProvider;
         }
 
-        this.internalConf = ClientInternalConf.fromConfigAndFeatureProvider(conf, this.featureProvider);
-
         // initialize resources
         this.scheduler = OrderedScheduler.newSchedulerBuilder().numThreads(1).name("BookKeeperClientScheduler").build();
         this.mainWorkerPool = OrderedExecutor.newBuilder()
@@ -433,11 +436,20 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 .traceTaskWarnTimeMicroSec(conf.getTaskExecutionWarnTimeMicros())
                 .enableBusyWait(conf.isBusyWaitEnabled())
                 .build();
+        if (conf.getNumParallelChecksumThreads() > 0) {
+            this.parallelChecksumExecutor = Executors.newFixedThreadPool(conf.getNumParallelChecksumThreads(),
+                    new ThreadFactoryBuilder().setNameFormat("BookKeeperClientChecksum-%d").setDaemon(true).build());
+        } else {
+            this.parallelChecksumExecutor = null;
+        }
 
         // initialize stats logger
         this.statsLogger = rootStatsLogger.scope(BookKeeperClientStats.CLIENT_SCOPE);
         this.clientStats = BookKeeperClientStats.newInstance(this.statsLogger);
 
+        this.internalConf = ClientInternalConf.fromConfigAndFeatureProvider(conf, this.featureProvider,
+                this.clientStats);
+
         // initialize metadata driver
         try {
             String metadataServiceUriStr = conf.getMetadataServiceUri();
@@ -533,7 +545,14 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         } catch (MetadataException e) {
             throw new IOException("Failed to initialize ledger manager factory", e);
         }
-        this.ledgerManager = new CleanupLedgerManager(ledgerManagerFactory.newLedgerManager());
+        LedgerManager lm = ledgerManagerFactory.newLedgerManager();
+        if (conf.isLedgerMetadataCacheEnabled()) {
+            lm = new CachingLedgerManager(lm, conf.getLedgerMetadataCacheMaxSizeBytes(),
+                    conf.isLedgerMetadataCacheWatchClosedLedgers(),
+                    conf.getLedgerMetadataCacheUnwatchedTtlMs(),
+                    this.statsLogger.scope(BookKeeperClientStats.LEDGER_METADATA_CACHE_SCOPE));
+        }
+        this.ledgerManager = new CleanupLedgerManager(lm);
         this.ledgerIdGenerator = ledgerManagerFactory.newLedgerIdGenerator();
 
         this.bookieQuarantineRatio = conf.getBookieQuarantineRatio();
@@ -562,6 +581,7 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         eventLoopGroup = null;
         bookieWatcher = null;
         bookieInfoScheduler = null;
+        parallelChecksumExecutor = null;
         bookieClient = null;
         allocator = UnpooledByteBufAllocator.DEFAULT;
         bookieQuarantineRatio = 1.0;
@@ -1475,6 +1495,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 LOG.warn("The bookieInfoScheduler did not shutdown cleanly");
             }
         }
+        if (this.parallelChecksumExecutor != null) {
+            this.parallelChecksumExecutor.shutdown();
+        }
 
         if (ownTimer) {
             requestTimer.stop();
@@ -1662,6 +1685,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             public ByteBufAllocator getByteBufAllocator() {
                 return allocator;
             }
+
+            @Override
+            public Executor getParallelChecksumExecutor() {
+                return parallelChecksumExecutor;
+            }
         };
 
     public ClientContext getClientCtx() {
@@ -53,6 +53,8 @@ public interface BookKeeperClientStats {
     String READ_OP = "READ_ENTRY";
     // Corrupted entry (Digest Mismatch/ Under Replication) detected during ReadEntry
     String READ_OP_DM = "READ_ENTRY_DM";
+    // Bytes of the entries read whose digest was verified by the bookies instead of the client
+    String READ_OP_DIGEST_SKIPPED_BYTES = "READ_ENTRY_DIGEST_SKIPPED_BYTES";
     String WRITE_LAC_OP = "WRITE_LAC";
     String READ_LAC_OP = "READ_LAC";
     String READ_LAST_CONFIRMED_AND_ENTRY = "READ_LAST_CONFIRMED_AND_ENTRY";
@@ -63,16 +65,31 @@ public interface BookKeeperClientStats {
     String LAC_UPDATE_MISSES = "LAC_UPDATE_MISSES";
     String GET_BOOKIE_INFO_OP = "GET_BOOKIE_INFO";
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
+    String SPECULATIVE_READ_TIMEOUT = "SPECULATIVE_READ_TIMEOUT";
+    String SPECULATIVE_READ_THROTTLED = "SPECULATIVE_READ_THROTTLED";
+    String SPECULATIVE_READ_RATE = "SPECULATIVE_READ_RATE";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
 
+    // ledger metadata cache stats
+    String LEDGER_METADATA_CACHE_SCOPE = "ledger_metadata_cache";
+
+    String LEDGER_METADATA_CACHE_HITS = "HITS";
+    String LEDGER_METADATA_CACHE_MISSES = "MISSES";
+    String LEDGER_METADATA_CACHE_UPDATES = "WATCH_UPDATES";
+    String LEDGER_METADATA_CACHE_STALE_WRITES = "STALE_WRITES";
+    String LEDGER_METADATA_CACHE_STALENESS = "STALENESS";
+
     // per channel stats
     String CHANNEL_SCOPE = "per_channel_bookie_client";
 
     String CHANNEL_READ_OP = "READ_ENTRY";
     String CHANNEL_TIMEOUT_READ = "TIMEOUT_READ_ENTRY";
+    String CHANNEL_RANGE_READ_OP = "RANGE_READ_ENTRY";
+    String CHANNEL_TIMEOUT_RANGE_READ = "TIMEOUT_RANGE_READ_ENTRY";
     String CHANNEL_ADD_OP = "ADD_ENTRY";
     String CHANNEL_TIMEOUT_ADD = "TIMEOUT_ADD_ENTRY";
+    String CHANNEL_ADD_BATCH_SIZE = "ADD_ENTRY_BATCH_SIZE";
     String CHANNEL_WRITE_LAC_OP = "WRITE_LAC";
     String CHANNEL_FORCE_OP = "FORCE";
     String CHANNEL_TIMEOUT_WRITE_LAC = "TIMEOUT_WRITE_LAC";
@@ -119,8 +136,11 @@ public interface BookKeeperClientStats {
     OpStatsLogger getRecoverAddCountLogger();
     OpStatsLogger getRecoverReadCountLogger();
     Counter getReadOpDmCounter();
+    Counter getReadOpDigestSkippedBytesCounter();
     Counter getAddOpUrCounter();
     Counter getSpeculativeReadCounter();
+    OpStatsLogger getSpeculativeReadTimeoutLogger();
+    Counter getSpeculativeReadThrottledCounter();
     Counter getEnsembleBookieDistributionCounter(String bookie);
     Counter getEnsembleChangeCounter();
     Counter getLacUpdateHitsCounter();
@@ -130,6 +150,7 @@ public interface BookKeeperClientStats {
     Counter getWriteDelayedDueToNotEnoughFaultDomains();
     Counter getWriteTimedOutDueToNotEnoughFaultDomains();
     void registerPendingAddsGauge(Gauge<Integer> gauge);
+    void registerSpeculativeReadRateGauge(Gauge<Double> gauge);
 
     static BookKeeperClientStats newInstance(StatsLogger stats) {
         return new BookKeeperClientStatsImpl(stats);
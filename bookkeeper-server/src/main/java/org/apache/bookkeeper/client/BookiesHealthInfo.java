@@ -44,4 +44,15 @@ public interface BookiesHealthInfo {
      */
     long getBookiePendingRequests(BookieId bookieSocketAddress);
 
+    /**
+     * Returns a percentile of the recent read latency of a bookie.
+     *
+     * @param bookieSocketAddress
+     * @param quantile the percentile, between 0 and 1
+     * @return the latency in nanoseconds, -1 if it is not known
+     */
+    default long getBookieReadLatencyNanos(BookieId bookieSocketAddress, double quantile) {
+        return -1L;
+    }
+
 }
@@ -21,6 +21,7 @@
 package org.apache.bookkeeper.client;
 
 import io.netty.buffer.ByteBufAllocator;
+import java.util.concurrent.Executor;
 import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.meta.LedgerManager;
@@ -39,6 +40,7 @@ public interface ClientContext {
     EnsemblePlacementPolicy getPlacementPolicy();
     BookieClient getBookieClient();
     ByteBufAllocator getByteBufAllocator();
+    Executor getParallelChecksumExecutor();
     OrderedExecutor getMainWorkerPool();
     OrderedScheduler getScheduler();
     BookKeeperClientStats getClientStats();
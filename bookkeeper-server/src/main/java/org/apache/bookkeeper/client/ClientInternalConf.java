@@ -26,6 +26,7 @@ import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.feature.Feature;
 import org.apache.bookkeeper.feature.FeatureProvider;
 import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.stats.NullStatsLogger;
 
 class ClientInternalConf {
     final Feature disableEnsembleChangeFeature;
@@ -40,6 +41,9 @@ class ClientInternalConf {
     final boolean enableParallelRecoveryRead;
     final boolean enableReorderReadSequence;
     final boolean enableStickyReads;
+    final boolean enableRangeReads;
+    final int rangeReadMaxEntries;
+    final int rangeReadMaxBytes;
     final int recoveryReadBatchSize;
     final int throttleValue;
     final int bookieFailureHistoryExpirationMSec;
@@ -59,11 +63,19 @@ class ClientInternalConf {
 
     static ClientInternalConf fromConfigAndFeatureProvider(ClientConfiguration conf,
                                                            FeatureProvider featureProvider) {
-        return new ClientInternalConf(conf, featureProvider);
+        return fromConfigAndFeatureProvider(conf, featureProvider,
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+    }
+
+    static ClientInternalConf fromConfigAndFeatureProvider(ClientConfiguration conf,
+                                                           FeatureProvider featureProvider,
+                                                           BookKeeperClientStats clientStats) {
+        return new ClientInternalConf(conf, featureProvider, clientStats);
     }
 
     private ClientInternalConf(ClientConfiguration conf,
-                               FeatureProvider featureProvider) {
+                               FeatureProvider featureProvider,
+                               BookKeeperClientStats clientStats) {
         this.explicitLacInterval = conf.getExplictLacInterval();
         this.enableReorderReadSequence = conf.isReorderReadSequenceEnabled();
         this.enableParallelRecoveryRead = conf.getEnableParallelRecoveryRead();
@@ -81,9 +93,21 @@ class ClientInternalConf {
         this.enableBookieFailureTracking = conf.getEnableBookieFailureTracking();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.enableStickyReads = conf.isStickyReadsEnabled();
+        this.enableRangeReads = conf.isRangeReadEnabled();
+        this.rangeReadMaxEntries = conf.getRangeReadMaxEntries();
+        this.rangeReadMaxBytes = conf.getRangeReadMaxBytes();
         this.enforceMinNumFaultDomainsForWrite = conf.getEnforceMinNumFaultDomainsForWrite();
 
-        if (conf.getFirstSpeculativeReadTimeout() > 0) {
+        if (conf.getFirstSpeculativeReadTimeout() > 0 && conf.isAdaptiveSpeculativeReadEnabled()) {
+            this.readSpeculativeRequestPolicy =
+                    Optional.of(new AdaptiveSpeculativeRequestExecutionPolicy(
+                                        conf.getAdaptiveSpeculativeReadLatencyQuantile(),
+                                        conf.getFirstSpeculativeReadTimeout(),
+                                        conf.getMaxSpeculativeReadTimeout(),
+                                        conf.getSpeculativeReadTimeoutBackoffMultiplier(),
+                                        conf.getMaxSpeculativeReadRatePercent(),
+                                        clientStats));
+        } else if (conf.getFirstSpeculativeReadTimeout() > 0) {
             this.readSpeculativeRequestPolicy =
                     Optional.of(new DefaultSpeculativeRequestExecutionPolicy(
                                         conf.getFirstSpeculativeReadTimeout(),
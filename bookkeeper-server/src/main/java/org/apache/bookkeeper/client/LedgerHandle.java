@@ -209,7 +209,8 @@ public class LedgerHandle implements WriteHandle {
         }
 
         macManager = DigestManager.instantiate(ledgerId, password, BookKeeper.DigestType.toProtoDigestType(digestType),
-                                               clientCtx.getByteBufAllocator(), clientCtx.getConf().useV2WireProtocol);
+                                               clientCtx.getByteBufAllocator(), clientCtx.getConf().useV2WireProtocol,
+                                               clientCtx.getParallelChecksumExecutor());
 
         // If the password is empty, pass the same random ledger key which is generated by the hash of the empty
         // password, so that the bookie can avoid processing the keys for each entry
@@ -237,6 +238,11 @@ public class LedgerHandle implements WriteHandle {
             public long getBookiePendingRequests(BookieId bookieSocketAddress) {
                 return clientCtx.getBookieClient().getNumPendingRequests(bookieSocketAddress, ledgerId);
             }
+
+            @Override
+            public long getBookieReadLatencyNanos(BookieId bookieSocketAddress, double quantile) {
+                return clientCtx.getBookieClient().getReadLatencyNanos(bookieSocketAddress, quantile);
+            }
         };
 
         ensembleChangeCounter = clientCtx.getClientStats().getEnsembleChangeCounter();
@@ -23,6 +23,8 @@ package org.apache.bookkeeper.client;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -40,6 +42,7 @@ import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallbackCtx;
 import org.apache.bookkeeper.proto.checksum.DigestManager;
@@ -54,7 +57,7 @@ import org.slf4j.LoggerFactory;
  * application as soon as it arrives rather than waiting for the whole thing.
  *
  */
-class PendingReadOp implements ReadEntryCallback, Runnable {
+class PendingReadOp implements ReadEntryCallback, ReadEntriesCallback, Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(PendingReadOp.class);
 
     private ScheduledFuture<?> speculativeTask = null;
@@ -88,6 +91,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
 
         final List<BookieId> ensemble;
         final DistributionSchedule.WriteSet writeSet;
+        final BookieId firstBookie;
         final LedgerEntryImpl entryImpl;
         final long eId;
 
@@ -105,6 +109,8 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             } else {
                 writeSet = lh.getWriteSetForReadOperation(eId);
             }
+            // the write set is recycled on completion, which may happen before the speculation is scheduled
+            firstBookie = ensemble.get(writeSet.get(0));
         }
 
         @Override
@@ -135,12 +141,29 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
          *         otherwise return false if the read entry is not complete or it is already completed before
          */
         boolean complete(int bookieIndex, BookieId host, final ByteBuf buffer) {
+            return complete(bookieIndex, host, buffer, false);
+        }
+
+        /**
+         * Complete the read request from <i>host</i>, whose digest may have been verified by the bookie.
+         *
+         * @param checksumVerified
+         *          whether the bookie reported the digest of the entry as verified
+         * @see #complete(int, BookieId, ByteBuf)
+         */
+        boolean complete(int bookieIndex, BookieId host, final ByteBuf buffer, boolean checksumVerified) {
             ByteBuf content;
             if (isComplete()) {
                 return false;
             }
             try {
-                content = lh.macManager.verifyDigestAndReturnData(eId, buffer);
+                if (checksumVerified && lh.macManager.isVerifiableByBookies()) {
+                    int entryLength = buffer.readableBytes();
+                    content = lh.macManager.verifyEntryIdAndReturnData(eId, buffer);
+                    clientCtx.getClientStats().getReadOpDigestSkippedBytesCounter().addCount(entryLength);
+                } else {
+                    content = lh.macManager.verifyDigestAndReturnData(eId, buffer);
+                }
             } catch (BKDigestMatchException e) {
                 clientCtx.getClientStats().getReadOpDmCounter().inc();
                 logErrorAndReattemptRead(bookieIndex, host, "Mac mismatch", BKException.Code.DigestMatchException);
@@ -254,6 +277,11 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             return String.format("L%d-E%d", lh.getId(), eId);
         }
 
+        @Override
+        public long getRequestLatencyNanos(double quantile) {
+            return lh.getBookiesHealthInfo().getBookieReadLatencyNanos(firstBookie, quantile);
+        }
+
         /**
          * Issues a speculative request and indicates if more speculative
          * requests should be issued.
@@ -440,9 +468,38 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             }
         }
 
+        /**
+         * @return the position of {@code bookie} in the read sequence of this entry, or {@link #NOT_FOUND}
+         */
+        int replicaIndexOf(BookieId bookie) {
+            for (int i = 0; i < writeSet.size(); i++) {
+                if (ensemble.get(writeSet.get(i)).equals(bookie)) {
+                    return i;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        /**
+         * Move {@code bookie} first in the read sequence of this entry, and record that it was sent a
+         * range read including this entry.
+         *
+         * @return the index of the bookie in the ensemble
+         */
+        synchronized int markRangeReadSent(BookieId bookie) {
+            int replica = replicaIndexOf(bookie);
+            if (replica > 0) {
+                writeSet.moveAndShift(replica, 0);
+            }
+            nextReplicaIndexToReadFrom = 1;
+            sentReplicas.set(0);
+            sentToHosts.add(bookie);
+            return writeSet.get(0);
+        }
+
         @Override
-        boolean complete(int bookieIndex, BookieId host, ByteBuf buffer) {
-            boolean completed = super.complete(bookieIndex, host, buffer);
+        boolean complete(int bookieIndex, BookieId host, ByteBuf buffer, boolean checksumVerified) {
+            boolean completed = super.complete(bookieIndex, host, buffer, checksumVerified);
             if (completed) {
                 int numReplicasTried = getNextReplicaIndexToReadFrom();
                 // Check if any speculative reads were issued and mark any slow bookies before
@@ -529,6 +586,10 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             i++;
         } while (i <= endEntryId);
         // read the entries.
+        if (!parallelRead && !isRecoveryRead && clientCtx.getConf().enableRangeReads) {
+            readInRanges();
+            return;
+        }
         for (LedgerEntryRequest entry : seq) {
             entry.read();
             if (!parallelRead && clientCtx.getConf().readSpeculativeRequestPolicy.isPresent()) {
@@ -538,6 +599,66 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         }
     }
 
+    /**
+     * Read each run of consecutive entries that are all stored on one bookie with a single range
+     * read. The run starts at the first entry not read yet, and the bookie is the replica of that
+     * entry that stores the longest run, the earliest in the read sequence on ties. With round robin
+     * striping, the last replica of entry e stores the entries e to e + WQ - 1, so runs have up to
+     * WQ entries when the ensemble is larger than the write quorum, and span the whole read when it
+     * is not. The other replicas are only tried entry by entry, on errors or speculatively.
+     */
+    private void readInRanges() {
+        final int maxEntries = Math.max(1, clientCtx.getConf().rangeReadMaxEntries);
+        List<LedgerEntryRequest> requests = new ArrayList<>(seq);
+        int start = 0;
+        while (start < requests.size()) {
+            SequenceReadRequest first = (SequenceReadRequest) requests.get(start);
+            BookieId to = null;
+            int end = start;
+            for (int i = 0; i < first.writeSet.size(); i++) {
+                BookieId replica = first.ensemble.get(first.writeSet.get(i));
+                int replicaEnd = rangeEnd(requests, start, replica, maxEntries);
+                if (replicaEnd > end) {
+                    to = replica;
+                    end = replicaEnd;
+                }
+            }
+
+            if (end - start == 1) {
+                first.read();
+            } else {
+                List<SequenceReadRequest> range = new ArrayList<>(end - start);
+                int[] bookieIndexes = new int[end - start];
+                for (int i = start; i < end; i++) {
+                    SequenceReadRequest request = (SequenceReadRequest) requests.get(i);
+                    bookieIndexes[i - start] = request.markRangeReadSent(to);
+                    range.add(request);
+                }
+                sendRangeReadTo(to, range, bookieIndexes);
+            }
+            if (clientCtx.getConf().readSpeculativeRequestPolicy.isPresent()) {
+                for (int i = start; i < end; i++) {
+                    speculativeTask = clientCtx.getConf().readSpeculativeRequestPolicy.get()
+                        .initiateSpeculativeRequest(clientCtx.getScheduler(), requests.get(i));
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * @return the end, exclusive, of the run of at most {@code maxEntries} requests from {@code start}
+     *         whose entries are all stored on {@code bookie}
+     */
+    private static int rangeEnd(List<LedgerEntryRequest> requests, int start, BookieId bookie, int maxEntries) {
+        int end = start;
+        while (end < requests.size() && end - start < maxEntries
+                && ((SequenceReadRequest) requests.get(end)).replicaIndexOf(bookie) != SequenceReadRequest.NOT_FOUND) {
+            end++;
+        }
+        return end;
+    }
+
     @Override
     public void run() {
         initiate();
@@ -548,6 +669,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         final BookieId to;
         final LedgerEntryRequest entry;
         long lac = LedgerHandle.INVALID_ENTRY_ID;
+        boolean checksumVerified = false;
 
         ReadContext(int bookieIndex, BookieId to, LedgerEntryRequest entry) {
             this.bookieIndex = bookieIndex;
@@ -564,12 +686,45 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         public long getLastAddConfirmed() {
             return lac;
         }
+
+        @Override
+        public void setChecksumVerified(boolean checksumVerified) {
+            this.checksumVerified = checksumVerified;
+        }
+
+        @Override
+        public boolean isChecksumVerified() {
+            return checksumVerified;
+        }
     }
 
     private static ReadContext createReadContext(int bookieIndex, BookieId to, LedgerEntryRequest entry) {
         return new ReadContext(bookieIndex, to, entry);
     }
 
+    private static class RangeReadContext {
+        final BookieId to;
+        final List<SequenceReadRequest> entries;
+        // index of the bookie in the ensemble of each entry
+        final int[] bookieIndexes;
+
+        RangeReadContext(BookieId to, List<SequenceReadRequest> entries, int[] bookieIndexes) {
+            this.to = to;
+            this.entries = entries;
+            this.bookieIndexes = bookieIndexes;
+        }
+    }
+
+    void sendRangeReadTo(BookieId to, List<SequenceReadRequest> entries, int[] bookieIndexes) {
+        if (lh.throttler != null) {
+            lh.throttler.acquire(entries.size());
+        }
+
+        clientCtx.getBookieClient().readEntries(to, lh.ledgerId, entries.get(0).eId, entries.size(),
+                clientCtx.getConf().rangeReadMaxBytes, this, new RangeReadContext(to, entries, bookieIndexes),
+                BookieProtocol.FLAG_NONE);
+    }
+
     void sendReadTo(int bookieIndex, BookieId to, LedgerEntryRequest entry) throws InterruptedException {
         if (lh.throttler != null) {
             lh.throttler.acquire();
@@ -600,7 +755,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
 
         buffer.retain();
         // if entry has completed don't handle twice
-        if (entry.complete(rctx.bookieIndex, rctx.to, buffer)) {
+        if (entry.complete(rctx.bookieIndex, rctx.to, buffer, rctx.isChecksumVerified())) {
             if (!isRecoveryRead) {
                 // do not advance LastAddConfirmed for recovery reads
                 lh.updateLastConfirmed(rctx.getLastAddConfirmed(), 0L);
@@ -616,6 +771,71 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         }
     }
 
+    @Override
+    public void readEntriesComplete(int rc, long ledgerId, long firstEntryId, List<ByteBuf> buffers, Object ctx) {
+        final RangeReadContext rctx = (RangeReadContext) ctx;
+        final List<SequenceReadRequest> entries = rctx.entries;
+
+        if (rc != BKException.Code.OK) {
+            String errMsg = "Error: " + BKException.getMessage(rc);
+            if (BKException.Code.NoSuchEntryException == rc) {
+                // Only the first entry is known to be missing from this bookie
+                entries.get(0).logErrorAndReattemptRead(rctx.bookieIndexes[0], rctx.to, errMsg, rc);
+                readRemainingEntries(rctx, 1);
+            } else {
+                for (int i = 0; i < entries.size(); i++) {
+                    entries.get(i).logErrorAndReattemptRead(rctx.bookieIndexes[i], rctx.to, errMsg, rc);
+                }
+            }
+            return;
+        }
+
+        heardFromHosts.add(rctx.to);
+        int numRead = Math.min(buffers.size(), entries.size());
+        // A range read response has no piggybacked LAC, the LAC written with each entry is used instead
+        long lac = LedgerHandle.INVALID_ENTRY_ID;
+        for (int i = 0; i < numRead; i++) {
+            heardFromHostsBitSet.set(rctx.bookieIndexes[i], true);
+            ByteBuf buffer = buffers.get(i);
+            buffer.retain();
+            // if entry has completed don't handle twice
+            if (entries.get(i).complete(rctx.bookieIndexes[i], rctx.to, buffer)) {
+                // The LAC is the second to last field of the metadata of the entry, whose digest was verified
+                lac = Math.max(lac, buffer.getLong(DigestManager.METADATA_LENGTH - 16));
+                submitCallback(BKException.Code.OK);
+            } else {
+                buffer.release();
+            }
+        }
+        if (!isRecoveryRead) {
+            // do not advance LastAddConfirmed for recovery reads
+            lh.updateLastConfirmed(lac, 0L);
+        }
+        if (numRead < entries.size()) {
+            // The response was cut short by its size limit, or by an entry the bookie doesn't have
+            readRemainingEntries(rctx, numRead);
+        }
+    }
+
+    private void readRemainingEntries(RangeReadContext rctx, int from) {
+        List<SequenceReadRequest> remaining = rctx.entries.subList(from, rctx.entries.size());
+        if (remaining.stream().allMatch(LedgerEntryRequest::isComplete)) {
+            return;
+        }
+        if (remaining.size() == 1) {
+            try {
+                sendReadTo(rctx.bookieIndexes[from], rctx.to, remaining.get(0));
+            } catch (InterruptedException ie) {
+                LOG.error("Interrupted reading entry {} : ", remaining.get(0), ie);
+                Thread.currentThread().interrupt();
+                remaining.get(0).fail(BKException.Code.InterruptedException);
+            }
+        } else {
+            sendRangeReadTo(rctx.to, remaining,
+                    Arrays.copyOfRange(rctx.bookieIndexes, from, rctx.bookieIndexes.length));
+        }
+    }
+
     protected void submitCallback(int code) {
         if (BKException.Code.OK == code) {
             numPendingEntries--;
@@ -105,6 +105,9 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     static final int UNAVAIL_MASK     = 0x40 << 24;
     static final int MASK_BITS        = 0xFFF << 20;
 
+    // the percentile of the read latencies compared to reorder reads
+    static final double REORDER_READ_LATENCY_QUANTILE = 0.95;
+
     protected HashedWheelTimer timer;
     // Use a loading cache so slow bookies are expired. Use entryId as values.
     protected Cache<BookieId, Long> slowBookies;
@@ -113,6 +116,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     protected boolean enforceDurability = false;
     protected int stabilizePeriodSeconds = 0;
     protected int reorderThresholdPendingRequests = 0;
+    protected double reorderThresholdLatencyRatio = 0;
     // looks like these only assigned in the same thread as constructor, immediately after constructor;
     // no need to make volatile
     protected StatsLogger statsLogger = null;
@@ -292,6 +296,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                     return -1L;
                 }
             });
+        this.reorderThresholdLatencyRatio = conf.getReorderThresholdLatencyRatio();
         return initialize(
                 dnsResolver,
                 timer,
@@ -914,6 +919,35 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             }
         }
 
+        if (!reordered && reorderThresholdLatencyRatio > 1) {
+            // recent p95 read latency per bookie (same index as writeSet), -1 if not known
+            long[] readLatencies = new long[writeSet.size()];
+            int bestBookieIdx = -1;
+
+            for (int i = 0; i < writeSet.size(); i++) {
+                readLatencies[i] = bookiesHealthInfo.getBookieReadLatencyNanos(ensemble.get(writeSet.get(i)),
+                        REORDER_READ_LATENCY_QUANTILE);
+                if (readLatencies[i] >= 0
+                        && (bestBookieIdx < 0 || readLatencies[i] < readLatencies[bestBookieIdx])) {
+                    bestBookieIdx = i;
+                }
+            }
+
+            // reorder the writeSet if the currently first bookie in our writeSet is known to be
+            // reorderThresholdLatencyRatio times slower than the best bookie. A bookie whose latency
+            // is not known keeps its place, so that it gets the reads needed to learn it.
+            if (bestBookieIdx > 0 && readLatencies[0] >= 0
+                    && readLatencies[0] >= readLatencies[bestBookieIdx] * reorderThresholdLatencyRatio) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("read set reordered from {} (p95 {} ns) to {} (p95 {} ns)",
+                            ensemble.get(writeSet.get(0)), readLatencies[0], ensemble.get(writeSet.get(bestBookieIdx)),
+                            readLatencies[bestBookieIdx]);
+                }
+                writeSet.moveAndShift(bestBookieIdx, 0);
+                reordered = true;
+            }
+        }
+
         if (!isAnyBookieUnavailable) {
             if (reordered) {
                 readReorderedCounter.registerSuccessfulValue(1);
@@ -39,4 +39,15 @@ public interface SpeculativeRequestExecutor {
      * @return whether more speculative requests should be issued
      */
     ListenableFuture<Boolean> issueSpeculativeRequest();
+
+    /**
+     * Estimates a percentile of the latency of the request issued first,
+     * from the recent latency of the bookie it was sent to.
+     *
+     * @param quantile the percentile to estimate, between 0 and 1
+     * @return the latency in nanoseconds, -1 if it is not known
+     */
+    default long getRequestLatencyNanos(double quantile) {
+        return -1L;
+    }
 }
@@ -69,6 +69,11 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "the number of read entries hitting DigestMismatch errors"
     )
     private final Counter readOpDmCounter;
+    @StatsDoc(
+        name = READ_OP_DIGEST_SKIPPED_BYTES,
+        help = "the number of bytes read whose digest was verified by the bookies, so not by the client"
+    )
+    private final Counter readOpDigestSkippedBytesCounter;
     @StatsDoc(
         name = READ_LAST_CONFIRMED_AND_ENTRY,
         help = "operation stats of read_last_confirmed_and_entry requests"
@@ -140,6 +145,16 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "The number of speculative read requests"
     )
     private final Counter speculativeReadCounter;
+    @StatsDoc(
+        name = SPECULATIVE_READ_TIMEOUT,
+        help = "The distribution of the adaptive speculative read timeouts, in milliseconds"
+    )
+    private final OpStatsLogger speculativeReadTimeoutStats;
+    @StatsDoc(
+        name = SPECULATIVE_READ_THROTTLED,
+        help = "The number of speculative read requests not sent because of the limit on the speculative read rate"
+    )
+    private final Counter speculativeReadThrottledCounter;
 
     @StatsDoc(
         name = WRITE_DELAYED_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS_LATENCY,
@@ -168,6 +183,7 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.recoverOpLogger = stats.getOpStatsLogger(RECOVER_OP);
         this.readOpLogger = stats.getOpStatsLogger(READ_OP);
         this.readOpDmCounter = stats.getCounter(READ_OP_DM);
+        this.readOpDigestSkippedBytesCounter = stats.getCounter(READ_OP_DIGEST_SKIPPED_BYTES);
         this.readLacAndEntryOpLogger = stats.getOpStatsLogger(READ_LAST_CONFIRMED_AND_ENTRY);
         this.readLacAndEntryRespLogger = stats.getOpStatsLogger(READ_LAST_CONFIRMED_AND_ENTRY_RESPONSE);
         this.addOpLogger = stats.getOpStatsLogger(ADD_OP);
@@ -184,6 +200,8 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.clientChannelWriteWaitStats = stats.getOpStatsLogger(CLIENT_CHANNEL_WRITE_WAIT);
 
         speculativeReadCounter = stats.getCounter(SPECULATIVE_READ_COUNT);
+        speculativeReadTimeoutStats = stats.getOpStatsLogger(SPECULATIVE_READ_TIMEOUT);
+        speculativeReadThrottledCounter = stats.getCounter(SPECULATIVE_READ_THROTTLED);
 
         this.writeDelayedDueToNotEnoughFaultDomainsLatency =
                 stats.getOpStatsLogger(WRITE_DELAYED_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS_LATENCY);
@@ -249,6 +267,10 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return readOpDmCounter;
     }
     @Override
+    public Counter getReadOpDigestSkippedBytesCounter() {
+        return readOpDigestSkippedBytesCounter;
+    }
+    @Override
     public Counter getAddOpUrCounter() {
         return addOpUrCounter;
     }
@@ -257,6 +279,14 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return speculativeReadCounter;
     }
     @Override
+    public OpStatsLogger getSpeculativeReadTimeoutLogger() {
+        return speculativeReadTimeoutStats;
+    }
+    @Override
+    public Counter getSpeculativeReadThrottledCounter() {
+        return speculativeReadThrottledCounter;
+    }
+    @Override
     public Counter getEnsembleChangeCounter() {
         return ensembleChangeCounter;
     }
@@ -292,4 +322,8 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
     public void registerPendingAddsGauge(Gauge<Integer> gauge) {
         stats.registerGauge(PENDING_ADDS, gauge);
     }
+    @Override
+    public void registerSpeculativeReadRateGauge(Gauge<Double> gauge) {
+        stats.registerGauge(SPECULATIVE_READ_RATE, gauge);
+    }
 }
@@ -107,6 +107,9 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String MAX_SPECULATIVE_READ_TIMEOUT = "maxSpeculativeReadTimeout";
     protected static final String SPECULATIVE_READ_TIMEOUT_BACKOFF_MULTIPLIER =
         "speculativeReadTimeoutBackoffMultiplier";
+    protected static final String ADAPTIVE_SPECULATIVE_READ_ENABLED = "adaptiveSpeculativeReadEnabled";
+    protected static final String ADAPTIVE_SPECULATIVE_READ_LATENCY_QUANTILE = "adaptiveSpeculativeReadLatencyQuantile";
+    protected static final String MAX_SPECULATIVE_READ_RATE_PERCENT = "maxSpeculativeReadRatePercent";
     protected static final String FIRST_SPECULATIVE_READ_LAC_TIMEOUT = "firstSpeculativeReadLACTimeout";
     protected static final String MAX_SPECULATIVE_READ_LAC_TIMEOUT = "maxSpeculativeReadLACTimeout";
     protected static final String SPECULATIVE_READ_LAC_TIMEOUT_BACKOFF_MULTIPLIER =
@@ -115,6 +118,14 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
+    protected static final String TRUST_BOOKIE_VERIFIED_CHECKSUMS = "trustBookieVerifiedChecksums";
+    protected static final String RANGE_READ_ENABLED = "rangeReadEnabled";
+    protected static final String RANGE_READ_MAX_ENTRIES = "rangeReadMaxEntries";
+    protected static final String RANGE_READ_MAX_BYTES = "rangeReadMaxBytes";
+    protected static final String ADD_BATCHING_ENABLED = "addBatchingEnabled";
+    protected static final String ADD_BATCH_LINGER_TIME_MICROS = "addBatchLingerTimeMicros";
+    protected static final String ADD_BATCH_MAX_ENTRIES = "addBatchMaxEntries";
+    protected static final String ADD_BATCH_MAX_BYTES = "addBatchMaxBytes";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
@@ -153,11 +164,14 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     // Number of Threads
     protected static final String NUM_WORKER_THREADS = "numWorkerThreads";
     protected static final String NUM_IO_THREADS = "numIOThreads";
+    protected static final String NUM_PARALLEL_CHECKSUM_THREADS = "numParallelChecksumThreads";
 
     // Ensemble Placement Policy
     public static final String ENSEMBLE_PLACEMENT_POLICY = "ensemblePlacementPolicy";
     protected static final String NETWORK_TOPOLOGY_STABILIZE_PERIOD_SECONDS = "networkTopologyStabilizePeriodSeconds";
     protected static final String READ_REORDER_THRESHOLD_PENDING_REQUESTS = "readReorderThresholdPendingRequests";
+    protected static final String READ_REORDER_THRESHOLD_LATENCY_RATIO = "readReorderThresholdLatencyRatio";
+    protected static final String READ_LATENCY_HALF_LIFE_MS = "readLatencyHalfLifeMs";
     protected static final String ENSEMBLE_PLACEMENT_POLICY_ORDER_SLOW_BOOKIES =
         "ensemblePlacementPolicyOrderSlowBookies";
     protected static final String BOOKIE_ADDRESS_RESOLVER_ENABLED = "bookieAddressResolverEnabled";
@@ -173,6 +187,12 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     // Discovery
     protected static final String FOLLOW_BOOKIE_ADDRESS_TRACKING = "enableBookieAddressTracking";
 
+    // Ledger metadata cache
+    protected static final String LEDGER_METADATA_CACHE_ENABLED = "ledgerMetadataCacheEnabled";
+    protected static final String LEDGER_METADATA_CACHE_MAX_SIZE_BYTES = "ledgerMetadataCacheMaxSizeBytes";
+    protected static final String LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS = "ledgerMetadataCacheWatchClosedLedgers";
+    protected static final String LEDGER_METADATA_CACHE_UNWATCHED_TTL_MS = "ledgerMetadataCacheUnwatchedTtlMs";
+
     // Names of dynamic features
     protected static final String DISABLE_ENSEMBLE_CHANGE_FEATURE_NAME = "disableEnsembleChangeFeatureName";
 
@@ -885,6 +905,36 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the number of threads that compute the CRC32C checksums of large entries by chunks in parallel.
+     * The parallel checksums are disabled when it is 0, which is the default.
+     *
+     * @return the number of parallel checksum threads
+     */
+    public int getNumParallelChecksumThreads() {
+        return getInt(NUM_PARALLEL_CHECKSUM_THREADS, 0);
+    }
+
+    /**
+     * Set the number of threads that compute the CRC32C checksums of large entries by chunks in parallel.
+     *
+     * <p>The checksum of an entry of at least 1 MB is then split in chunks, that the calling thread computes
+     * with the help of these threads. It shortens the latency of large adds and reads when the client has
+     * idle cores, at the cost of more CPU for each entry. Only the CRC32C digest type uses it.
+     *
+     * <p>
+     * NOTE: setting the number of threads after BookKeeper object is constructed
+     * will not take any effect.
+     * </p>
+     *
+     * @param numThreads number of parallel checksum threads, 0 to disable the parallel checksums
+     * @return client configuration
+     */
+    public ClientConfiguration setNumParallelChecksumThreads(int numThreads) {
+        setProperty(NUM_PARALLEL_CHECKSUM_THREADS, numThreads);
+        return this;
+    }
+
     /**
      * Get the number of IO threads. This is the number of
      * threads used by Netty to handle TCP connections.
@@ -1037,6 +1087,105 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether the speculative read timeouts adapt to the recent read latency of the bookies.
+     *
+     * <p>When enabled, the first speculative read of an entry is sent once the read from the first bookie
+     * has taken longer than the {@link #getAdaptiveSpeculativeReadLatencyQuantile() percentile} of the recent
+     * reads from this bookie, capped by {@link #getMaxSpeculativeReadTimeout()}. The
+     * {@link #getFirstSpeculativeReadTimeout()} is used until the latency of the bookie is known. The
+     * speculative reads are limited to {@link #getMaxSpeculativeReadRatePercent()} percent of the reads.
+     *
+     * @return true if the speculative read timeouts are adaptive.
+     */
+    public boolean isAdaptiveSpeculativeReadEnabled() {
+        return getBoolean(ADAPTIVE_SPECULATIVE_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable the adaptive speculative read timeouts.
+     *
+     * @param enabled
+     *          whether the speculative read timeouts are adaptive.
+     * @return client configuration.
+     * @see #isAdaptiveSpeculativeReadEnabled()
+     */
+    public ClientConfiguration setAdaptiveSpeculativeReadEnabled(boolean enabled) {
+        setProperty(ADAPTIVE_SPECULATIVE_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the percentile of the recent read latency of a bookie after which a speculative read is sent,
+     * when the speculative read timeouts are adaptive.
+     *
+     * @return the percentile, between 0 and 1.
+     */
+    public double getAdaptiveSpeculativeReadLatencyQuantile() {
+        return getDouble(ADAPTIVE_SPECULATIVE_READ_LATENCY_QUANTILE, 0.95);
+    }
+
+    /**
+     * Set the percentile of the recent read latency of a bookie after which a speculative read is sent,
+     * when the speculative read timeouts are adaptive.
+     *
+     * @param quantile
+     *          the percentile, between 0 and 1.
+     * @return client configuration.
+     */
+    public ClientConfiguration setAdaptiveSpeculativeReadLatencyQuantile(double quantile) {
+        setProperty(ADAPTIVE_SPECULATIVE_READ_LATENCY_QUANTILE, quantile);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of speculative reads, in percent of the reads, when the speculative read
+     * timeouts are adaptive. This bounds the extra load sent to the bookies when all of them slow down.
+     *
+     * @return the maximum rate of speculative reads, in percent.
+     */
+    public int getMaxSpeculativeReadRatePercent() {
+        return getInt(MAX_SPECULATIVE_READ_RATE_PERCENT, 10);
+    }
+
+    /**
+     * Set the maximum number of speculative reads, in percent of the reads, when the speculative read
+     * timeouts are adaptive.
+     *
+     * @param ratePercent
+     *          the maximum rate of speculative reads, in percent.
+     * @return client configuration.
+     */
+    public ClientConfiguration setMaxSpeculativeReadRatePercent(int ratePercent) {
+        setProperty(MAX_SPECULATIVE_READ_RATE_PERCENT, ratePercent);
+        return this;
+    }
+
+    /**
+     * Whether to skip verifying the checksum of the entries that the bookies report as already verified.
+     *
+     * <p>The bookies verify the checksums of the entries they cache when they are configured with
+     * {@code dbStorage_readCacheVerifyChecksums}. Their report is only asked on TLS channels and on the
+     * channels to a bookie on the same host, and only the CRC32C checksums are skipped.
+     *
+     * @return whether to trust the checksums verified by the bookies.
+     */
+    public boolean isTrustBookieVerifiedChecksums() {
+        return getBoolean(TRUST_BOOKIE_VERIFIED_CHECKSUMS, false);
+    }
+
+    /**
+     * Set whether to skip verifying the checksum of the entries that the bookies report as already verified.
+     *
+     * @param trust
+     *          whether to trust the checksums verified by the bookies.
+     * @return client configuration.
+     */
+    public ClientConfiguration setTrustBookieVerifiedChecksums(boolean trust) {
+        setProperty(TRUST_BOOKIE_VERIFIED_CHECKSUMS, trust);
+        return this;
+    }
+
     /**
      * Get the period of time after which the first speculative read last add confirmed and entry
      * should be triggered.
@@ -1197,6 +1346,162 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether consecutive entries stored on the same bookie are read with a single range read.
+     *
+     * @return true if range reads are enabled, otherwise false.
+     */
+    public boolean isRangeReadEnabled() {
+        return getBoolean(RANGE_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable range reads.
+     *
+     * <p>If this flag is enabled, a read of several entries sends a single request for each run
+     * of consecutive entries whose first replica to read from is the same bookie, for example
+     * when the ensemble size equals the write quorum size. The bookies have to support the
+     * range read operation.
+     *
+     * @param enabled the flag to enable/disable range reads.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setRangeReadEnabled(boolean enabled) {
+        setProperty(RANGE_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of entries requested by a single range read.
+     *
+     * @return the maximum number of entries of a range read.
+     */
+    public int getRangeReadMaxEntries() {
+        return getInt(RANGE_READ_MAX_ENTRIES, 64);
+    }
+
+    /**
+     * Set the maximum number of entries requested by a single range read.
+     *
+     * @param maxEntries the maximum number of entries of a range read.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setRangeReadMaxEntries(int maxEntries) {
+        setProperty(RANGE_READ_MAX_ENTRIES, maxEntries);
+        return this;
+    }
+
+    /**
+     * Get the maximum total size of the entries returned by a single range read. The bookie
+     * always returns the first entry of the range, whatever its size.
+     *
+     * @return the maximum size of a range read response.
+     */
+    public int getRangeReadMaxBytes() {
+        return getInt(RANGE_READ_MAX_BYTES, 1024 * 1024);
+    }
+
+    /**
+     * Set the maximum total size of the entries returned by a single range read. It should be
+     * kept below the netty max frame size.
+     *
+     * @param maxBytes the maximum size of a range read response.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setRangeReadMaxBytes(int maxBytes) {
+        setProperty(RANGE_READ_MAX_BYTES, maxBytes);
+        return this;
+    }
+
+    /**
+     * Whether consecutive adds of the same ledger to the same bookie are sent as a single request.
+     *
+     * @return true if add batching is enabled, otherwise false.
+     */
+    public boolean isAddBatchingEnabled() {
+        return getBoolean(ADD_BATCHING_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable add batching.
+     *
+     * <p>If this flag is enabled, the adds of a ledger sent to a bookie within the linger time are
+     * gathered into a single range add request, and the bookie logs them to its journal as one batch.
+     * The entries are still acknowledged one by one. It only applies to the v2 wire protocol, and the
+     * bookies have to support the range add operation.
+     *
+     * @param enabled the flag to enable/disable add batching.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setAddBatchingEnabled(boolean enabled) {
+        setProperty(ADD_BATCHING_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the time an add waits for more adds to the same bookie before its batch is sent.
+     *
+     * @return the add batch linger time in microseconds.
+     */
+    public long getAddBatchLingerTimeMicros() {
+        return getLong(ADD_BATCH_LINGER_TIME_MICROS, 100);
+    }
+
+    /**
+     * Set the time an add waits for more adds to the same bookie before its batch is sent. An add is
+     * sent right away when no other add to the bookie is in flight. With a linger time of 0, a batch
+     * only gathers the adds issued until the connection thread sends it.
+     *
+     * @param lingerTimeMicros the add batch linger time in microseconds.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setAddBatchLingerTimeMicros(long lingerTimeMicros) {
+        setProperty(ADD_BATCH_LINGER_TIME_MICROS, lingerTimeMicros);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of entries sent by a single range add.
+     *
+     * @return the maximum number of entries of an add batch.
+     */
+    public int getAddBatchMaxEntries() {
+        return getInt(ADD_BATCH_MAX_ENTRIES, 64);
+    }
+
+    /**
+     * Set the maximum number of entries sent by a single range add.
+     *
+     * @param maxEntries the maximum number of entries of an add batch.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setAddBatchMaxEntries(int maxEntries) {
+        setProperty(ADD_BATCH_MAX_ENTRIES, maxEntries);
+        return this;
+    }
+
+    /**
+     * Get the size at which an add batch is sent without waiting for the linger time. Larger entries
+     * are sent on their own.
+     *
+     * @return the maximum size of an add batch.
+     */
+    public int getAddBatchMaxBytes() {
+        return getInt(ADD_BATCH_MAX_BYTES, 1024 * 1024);
+    }
+
+    /**
+     * Set the size at which an add batch is sent without waiting for the linger time. It should be
+     * kept below the netty max frame size of the bookies.
+     *
+     * @param maxBytes the maximum size of an add batch.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setAddBatchMaxBytes(int maxBytes) {
+        setProperty(ADD_BATCH_MAX_BYTES, maxBytes);
+        return this;
+    }
+
     /**
      * Get Ensemble Placement Policy Class.
      *
@@ -1245,6 +1550,51 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the ratio between the recent p95 read latency of the first bookie to read from and the one of the
+     * fastest bookie of the write set, beyond which to read from the fastest bookie first. If &lt;= 1, this
+     * feature is turned off.
+     *
+     * @return the ratio of read latencies beyond which to reorder reads.
+     */
+    public double getReorderThresholdLatencyRatio() {
+        return getDouble(READ_REORDER_THRESHOLD_LATENCY_RATIO, 0);
+    }
+
+    /**
+     * Set the ratio between the recent p95 read latency of the first bookie to read from and the one of the
+     * fastest bookie of the write set, beyond which to read from the fastest bookie first. If &lt;= 1, this
+     * feature is turned off.
+     *
+     * @param ratio
+     *            The ratio of read latencies beyond which to reorder reads.
+     */
+    public ClientConfiguration setReorderThresholdLatencyRatio(double ratio) {
+        setProperty(READ_REORDER_THRESHOLD_LATENCY_RATIO, ratio);
+        return this;
+    }
+
+    /**
+     * Get the half-life of the read latencies tracked for each bookie, in milliseconds. A read latency
+     * counts half as much as a new one after this time.
+     *
+     * @return the half-life of the tracked read latencies.
+     */
+    public long getReadLatencyHalfLifeMs() {
+        return getLong(READ_LATENCY_HALF_LIFE_MS, 10000);
+    }
+
+    /**
+     * Set the half-life of the read latencies tracked for each bookie, in milliseconds.
+     *
+     * @param halfLifeMs
+     *            The half-life of the tracked read latencies.
+     */
+    public ClientConfiguration setReadLatencyHalfLifeMs(long halfLifeMs) {
+        setProperty(READ_LATENCY_HALF_LIFE_MS, halfLifeMs);
+        return this;
+    }
+
     /**
      * Get the network topology stabilize period in seconds. if it is zero, this feature is turned off.
      *
@@ -1890,6 +2240,102 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether to cache the metadata of the ledgers read by the client, so that opening the same ledgers again
+     * does not read their metadata from the metadata store. The cached metadata is kept up to date by
+     * watching it.
+     *
+     * @return whether the ledger metadata cache is enabled.
+     */
+    public boolean isLedgerMetadataCacheEnabled() {
+        return getBoolean(LEDGER_METADATA_CACHE_ENABLED, false);
+    }
+
+    /**
+     * Enable/Disable the ledger metadata cache.
+     *
+     * @param enabled
+     *          flag to enable/disable the ledger metadata cache
+     * @return client configuration.
+     */
+    public ClientConfiguration setLedgerMetadataCacheEnabled(boolean enabled) {
+        setProperty(LEDGER_METADATA_CACHE_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the maximum size of the ledger metadata cache, as an estimate of the memory used by the cached
+     * metadata. The metadata of a ledger with a single ensemble of 3 bookies is estimated to about 350 bytes,
+     * so the default of 64MB caches about 200k such ledgers, and holds as many watches on the metadata store
+     * unless {@link #isLedgerMetadataCacheWatchClosedLedgers()} is disabled.
+     *
+     * @return the maximum size of the ledger metadata cache, in bytes.
+     */
+    public long getLedgerMetadataCacheMaxSizeBytes() {
+        return getLong(LEDGER_METADATA_CACHE_MAX_SIZE_BYTES, 64 * 1024 * 1024);
+    }
+
+    /**
+     * Set the maximum size of the ledger metadata cache.
+     *
+     * @param maxSizeBytes
+     *          the maximum size of the ledger metadata cache, in bytes.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLedgerMetadataCacheMaxSizeBytes(long maxSizeBytes) {
+        setProperty(LEDGER_METADATA_CACHE_MAX_SIZE_BYTES, maxSizeBytes);
+        return this;
+    }
+
+    /**
+     * Whether to watch the cached metadata of the ledgers that are closed when they are cached. Without a watch,
+     * the metadata of the closed ledgers is served from the cache without any round trip to the metadata store
+     * and without holding a watch per ledger, but the ensembles changed by the re-replication of their entries
+     * are only seen once their metadata is read again, after {@link #getLedgerMetadataCacheUnwatchedTtlMs()}.
+     *
+     * <p>Each watched ledger holds a watch on the metadata store for as long as it is cached, which can add up
+     * to hundreds of thousands of watches with a large cache of closed ledgers.
+     *
+     * @return whether to watch the cached metadata of the closed ledgers.
+     */
+    public boolean isLedgerMetadataCacheWatchClosedLedgers() {
+        return getBoolean(LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS, true);
+    }
+
+    /**
+     * Set whether to watch the cached metadata of the ledgers that are closed when they are cached.
+     *
+     * @param watch
+     *          whether to watch the cached metadata of the closed ledgers.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLedgerMetadataCacheWatchClosedLedgers(boolean watch) {
+        setProperty(LEDGER_METADATA_CACHE_WATCH_CLOSED_LEDGERS, watch);
+        return this;
+    }
+
+    /**
+     * Get how long the cached metadata of the closed ledgers that are not watched is served, before it is read
+     * again from the metadata store. This bounds how long the ensembles changed by re-replication are missed.
+     *
+     * @return the ttl of the unwatched ledger metadata in milliseconds, or 0 to serve it until it is evicted.
+     */
+    public long getLedgerMetadataCacheUnwatchedTtlMs() {
+        return getLong(LEDGER_METADATA_CACHE_UNWATCHED_TTL_MS, 300000);
+    }
+
+    /**
+     * Set how long the cached metadata of the closed ledgers that are not watched is served.
+     *
+     * @param ttlMs
+     *          the ttl of the unwatched ledger metadata in milliseconds, or 0 to serve it until it is evicted.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLedgerMetadataCacheUnwatchedTtlMs(long ttlMs) {
+        setProperty(LEDGER_METADATA_CACHE_UNWATCHED_TTL_MS, ttlMs);
+        return this;
+    }
+
     /**
      * Get the bookie failure tracking expiration timeout.
      *
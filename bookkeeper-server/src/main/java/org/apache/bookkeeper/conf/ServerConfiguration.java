@@ -105,6 +105,11 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String COMPACTION_RATE = "compactionRate";
     protected static final String COMPACTION_RATE_BY_ENTRIES = "compactionRateByEntries";
     protected static final String COMPACTION_RATE_BY_BYTES = "compactionRateByBytes";
+    protected static final String COMPACTION_IO_BUDGET_ENABLED = "compactionIoBudgetEnabled";
+    protected static final String COMPACTION_IO_BUDGET_JOURNAL_LATENCY_TARGET_MS =
+            "compactionIoBudgetJournalLatencyTargetMs";
+    protected static final String COMPACTION_IO_BUDGET_READ_LATENCY_TARGET_MS =
+            "compactionIoBudgetReadLatencyTargetMs";
 
     // Gc Parameters
     protected static final String GC_WAIT_TIME = "gcWaitTime";
@@ -138,6 +143,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_SYNC_DATA = "journalSyncData";
     protected static final String JOURNAL_WRITE_DATA = "journalWriteData";
     protected static final String JOURNAL_ADAPTIVE_GROUP_WRITES = "journalAdaptiveGroupWrites";
+    protected static final String JOURNAL_FORCE_WRITE_PIPELINE_DEPTH = "journalForceWritePipelineDepth";
     protected static final String JOURNAL_MAX_GROUP_WAIT_MSEC = "journalMaxGroupWaitMSec";
     protected static final String JOURNAL_BUFFERED_WRITES_THRESHOLD = "journalBufferedWritesThreshold";
     protected static final String JOURNAL_BUFFERED_ENTRIES_THRESHOLD = "journalBufferedEntriesThreshold";
@@ -153,6 +159,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_PAGECACHE_FLUSH_INTERVAL_MSEC = "journalPageCacheFlushIntervalMSec";
     protected static final String JOURNAL_CHANNEL_PROVIDER = "journalChannelProvider";
     protected static final String JOURNAL_REUSE_FILES = "journalReuseFiles";
+    protected static final String JOURNAL_DIRECT_IO = "journalDirectIO";
     // backpressure control
     protected static final String MAX_ADDS_IN_PROGRESS_LIMIT = "maxAddsInProgressLimit";
     protected static final String MAX_READS_IN_PROGRESS_LIMIT = "maxReadsInProgressLimit";
@@ -178,6 +185,9 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String SERVER_SOCK_LINGER = "serverTcpLinger";
     protected static final String SERVER_WRITEBUFFER_LOW_WATER_MARK = "serverWriteBufferLowWaterMark";
     protected static final String SERVER_WRITEBUFFER_HIGH_WATER_MARK = "serverWriteBufferHighWaterMark";
+    protected static final String SERVER_FLUSH_CONSOLIDATION_MAX_PENDING_FLUSHES =
+            "serverFlushConsolidationMaxPendingFlushes";
+    protected static final String SERVER_FLUSH_CONSOLIDATION_DELAY_MICROS = "serverFlushConsolidationDelayMicros";
 
     protected static final String SERVER_NUM_ACCEPTOR_THREADS = "serverNumAcceptorThreads";
     protected static final String SERVER_NUM_IO_THREADS = "serverNumIOThreads";
@@ -229,6 +239,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
+    protected static final String ZERO_COPY_READ_ENABLED = "zeroCopyReadEnabled";
+    protected static final String ZERO_COPY_READ_MIN_ENTRY_SIZE = "zeroCopyReadMinEntrySize";
 
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
@@ -1021,6 +1033,27 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether journal files are written with direct I/O (O_DIRECT), bypassing the page cache.
+     * Requires the native-io library, the journal falls back to buffered writes when it is not available.
+     *
+     * @return true if direct I/O is enabled for the journal
+     */
+    public boolean getJournalDirectIO() {
+        return this.getBoolean(JOURNAL_DIRECT_IO, false);
+    }
+
+    /**
+     * Set whether journal files are written with direct I/O (O_DIRECT).
+     *
+     * @param journalDirectIO
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalDirectIO(boolean journalDirectIO) {
+        setProperty(JOURNAL_DIRECT_IO, journalDirectIO);
+        return this;
+    }
+
     /**
      * Get max number of adds in progress. 0 == unlimited.
      *
@@ -2024,6 +2057,50 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getBoolean(READ_WORKER_THREADS_THROTTLING_ENABLED, true);
     }
 
+    /**
+     * Send the entries read from the entry logs to the socket without copying them in memory,
+     * for the v2 protocol read requests on connections without TLS.
+     *
+     * @param enabled
+     *          whether to enable the zero-copy reads
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadEnabled(boolean enabled) {
+        setProperty(ZERO_COPY_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the entries read from the entry logs are sent to the socket without copying them in memory.
+     *
+     * @return true if the zero-copy reads are enabled
+     */
+    public boolean isZeroCopyReadEnabled() {
+        return getBoolean(ZERO_COPY_READ_ENABLED, false);
+    }
+
+    /**
+     * Set the minimum size of the entries that are sent without copying them in memory.
+     *
+     * @param size
+     *          minimum entry size in bytes
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadMinEntrySize(int size) {
+        setProperty(ZERO_COPY_READ_MIN_ENTRY_SIZE, size);
+        return this;
+    }
+
+    /**
+     * Get the minimum size of the entries that are sent without copying them in memory. Smaller
+     * entries are read in memory, and cached by the ledger storage.
+     *
+     * @return minimum entry size in bytes
+     */
+    public int getZeroCopyReadMinEntrySize() {
+        return getInt(ZERO_COPY_READ_MIN_ENTRY_SIZE, 64 * 1024);
+    }
+
 
 
     /**
@@ -2333,6 +2410,30 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get the max number of journal force writes (fsync) that can be in flight at the same time, for each
+     * journal directory. Default is 1, meaning that a force write is only issued after the previous one
+     * completed.
+     *
+     * @return max number of force writes in flight
+     */
+    public int getJournalForceWritePipelineDepth() {
+        return getInt(JOURNAL_FORCE_WRITE_PIPELINE_DEPTH, 1);
+    }
+
+    /**
+     * Set the max number of journal force writes (fsync) that can be in flight at the same time, for each
+     * journal directory. When greater than 1, new group commits are synced while the previous ones are still
+     * in progress, and their callbacks are still triggered in order.
+     *
+     * @param depth max number of force writes in flight
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalForceWritePipelineDepth(int depth) {
+        setProperty(JOURNAL_FORCE_WRITE_PIPELINE_DEPTH, depth);
+        return this;
+    }
+
     /**
      * Maximum latency to impose on a journal write to achieve grouping. Default is 2ms.
      *
@@ -2964,6 +3065,76 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether the compaction rate is adapted to the latency of the foreground journal writes and entry reads.
+     * Default is false.
+     *
+     * @return true if the compaction I/O budget is enabled
+     */
+    public boolean isCompactionIoBudgetEnabled() {
+        return getBoolean(COMPACTION_IO_BUDGET_ENABLED, false);
+    }
+
+    /**
+     * Set whether the compaction rate is adapted to the latency of the foreground journal writes and entry
+     * reads.
+     *
+     * <p>When enabled, the compaction rate configured by {@link #setCompactionRateByEntries(int)} or
+     * {@link #setCompactionRateByBytes(int)} becomes the max rate. The actual rate is reduced while the
+     * foreground latencies are above their targets, down to pausing the compaction in the middle of an
+     * entry log, and raised back when they recover. Entry logs are also compacted in order of reclaimable
+     * bytes per byte of I/O needed to compact them.
+     *
+     * @param enabled true to enable the compaction I/O budget
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionIoBudgetEnabled(boolean enabled) {
+        setProperty(COMPACTION_IO_BUDGET_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the target average latency of the journal force writes, above which the compaction is slowed down.
+     * Default is 20ms.
+     *
+     * @return journal force write latency target in milliseconds
+     */
+    public long getCompactionIoBudgetJournalLatencyTargetMs() {
+        return getLong(COMPACTION_IO_BUDGET_JOURNAL_LATENCY_TARGET_MS, 20);
+    }
+
+    /**
+     * Set the target average latency of the journal force writes, above which the compaction is slowed down.
+     *
+     * @param latencyMs journal force write latency target in milliseconds
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionIoBudgetJournalLatencyTargetMs(long latencyMs) {
+        setProperty(COMPACTION_IO_BUDGET_JOURNAL_LATENCY_TARGET_MS, latencyMs);
+        return this;
+    }
+
+    /**
+     * Get the target average latency of the entry reads, above which the compaction is slowed down.
+     * Default is 50ms.
+     *
+     * @return entry read latency target in milliseconds
+     */
+    public long getCompactionIoBudgetReadLatencyTargetMs() {
+        return getLong(COMPACTION_IO_BUDGET_READ_LATENCY_TARGET_MS, 50);
+    }
+
+    /**
+     * Set the target average latency of the entry reads, above which the compaction is slowed down.
+     *
+     * @param latencyMs entry read latency target in milliseconds
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionIoBudgetReadLatencyTargetMs(long latencyMs) {
+        setProperty(COMPACTION_IO_BUDGET_READ_LATENCY_TARGET_MS, latencyMs);
+        return this;
+    }
+
     /**
      * Should we remove pages from page cache after force write.
      *
@@ -3779,6 +3950,51 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(SERVER_WRITEBUFFER_HIGH_WATER_MARK, waterMark);
         return this;
     }
+
+    /**
+     * Get the maximum number of response flushes that are consolidated into a single flush of a
+     * server channel.
+     *
+     * @return the maximum number of consolidated flushes.
+     */
+    public int getServerFlushConsolidationMaxPendingFlushes() {
+        return getInt(SERVER_FLUSH_CONSOLIDATION_MAX_PENDING_FLUSHES, 1024);
+    }
+
+    /**
+     * Set the maximum number of response flushes that are consolidated into a single flush of a
+     * server channel. Once reached, the responses are flushed right away.
+     *
+     * @param maxPendingFlushes
+     *          the maximum number of consolidated flushes.
+     * @return server configuration.
+     */
+    public ServerConfiguration setServerFlushConsolidationMaxPendingFlushes(int maxPendingFlushes) {
+        setProperty(SERVER_FLUSH_CONSOLIDATION_MAX_PENDING_FLUSHES, maxPendingFlushes);
+        return this;
+    }
+
+    /**
+     * Get the time a response flush can be delayed to be consolidated with the next ones.
+     *
+     * @return the flush consolidation delay in microseconds.
+     */
+    public long getServerFlushConsolidationDelayMicros() {
+        return getLong(SERVER_FLUSH_CONSOLIDATION_DELAY_MICROS, 0);
+    }
+
+    /**
+     * Set the time a response flush can be delayed to be consolidated with the next ones. With a
+     * delay of 0, the flushes are consolidated until the end of the current event loop tick.
+     *
+     * @param delayMicros
+     *          the flush consolidation delay in microseconds.
+     * @return server configuration.
+     */
+    public ServerConfiguration setServerFlushConsolidationDelayMicros(long delayMicros) {
+        setProperty(SERVER_FLUSH_CONSOLIDATION_DELAY_MICROS, delayMicros);
+        return this;
+    }
     /**
      * Set registration manager class.
      *
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_HITS;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_MISSES;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_SCOPE;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_STALENESS;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_STALE_WRITES;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.LEDGER_METADATA_CACHE_UPDATES;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.zookeeper.AsyncCallback;
+
+/**
+ * A ledger manager that caches the metadata of the ledgers it reads, so that opening the same ledgers again
+ * does not read their metadata from the metadata store each time.
+ *
+ * <p>The cached metadata is kept up to date by a {@link LedgerMetadataListener} registered on the underlying
+ * ledger manager for each cached ledger, and is only served once the listener got its first notification, from
+ * when on every change of the metadata is notified. The metadata of the ledgers that are closed when they are
+ * cached can be served without being watched, to not hold a watch per closed ledger: their metadata only changes
+ * when their entries are re-replicated, and the stale ensembles are then only used until the metadata is read
+ * again from the metadata store, once the unwatched ttl expired.
+ *
+ * <p>The cache is bounded by an estimate of the memory used by the cached metadata. The metadata written through
+ * this ledger manager updates the cache, and the ledgers whose write fails are evicted, so that the retries of the
+ * {@code MetadataUpdateLoop} read the latest metadata from the metadata store.
+ */
+@StatsDoc(
+    name = LEDGER_METADATA_CACHE_SCOPE,
+    help = "Ledger metadata cache related stats"
+)
+public class CachingLedgerManager implements LedgerManager {
+
+    // Rough memory cost of the metadata of a ledger, besides its ensembles and custom metadata
+    private static final int METADATA_BASE_SIZE = 256;
+    private static final int ENSEMBLE_BASE_SIZE = 48;
+    private static final int BOOKIE_ID_SIZE = 16;
+    private static final int CUSTOM_METADATA_BASE_SIZE = 64;
+
+    private final LedgerManager underlying;
+    private final boolean watchClosedLedgers;
+    // how long the unwatched metadata is served before being read again, or 0 to serve it until evicted
+    private final long unwatchedTtlNanos;
+    private final Cache<Long, CachedMetadata> cache;
+
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_HITS,
+        help = "the number of ledger metadata reads served from the cache"
+    )
+    private final Counter hits;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_MISSES,
+        help = "the number of ledger metadata reads served from the metadata store"
+    )
+    private final Counter misses;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_UPDATES,
+        help = "the number of cached ledger metadata updated or deleted by a metadata watch"
+    )
+    private final Counter updates;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_STALE_WRITES,
+        help = "the number of ledger metadata writes that failed while the metadata was cached"
+    )
+    private final Counter staleWrites;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_STALENESS,
+        help = "the time since the cached metadata that is served was read or notified from the metadata store"
+    )
+    private final OpStatsLogger staleness;
+
+    public CachingLedgerManager(LedgerManager underlying, long maxSizeBytes, boolean watchClosedLedgers,
+                                long unwatchedTtlMs, StatsLogger statsLogger) {
+        this.underlying = underlying;
+        this.watchClosedLedgers = watchClosedLedgers;
+        this.unwatchedTtlNanos = TimeUnit.MILLISECONDS.toNanos(unwatchedTtlMs);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .<Long, CachedMetadata>weigher((ledgerId, cached) -> cached.size)
+                .removalListener(this::onRemoval)
+                .build();
+        this.hits = statsLogger.getCounter(LEDGER_METADATA_CACHE_HITS);
+        this.misses = statsLogger.getCounter(LEDGER_METADATA_CACHE_MISSES);
+        this.updates = statsLogger.getCounter(LEDGER_METADATA_CACHE_UPDATES);
+        this.staleWrites = statsLogger.getCounter(LEDGER_METADATA_CACHE_STALE_WRITES);
+        this.staleness = statsLogger.getOpStatsLogger(LEDGER_METADATA_CACHE_STALENESS);
+    }
+
+    @VisibleForTesting
+    public LedgerManager getUnderlying() {
+        return underlying;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<LedgerMetadata>> createLedgerMetadata(long ledgerId, LedgerMetadata metadata) {
+        // the ledgers are cached when they are read, not by their writer
+        cache.invalidate(ledgerId);
+        return underlying.createLedgerMetadata(ledgerId, metadata);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeLedgerMetadata(long ledgerId, Version version) {
+        return underlying.removeLedgerMetadata(ledgerId, version)
+                .whenComplete((result, exception) -> cache.invalidate(ledgerId));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId) {
+        CachedMetadata cached = cache.getIfPresent(ledgerId);
+        if (cached != null) {
+            Versioned<LedgerMetadata> metadata = cached.getIfServable();
+            if (metadata != null) {
+                hits.inc();
+                staleness.registerSuccessfulEvent(MathUtils.elapsedNanos(cached.lastUpdateNanos),
+                        TimeUnit.NANOSECONDS);
+                return CompletableFuture.completedFuture(metadata);
+            }
+            if (cached.deleted) {
+                cache.asMap().remove(ledgerId, cached);
+            }
+        }
+        misses.inc();
+        return underlying.readLedgerMetadata(ledgerId).whenComplete((metadata, exception) -> {
+            if (exception == null) {
+                cacheMetadata(ledgerId, metadata);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Versioned<LedgerMetadata>> writeLedgerMetadata(long ledgerId, LedgerMetadata metadata,
+                                                                            Version currentVersion) {
+        return underlying.writeLedgerMetadata(ledgerId, metadata, currentVersion)
+                .whenComplete((written, exception) -> {
+                    CachedMetadata cached = cache.getIfPresent(ledgerId);
+                    if (cached == null) {
+                        return;
+                    }
+                    if (exception == null) {
+                        cached.update(written);
+                    } else {
+                        if (BKException.getExceptionCode(exception) == BKException.Code.MetadataVersionException) {
+                            staleWrites.inc();
+                        }
+                        cache.asMap().remove(ledgerId, cached);
+                    }
+                });
+    }
+
+    private void cacheMetadata(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        CachedMetadata cached = cache.getIfPresent(ledgerId);
+        if (cached == null) {
+            CachedMetadata newCached = new CachedMetadata(ledgerId, metadata);
+            cached = cache.asMap().putIfAbsent(ledgerId, newCached);
+            if (cached == null) {
+                if (watchClosedLedgers || !metadata.getValue().isClosed()) {
+                    newCached.watch();
+                }
+                return;
+            }
+        }
+        cached.update(metadata);
+    }
+
+    private void onRemoval(RemovalNotification<Long, CachedMetadata> notification) {
+        notification.getValue().unwatch();
+    }
+
+    private static int estimateSize(LedgerMetadata metadata) {
+        int size = METADATA_BASE_SIZE;
+        for (List<BookieId> ensemble : metadata.getAllEnsembles().values()) {
+            size += ENSEMBLE_BASE_SIZE + ensemble.size() * BOOKIE_ID_SIZE;
+        }
+        for (Map.Entry<String, byte[]> entry : metadata.getCustomMetadata().entrySet()) {
+            size += CUSTOM_METADATA_BASE_SIZE + 2 * entry.getKey().length() + entry.getValue().length;
+        }
+        return size;
+    }
+
+    /**
+     * The cached metadata of a ledger, which listens to its changes once it is watched.
+     *
+     * <p>The listener is notified while the underlying ledger manager holds its own locks, so the notifications
+     * never access the cache: the deleted ledgers are evicted by the next read.
+     */
+    private final class CachedMetadata implements LedgerMetadataListener {
+        final long ledgerId;
+        final int size;
+        final boolean servedUnwatched;
+        volatile Versioned<LedgerMetadata> metadata;
+        // when the metadata was last read or notified from the metadata store
+        volatile long lastUpdateNanos;
+        volatile boolean watching = false;
+        // whether a notification confirmed that the cached metadata is watched
+        volatile boolean watched = false;
+        volatile boolean deleted = false;
+        volatile boolean removed = false;
+
+        CachedMetadata(long ledgerId, Versioned<LedgerMetadata> metadata) {
+            this.ledgerId = ledgerId;
+            this.size = estimateSize(metadata.getValue());
+            this.servedUnwatched = !watchClosedLedgers && metadata.getValue().isClosed();
+            this.metadata = metadata;
+            this.lastUpdateNanos = MathUtils.nowInNano();
+        }
+
+        Versioned<LedgerMetadata> getIfServable() {
+            if (deleted) {
+                return null;
+            }
+            if (watched) {
+                return metadata;
+            }
+            if (servedUnwatched
+                    && (unwatchedTtlNanos <= 0 || MathUtils.elapsedNanos(lastUpdateNanos) < unwatchedTtlNanos)) {
+                return metadata;
+            }
+            return null;
+        }
+
+        synchronized boolean update(Versioned<LedgerMetadata> newMetadata) {
+            lastUpdateNanos = MathUtils.nowInNano();
+            if (metadata.getVersion().compare(newMetadata.getVersion()) == Version.Occurred.BEFORE) {
+                metadata = newMetadata;
+                return true;
+            }
+            return false;
+        }
+
+        void watch() {
+            watching = true;
+            underlying.registerLedgerMetadataListener(ledgerId, this);
+            if (removed) {
+                // the entry was removed while the listener was registered
+                underlying.unregisterLedgerMetadataListener(ledgerId, this);
+            }
+        }
+
+        void unwatch() {
+            removed = true;
+            if (watching) {
+                underlying.unregisterLedgerMetadataListener(ledgerId, this);
+            }
+        }
+
+        @Override
+        public void onChanged(long ledgerId, Versioned<LedgerMetadata> newMetadata) {
+            if (newMetadata == null) {
+                deleted = true;
+                updates.inc();
+                return;
+            }
+            if (update(newMetadata) && watched) {
+                updates.inc();
+            }
+            watched = true;
+        }
+    }
+
+    @Override
+    public void registerLedgerMetadataListener(long ledgerId, LedgerMetadataListener listener) {
+        underlying.registerLedgerMetadataListener(ledgerId, listener);
+    }
+
+    @Override
+    public void unregisterLedgerMetadataListener(long ledgerId, LedgerMetadataListener listener) {
+        underlying.unregisterLedgerMetadataListener(ledgerId, listener);
+    }
+
+    @Override
+    public void asyncProcessLedgers(Processor<Long> processor, AsyncCallback.VoidCallback finalCb, Object context,
+                                    int successRc, int failureRc) {
+        underlying.asyncProcessLedgers(processor, finalCb, context, successRc, failureRc);
+    }
+
+    @Override
+    public LedgerRangeIterator getLedgerRanges(long zkOpTimeOutMs) {
+        return underlying.getLedgerRanges(zkOpTimeOutMs);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // unregister the listeners of the cached ledgers
+        cache.invalidateAll();
+        underlying.close();
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -84,6 +85,18 @@ public interface BookieClient {
      */
     long getNumPendingRequests(BookieId address, long ledgerId);
 
+    /**
+     * Estimate a percentile of the recent latency of the reads sent to the
+     * bookie at {@code address}.
+     *
+     * @param address the address of the bookie
+     * @param quantile the percentile to estimate, between 0 and 1
+     * @return the estimated latency in nanoseconds, -1 if it is not known
+     */
+    default long getReadLatencyNanos(BookieId address, double quantile) {
+        return -1L;
+    }
+
     /**
      * Send a force request to the server. When complete all entries which have
      * been written for {@code ledgerId} to this bookie will be persisted on disk.
@@ -180,6 +193,25 @@ public interface BookieClient {
                    ReadEntryCallback cb, Object ctx, int flags, byte[] masterKey,
                    boolean allowFastFail);
 
+    /**
+     * Read a range of consecutive entries from bookie at address {@code address}, in a single
+     * request. The bookie returns up to {@code maxCount} entries, stopping before their total size
+     * goes over {@code maxSize}, and always returns the first entry if it has it. The range also
+     * ends before the first entry the bookie cannot read.
+     *
+     * @param address address of the bookie to read from
+     * @param ledgerId id of the ledger the entries belong to
+     * @param firstEntryId id of the first entry we wish to read
+     * @param maxCount maximum number of entries to read
+     * @param maxSize maximum total size of the entries to read
+     * @param cb the callback notified when the request completes
+     * @param ctx a context object passed to the callback on completion
+     * @param flags a bit mask of flags from BookieProtocol.FLAG_*
+     *              {@link org.apache.bookkeeper.proto.BookieProtocol}
+     */
+    void readEntries(BookieId address, long ledgerId, long firstEntryId, int maxCount, int maxSize,
+                     ReadEntriesCallback cb, Object ctx, int flags);
+
     /**
      * Send a long poll request to bookie, waiting for the last add confirmed
      * to be updated. The client can also request that the full entry is returned
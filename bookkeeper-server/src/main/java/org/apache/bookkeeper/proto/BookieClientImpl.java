@@ -35,6 +35,7 @@ import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -58,6 +59,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -179,6 +181,12 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    @Override
+    public long getReadLatencyNanos(BookieId address, double quantile) {
+        PerChannelBookieClientPool pcbcPool = lookupClient(address);
+        return pcbcPool == null ? -1L : pcbcPool.getReadLatencyNanos(quantile);
+    }
+
     @Override
     public PerChannelBookieClient create(BookieId address, PerChannelBookieClientPool pcbcPool,
             SecurityHandlerFactory shFactory, boolean forceUseV3) throws SecurityException {
@@ -353,6 +361,20 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    private void completeReadEntries(final int rc,
+                                     final long ledgerId,
+                                     final long firstEntryId,
+                                     final ReadEntriesCallback cb,
+                                     final Object ctx) {
+        try {
+            executor.executeOrdered(ledgerId,
+                    () -> cb.readEntriesComplete(rc, ledgerId, firstEntryId, Collections.emptyList(), ctx));
+        } catch (RejectedExecutionException ree) {
+            cb.readEntriesComplete(getRc(BKException.Code.InterruptedException),
+                                   ledgerId, firstEntryId, Collections.emptyList(), ctx);
+        }
+    }
+
     private static class ChannelReadyForAddEntryCallback
         implements GenericCallback<PerChannelBookieClient> {
         private final Handle<ChannelReadyForAddEntryCallback> recyclerHandle;
@@ -489,6 +511,24 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }, ledgerId);
     }
 
+    @Override
+    public void readEntries(final BookieId addr, final long ledgerId, final long firstEntryId,
+                            final int maxCount, final int maxSize, final ReadEntriesCallback cb,
+                            final Object ctx, int flags) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            completeReadEntries(BKException.Code.BookieHandleNotAvailableException, ledgerId, firstEntryId, cb, ctx);
+            return;
+        }
+
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                completeReadEntries(rc, ledgerId, firstEntryId, cb, ctx);
+            } else {
+                pcbc.readEntries(ledgerId, firstEntryId, maxCount, maxSize, cb, ctx, flags, false);
+            }
+        }, ledgerId);
+    }
 
     @Override
     public void readEntryWaitForLACUpdate(final BookieId addr,
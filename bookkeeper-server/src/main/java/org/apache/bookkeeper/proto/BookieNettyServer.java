@@ -20,6 +20,9 @@
  */
 package org.apache.bookkeeper.proto;
 
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_FLUSHES_SAVED;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_FLUSH_SIZE;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ExtensionRegistry;
 import io.netty.bootstrap.ServerBootstrap;
@@ -49,7 +52,6 @@ import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
 import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
@@ -79,6 +81,9 @@ import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieSocketAddress;
 import org.apache.bookkeeper.processor.RequestProcessor;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.bookkeeper.util.EventLoopUtil;
 import org.apache.zookeeper.KeeperException;
@@ -176,6 +181,18 @@ class BookieNettyServer {
         listenOn(bindAddress, bookieAddress);
     }
 
+    private ResponseFlushConsolidationHandler newFlushConsolidationHandler() {
+        OpStatsLogger flushSizeStats = NullStatsLogger.INSTANCE.getOpStatsLogger(CHANNEL_FLUSH_SIZE);
+        Counter flushesSavedCounter = NullStatsLogger.INSTANCE.getCounter(CHANNEL_FLUSHES_SAVED);
+        if (requestProcessor instanceof BookieRequestProcessor) {
+            RequestStats requestStats = ((BookieRequestProcessor) requestProcessor).getRequestStats();
+            flushSizeStats = requestStats.getChannelFlushSizeStats();
+            flushesSavedCounter = requestStats.getChannelFlushesSavedCounter();
+        }
+        return new ResponseFlushConsolidationHandler(conf.getServerFlushConsolidationMaxPendingFlushes(),
+                conf.getServerFlushConsolidationDelayMicros(), flushSizeStats, flushesSavedCounter);
+    }
+
     public BookieNettyServer setRequestProcessor(RequestProcessor processor) {
         this.requestProcessor = processor;
         return this;
@@ -338,7 +355,7 @@ class BookieNettyServer {
                         new BookieSideConnectionPeerContextHandler();
                     ChannelPipeline pipeline = ch.pipeline();
 
-                    pipeline.addLast("consolidation", new FlushConsolidationHandler(1024, true));
+                    pipeline.addLast("consolidation", newFlushConsolidationHandler());
 
                     pipeline.addLast("bytebufList", ByteBufList.ENCODER);
 
@@ -33,9 +33,15 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.bookkeeper.proto.BookieProtocol.PacketHeader;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
@@ -128,6 +134,22 @@ public class BookieProtoEncoding {
                 }
                 r.recycle();
                 return buf;
+            } else if (r instanceof BookieProtocol.RangeReadRequest) {
+                BookieProtocol.RangeReadRequest rr = (BookieProtocol.RangeReadRequest) r;
+                int totalHeaderSize = 4 // for request type
+                    + 8 // for ledgerId
+                    + 8 // for firstEntryId
+                    + 4 // for maxCount
+                    + 4; // for maxSize
+
+                ByteBuf buf = allocator.buffer(totalHeaderSize + 4 /* frame size */);
+                buf.writeInt(totalHeaderSize);
+                buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), r.getFlags()));
+                buf.writeLong(rr.getLedgerId());
+                buf.writeLong(rr.getEntryId());
+                buf.writeInt(rr.getMaxCount());
+                buf.writeInt(rr.getMaxSize());
+                return buf;
             } else if (r instanceof BookieProtocol.AuthRequest) {
                 BookkeeperProtocol.AuthMessage am = ((BookieProtocol.AuthRequest) r).getAuthMessage();
                 int totalHeaderSize = 4; // for request type
@@ -181,6 +203,46 @@ public class BookieProtoEncoding {
                 } else {
                     return BookieProtocol.ReadRequest.create(version, ledgerId, entryId, flags, null);
                 }
+            case BookieProtocol.RANGE_READ_ENTRY: {
+                ledgerId = packet.readLong();
+                entryId = packet.readLong();
+                int maxCount = packet.readInt();
+                int maxSize = packet.readInt();
+                return new BookieProtocol.RangeReadRequest(version, ledgerId, entryId, flags, maxCount, maxSize);
+            }
+            case BookieProtocol.RANGE_ADD_ENTRY: {
+                int count = packet.readInt();
+                if (count <= 0) {
+                    throw new IllegalStateException("Received range add request with " + count + " entries");
+                }
+                BookieProtocol.ParsedAddRequest[] adds = new BookieProtocol.ParsedAddRequest[count];
+                int decoded = 0;
+                try {
+                    for (; decoded < count; decoded++) {
+                        int size = packet.readInt();
+                        int end = packet.readerIndex() + size;
+                        int addHeader = packet.readInt();
+                        if (PacketHeader.getOpCode(addHeader) != BookieProtocol.ADDENTRY) {
+                            throw new IllegalStateException("Received range add request with op code = "
+                                    + PacketHeader.getOpCode(addHeader));
+                        }
+                        byte[] masterKey = readMasterKey(packet);
+                        ledgerId = packet.getLong(packet.readerIndex());
+                        entryId = packet.getLong(packet.readerIndex() + 8);
+                        ByteBuf entry = packet.slice(packet.readerIndex(), end - packet.readerIndex());
+                        adds[decoded] = BookieProtocol.ParsedAddRequest.create(PacketHeader.getVersion(addHeader),
+                                ledgerId, entryId, PacketHeader.getFlags(addHeader), masterKey, entry);
+                        packet.readerIndex(end);
+                    }
+                } catch (RuntimeException e) {
+                    for (int i = 0; i < decoded; i++) {
+                        adds[i].release();
+                        adds[i].recycle();
+                    }
+                    throw e;
+                }
+                return new BookieProtocol.ParsedRangeAddRequest(version, flags, adds);
+            }
             case BookieProtocol.AUTH:
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
                 builder.mergeFrom(new ByteBufInputStream(packet), extensionRegistry);
@@ -238,20 +300,17 @@ public class BookieProtoEncoding {
             BookieProtocol.Response r = (BookieProtocol.Response) msg;
 
             try {
-                if (msg instanceof BookieProtocol.ReadResponse) {
+                if (msg instanceof BookieProtocol.FileRegionReadResponse) {
+                    // The entry is written to the channel after these headers
+                    BookieProtocol.FileRegionReadResponse rr = (BookieProtocol.FileRegionReadResponse) r;
+                    return encodeReadResponseHeaders(rr, (int) rr.getRegion().count(), allocator, 0);
+                } else if (msg instanceof BookieProtocol.ReadResponse) {
                     BookieProtocol.ReadResponse rr = (BookieProtocol.ReadResponse) r;
                     int payloadSize = rr.getData().readableBytes();
-                    int responseSize = RESPONSE_HEADERS_SIZE + payloadSize;
                     boolean isSmallEntry = payloadSize < SMALL_ENTRY_SIZE_THRESHOLD;
 
-                    int bufferSize = 4 /* frame size */ + RESPONSE_HEADERS_SIZE
-                            + (isSmallEntry ? payloadSize : 0);
-                    ByteBuf buf = allocator.buffer(bufferSize);
-                    buf.writeInt(responseSize);
-                    buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
-                    buf.writeInt(r.getErrorCode());
-                    buf.writeLong(r.getLedgerId());
-                    buf.writeLong(r.getEntryId());
+                    ByteBuf buf = encodeReadResponseHeaders(rr, payloadSize, allocator,
+                            isSmallEntry ? payloadSize : 0);
 
                     if (isSmallEntry) {
                         buf.writeBytes(rr.getData());
@@ -260,6 +319,8 @@ public class BookieProtoEncoding {
                     } else {
                         return ByteBufList.get(buf, rr.getData());
                     }
+                } else if (msg instanceof BookieProtocol.RangeReadResponse) {
+                    return encodeRangeReadResponse((BookieProtocol.RangeReadResponse) r, allocator);
                 } else if (msg instanceof BookieProtocol.AddResponse) {
                     ByteBuf buf = allocator.buffer(RESPONSE_HEADERS_SIZE + 4 /* frame size */);
                     buf.writeInt(RESPONSE_HEADERS_SIZE);
@@ -286,6 +347,52 @@ public class BookieProtoEncoding {
                 r.recycle();
             }
         }
+
+        private static ByteBuf encodeReadResponseHeaders(BookieProtocol.ReadResponse r, int payloadSize,
+                                                         ByteBufAllocator allocator, int extraCapacity) {
+            int responseSize = RESPONSE_HEADERS_SIZE + payloadSize;
+            int bufferSize = 4 /* frame size */ + RESPONSE_HEADERS_SIZE + extraCapacity;
+            ByteBuf buf = allocator.buffer(bufferSize);
+            buf.writeInt(responseSize);
+            buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+            buf.writeInt(r.getErrorCode());
+            buf.writeLong(r.getLedgerId());
+            buf.writeLong(r.getEntryId());
+            return buf;
+        }
+
+        /**
+         * The sizes of all the entries are written after the response headers, so the entries
+         * themselves follow without being copied.
+         */
+        private static Object encodeRangeReadResponse(BookieProtocol.RangeReadResponse r,
+                                                      ByteBufAllocator allocator) {
+            List<ByteBuf> entries = r.getEntries();
+            int headersSize = RESPONSE_HEADERS_SIZE + 4 /* count */ + 4 * entries.size();
+            int payloadSize = 0;
+            for (ByteBuf entry : entries) {
+                payloadSize += entry.readableBytes();
+            }
+            ByteBuf buf = allocator.buffer(4 /* frame size */ + headersSize);
+            buf.writeInt(headersSize + payloadSize);
+            buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+            buf.writeInt(r.getErrorCode());
+            buf.writeLong(r.getLedgerId());
+            buf.writeLong(r.getEntryId());
+            buf.writeInt(entries.size());
+            for (ByteBuf entry : entries) {
+                buf.writeInt(entry.readableBytes());
+            }
+            if (entries.isEmpty()) {
+                return buf;
+            }
+            ByteBufList list = ByteBufList.get(buf);
+            for (ByteBuf entry : entries) {
+                list.add(entry);
+            }
+            return list;
+        }
+
         @Override
         public Object decode(ByteBuf buffer)
                 throws Exception {
@@ -309,6 +416,20 @@ public class BookieProtoEncoding {
 
                 return new BookieProtocol.ReadResponse(
                         version, rc, ledgerId, entryId, buffer.retainedSlice());
+            case BookieProtocol.RANGE_READ_ENTRY: {
+                rc = buffer.readInt();
+                ledgerId = buffer.readLong();
+                entryId = buffer.readLong();
+                int count = buffer.readInt();
+                List<ByteBuf> entries = new ArrayList<>(count);
+                int offset = buffer.readerIndex() + 4 * count;
+                for (int i = 0; i < count; i++) {
+                    int size = buffer.readInt();
+                    entries.add(buffer.retainedSlice(offset, size));
+                    offset += size;
+                }
+                return new BookieProtocol.RangeReadResponse(version, rc, ledgerId, entryId, entries);
+            }
             case BookieProtocol.AUTH:
                 ByteBufInputStream bufStream = new ByteBufInputStream(buffer);
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
@@ -504,6 +625,15 @@ public class BookieProtoEncoding {
                 ctx.write(msg, promise);
             } else if (msg instanceof BookkeeperProtocol.Response) {
                 ctx.write(repV3.encode(msg, ctx.alloc()), promise);
+            } else if (msg instanceof BookieProtocol.FileRegionReadResponse) {
+                FileRegion region = ((BookieProtocol.FileRegionReadResponse) msg).getRegion();
+                ctx.write(repPreV3.encode(msg, ctx.alloc()), ctx.voidPromise());
+                if (ctx.pipeline().get(SslHandler.class) == null) {
+                    ctx.write(region, promise);
+                } else {
+                    // TLS was started after the region was read, the entry has to go through the SslHandler
+                    ctx.write(readFileRegion(region, ctx.alloc()), promise);
+                }
             } else if (msg instanceof BookieProtocol.Response) {
                 ctx.write(repPreV3.encode(msg, ctx.alloc()), promise);
             } else {
@@ -513,6 +643,24 @@ public class BookieProtoEncoding {
         }
     }
 
+    private static ByteBuf readFileRegion(FileRegion region, ByteBufAllocator allocator) throws IOException {
+        int size = (int) region.count();
+        ByteBuf buf = allocator.buffer(size, size);
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buf)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < size) {
+                transferred += region.transferTo(target, transferred);
+            }
+        } catch (IOException e) {
+            buf.release();
+            throw e;
+        } finally {
+            region.release();
+        }
+        return buf;
+    }
+
     /**
      * A response message decoder.
      */
@@ -22,10 +22,13 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
+import java.util.Collections;
+import java.util.List;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AuthMessage;
 
 /**
@@ -132,6 +135,23 @@ public interface BookieProtocol {
     byte READ_LAC = 4;
     byte WRITE_LAC = 5;
     byte GET_BOOKIE_INFO = 6;
+    /**
+     * The Range read request payload will be the ledger number, the first entry
+     * number, the maximum number of entries (a 4-byte integer) and the maximum
+     * total size of the entries (a 4-byte integer). The response payload will be
+     * a 4-byte error code, the ledger number, the first entry number, a 4-byte
+     * count of the entries returned and their 4-byte sizes, followed by the
+     * entries themselves.
+     */
+    byte RANGE_READ_ENTRY = 7;
+    /**
+     * The Range add request payload will be a 4-byte count of entries, followed
+     * by that many add entry requests, each one framed exactly as it would be
+     * sent on its own (a 4-byte size, the request header, the master key and
+     * the ledger entry). The entries are acknowledged one by one with the
+     * regular add entry responses.
+     */
+    byte RANGE_ADD_ENTRY = 8;
 
     /**
      * The error code that indicates success.
@@ -305,6 +325,33 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A batch of add requests of the same ledger, received in a single packet.
+     */
+    class ParsedRangeAddRequest extends Request {
+        final ParsedAddRequest[] adds;
+
+        ParsedRangeAddRequest(byte protocolVersion, short flags, ParsedAddRequest[] adds) {
+            init(protocolVersion, RANGE_ADD_ENTRY, adds[0].getLedgerId(), adds[0].getEntryId(), flags, null);
+            this.adds = adds;
+        }
+
+        ParsedAddRequest[] getAdds() {
+            return adds;
+        }
+
+        void release() {
+            for (ParsedAddRequest add : adds) {
+                add.release();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RangeAdd[Ledger:%d,FirstEntry:%d,Count:%d]", ledgerId, entryId, adds.length);
+        }
+    }
+
     /**
      * A Request that reads data.
      */
@@ -348,6 +395,35 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A Request that reads a range of consecutive entries of a ledger.
+     */
+    class RangeReadRequest extends Request {
+        final int maxCount;
+        final int maxSize;
+
+        RangeReadRequest(byte protocolVersion, long ledgerId, long firstEntryId, short flags,
+                         int maxCount, int maxSize) {
+            init(protocolVersion, RANGE_READ_ENTRY, ledgerId, firstEntryId, flags, null);
+            this.maxCount = maxCount;
+            this.maxSize = maxSize;
+        }
+
+        int getMaxCount() {
+            return maxCount;
+        }
+
+        int getMaxSize() {
+            return maxSize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RangeRead[Ledger:%d,FirstEntry:%d,MaxCount:%d,MaxSize:%d]",
+                    ledgerId, entryId, maxCount, maxSize);
+        }
+    }
+
     /**
      * An authentication request.
      */
@@ -479,6 +555,96 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A read response whose entry is sent from a region of a file, without being copied in memory.
+     */
+    class FileRegionReadResponse extends ReadResponse {
+        final FileRegion region;
+
+        FileRegionReadResponse(byte protocolVersion, long ledgerId, long entryId, FileRegion region) {
+            super(protocolVersion, EOK, ledgerId, entryId);
+            this.region = region;
+        }
+
+        @Override
+        boolean hasData() {
+            return region.count() > 0;
+        }
+
+        FileRegion getRegion() {
+            return region;
+        }
+
+        @Override
+        public int refCnt() {
+            return region.refCnt();
+        }
+
+        @Override
+        public ReferenceCounted retain() {
+            region.retain();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted retain(int increment) {
+            region.retain(increment);
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch() {
+            region.touch();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            region.touch(hint);
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            return region.release();
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return region.release(decrement);
+        }
+    }
+
+    /**
+     * A response holding a range of consecutive entries, starting at the entry id of the response.
+     */
+    class RangeReadResponse extends Response {
+        final List<ByteBuf> entries;
+
+        RangeReadResponse(byte protocolVersion, int errorCode, long ledgerId, long firstEntryId) {
+            this(protocolVersion, errorCode, ledgerId, firstEntryId, Collections.emptyList());
+        }
+
+        RangeReadResponse(byte protocolVersion, int errorCode, long ledgerId, long firstEntryId,
+                          List<ByteBuf> entries) {
+            init(protocolVersion, RANGE_READ_ENTRY, errorCode, ledgerId, firstEntryId);
+            this.entries = entries;
+        }
+
+        List<ByteBuf> getEntries() {
+            return entries;
+        }
+
+        @Override
+        boolean release() {
+            boolean released = true;
+            for (ByteBuf entry : entries) {
+                released &= entry.release();
+            }
+            return released;
+        }
+    }
+
     /**
      * A response that adds data.
      */
@@ -128,6 +128,8 @@ public class BookieRequestProcessor implements RequestProcessor {
     private final ByteBufAllocator allocator;
 
     private final boolean throttleReadResponses;
+    private final boolean zeroCopyReadEnabled;
+    private final int zeroCopyReadMinEntrySize;
 
     public BookieRequestProcessor(ServerConfiguration serverCfg, Bookie bookie, StatsLogger statsLogger,
                                   SecurityHandlerFactory shFactory, ByteBufAllocator allocator,
@@ -139,6 +141,8 @@ public class BookieRequestProcessor implements RequestProcessor {
         this.preserveMdcForTaskExecution = serverCfg.getPreserveMdcForTaskExecution();
         this.bookie = bookie;
         this.throttleReadResponses = serverCfg.isReadWorkerThreadsThrottlingEnabled();
+        this.zeroCopyReadEnabled = serverCfg.isZeroCopyReadEnabled();
+        this.zeroCopyReadMinEntrySize = serverCfg.getZeroCopyReadMinEntrySize();
         this.readThreadPool = createExecutor(
                 this.serverCfg.getNumReadWorkerThreads(),
                 "BookieReadThreadPool",
@@ -320,6 +324,9 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case READ_ENTRY:
                         processReadRequestV3(r, requestHandler);
                         break;
+                    case RANGE_READ_ENTRY:
+                        processRangeReadRequestV3(r, requestHandler);
+                        break;
                     case FORCE_LEDGER:
                         processForceLedgerRequestV3(r, requestHandler);
                         break;
@@ -373,10 +380,18 @@ public class BookieRequestProcessor implements RequestProcessor {
                     checkArgument(r instanceof BookieProtocol.ParsedAddRequest);
                     processAddRequest((BookieProtocol.ParsedAddRequest) r, requestHandler);
                     break;
+                case BookieProtocol.RANGE_ADD_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.ParsedRangeAddRequest);
+                    processRangeAddRequest((BookieProtocol.ParsedRangeAddRequest) r, requestHandler);
+                    break;
                 case BookieProtocol.READENTRY:
                     checkArgument(r instanceof BookieProtocol.ReadRequest);
                     processReadRequest((BookieProtocol.ReadRequest) r, requestHandler);
                     break;
+                case BookieProtocol.RANGE_READ_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.RangeReadRequest);
+                    processRangeReadRequest((BookieProtocol.RangeReadRequest) r, requestHandler);
+                    break;
                 case BookieProtocol.AUTH:
                     LOG.info("Ignoring auth operation from client {}",
                             requestHandler.ctx().channel().remoteAddress());
@@ -555,6 +570,30 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeReadRequestV3(final BookkeeperProtocol.Request r,
+                                           final BookieRequestHandler requestHandler) {
+        RangeReadEntryProcessorV3 read = new RangeReadEntryProcessorV3(r, requestHandler, this);
+        final OrderedExecutor threadPool = RequestUtils.isHighPriority(r) ? highPriorityThreadPool : readThreadPool;
+        if (null == threadPool) {
+            read.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getRangeReadRequest().getLedgerId(), read);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to range read entries at {}:{}. Too many pending requests",
+                              r.getRangeReadRequest().getLedgerId(), r.getRangeReadRequest().getFirstEntryId());
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                read.sendResponse(BookkeeperProtocol.RangeReadResponse.newBuilder()
+                        .setLedgerId(r.getRangeReadRequest().getLedgerId())
+                        .setFirstEntryId(r.getRangeReadRequest().getFirstEntryId())
+                        .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS)
+                        .build());
+            }
+        }
+    }
+
     private void processStartTLSRequestV3(final BookkeeperProtocol.Request r,
                                           final BookieRequestHandler requestHandler) {
         BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder();
@@ -663,6 +702,34 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeAddRequest(final BookieProtocol.ParsedRangeAddRequest r,
+                                        final BookieRequestHandler requestHandler) {
+        RangeWriteEntryProcessor write = RangeWriteEntryProcessor.create(r, requestHandler, this);
+
+        final OrderedExecutor threadPool;
+        if (r.isHighPriority()) {
+            threadPool = highPriorityThreadPool;
+        } else {
+            threadPool = writeThreadPool;
+        }
+
+        if (null == threadPool) {
+            write.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getLedgerId(), write);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to add entries at {}:{}. Too many pending requests",
+                            r.ledgerId, r.entryId);
+                }
+                getRequestStats().getAddEntryRejectedCounter().inc();
+
+                write.sendErrorResponses(BookieProtocol.ETOOMANYREQUESTS);
+            }
+        }
+    }
+
     private void processReadRequest(final BookieProtocol.ReadRequest r, final BookieRequestHandler requestHandler) {
         ExecutorService fenceThreadPool =
                 null == highPriorityThreadPool ? null : highPriorityThreadPool.chooseThread(requestHandler.ctx());
@@ -699,10 +766,43 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeReadRequest(final BookieProtocol.RangeReadRequest r,
+                                         final BookieRequestHandler requestHandler) {
+        RangeReadEntryProcessor read = RangeReadEntryProcessor.create(r, requestHandler, this,
+                throttleReadResponses);
+        final OrderedExecutor threadPool = r.isHighPriority() ? highPriorityThreadPool : readThreadPool;
+        if (null == threadPool) {
+            read.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getLedgerId(), read);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to range read entries at {}:{}. Too many pending requests",
+                            r.getLedgerId(), r.getEntryId());
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                read.sendResponse(
+                    BookieProtocol.ETOOMANYREQUESTS,
+                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+                    requestStats.getRangeReadRequestStats());
+                onReadRequestFinish();
+            }
+        }
+    }
+
     public long getWaitTimeoutOnBackpressureMillis() {
         return waitTimeoutOnBackpressureMillis;
     }
 
+    boolean isZeroCopyReadEnabled() {
+        return zeroCopyReadEnabled;
+    }
+
+    int getZeroCopyReadMinEntrySize() {
+        return zeroCopyReadMinEntrySize;
+    }
+
     public void blacklistChannel(Channel channel) {
         blacklistedChannels
                 .ifPresent(x -> x.put(channel, true));
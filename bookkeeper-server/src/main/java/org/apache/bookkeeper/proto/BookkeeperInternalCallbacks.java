@@ -22,6 +22,7 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -209,6 +210,16 @@ public class BookkeeperInternalCallbacks {
     public interface ReadEntryCallbackCtx {
         void setLastAddConfirmed(long lac);
         long getLastAddConfirmed();
+
+        /**
+         * Record that the bookie reported the checksum of the entry as already verified.
+         */
+        default void setChecksumVerified(boolean checksumVerified) {
+        }
+
+        default boolean isChecksumVerified() {
+            return false;
+        }
     }
 
     /**
@@ -221,6 +232,19 @@ public class BookkeeperInternalCallbacks {
         void readEntryComplete(int rc, long ledgerId, long entryId, ByteBuf buffer, Object ctx);
     }
 
+    /**
+     * Declaration of a callback implementation for calls from BookieClient objects.
+     * Such calls are for replies of range read operations (operations to read
+     * consecutive entries of a ledger in a single request).
+     */
+    public interface ReadEntriesCallback {
+        /**
+         * @param entries the entries read, starting at {@code firstEntryId}. The buffers are
+         *                released once the callback returns.
+         */
+        void readEntriesComplete(int rc, long ledgerId, long firstEntryId, List<ByteBuf> entries, Object ctx);
+    }
+
     /**
      * Listener on entries responded.
      */
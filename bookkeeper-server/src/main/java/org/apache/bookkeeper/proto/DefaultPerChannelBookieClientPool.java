@@ -22,6 +22,7 @@ package org.apache.bookkeeper.proto;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.conf.ClientConfiguration;
@@ -30,6 +31,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.tls.SecurityException;
 import org.apache.bookkeeper.tls.SecurityHandlerFactory;
 import org.apache.bookkeeper.tls.SecurityProviderFactoryFactory;
+import org.apache.bookkeeper.util.DecayingLatencyHistogram;
 import org.apache.bookkeeper.util.MathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +45,8 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
 
     static final Logger LOG = LoggerFactory.getLogger(DefaultPerChannelBookieClientPool.class);
 
+    static final double MIN_READ_LATENCY_SAMPLES = 20;
+
     final PerChannelBookieClientFactory factory;
     final BookieId address;
 
@@ -54,6 +58,7 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
 
     final AtomicInteger counter = new AtomicInteger(0);
     final AtomicLong errorCounter = new AtomicLong(0);
+    final DecayingLatencyHistogram readLatencies;
 
     DefaultPerChannelBookieClientPool(ClientConfiguration conf, PerChannelBookieClientFactory factory,
                                       BookieId address,
@@ -62,6 +67,7 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         this.factory = factory;
         this.address = address;
         this.conf = conf;
+        this.readLatencies = new DecayingLatencyHistogram(conf.getReadLatencyHalfLifeMs(), TimeUnit.MILLISECONDS);
 
         this.shFactory = SecurityProviderFactoryFactory.getSecurityProviderFactory(conf.getTLSProviderFactoryClass());
 
@@ -140,6 +146,17 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         errorCounter.incrementAndGet();
     }
 
+    @Override
+    public void recordReadLatency(long latencyNanos) {
+        readLatencies.record(latencyNanos);
+    }
+
+    @Override
+    public long getReadLatencyNanos(double quantile) {
+        // a percentile needs enough samples to not be the latency of a few reads
+        return readLatencies.getQuantileNanos(quantile, MIN_READ_LATENCY_SAMPLES);
+    }
+
     @Override
     public void disconnect(boolean wait) {
         for (int i = 0; i < clients.length; i++) {
@@ -174,7 +174,8 @@ abstract class PacketProcessorBase<T extends Request> implements Runnable {
 
     @Override
     public void run() {
-        if (request instanceof BookieProtocol.ReadRequest) {
+        if (request instanceof BookieProtocol.ReadRequest
+                || request instanceof BookieProtocol.RangeReadRequest) {
             requestProcessor.getRequestStats().getReadEntrySchedulingDelayStats()
                     .registerSuccessfulEvent(MathUtils.elapsedNanos(enqueueNanos), TimeUnit.NANOSECONDS);
         }
@@ -187,7 +188,8 @@ abstract class PacketProcessorBase<T extends Request> implements Runnable {
             sendResponse(BookieProtocol.EBADVERSION,
                          ResponseBuilder.buildErrorResponse(BookieProtocol.EBADVERSION, request),
                          requestProcessor.getRequestStats().getReadRequestStats());
-            if (request instanceof BookieProtocol.ReadRequest) {
+            if (request instanceof BookieProtocol.ReadRequest
+                    || request instanceof BookieProtocol.RangeReadRequest) {
                 requestProcessor.onReadRequestFinish();
             }
             if (request instanceof BookieProtocol.ParsedAddRequest) {
@@ -76,15 +76,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiPredicate;
@@ -106,6 +108,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetListOfEntriesOfLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallbackCtx;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
@@ -123,6 +126,8 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerRe
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
@@ -144,8 +149,8 @@ import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.StringUtils;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongIntMultiMap;
 import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
-import org.apache.bookkeeper.util.collections.SynchronizedHashMultiMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -189,10 +194,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final ConcurrentOpenHashMap<CompletionKey, CompletionValue> completionObjects =
             ConcurrentOpenHashMap.<CompletionKey, CompletionValue>newBuilder().build();
 
-    // Map that hold duplicated read requests. The idea is to only use this map (synchronized) when there is a duplicate
-    // read request for the same ledgerId/entryId
-    private final SynchronizedHashMultiMap<CompletionKey, CompletionValue> completionObjectsV2Conflicts =
-        new SynchronizedHashMultiMap<>();
+    // V2 completions, keyed by (ledgerId, entryId, operation type). Duplicated read requests for the same
+    // ledgerId/entryId are stored side by side, and responses are matched without allocating a key
+    private final ConcurrentLongLongIntMultiMap<CompletionValue> v2CompletionObjects =
+            ConcurrentLongLongIntMultiMap.<CompletionValue>newBuilder().build();
 
     private final StatsLogger statsLogger;
     @StatsDoc(
@@ -205,11 +210,26 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         help = "timeout stats of read entries requests"
     )
     private final OpStatsLogger readTimeoutOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_RANGE_READ_OP,
+        help = "channel stats of range read entries requests"
+    )
+    private final OpStatsLogger rangeReadEntryOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_READ,
+        help = "timeout stats of range read entries requests"
+    )
+    private final OpStatsLogger rangeReadTimeoutOpLogger;
     @StatsDoc(
         name = BookKeeperClientStats.CHANNEL_ADD_OP,
         help = "channel stats of add entries requests"
     )
     private final OpStatsLogger addEntryOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_ADD_BATCH_SIZE,
+        help = "the number of entries sent by range add entries requests"
+    )
+    private final OpStatsLogger addBatchSizeLogger;
     @StatsDoc(
         name = BookKeeperClientStats.CHANNEL_WRITE_LAC_OP,
         help = "channel stats of write_lac requests"
@@ -316,6 +336,18 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
     private final boolean useV2WireProtocol;
     private final boolean preserveMdcForTaskExecution;
+    private final boolean addBatchingEnabled;
+    private final boolean trustBookieVerifiedChecksums;
+    private final long addBatchLingerTimeMicros;
+    private final int addBatchMaxEntries;
+    private final int addBatchMaxBytes;
+
+    // Adds of each ledger waiting to be sent as a single range add, striped by ledger id so that
+    // the adds of different ledgers don't contend, each stripe guarded by itself
+    private static final int ADD_BATCH_STRIPES = 16;
+    private final Map<Long, AddBatch>[] pendingAddBatches;
+    // Adds not yet completed, only tracked when batching is enabled
+    private final AtomicInteger addsInFlight = new AtomicInteger();
 
     /**
      * The following member variables do not need to be concurrent, or volatile
@@ -403,6 +435,17 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         this.startTLSTimeout = conf.getStartTLSTimeout();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.preserveMdcForTaskExecution = conf.getPreserveMdcForTaskExecution();
+        this.addBatchingEnabled = conf.isAddBatchingEnabled() && useV2WireProtocol;
+        this.trustBookieVerifiedChecksums = conf.isTrustBookieVerifiedChecksums();
+        this.addBatchLingerTimeMicros = conf.getAddBatchLingerTimeMicros();
+        this.addBatchMaxEntries = conf.getAddBatchMaxEntries();
+        this.addBatchMaxBytes = conf.getAddBatchMaxBytes();
+        @SuppressWarnings("unchecked")
+        Map<Long, AddBatch>[] addBatchStripes = new Map[ADD_BATCH_STRIPES];
+        for (int i = 0; i < ADD_BATCH_STRIPES; i++) {
+            addBatchStripes[i] = new HashMap<>();
+        }
+        this.pendingAddBatches = addBatchStripes;
 
         this.authProviderFactory = authProviderFactory;
         this.extRegistry = extRegistry;
@@ -416,6 +459,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
         readEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_READ_OP);
         addEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_ADD_OP);
+        addBatchSizeLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_ADD_BATCH_SIZE);
         writeLacOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_WRITE_LAC_OP);
         forceLedgerOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_FORCE_OP);
         readLacOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_READ_LAC_OP);
@@ -423,6 +467,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         getListOfEntriesOfLedgerCompletionOpLogger = statsLogger
                 .getOpStatsLogger(BookKeeperClientStats.GET_LIST_OF_ENTRIES_OF_LEDGER_OP);
         readTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_READ);
+        rangeReadEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_RANGE_READ_OP);
+        rangeReadTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_READ);
         addTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_ADD);
         writeLacTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_WRITE_LAC);
         forceLedgerTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_FORCE);
@@ -526,7 +572,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     }
 
     protected long getNumPendingCompletionRequests() {
-        return completionObjects.size();
+        return completionObjects.size() + v2CompletionObjects.size();
     }
 
     protected ChannelFuture connect() {
@@ -836,6 +882,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
+        if (addBatchingEnabled) {
+            addsInFlight.incrementAndGet();
+        }
         putCompletionKeyValue(completionKey,
                               acquireAddCompletion(completionKey,
                                                    cb, ctx, ledgerId, entryId));
@@ -846,12 +895,154 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             errorOut(completionKey);
             ReferenceCountUtil.release(toSend);
             return;
+        } else if (addBatchingEnabled
+                && ((short) options & BookieProtocol.FLAG_RECOVERY_ADD) != BookieProtocol.FLAG_RECOVERY_ADD) {
+            addToBatch(c, completionKey, ledgerId, options, allowFastFail, request);
         } else {
             // addEntry times out on backpressure
             writeAndFlush(c, completionKey, request, allowFastFail);
         }
     }
 
+    /**
+     * Adds of a ledger waiting to be sent to the bookie as a single range add request.
+     */
+    private static final class AddBatch {
+        final Channel channel;
+        final long ledgerId;
+        final int options;
+        final boolean allowFastFail;
+        final List<CompletionKey> keys = new ArrayList<>();
+        final List<Object> requests = new ArrayList<>();
+        int size = 0;
+
+        AddBatch(Channel channel, long ledgerId, int options, boolean allowFastFail) {
+            this.channel = channel;
+            this.ledgerId = ledgerId;
+            this.options = options;
+            this.allowFastFail = allowFastFail;
+        }
+
+        boolean accepts(Channel channel, long ledgerId, int options, boolean allowFastFail) {
+            return this.channel == channel && this.ledgerId == ledgerId && this.options == options
+                    && this.allowFastFail == allowFastFail;
+        }
+    }
+
+    /**
+     * Queue a v2 add to be sent with the next adds of the same ledger, so that the bookie gets them
+     * in a single request. The batch is sent when it is full or after the linger time. An add is sent
+     * right away when no other add is in flight, as there is nothing to wait for. Each add keeps its
+     * own completion, and is acknowledged on its own.
+     */
+    private void addToBatch(Channel c, CompletionKey completionKey, long ledgerId, int options,
+                            boolean allowFastFail, Object request) {
+        int size = request instanceof ByteBuf
+                ? ((ByteBuf) request).readableBytes() : ((ByteBufList) request).readableBytes();
+        Map<Long, AddBatch> batches = addBatchesOf(ledgerId);
+        AddBatch lingering = null;
+        // Batches are sent while holding the lock, so that the adds go out in the order they were issued
+        synchronized (batches) {
+            AddBatch batch = batches.get(ledgerId);
+            if (batch != null && (!batch.accepts(c, ledgerId, options, allowFastFail)
+                    || batch.size + size > addBatchMaxBytes)) {
+                batches.remove(ledgerId);
+                sendAddBatch(batch);
+                batch = null;
+            }
+            // this add is the only one in flight when no batch is pending
+            if (size >= addBatchMaxBytes || (batch == null && addsInFlight.get() <= 1)) {
+                writeAndFlush(c, completionKey, request, allowFastFail);
+                return;
+            }
+            if (batch == null) {
+                batch = new AddBatch(c, ledgerId, options, allowFastFail);
+                batches.put(ledgerId, batch);
+                lingering = batch;
+            }
+            batch.keys.add(completionKey);
+            batch.requests.add(request);
+            batch.size += size;
+            if (batch.keys.size() >= addBatchMaxEntries || batch.size >= addBatchMaxBytes) {
+                batches.remove(ledgerId);
+                sendAddBatch(batch);
+                lingering = null;
+            }
+        }
+        if (lingering != null) {
+            scheduleAddBatchFlush(c, lingering);
+        }
+    }
+
+    private Map<Long, AddBatch> addBatchesOf(long ledgerId) {
+        return pendingAddBatches[(int) (ledgerId & (ADD_BATCH_STRIPES - 1))];
+    }
+
+    private void scheduleAddBatchFlush(Channel c, AddBatch batch) {
+        try {
+            c.eventLoop().schedule(() -> flushAddBatch(batch), addBatchLingerTimeMicros, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            // The event loop is shutting down, the batch would never be sent
+            LOG.warn("Failed to schedule the flush of the adds of ledger {}", batch.ledgerId, e);
+            failAddBatch(batch);
+        }
+    }
+
+    private void flushAddBatch(AddBatch batch) {
+        Map<Long, AddBatch> batches = addBatchesOf(batch.ledgerId);
+        synchronized (batches) {
+            if (batches.remove(batch.ledgerId, batch)) {
+                sendAddBatch(batch);
+            }
+        }
+    }
+
+    private void failAddBatch(AddBatch batch) {
+        Map<Long, AddBatch> batches = addBatchesOf(batch.ledgerId);
+        synchronized (batches) {
+            if (!batches.remove(batch.ledgerId, batch)) {
+                // already sent
+                return;
+            }
+        }
+        // the batch is no longer reachable by the other adds
+        for (Object request : batch.requests) {
+            ReferenceCountUtil.release(request);
+        }
+        for (CompletionKey key : batch.keys) {
+            errorOut(key);
+        }
+    }
+
+    private void sendAddBatch(AddBatch batch) {
+        int count = batch.keys.size();
+        addBatchSizeLogger.registerSuccessfulValue(count);
+        if (count == 1) {
+            writeAndFlush(batch.channel, batch.keys.get(0), batch.requests.get(0), batch.allowFastFail);
+            return;
+        }
+
+        // Each entry is sent as it would be on its own, framed by its size
+        ByteBuf header = allocator.buffer(12, 12);
+        header.writeInt(4 /* request type */ + 4 /* count */ + batch.size);
+        header.writeInt(BookieProtocol.PacketHeader.toInt(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.RANGE_ADD_ENTRY, (short) batch.options));
+        header.writeInt(count);
+        ByteBufList request = ByteBufList.get(header);
+        for (Object entry : batch.requests) {
+            if (entry instanceof ByteBuf) {
+                request.add((ByteBuf) entry);
+            } else {
+                ByteBufList entryBufs = (ByteBufList) entry;
+                for (int i = 0; i < entryBufs.size(); i++) {
+                    request.add(entryBufs.getBuffer(i).retain());
+                }
+                entryBufs.release();
+            }
+        }
+        writeAndFlush(batch.channel, batch.keys, request, batch.allowFastFail);
+    }
+
     public void readLac(final long ledgerId, ReadLacCallback cb, Object ctx) {
         Object request = null;
         CompletionKey completionKey = null;
@@ -927,6 +1118,53 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                           cb, ctx, (short) flags, masterKey, allowFastFail);
     }
 
+    /**
+     * Read up to {@code maxCount} consecutive entries starting at {@code firstEntryId}, in a single
+     * request. The bookie stops before the total size of the entries goes over {@code maxSize},
+     * but always returns at least the first entry.
+     */
+    public void readEntries(final long ledgerId,
+                            final long firstEntryId,
+                            final int maxCount,
+                            final int maxSize,
+                            ReadEntriesCallback cb,
+                            Object ctx,
+                            int flags,
+                            boolean allowFastFail) {
+        Object request;
+        CompletionKey completionKey;
+        if (useV2WireProtocol) {
+            request = new BookieProtocol.RangeReadRequest(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    ledgerId, firstEntryId, (short) flags, maxCount, maxSize);
+            completionKey = acquireV2Key(ledgerId, firstEntryId, OperationType.RANGE_READ_ENTRY);
+        } else {
+            final long txnId = getTxnId();
+            completionKey = new V3CompletionKey(txnId, OperationType.RANGE_READ_ENTRY);
+
+            BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                    .setVersion(ProtocolVersion.VERSION_THREE)
+                    .setOperation(OperationType.RANGE_READ_ENTRY)
+                    .setTxnId(txnId);
+            if (((short) flags & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
+                headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
+            }
+            RangeReadRequest.Builder rangeReadBuilder = RangeReadRequest.newBuilder()
+                    .setLedgerId(ledgerId)
+                    .setFirstEntryId(firstEntryId)
+                    .setMaxCount(maxCount)
+                    .setMaxSize(maxSize);
+
+            request = withRequestContext(Request.newBuilder())
+                    .setHeader(headerBuilder)
+                    .setRangeReadRequest(rangeReadBuilder)
+                    .build();
+        }
+
+        putCompletionKeyValue(completionKey,
+                new RangeReadCompletion(completionKey, cb, ctx, ledgerId, firstEntryId));
+        writeAndFlush(channel, completionKey, request, allowFastFail);
+    }
+
     private void readEntryInternal(final long ledgerId,
                                    final long entryId,
                                    final Long previousLAC,
@@ -960,6 +1198,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .setLedgerId(ledgerId)
                     .setEntryId(entryId);
 
+            if (trustBookieVerifiedChecksums && isChannelTrustedForChecksums(channel)) {
+                readBuilder.setReportChecksumVerified(true);
+            }
+
             if (null != previousLAC) {
                 readBuilder = readBuilder.setPreviousLAC(previousLAC);
             }
@@ -1001,12 +1243,33 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
-        ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
+        ReadCompletion readCompletion = acquireReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
         putCompletionKeyValue(completionKey, readCompletion);
 
         writeAndFlush(channel, completionKey, request, allowFastFail);
     }
 
+    /**
+     * The checksums verified by a bookie only prove that the entries were intact on the bookie, so they are
+     * trusted only when the entries cannot be corrupted on the way: on TLS channels, which protect them with
+     * their own MAC, or on the channels that do not leave the host.
+     */
+    private static boolean isChannelTrustedForChecksums(Channel channel) {
+        if (channel == null) {
+            return false;
+        }
+        if (channel.pipeline().get(SslHandler.class) != null) {
+            return true;
+        }
+        SocketAddress remoteAddress = channel.remoteAddress();
+        if (remoteAddress instanceof LocalAddress) {
+            return true;
+        }
+        return remoteAddress instanceof InetSocketAddress
+                && ((InetSocketAddress) remoteAddress).getAddress() != null
+                && ((InetSocketAddress) remoteAddress).getAddress().isLoopbackAddress();
+    }
+
     public void getBookieInfo(final long requested, GetBookieInfoCallback cb, Object ctx) {
         final long txnId = getTxnId();
         final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.GET_BOOKIE_INFO);
@@ -1038,7 +1301,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     public void checkTimeoutOnPendingOperations() {
         int timedOutOperations = completionObjects.removeIf(timeoutCheck);
 
-        timedOutOperations += completionObjectsV2Conflicts.removeIf(timeoutCheck);
+        timedOutOperations += v2CompletionObjects.removeIf(CompletionValue::maybeTimeout);
 
         if (timedOutOperations > 0) {
             LOG.info("Timed-out {} operations to channel {} for {}",
@@ -1155,13 +1418,15 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
         try {
             final long startTime = MathUtils.nowInNano();
+            // the completion may be recycled once the response is received, which can happen before the listener
+            // runs, so only its counter is kept
+            final Counter outstandingCounter = getOutstandingCounter(key);
 
             ChannelPromise promise = channel.newPromise().addListener(future -> {
                 if (future.isSuccess()) {
                     nettyOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
-                    CompletionValue completion = completionObjects.get(key);
-                    if (completion != null) {
-                        completion.setOutstanding();
+                    if (outstandingCounter != null) {
+                        outstandingCounter.inc();
                     }
                 } else {
                     nettyOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
@@ -1174,16 +1439,60 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    private void writeAndFlush(final Channel channel,
+                               final List<CompletionKey> keys,
+                               final Object request,
+                               final boolean allowFastFail) {
+        final boolean isChannelWritable = channel.isWritable();
+        if (isWritable != isChannelWritable) {
+            isWritable = isChannelWritable;
+        }
+
+        if (allowFastFail && !isWritable) {
+            LOG.warn("Operation {} failed: TooManyRequestsException",
+                    StringUtils.requestToString(request));
+            ReferenceCountUtil.release(request);
+            for (CompletionKey key : keys) {
+                errorOut(key, BKException.Code.TooManyRequestsException);
+            }
+            return;
+        }
+
+        try {
+            final long startTime = MathUtils.nowInNano();
+            final Counter[] outstandingCounters = new Counter[keys.size()];
+            for (int i = 0; i < outstandingCounters.length; i++) {
+                outstandingCounters[i] = getOutstandingCounter(keys.get(i));
+            }
+
+            ChannelPromise promise = channel.newPromise().addListener(future -> {
+                if (future.isSuccess()) {
+                    nettyOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                    for (Counter outstandingCounter : outstandingCounters) {
+                        if (outstandingCounter != null) {
+                            outstandingCounter.inc();
+                        }
+                    }
+                } else {
+                    nettyOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                }
+            });
+            channel.writeAndFlush(request, promise);
+        } catch (Throwable e) {
+            LOG.warn("Operation {} failed", StringUtils.requestToString(request), e);
+            for (CompletionKey key : keys) {
+                errorOut(key);
+            }
+        }
+    }
+
     void errorOut(final CompletionKey key) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Removing completion key: {}", key);
         }
-        CompletionValue completion = completionObjects.remove(key);
+        CompletionValue completion = removeCompletionValue(key);
         if (completion != null) {
             completion.errorOut();
-        } else {
-            // If there's no completion object here, try in the multimap
-            completionObjectsV2Conflicts.removeAny(key).ifPresent(c -> c.errorOut());
         }
     }
 
@@ -1191,12 +1500,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Removing completion key: {}", key);
         }
-        CompletionValue completion = completionObjects.remove(key);
+        CompletionValue completion = removeCompletionValue(key);
         if (completion != null) {
             completion.errorOut(rc);
-        } else {
-            // If there's no completion object here, try in the multimap
-            completionObjectsV2Conflicts.removeAny(key).ifPresent(c -> c.errorOut(rc));
         }
     }
 
@@ -1225,11 +1531,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
      */
 
     void errorOutOutstandingEntries(int rc) {
-        Optional<CompletionKey> multikey = completionObjectsV2Conflicts.getAnyKey();
-        while (multikey.isPresent()) {
-            multikey.ifPresent(k -> errorOut(k, rc));
-            multikey = completionObjectsV2Conflicts.getAnyKey();
-        }
+        v2CompletionObjects.removeIf(completion -> {
+            completion.errorOut(rc);
+            return true;
+        });
         for (CompletionKey key : completionObjects.keys()) {
             errorOut(key, rc);
         }
@@ -1354,9 +1659,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         OperationType operationType = getOperationType(response.getOpCode());
         StatusCode status = getStatusCodeFromErrorCode(response.errorCode);
 
-        CompletionKey key = acquireV2Key(response.ledgerId, response.entryId, operationType);
-        CompletionValue completionValue = getCompletionValue(key);
-        key.release();
+        // Responses that are not bound to a ledger, such as auth, have no completion here
+        CompletionValue completionValue = response.ledgerId < 0 ? null
+                : v2CompletionObjects.remove(response.ledgerId, response.entryId, operationType.getNumber());
 
         if (null == completionValue) {
             // Unexpected response, so log it. The txnId should have been present.
@@ -1428,6 +1733,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 return  OperationType.ADD_ENTRY;
             case BookieProtocol.READENTRY:
                 return OperationType.READ_ENTRY;
+            case BookieProtocol.RANGE_READ_ENTRY:
+                return OperationType.RANGE_READ_ENTRY;
             case BookieProtocol.AUTH:
                 return OperationType.AUTH;
             case BookieProtocol.READ_LAC:
@@ -1597,7 +1904,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         private final OpStatsLogger opLogger;
         private final OpStatsLogger timeoutOpLogger;
         private final String operationName;
-        private final Map<String, String> mdcContextMap;
+        private Map<String, String> mdcContextMap;
         protected Object ctx;
         protected long ledgerId;
         protected long entryId;
@@ -1673,10 +1980,19 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             MdcUtils.restoreContext(mdcContextMap);
         }
 
+        protected void captureMdcContext() {
+            this.mdcContextMap = preserveMdcForTaskExecution ? MDC.getCopyOfContextMap() : null;
+        }
+
         public abstract void errorOut();
         public abstract void errorOut(int rc);
-        public void setOutstanding() {
-            // no-op
+
+        /**
+         * @return the counter of the outstanding operations of this type, incremented once the request is written,
+         *         or null if they are not counted
+         */
+        Counter getOutstandingCounter() {
+            return null;
         }
 
         protected void errorOutAndRunCallback(final Runnable callback) {
@@ -1865,28 +2181,61 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     }
 
     // visible for testing
-    class ReadCompletion extends CompletionValue {
-        final ReadEntryCallback cb;
+    private final Recycler<ReadCompletion> readCompletionRecycler = new Recycler<ReadCompletion>() {
+            @Override
+            protected ReadCompletion newObject(Recycler.Handle<ReadCompletion> handle) {
+                return new ReadCompletion(handle);
+            }
+        };
 
-        public ReadCompletion(final CompletionKey key,
-                              final ReadEntryCallback originalCallback,
-                              final Object originalCtx,
-                              long ledgerId, final long entryId) {
-            super("Read", originalCtx, ledgerId, entryId,
-                  readEntryOpLogger, readTimeoutOpLogger);
+    ReadCompletion acquireReadCompletion(final CompletionKey key,
+                                         final ReadEntryCallback originalCallback,
+                                         final Object originalCtx,
+                                         final long ledgerId, final long entryId) {
+        ReadCompletion completion = readCompletionRecycler.get();
+        completion.reset(key, originalCallback, originalCtx, ledgerId, entryId);
+        return completion;
+    }
 
-            this.cb = new ReadEntryCallback() {
-                    @Override
-                    public void readEntryComplete(int rc, long ledgerId,
-                                                  long entryId, ByteBuf buffer,
-                                                  Object ctx) {
-                        logOpResult(rc);
-                        originalCallback.readEntryComplete(rc,
-                                                           ledgerId, entryId,
-                                                           buffer, originalCtx);
-                        key.release();
-                    }
-                };
+    // visible for testing
+    class ReadCompletion extends CompletionValue implements ReadEntryCallback {
+        final Recycler.Handle<ReadCompletion> handle;
+
+        CompletionKey key = null;
+        ReadEntryCallback originalCallback = null;
+
+        ReadCompletion(Recycler.Handle<ReadCompletion> handle) {
+            super("Read", null, -1, -1, readEntryOpLogger, readTimeoutOpLogger);
+            this.handle = handle;
+        }
+
+        void reset(final CompletionKey key,
+                   final ReadEntryCallback originalCallback,
+                   final Object originalCtx,
+                   final long ledgerId, final long entryId) {
+            this.key = key;
+            this.originalCallback = originalCallback;
+            this.ctx = originalCtx;
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+            this.startTime = MathUtils.nowInNano();
+            captureMdcContext();
+        }
+
+        @Override
+        public void readEntryComplete(int rc, long ledgerId, long entryId, ByteBuf buffer, Object ctx) {
+            logOpResult(rc);
+            // a timed out read tells the bookie is slow as much as a slow response
+            if (pcbcPool != null && (rc == BKException.Code.OK || rc == BKException.Code.TimeoutException)) {
+                pcbcPool.recordReadLatency(latency());
+            }
+            originalCallback.readEntryComplete(rc, ledgerId, entryId, buffer, ctx);
+            key.release();
+            // don't retain the callback and context of the read while the completion is in the recycler
+            this.key = null;
+            this.originalCallback = null;
+            this.ctx = null;
+            handle.recycle(this);
         }
 
         @Override
@@ -1897,13 +2246,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         @Override
         public void errorOut(final int rc) {
             errorOutAndRunCallback(
-                    () -> cb.readEntryComplete(rc, ledgerId,
-                                               entryId, null, ctx));
+                    () -> readEntryComplete(rc, ledgerId,
+                                            entryId, null, ctx));
         }
 
         @Override
-        public void setOutstanding() {
-            readEntryOutstanding.inc();
+        Counter getOutstandingCounter() {
+            return readEntryOutstanding;
         }
 
         @Override
@@ -1916,7 +2265,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             }
             BookieProtocol.ReadResponse readResponse = (BookieProtocol.ReadResponse) response;
             handleReadResponse(ledgerId, entryId, status, readResponse.getData(),
-                               INVALID_ENTRY_ID, -1L);
+                               INVALID_ENTRY_ID, -1L, false);
         }
 
         @Override
@@ -1939,7 +2288,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             }
             handleReadResponse(readResponse.getLedgerId(),
                                readResponse.getEntryId(),
-                               status, buffer, maxLAC, lacUpdateTimestamp);
+                               status, buffer, maxLAC, lacUpdateTimestamp, readResponse.getChecksumVerified());
             ReferenceCountUtil.release(
                     buffer); // meaningless using unpooled, but client may expect to hold the last reference
         }
@@ -1949,7 +2298,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                         StatusCode status,
                                         ByteBuf buffer,
                                         long maxLAC, // max known lac piggy-back from bookies
-                                        long lacUpdateTimestamp) { // the timestamp when the lac is updated.
+                                        long lacUpdateTimestamp, // the timestamp when the lac is updated.
+                                        boolean checksumVerified) { // the bookie verified the checksum
             int readableBytes = buffer.readableBytes();
             if (LOG.isDebugEnabled()) {
                 logResponse(status, "ledger", ledgerId, "entry", entryId, "entryLength", readableBytes);
@@ -1960,10 +2310,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             if (maxLAC > INVALID_ENTRY_ID && (ctx instanceof ReadEntryCallbackCtx)) {
                 ((ReadEntryCallbackCtx) ctx).setLastAddConfirmed(maxLAC);
             }
+            if (checksumVerified && (ctx instanceof ReadEntryCallbackCtx)) {
+                ((ReadEntryCallbackCtx) ctx).setChecksumVerified(true);
+            }
             if (lacUpdateTimestamp > -1L && (ctx instanceof ReadLastConfirmedAndEntryContext)) {
                 ((ReadLastConfirmedAndEntryContext) ctx).setLacUpdateTimestamp(lacUpdateTimestamp);
             }
-            cb.readEntryComplete(rc, ledgerId, entryId, buffer.slice(), ctx);
+            readEntryComplete(rc, ledgerId, entryId, buffer.slice(), ctx);
         }
     }
 
@@ -2079,6 +2432,77 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    class RangeReadCompletion extends CompletionValue {
+        final ReadEntriesCallback cb;
+
+        public RangeReadCompletion(final CompletionKey key,
+                                   final ReadEntriesCallback originalCallback,
+                                   final Object originalCtx,
+                                   long ledgerId, final long firstEntryId) {
+            super("RangeRead", originalCtx, ledgerId, firstEntryId,
+                  rangeReadEntryOpLogger, rangeReadTimeoutOpLogger);
+            this.cb = (rc, ledgerId1, firstEntryId1, entries, ctx1) -> {
+                logOpResult(rc);
+                originalCallback.readEntriesComplete(rc, ledgerId1, firstEntryId1, entries, originalCtx);
+                key.release();
+            };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(
+                    () -> cb.readEntriesComplete(rc, ledgerId, entryId, Collections.emptyList(), ctx));
+        }
+
+        @Override
+        Counter getOutstandingCounter() {
+            return readEntryOutstanding;
+        }
+
+        @Override
+        public void handleV2Response(long ledgerId, long entryId,
+                                     StatusCode status,
+                                     BookieProtocol.Response response) {
+            readEntryOutstanding.dec();
+            if (!(response instanceof BookieProtocol.RangeReadResponse)) {
+                return;
+            }
+            handleRangeReadResponse(ledgerId, entryId, status,
+                    ((BookieProtocol.RangeReadResponse) response).getEntries());
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            readEntryOutstanding.dec();
+            RangeReadResponse rangeReadResponse = response.getRangeReadResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK
+                ? rangeReadResponse.getStatus() : response.getStatus();
+            List<ByteBuf> entries = new ArrayList<>(rangeReadResponse.getBodyCount());
+            for (ByteString body : rangeReadResponse.getBodyList()) {
+                entries.add(Unpooled.wrappedBuffer(body.asReadOnlyByteBuffer()));
+            }
+            handleRangeReadResponse(rangeReadResponse.getLedgerId(), rangeReadResponse.getFirstEntryId(),
+                    status, entries);
+        }
+
+        private void handleRangeReadResponse(long ledgerId, long firstEntryId, StatusCode status,
+                                             List<ByteBuf> entries) {
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledger", ledgerId, "firstEntry", firstEntryId, "entries", entries.size());
+            }
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            if (rc == BKException.Code.OK && entries.isEmpty()) {
+                rc = BKException.Code.ReadException;
+            }
+            cb.readEntriesComplete(rc, ledgerId, firstEntryId, entries, ctx);
+        }
+    }
+
     class GetListOfEntriesOfLedgerCompletion extends CompletionValue {
         final GetListOfEntriesOfLedgerCallback cb;
 
@@ -2179,6 +2603,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                   BookieId addr,
                                   Object ctx) {
             logOpResult(rc);
+            if (addBatchingEnabled) {
+                addsInFlight.decrementAndGet();
+            }
             originalCallback.writeComplete(rc, ledgerId, entryId, addr, ctx);
             key.release();
             handle.recycle(this);
@@ -2206,8 +2633,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
 
         @Override
-        public void setOutstanding() {
-            addEntryOutstanding.inc();
+        Counter getOutstandingCounter() {
+            return addEntryOutstanding;
         }
 
         @Override
@@ -2319,20 +2746,36 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     }
 
     private void putCompletionKeyValue(CompletionKey key, CompletionValue value) {
-        CompletionValue existingValue = completionObjects.putIfAbsent(key, value);
-        if (existingValue != null) { // will only happen for V2 keys, as V3 have unique txnid
-            // There's a pending read request on same ledger/entry. Use the multimap to track all of them
-            completionObjectsV2Conflicts.put(key, value);
+        if (key instanceof V2CompletionKey) {
+            // There can be several pending read requests on same ledger/entry, the multimap tracks all of them
+            V2CompletionKey v2Key = (V2CompletionKey) key;
+            v2CompletionObjects.put(v2Key.ledgerId, v2Key.entryId, v2Key.operationType.getNumber(), value);
+        } else {
+            completionObjects.put(key, value);
         }
     }
 
     private CompletionValue getCompletionValue(CompletionKey key) {
-        CompletionValue completionValue = completionObjects.remove(key);
-        if (completionValue == null) {
-            // If there's no completion object here, try in the multimap
-            completionValue = completionObjectsV2Conflicts.removeAny(key).orElse(null);
+        if (key instanceof V2CompletionKey) {
+            V2CompletionKey v2Key = (V2CompletionKey) key;
+            return v2CompletionObjects.get(v2Key.ledgerId, v2Key.entryId, v2Key.operationType.getNumber());
+        } else {
+            return completionObjects.get(key);
+        }
+    }
+
+    private Counter getOutstandingCounter(CompletionKey key) {
+        CompletionValue completion = getCompletionValue(key);
+        return completion != null ? completion.getOutstandingCounter() : null;
+    }
+
+    private CompletionValue removeCompletionValue(CompletionKey key) {
+        if (key instanceof V2CompletionKey) {
+            V2CompletionKey v2Key = (V2CompletionKey) key;
+            return v2CompletionObjects.remove(v2Key.ledgerId, v2Key.entryId, v2Key.operationType.getNumber());
+        } else {
+            return completionObjects.remove(key);
         }
-        return completionValue;
     }
 
     private long getTxnId() {
@@ -66,6 +66,24 @@ public interface PerChannelBookieClientPool {
      */
     void recordError();
 
+    /**
+     * Record the latency of a read completed by a channel of the pool.
+     *
+     * @param latencyNanos the time between sending the request and receiving its response
+     */
+    default void recordReadLatency(long latencyNanos) {
+    }
+
+    /**
+     * Estimate a percentile of the recent read latency of the bookie.
+     *
+     * @param quantile the percentile to estimate, between 0 and 1
+     * @return the estimated latency in nanoseconds, -1 if it is not known
+     */
+    default long getReadLatencyNanos(double quantile) {
+        return -1L;
+    }
+
     /**
      * Check if any ops on any channel needs to be timed out.
      * This is called on all channels, even if the channel is not yet connected.
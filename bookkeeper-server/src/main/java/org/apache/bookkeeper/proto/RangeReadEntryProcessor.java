@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookieProtocol.RangeReadRequest;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a v2 range read, returning consecutive entries of a ledger in a single response.
+ */
+class RangeReadEntryProcessor extends PacketProcessorBase<RangeReadRequest> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangeReadEntryProcessor.class);
+
+    private boolean throttleReadResponses;
+
+    static RangeReadEntryProcessor create(RangeReadRequest request,
+                                          BookieRequestHandler requestHandler,
+                                          BookieRequestProcessor requestProcessor,
+                                          boolean throttleReadResponses) {
+        RangeReadEntryProcessor rrep = new RangeReadEntryProcessor();
+        rrep.init(request, requestHandler, requestProcessor);
+        rrep.throttleReadResponses = throttleReadResponses;
+        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+        return rrep;
+    }
+
+    @Override
+    protected void processPacket() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received new range read request: {}", request);
+        }
+        if (!requestHandler.ctx().channel().isOpen()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropping range read request for closed channel: {}", requestHandler.ctx().channel());
+            }
+            requestProcessor.onReadRequestFinish();
+            return;
+        }
+        int errorCode = BookieProtocol.EOK;
+        long startTimeNanos = MathUtils.nowInNano();
+        List<ByteBuf> entries = null;
+        try {
+            entries = requestProcessor.getBookie().readEntries(request.getLedgerId(), request.getEntryId(),
+                    request.getMaxCount(), request.getMaxSize());
+        } catch (Bookie.NoLedgerException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.ENOLEDGER;
+        } catch (Bookie.NoEntryException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.ENOENTRY;
+        } catch (IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.EIO;
+        } catch (BookieException.DataUnknownException e) {
+            LOG.error("Ledger {} is in an unknown state", request.getLedgerId(), e);
+            errorCode = BookieProtocol.EUNKNOWNLEDGERSTATE;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger {}", request.getLedgerId(), e);
+            errorCode = BookieProtocol.EUA;
+        } catch (Throwable t) {
+            LOG.error("Unexpected exception reading at {}:{} : {}", request.getLedgerId(), request.getEntryId(),
+                      t.getMessage(), t);
+            errorCode = BookieProtocol.EBADREQ;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Range read rc = {} for {}", errorCode, request);
+        }
+
+        final RequestStats stats = requestProcessor.getRequestStats();
+        BookieProtocol.Response response;
+        if (errorCode == BookieProtocol.EOK) {
+            stats.getRangeReadEntryStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos),
+                    TimeUnit.NANOSECONDS);
+            stats.getRangeReadEntryCountStats().registerSuccessfulValue(entries.size());
+            response = ResponseBuilder.buildRangeReadResponse(entries, request);
+        } else {
+            stats.getRangeReadEntryStats().registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos),
+                    TimeUnit.NANOSECONDS);
+            response = ResponseBuilder.buildErrorResponse(errorCode, request);
+        }
+        sendReadReqResponse(errorCode, response, stats.getRangeReadRequestStats(), throttleReadResponses);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangeReadEntry(%d, %d, %d)", request.getLedgerId(), request.getEntryId(),
+                request.getMaxCount());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a v3 range read, returning consecutive entries of a ledger in a single response.
+ */
+class RangeReadEntryProcessorV3 extends PacketProcessorBaseV3 {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RangeReadEntryProcessorV3.class);
+
+    private final RangeReadRequest rangeReadRequest;
+    private final long ledgerId;
+    private final long firstEntryId;
+
+    RangeReadEntryProcessorV3(Request request, BookieRequestHandler requestHandler,
+                              BookieRequestProcessor requestProcessor) {
+        super(request, requestHandler, requestProcessor);
+        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+        this.rangeReadRequest = request.getRangeReadRequest();
+        this.ledgerId = rangeReadRequest.getLedgerId();
+        this.firstEntryId = rangeReadRequest.getFirstEntryId();
+    }
+
+    private RangeReadResponse getRangeReadResponse() {
+        final long startTimeNanos = MathUtils.nowInNano();
+        final RequestStats stats = requestProcessor.getRequestStats();
+        RangeReadResponse.Builder rangeReadResponse = RangeReadResponse.newBuilder()
+                .setLedgerId(ledgerId)
+                .setFirstEntryId(firstEntryId);
+
+        if (!isVersionCompatible()) {
+            stats.getRangeReadEntryStats().registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos),
+                    TimeUnit.NANOSECONDS);
+            return rangeReadResponse.setStatus(StatusCode.EBADVERSION).build();
+        }
+
+        StatusCode status = StatusCode.EOK;
+        long maxSize = rangeReadRequest.hasMaxSize() ? rangeReadRequest.getMaxSize() : Long.MAX_VALUE;
+        try {
+            List<ByteBuf> entries = requestProcessor.getBookie().readEntries(ledgerId, firstEntryId,
+                    rangeReadRequest.getMaxCount(), maxSize);
+            for (ByteBuf entry : entries) {
+                rangeReadResponse.addBody(ByteString.copyFrom(entry.nioBuffer()));
+                ReferenceCountUtil.release(entry);
+            }
+            stats.getRangeReadEntryCountStats().registerSuccessfulValue(entries.size());
+        } catch (Bookie.NoLedgerException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No ledger found while reading entry: {} from ledger: {}", firstEntryId, ledgerId);
+            }
+            status = StatusCode.ENOLEDGER;
+        } catch (Bookie.NoEntryException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No entry found while reading entry: {} from ledger: {}", firstEntryId, ledgerId);
+            }
+            status = StatusCode.ENOENTRY;
+        } catch (IOException e) {
+            LOG.error("IOException while reading entry: {} from ledger {} ", firstEntryId, ledgerId, e);
+            status = StatusCode.EIO;
+        } catch (BookieException.DataUnknownException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Ledger has unknown state for entry: {} from ledger {}", firstEntryId, ledgerId);
+            }
+            status = StatusCode.EUNKNOWNLEDGERSTATE;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger:{} while reading entry:{} in request from address: {}",
+                    ledgerId, firstEntryId, requestHandler.ctx().channel().remoteAddress());
+            status = StatusCode.EUA;
+        }
+
+        if (status == StatusCode.EOK) {
+            stats.getRangeReadEntryStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos),
+                    TimeUnit.NANOSECONDS);
+        } else {
+            stats.getRangeReadEntryStats().registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos),
+                    TimeUnit.NANOSECONDS);
+        }
+        return rangeReadResponse.setStatus(status).build();
+    }
+
+    @Override
+    public void run() {
+        requestProcessor.getRequestStats().getReadEntrySchedulingDelayStats().registerSuccessfulEvent(
+                MathUtils.elapsedNanos(enqueueNanos), TimeUnit.NANOSECONDS);
+        if (!requestHandler.ctx().channel().isOpen()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropping range read request for closed channel: {}", requestHandler.ctx().channel());
+            }
+            requestProcessor.onReadRequestFinish();
+            return;
+        }
+        sendResponse(getRangeReadResponse());
+    }
+
+    void sendResponse(RangeReadResponse rangeReadResponse) {
+        Response.Builder response = Response.newBuilder()
+                .setHeader(getHeader())
+                .setStatus(rangeReadResponse.getStatus())
+                .setRangeReadResponse(rangeReadResponse);
+        sendResponse(response.getStatus(), response.build(),
+                requestProcessor.getRequestStats().getRangeReadRequestStats());
+        requestProcessor.onReadRequestFinish();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangeReadEntryV3(%d, %d, %d)", ledgerId, firstEntryId,
+                rangeReadRequest.getMaxCount());
+    }
+}
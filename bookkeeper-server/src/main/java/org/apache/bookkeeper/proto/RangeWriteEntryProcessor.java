@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedAddRequest;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedRangeAddRequest;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a v2 range add, logging the entries to the journal as a single batch.
+ *
+ * <p>Every entry of the batch keeps its own {@link WriteEntryProcessor}, which is the journal
+ * callback of the entry and sends its add response. Entries that cannot go through the batch
+ * are handed to their own processor, so that they are added, or fail, exactly like single adds.
+ */
+class RangeWriteEntryProcessor extends PacketProcessorBase<ParsedRangeAddRequest> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangeWriteEntryProcessor.class);
+
+    private WriteEntryProcessor[] writes;
+
+    static RangeWriteEntryProcessor create(ParsedRangeAddRequest request, BookieRequestHandler requestHandler,
+                                           BookieRequestProcessor requestProcessor) {
+        RangeWriteEntryProcessor rwep = new RangeWriteEntryProcessor();
+        rwep.init(request, requestHandler, requestProcessor);
+        ParsedAddRequest[] adds = request.getAdds();
+        rwep.writes = new WriteEntryProcessor[adds.length];
+        for (int i = 0; i < adds.length; i++) {
+            rwep.writes[i] = WriteEntryProcessor.create(adds[i], requestHandler, requestProcessor);
+        }
+        requestProcessor.getRequestStats().getRangeAddEntryCountStats().registerSuccessfulValue(adds.length);
+        return rwep;
+    }
+
+    @Override
+    public void run() {
+        requestProcessor.getRequestStats().getWriteThreadQueuedLatency()
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(enqueueNanos), TimeUnit.NANOSECONDS);
+        processPacket();
+    }
+
+    @Override
+    protected void processPacket() {
+        ParsedAddRequest[] adds = request.getAdds();
+        Bookie bookie = requestProcessor.getBookie();
+        if (!canBatch(adds, bookie)) {
+            for (WriteEntryProcessor write : writes) {
+                write.run();
+            }
+            return;
+        }
+
+        ByteBuf[] entries = new ByteBuf[adds.length];
+        long startTimeNanos = MathUtils.nowInNano();
+        for (int i = 0; i < adds.length; i++) {
+            entries[i] = adds[i].getData();
+            writes[i].startTimeNanos = startTimeNanos;
+        }
+
+        int offset = 0;
+        try {
+            while (offset < adds.length) {
+                try {
+                    offset += bookie.addEntries(entries, writes, offset, adds.length - offset, requestHandler,
+                            adds[offset].getMasterKey());
+                } catch (IOException | BookieException | RuntimeException e) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Adding {} on its own after a batch failure", adds[offset], e);
+                    }
+                    // The entry was not added: its own processor adds it again and reports the error
+                    entries[offset] = null;
+                    writes[offset].processPacket();
+                    offset++;
+                }
+            }
+        } catch (InterruptedException e) {
+            // The journal is shutting down, the client will time out the entries left
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while writing {}", request, e);
+        } finally {
+            for (ByteBuf entry : entries) {
+                if (entry != null) {
+                    ReferenceCountUtil.release(entry);
+                }
+            }
+        }
+    }
+
+    private boolean canBatch(ParsedAddRequest[] adds, Bookie bookie) {
+        if (!isVersionCompatible() || bookie.isReadOnly()) {
+            return false;
+        }
+        for (ParsedAddRequest add : adds) {
+            if (add.isRecoveryAdd()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reject all the entries of the batch, when it cannot be scheduled.
+     */
+    void sendErrorResponses(int rc) {
+        long startTimeNanos = MathUtils.nowInNano();
+        for (int i = 0; i < writes.length; i++) {
+            request.getAdds()[i].release();
+            writes[i].startTimeNanos = startTimeNanos;
+            writes[i].sendErrorResponse(rc);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangeWriteEntry(%d, %d, %d)", request.getLedgerId(), request.getEntryId(),
+                request.getAdds().length);
+    }
+}
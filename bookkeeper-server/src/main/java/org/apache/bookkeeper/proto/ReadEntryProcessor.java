@@ -18,6 +18,10 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
@@ -28,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.EntryReadResult;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.proto.BookieProtocol.ReadRequest;
 import org.apache.bookkeeper.stats.OpStatsLogger;
@@ -84,7 +89,17 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
                     throw BookieException.create(BookieException.Code.UnauthorizedAccessException);
                 }
             }
-            data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            if (fenceResult == null && canSendFileRegion()) {
+                EntryReadResult result = requestProcessor.getBookie().readEntryOrRegion(request.getLedgerId(),
+                        request.getEntryId(), requestProcessor.getZeroCopyReadMinEntrySize());
+                if (result.getRegion() != null) {
+                    sendFileRegionResponse(result.getRegion(), startTimeNanos);
+                    return;
+                }
+                data = result.getEntry();
+            } else {
+                data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("##### Read entry ##### {} -- ref-count: {}", data.readableBytes(), data.refCnt());
             }
@@ -144,6 +159,27 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         recycle();
     }
 
+    /**
+     * The entry can be sent from a file region when the channel writes it with sendfile, which
+     * excludes the TLS connections where it has to be encrypted in memory.
+     */
+    private boolean canSendFileRegion() {
+        if (!requestProcessor.isZeroCopyReadEnabled()) {
+            return false;
+        }
+        Channel channel = requestHandler.ctx().channel();
+        return channel instanceof SocketChannel && channel.pipeline().get(SslHandler.class) == null;
+    }
+
+    private void sendFileRegionResponse(FileRegion region, long startTimeNanos) {
+        final RequestStats stats = requestProcessor.getRequestStats();
+        stats.getReadEntryStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos),
+                TimeUnit.NANOSECONDS);
+        sendReadReqResponse(BookieProtocol.EOK, ResponseBuilder.buildReadResponse(region, request),
+                stats.getReadRequestStats(), throttleReadResponses);
+        recycle();
+    }
+
     private void sendFenceResponse(Boolean result, ByteBuf data, long startTimeNanos) {
         final int retCode = result != null && result ? BookieProtocol.EOK : BookieProtocol.EIO;
         sendResponse(data, retCode, startTimeNanos);
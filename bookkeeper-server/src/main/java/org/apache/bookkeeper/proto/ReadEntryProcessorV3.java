@@ -28,6 +28,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.EntryReadResult;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
@@ -170,13 +171,25 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                                      boolean readLACPiggyBack,
                                      Stopwatch startTimeSw)
         throws IOException, BookieException {
-        ByteBuf entryBody = requestProcessor.getBookie().readEntry(ledgerId, entryId);
+        ByteBuf entryBody;
+        boolean checksumVerified = false;
+        if (readRequest.getReportChecksumVerified()) {
+            // the flag comes with the entry, so it describes the bytes that are sent
+            EntryReadResult result = requestProcessor.getBookie().readEntryResult(ledgerId, entryId);
+            entryBody = result.getEntry();
+            checksumVerified = result.isChecksumVerified();
+        } else {
+            entryBody = requestProcessor.getBookie().readEntry(ledgerId, entryId);
+        }
         if (null != fenceResult) {
             handleReadResultForFenceRead(entryBody, readResponseBuilder, entryId, startTimeSw);
             return null;
         } else {
             try {
                 readResponseBuilder.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
+                if (checksumVerified) {
+                    readResponseBuilder.setChecksumVerified(true);
+                }
                 if (readLACPiggyBack) {
                     readResponseBuilder.setEntryId(entryId);
                 } else {
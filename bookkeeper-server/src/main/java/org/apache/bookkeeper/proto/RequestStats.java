@@ -26,6 +26,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_IN_PR
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_REJECTED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_FLUSHES_SAVED;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_FLUSH_SIZE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_WRITE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FORCE_LEDGER;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FORCE_LEDGER_REQUEST;
@@ -33,6 +35,10 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_ADD_ENTRY_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED_WAIT;
@@ -225,6 +231,16 @@ public class RequestStats {
         help = "channel write stats on a bookie"
     )
     final OpStatsLogger channelWriteStats;
+    @StatsDoc(
+        name = CHANNEL_FLUSH_SIZE,
+        help = "the number of responses sent by a consolidated channel flush on a bookie"
+    )
+    final OpStatsLogger channelFlushSizeStats;
+    @StatsDoc(
+        name = CHANNEL_FLUSHES_SAVED,
+        help = "the number of response flushes saved by flush consolidation on a bookie"
+    )
+    final Counter channelFlushesSavedCounter;
     @StatsDoc(
         name = ADD_ENTRY_BLOCKED,
         help = "operation stats of AddEntry blocked on a bookie"
@@ -246,6 +262,29 @@ public class RequestStats {
             parent = GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST
     )
     final OpStatsLogger getListOfEntriesOfLedgerStats;
+    @StatsDoc(
+            name = RANGE_READ_ENTRY_REQUEST,
+            help = "request stats of RangeReadEntry on a bookie"
+    )
+    final OpStatsLogger rangeReadRequestStats;
+    @StatsDoc(
+            name = RANGE_READ_ENTRY,
+            help = "operation stats of RangeReadEntry on a bookie",
+            parent = RANGE_READ_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeReadEntryStats;
+    @StatsDoc(
+            name = RANGE_READ_ENTRY_COUNT,
+            help = "the number of entries returned by a RangeReadEntry on a bookie",
+            parent = RANGE_READ_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeReadEntryCountStats;
+    @StatsDoc(
+            name = RANGE_ADD_ENTRY_COUNT,
+            help = "the number of entries carried by a RangeAddEntry on a bookie",
+            parent = ADD_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeAddEntryCountStats;
 
     public RequestStats(StatsLogger statsLogger) {
         this.addEntryStats = statsLogger.getThreadScopedOpStatsLogger(ADD_ENTRY);
@@ -273,6 +312,8 @@ public class RequestStats {
         this.getBookieInfoStats = statsLogger.getOpStatsLogger(GET_BOOKIE_INFO);
         this.getBookieInfoRequestStats = statsLogger.getOpStatsLogger(GET_BOOKIE_INFO_REQUEST);
         this.channelWriteStats = statsLogger.getOpStatsLogger(CHANNEL_WRITE);
+        this.channelFlushSizeStats = statsLogger.getOpStatsLogger(CHANNEL_FLUSH_SIZE);
+        this.channelFlushesSavedCounter = statsLogger.getCounter(CHANNEL_FLUSHES_SAVED);
 
         this.addEntryBlockedStats = statsLogger.getOpStatsLogger(ADD_ENTRY_BLOCKED_WAIT);
         this.readEntryBlockedStats = statsLogger.getOpStatsLogger(READ_ENTRY_BLOCKED_WAIT);
@@ -280,6 +321,10 @@ public class RequestStats {
         this.getListOfEntriesOfLedgerStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER);
         this.getListOfEntriesOfLedgerRequestStats =
                 statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST);
+        this.rangeReadRequestStats = statsLogger.getOpStatsLogger(RANGE_READ_ENTRY_REQUEST);
+        this.rangeReadEntryStats = statsLogger.getOpStatsLogger(RANGE_READ_ENTRY);
+        this.rangeReadEntryCountStats = statsLogger.getOpStatsLogger(RANGE_READ_ENTRY_COUNT);
+        this.rangeAddEntryCountStats = statsLogger.getOpStatsLogger(RANGE_ADD_ENTRY_COUNT);
 
         statsLogger.registerGauge(ADD_ENTRY_IN_PROGRESS, new Gauge<Number>() {
             @Override
@@ -21,12 +21,17 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import java.util.List;
 
 class ResponseBuilder {
     static BookieProtocol.Response buildErrorResponse(int errorCode, BookieProtocol.Request r) {
         if (r.getOpCode() == BookieProtocol.ADDENTRY) {
             return BookieProtocol.AddResponse.create(r.getProtocolVersion(), errorCode,
                                                   r.getLedgerId(), r.getEntryId());
+        } else if (r.getOpCode() == BookieProtocol.RANGE_READ_ENTRY) {
+            return new BookieProtocol.RangeReadResponse(r.getProtocolVersion(), errorCode,
+                                                        r.getLedgerId(), r.getEntryId());
         } else {
             assert(r.getOpCode() == BookieProtocol.READENTRY);
             return new BookieProtocol.ReadResponse(r.getProtocolVersion(), errorCode,
@@ -43,4 +48,14 @@ class ResponseBuilder {
         return new BookieProtocol.ReadResponse(r.getProtocolVersion(), BookieProtocol.EOK,
                 r.getLedgerId(), r.getEntryId(), data);
     }
+
+    static BookieProtocol.Response buildRangeReadResponse(List<ByteBuf> entries, BookieProtocol.Request r) {
+        return new BookieProtocol.RangeReadResponse(r.getProtocolVersion(), BookieProtocol.EOK,
+                r.getLedgerId(), r.getEntryId(), entries);
+    }
+
+    static BookieProtocol.Response buildReadResponse(FileRegion region, BookieProtocol.Request r) {
+        return new BookieProtocol.FileRegionReadResponse(r.getProtocolVersion(),
+                r.getLedgerId(), r.getEntryId(), region);
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+
+/**
+ * Consolidates the flushes of the responses sent on a bookie channel, so that the responses completed
+ * together reach the socket with a single syscall.
+ *
+ * <p>Like netty's {@code FlushConsolidationHandler}, the flushes issued while reading are held until the
+ * read completes. Other flushes, which come from the threads completing requests, are held until the end of
+ * the current event loop tick, or until {@code delayMicros} when it is set. In all cases the responses are
+ * flushed once {@code maxPendingFlushes} flushes are held.
+ *
+ * <p>The flushes are never held while the channel is not writable: the responses are already backing up,
+ * and holding them could only delay the recovery of the channel and push the request processor into its
+ * backpressure handling.
+ */
+class ResponseFlushConsolidationHandler extends ChannelDuplexHandler {
+
+    private final int maxPendingFlushes;
+    private final long delayNanos;
+    private final OpStatsLogger flushSizeStats;
+    private final Counter flushesSavedCounter;
+    private final Runnable flushTask;
+
+    private ChannelHandlerContext ctx;
+    private int pendingFlushes;
+    private boolean readInProgress;
+    private Future<?> nextScheduledFlush;
+
+    ResponseFlushConsolidationHandler(int maxPendingFlushes, long delayMicros,
+                                      OpStatsLogger flushSizeStats, Counter flushesSavedCounter) {
+        checkArgument(maxPendingFlushes > 0, "maxPendingFlushes should be positive");
+        checkArgument(delayMicros >= 0, "delayMicros should not be negative");
+        this.maxPendingFlushes = maxPendingFlushes;
+        this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        this.flushSizeStats = flushSizeStats;
+        this.flushesSavedCounter = flushesSavedCounter;
+        this.flushTask = () -> {
+            nextScheduledFlush = null;
+            if (pendingFlushes > 0 && !readInProgress) {
+                flushNow(ctx);
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (++pendingFlushes >= maxPendingFlushes || !ctx.channel().isWritable()) {
+            flushNow(ctx);
+        } else if (!readInProgress) {
+            scheduleFlush(ctx);
+        }
+        // else the flush happens when the read completes
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (nextScheduledFlush != null) {
+            nextScheduledFlush.cancel(false);
+            nextScheduledFlush = null;
+        }
+        flushSizeStats.registerSuccessfulValue(pendingFlushes);
+        if (pendingFlushes > 1) {
+            flushesSavedCounter.addCount(pendingFlushes - 1);
+        }
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (nextScheduledFlush == null) {
+            if (delayNanos > 0) {
+                nextScheduledFlush = ctx.channel().eventLoop().schedule(flushTask, delayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                // Run after the tasks already queued on the event loop, which include the pending writes
+                nextScheduledFlush = ctx.channel().eventLoop().submit(flushTask);
+            }
+        }
+    }
+}
@@ -21,18 +21,39 @@ package org.apache.bookkeeper.proto.checksum;
 import com.scurrilous.circe.checksum.Crc32cIntChecksum;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import java.util.concurrent.Executor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 class CRC32CDigestManager extends DigestManager {
 
+    static final int MAC_CODE_LENGTH = 4;
+
+    // large entries are checksummed by chunks in parallel, below this size the hand-off costs more than it saves
+    static final int PARALLEL_CHECKSUM_MIN_LENGTH = 1024 * 1024;
+    static final int PARALLEL_CHECKSUM_CHUNK_SIZE = 256 * 1024;
+
+    // null when the parallel checksums are disabled
+    private final Executor parallelChecksumExecutor;
+
     public CRC32CDigestManager(long ledgerId, boolean useV2Protocol, ByteBufAllocator allocator) {
+        this(ledgerId, useV2Protocol, allocator, null);
+    }
+
+    public CRC32CDigestManager(long ledgerId, boolean useV2Protocol, ByteBufAllocator allocator,
+                               Executor parallelChecksumExecutor) {
         super(ledgerId, useV2Protocol, allocator);
+        this.parallelChecksumExecutor = parallelChecksumExecutor;
     }
 
     @Override
     int getMacCodeLength() {
-        return 4;
+        return MAC_CODE_LENGTH;
+    }
+
+    @Override
+    public boolean isVerifiableByBookies() {
+        return true;
     }
 
     @Override
@@ -47,6 +68,10 @@ class CRC32CDigestManager extends DigestManager {
 
     @Override
     int update(int digest, ByteBuf data, int offset, int len) {
+        if (parallelChecksumExecutor != null && len >= PARALLEL_CHECKSUM_MIN_LENGTH) {
+            return Crc32cIntChecksum.resumeChecksumParallel(digest, data, offset, len, PARALLEL_CHECKSUM_CHUNK_SIZE,
+                    parallelChecksumExecutor);
+        }
         return Crc32cIntChecksum.resumeChecksum(digest, data, offset, len);
     }
 }
@@ -17,6 +17,7 @@
  */
 package org.apache.bookkeeper.proto.checksum;
 
+import com.scurrilous.circe.checksum.Crc32cIntChecksum;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
@@ -28,6 +29,7 @@ import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executor;
 import org.apache.bookkeeper.client.BKException.BKDigestMatchException;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.proto.BookieProtoEncoding;
@@ -73,13 +75,23 @@ public abstract class DigestManager {
 
     public static DigestManager instantiate(long ledgerId, byte[] passwd, DigestType digestType,
             ByteBufAllocator allocator, boolean useV2Protocol) throws GeneralSecurityException {
+        return instantiate(ledgerId, passwd, digestType, allocator, useV2Protocol, null);
+    }
+
+    /**
+     * Instantiate a digest manager, whose CRC32C checksums of large entries are computed by chunks in parallel
+     * with the help of the given executor, if it is not null.
+     */
+    public static DigestManager instantiate(long ledgerId, byte[] passwd, DigestType digestType,
+            ByteBufAllocator allocator, boolean useV2Protocol, Executor parallelChecksumExecutor)
+            throws GeneralSecurityException {
         switch(digestType) {
         case HMAC:
             return new MacDigestManager(ledgerId, passwd, useV2Protocol, allocator);
         case CRC32:
             return new CRC32DigestManager(ledgerId, useV2Protocol, allocator);
         case CRC32C:
-            return new CRC32CDigestManager(ledgerId, useV2Protocol, allocator);
+            return new CRC32CDigestManager(ledgerId, useV2Protocol, allocator, parallelChecksumExecutor);
         case DUMMY:
             return new DummyDigestManager(ledgerId, useV2Protocol, allocator);
         default:
@@ -243,13 +255,7 @@ public abstract class DigestManager {
     private void verifyDigest(long entryId, ByteBuf dataReceived, boolean skipEntryIdCheck)
             throws BKDigestMatchException {
 
-        if ((METADATA_LENGTH + macCodeLength) > dataReceived.readableBytes()) {
-            logger.error("Data received is smaller than the minimum for this digest type. "
-                    + " Either the packet it corrupt, or the wrong digest is configured. "
-                    + " Digest type: {}, Packet Length: {}",
-                    this.getClass().getName(), dataReceived.readableBytes());
-            throw new BKDigestMatchException();
-        }
+        checkEntryLength(dataReceived);
         int digest = update(0, dataReceived, 0, METADATA_LENGTH);
 
         int offset = METADATA_LENGTH + macCodeLength;
@@ -272,6 +278,21 @@ public abstract class DigestManager {
             }
         }
 
+        verifyEntryId(entryId, dataReceived, skipEntryIdCheck);
+    }
+
+    private void checkEntryLength(ByteBuf dataReceived) throws BKDigestMatchException {
+        if ((METADATA_LENGTH + macCodeLength) > dataReceived.readableBytes()) {
+            logger.error("Data received is smaller than the minimum for this digest type. "
+                    + " Either the packet it corrupt, or the wrong digest is configured. "
+                    + " Digest type: {}, Packet Length: {}",
+                    this.getClass().getName(), dataReceived.readableBytes());
+            throw new BKDigestMatchException();
+        }
+    }
+
+    private void verifyEntryId(long entryId, ByteBuf dataReceived, boolean skipEntryIdCheck)
+            throws BKDigestMatchException {
         long actualLedgerId = dataReceived.readLong();
         long actualEntryId = dataReceived.readLong();
 
@@ -286,7 +307,6 @@ public abstract class DigestManager {
                          + actualEntryId);
             throw new BKDigestMatchException();
         }
-
     }
 
     public long verifyDigestAndReturnLac(ByteBuf dataReceived) throws BKDigestMatchException{
@@ -342,6 +362,48 @@ public abstract class DigestManager {
         return dataReceived;
     }
 
+    /**
+     * Returns the data of an entry whose digest was already verified by the bookie it was read from, only checking
+     * that it is the expected entry.
+     *
+     * @see #isVerifiableByBookies()
+     */
+    public ByteBuf verifyEntryIdAndReturnData(long entryId, ByteBuf dataReceived)
+            throws BKDigestMatchException {
+        checkEntryLength(dataReceived);
+        verifyEntryId(entryId, dataReceived, false);
+        dataReceived.readerIndex(METADATA_LENGTH + macCodeLength);
+        return dataReceived;
+    }
+
+    /**
+     * Whether the bookies can verify the digest of the entries, which they do with {@link #verifyCrc32cDigest(ByteBuf)}
+     * without knowing the digest type of the ledgers. Only the CRC32C digests can be verified.
+     */
+    public boolean isVerifiableByBookies() {
+        return false;
+    }
+
+    /**
+     * Verify the digest of an entry assuming it is a CRC32C digest. The entries with other digest types fail the
+     * verification, but for a 2^-32 chance, so its result is only trusted for the ledgers using CRC32C digests.
+     *
+     * @param entry the entry, as stored by the bookies
+     * @return true if the entry has a valid CRC32C digest
+     */
+    public static boolean verifyCrc32cDigest(ByteBuf entry) {
+        int offset = entry.readerIndex();
+        int length = entry.readableBytes();
+        if (length < METADATA_LENGTH + CRC32CDigestManager.MAC_CODE_LENGTH) {
+            return false;
+        }
+        // same computation as CRC32CDigestManager, which resumes from 0
+        int digest = Crc32cIntChecksum.resumeChecksum(0, entry, offset, METADATA_LENGTH);
+        int payloadOffset = METADATA_LENGTH + CRC32CDigestManager.MAC_CODE_LENGTH;
+        digest = Crc32cIntChecksum.resumeChecksum(digest, entry, offset + payloadOffset, length - payloadOffset);
+        return digest == entry.getInt(offset + METADATA_LENGTH);
+    }
+
     /**
      * A representation of RecoveryData.
      */
@@ -25,7 +25,6 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import lombok.Setter;
 import lombok.experimental.Accessors;
-import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieResources;
 import org.apache.bookkeeper.bookie.CheckpointSource;
 import org.apache.bookkeeper.bookie.Checkpointer;
@@ -140,14 +139,15 @@ public class ConvertToInterleavedStorageCommand extends BookieCommand<ConvertToI
             }
 
             long lastEntryInLedger = dbStorage.getLastEntryInLedger(ledgerId);
-            for (long entryId = 0; entryId <= lastEntryInLedger; entryId++) {
-                try {
-                    long location = dbStorage.getLocation(ledgerId, entryId);
-                    if (location != 0L) {
-                        interleavedLedgerCache.putEntryOffset(ledgerId, entryId, location);
+            for (long firstEntryId = 0; firstEntryId <= lastEntryInLedger;
+                 firstEntryId += DbLedgerStorage.LOCATIONS_LOOKUP_BATCH_SIZE) {
+                int count = (int) Math.min(DbLedgerStorage.LOCATIONS_LOOKUP_BATCH_SIZE,
+                        lastEntryInLedger - firstEntryId + 1);
+                long[] locations = dbStorage.getLocations(ledgerId, firstEntryId, count);
+                for (int i = 0; i < count; i++) {
+                    if (locations[i] != 0L) {
+                        interleavedLedgerCache.putEntryOffset(ledgerId, firstEntryId + i, locations[i]);
                     }
-                } catch (Bookie.NoEntryException e) {
-                    // Ignore entry
                 }
             }
 
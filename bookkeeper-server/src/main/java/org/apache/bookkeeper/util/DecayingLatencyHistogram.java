@@ -0,0 +1,204 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A latency histogram whose samples lose weight over time, to estimate the percentiles of the recent
+ * latency.
+ *
+ * <p>Latencies are counted in log-linear buckets, 8 per power of two, from 1 microsecond to about a minute,
+ * so a percentile is estimated within 12.5%. The weight of a sample halves every {@code halfLife}.
+ *
+ * <p>Recording a sample only increments a {@link LongAdder}. The decayed counts are an immutable snapshot,
+ * which folds in the new samples every {@code halfLife / 8}, so the queries never block the recording and
+ * only see the samples of the last refresh. The last estimated percentile is cached with its snapshot.
+ */
+public class DecayingLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_GROUPS = 24;
+    private static final int NUM_BUCKETS = NUM_GROUPS * SUB_BUCKETS;
+
+    private final LongSupplier clock;
+    private final long halfLifeNanos;
+    // the weights are decayed in steps, to not pay it on every sample
+    private final long decayIntervalNanos;
+    // the number of samples recorded in every bucket since the histogram was created
+    private final LongAdder[] samples = new LongAdder[NUM_BUCKETS];
+    // the samples of every bucket already folded in the snapshot, only accessed while refreshing
+    private final long[] foldedSamples = new long[NUM_BUCKETS];
+    private volatile Snapshot snapshot;
+    private volatile Quantile lastQuantile;
+
+    private static final class Snapshot {
+        final double[] counts;
+        final double totalCount;
+        final long timeNanos;
+
+        Snapshot(double[] counts, double totalCount, long timeNanos) {
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.timeNanos = timeNanos;
+        }
+    }
+
+    private static final class Quantile {
+        final Snapshot snapshot;
+        final double quantile;
+        final double minCount;
+        final long valueNanos;
+
+        Quantile(Snapshot snapshot, double quantile, double minCount, long valueNanos) {
+            this.snapshot = snapshot;
+            this.quantile = quantile;
+            this.minCount = minCount;
+            this.valueNanos = valueNanos;
+        }
+    }
+
+    public DecayingLatencyHistogram(long halfLife, TimeUnit unit) {
+        this(halfLife, unit, MathUtils::nowInNano);
+    }
+
+    @VisibleForTesting
+    DecayingLatencyHistogram(long halfLife, TimeUnit unit, LongSupplier clock) {
+        checkArgument(halfLife > 0, "halfLife should be positive");
+        this.clock = clock;
+        this.halfLifeNanos = unit.toNanos(halfLife);
+        this.decayIntervalNanos = Math.max(1, halfLifeNanos / 8);
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            samples[i] = new LongAdder();
+        }
+        this.snapshot = new Snapshot(new double[NUM_BUCKETS], 0, clock.getAsLong());
+    }
+
+    public void record(long latencyNanos) {
+        samples[bucketOf(TimeUnit.NANOSECONDS.toMicros(latencyNanos))].increment();
+    }
+
+    /**
+     * Get the decayed number of samples, which is about the number of samples of the last {@code halfLife}
+     * times 1.44.
+     */
+    public double getCount() {
+        return getSnapshot().totalCount;
+    }
+
+    /**
+     * Estimate a percentile of the recent latency.
+     *
+     * @param quantile the percentile to estimate, between 0 and 1
+     * @param minCount the decayed number of samples needed for an estimate
+     * @return the estimated latency in nanoseconds, or -1 if there are not enough samples
+     */
+    public long getQuantileNanos(double quantile, double minCount) {
+        checkArgument(quantile >= 0 && quantile <= 1, "quantile should be between 0 and 1");
+        Snapshot current = getSnapshot();
+        Quantile last = lastQuantile;
+        if (last != null && last.snapshot == current && last.quantile == quantile && last.minCount == minCount) {
+            return last.valueNanos;
+        }
+        long valueNanos = computeQuantileNanos(current, quantile, minCount);
+        lastQuantile = new Quantile(current, quantile, minCount, valueNanos);
+        return valueNanos;
+    }
+
+    private static long computeQuantileNanos(Snapshot snapshot, double quantile, double minCount) {
+        double totalCount = snapshot.totalCount;
+        if (totalCount <= 0 || totalCount < minCount) {
+            return -1L;
+        }
+        double[] counts = snapshot.counts;
+        double rank = quantile * totalCount;
+        double cumulativeCount = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= rank && counts[i] > 0) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(NUM_BUCKETS - 1));
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (clock.getAsLong() - current.timeNanos < decayIntervalNanos) {
+            return current;
+        }
+        return refresh();
+    }
+
+    /**
+     * Decay the counts of the snapshot and fold in the samples recorded since it was taken.
+     */
+    private synchronized Snapshot refresh() {
+        Snapshot current = snapshot;
+        long now = clock.getAsLong();
+        long elapsedNanos = now - current.timeNanos;
+        if (elapsedNanos < decayIntervalNanos) {
+            // refreshed by another thread
+            return current;
+        }
+        double factor = Math.pow(0.5, (double) elapsedNanos / halfLifeNanos);
+        double[] counts = new double[NUM_BUCKETS];
+        double totalCount = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            long bucketSamples = samples[i].sum();
+            long newSamples = bucketSamples - foldedSamples[i];
+            foldedSamples[i] = bucketSamples;
+            counts[i] = current.counts[i] * factor + newSamples;
+            totalCount += counts[i];
+        }
+        Snapshot refreshed = new Snapshot(counts, totalCount, now);
+        snapshot = refreshed;
+        return refreshed;
+    }
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int group = exponent - SUB_BUCKET_BITS + 1;
+        if (group >= NUM_GROUPS) {
+            return NUM_BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return group * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        int group = bucket / SUB_BUCKETS;
+        int subBucket = bucket % SUB_BUCKETS;
+        if (group == 0) {
+            return subBucket + 1;
+        }
+        return (long) (SUB_BUCKETS + subBucket + 1) << (group - 1);
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util.collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent multimap where the keys are composed of two longs and an int.
+ *
+ * <p>(long,long,int) --&gt; V
+ *
+ * <p>Keys are stored in long arrays and looked up without boxing or allocating a key object. Unlike a map, a key can
+ * be stored several times, and each value is stored once per {@link #put}. Operations on a key apply to any one of
+ * its values.
+ *
+ * <p>The first key <strong>MUST</strong> be &gt;= 0.
+ */
+public class ConcurrentLongLongIntMultiMap<V> {
+
+    private static final long EmptyKey = -1L;
+    private static final long DeletedKey = -2L;
+
+    private static final int DefaultExpectedItems = 256;
+    private static final int DefaultConcurrencyLevel = 16;
+
+    private static final float MapFillFactor = 0.66f;
+
+    private final Section<V>[] sections;
+
+    public static <V> Builder<V> newBuilder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Builder of ConcurrentLongLongIntMultiMap.
+     */
+    public static class Builder<V> {
+        int expectedItems = DefaultExpectedItems;
+        int concurrencyLevel = DefaultConcurrencyLevel;
+
+        public Builder<V> expectedItems(int expectedItems) {
+            this.expectedItems = expectedItems;
+            return this;
+        }
+
+        public Builder<V> concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public ConcurrentLongLongIntMultiMap<V> build() {
+            return new ConcurrentLongLongIntMultiMap<>(expectedItems, concurrencyLevel);
+        }
+    }
+
+    /**
+     * A consumer of the keys and value of an entry.
+     */
+    public interface EntryConsumer<V> {
+        void accept(long key1, long key2, int key3, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentLongLongIntMultiMap(int expectedItems, int concurrencyLevel) {
+        checkArgument(expectedItems > 0);
+        checkArgument(concurrencyLevel > 0);
+        checkArgument(expectedItems >= concurrencyLevel);
+
+        int numSections = concurrencyLevel;
+        int perSectionExpectedItems = expectedItems / numSections;
+        int perSectionCapacity = (int) (perSectionExpectedItems / MapFillFactor);
+        this.sections = (Section<V>[]) new Section[numSections];
+
+        for (int i = 0; i < numSections; i++) {
+            sections[i] = new Section<>(perSectionCapacity);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Section<V> s : sections) {
+            size += s.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Section<V> s : sections) {
+            if (s.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return any of the values stored for the key, or null if the key is not present
+     */
+    public V get(long key1, long key2, int key3) {
+        checkBiggerEqualZero(key1);
+        long h = hash(key1, key2, key3);
+        return getSection(h).get(key1, key2, key3, (int) h);
+    }
+
+    /**
+     * Store a value for the key, regardless of the values already stored for it.
+     */
+    public void put(long key1, long key2, int key3, V value) {
+        checkBiggerEqualZero(key1);
+        checkArgument(value != null);
+        long h = hash(key1, key2, key3);
+        getSection(h).put(key1, key2, key3, value, (int) h);
+    }
+
+    /**
+     * Remove one of the values stored for the key.
+     *
+     * @return the removed value, or null if the key was not present
+     */
+    public V remove(long key1, long key2, int key3) {
+        checkBiggerEqualZero(key1);
+        long h = hash(key1, key2, key3);
+        return getSection(h).remove(key1, key2, key3, null, (int) h);
+    }
+
+    /**
+     * Remove the given value of the key, if it is stored.
+     */
+    public boolean remove(long key1, long key2, int key3, V value) {
+        checkBiggerEqualZero(key1);
+        checkArgument(value != null);
+        long h = hash(key1, key2, key3);
+        return getSection(h).remove(key1, key2, key3, value, (int) h) != null;
+    }
+
+    /**
+     * Remove all the values matching the filter. The filter is invoked while holding the lock of a section.
+     *
+     * @return the number of removed values
+     */
+    public int removeIf(Predicate<V> filter) {
+        int removedCount = 0;
+        for (Section<V> s : sections) {
+            removedCount += s.removeIf(filter);
+        }
+        return removedCount;
+    }
+
+    public void forEach(EntryConsumer<V> processor) {
+        for (Section<V> s : sections) {
+            s.forEach(processor);
+        }
+    }
+
+    public void clear() {
+        for (Section<V> s : sections) {
+            s.clear();
+        }
+    }
+
+    private Section<V> getSection(long hash) {
+        // Use 32 msb out of long to get the section
+        final int sectionIdx = (int) (hash >>> 32) & (sections.length - 1);
+        return sections[sectionIdx];
+    }
+
+    // A section is a portion of the hash map that is covered by a single
+    @SuppressWarnings("serial")
+    private static final class Section<V> extends StampedLock {
+        // Each bucket uses 3 consecutive longs of the keys array: (key1, key2, key3)
+        private volatile long[] keys;
+        private volatile Object[] values;
+
+        private volatile int capacity;
+        private volatile int size;
+        private int usedBuckets;
+        private int resizeThreshold;
+
+        Section(int capacity) {
+            this.capacity = alignToPowerOfTwo(capacity);
+            this.keys = new long[3 * this.capacity];
+            this.values = new Object[this.capacity];
+            this.size = 0;
+            this.usedBuckets = 0;
+            this.resizeThreshold = (int) (this.capacity * MapFillFactor);
+            Arrays.fill(keys, EmptyKey);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key1, long key2, int key3, int keyHash) {
+            long stamp = tryOptimisticRead();
+            boolean acquiredLock = false;
+            // The values are read first: a rehash replaces them after the keys, and tables only grow
+            Object[] values = this.values;
+            long[] keys = this.keys;
+            int bucket = signSafeMod(keyHash, values.length);
+
+            try {
+                while (true) {
+                    // First try optimistic locking
+                    long storedKey1 = keys[3 * bucket];
+                    long storedKey2 = keys[3 * bucket + 1];
+                    long storedKey3 = keys[3 * bucket + 2];
+                    Object storedValue = values[bucket];
+
+                    if (!acquiredLock && !validate(stamp)) {
+                        // Fallback to acquiring read lock, and restart from the first bucket of the key
+                        stamp = readLock();
+                        acquiredLock = true;
+
+                        values = this.values;
+                        keys = this.keys;
+                        bucket = signSafeMod(keyHash, values.length);
+                        storedKey1 = keys[3 * bucket];
+                        storedKey2 = keys[3 * bucket + 1];
+                        storedKey3 = keys[3 * bucket + 2];
+                        storedValue = values[bucket];
+                    }
+
+                    if (key1 == storedKey1 && key2 == storedKey2 && key3 == storedKey3) {
+                        return (V) storedValue;
+                    } else if (storedKey1 == EmptyKey) {
+                        // Not found
+                        return null;
+                    }
+
+                    bucket = (bucket + 1) & (values.length - 1);
+                }
+            } finally {
+                if (acquiredLock) {
+                    unlockRead(stamp);
+                }
+            }
+        }
+
+        void put(long key1, long key2, int key3, V value, int keyHash) {
+            long stamp = writeLock();
+            int bucket = signSafeMod(keyHash, capacity);
+
+            try {
+                while (true) {
+                    long storedKey1 = keys[3 * bucket];
+                    if (storedKey1 == EmptyKey || storedKey1 == DeletedKey) {
+                        // A key can be stored several times, so the first free bucket is used
+                        if (storedKey1 == EmptyKey) {
+                            ++usedBuckets;
+                        }
+                        keys[3 * bucket] = key1;
+                        keys[3 * bucket + 1] = key2;
+                        keys[3 * bucket + 2] = key3;
+                        values[bucket] = value;
+                        ++size;
+                        return;
+                    }
+
+                    bucket = (bucket + 1) & (capacity - 1);
+                }
+            } finally {
+                if (usedBuckets > resizeThreshold) {
+                    try {
+                        rehash(alignToPowerOfTwo(capacity * 2));
+                    } finally {
+                        unlockWrite(stamp);
+                    }
+                } else {
+                    unlockWrite(stamp);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key1, long key2, int key3, V value, int keyHash) {
+            long stamp = writeLock();
+            int bucket = signSafeMod(keyHash, capacity);
+
+            try {
+                while (true) {
+                    long storedKey1 = keys[3 * bucket];
+                    if (key1 == storedKey1 && key2 == keys[3 * bucket + 1] && key3 == keys[3 * bucket + 2]
+                            && (value == null || value == values[bucket])) {
+                        V storedValue = (V) values[bucket];
+                        --size;
+                        cleanBucket(bucket);
+                        return storedValue;
+                    } else if (storedKey1 == EmptyKey) {
+                        // Key wasn't found
+                        return null;
+                    }
+
+                    bucket = (bucket + 1) & (capacity - 1);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        int removeIf(Predicate<V> filter) {
+            long stamp = writeLock();
+
+            int removedCount = 0;
+            try {
+                // Go through all the buckets for this section
+                for (int bucket = 0; bucket < capacity; bucket++) {
+                    long storedKey1 = keys[3 * bucket];
+                    if (storedKey1 != DeletedKey && storedKey1 != EmptyKey && filter.test((V) values[bucket])) {
+                        ++removedCount;
+                        --size;
+                        cleanBucket(bucket);
+                    }
+                }
+                return removedCount;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private void cleanBucket(int bucket) {
+            values[bucket] = null;
+            int nextInArray = (bucket + 1) & (capacity - 1);
+            if (keys[3 * nextInArray] == EmptyKey) {
+                keys[3 * bucket] = EmptyKey;
+                --usedBuckets;
+
+                // Cleanup all the buckets that were in `DeletedKey` state,
+                // so that we can reduce unnecessary expansions
+                bucket = (bucket - 1) & (capacity - 1);
+                while (keys[3 * bucket] == DeletedKey) {
+                    keys[3 * bucket] = EmptyKey;
+                    --usedBuckets;
+
+                    bucket = (bucket - 1) & (capacity - 1);
+                }
+            } else {
+                keys[3 * bucket] = DeletedKey;
+            }
+        }
+
+        void clear() {
+            long stamp = writeLock();
+
+            try {
+                Arrays.fill(keys, EmptyKey);
+                Arrays.fill(values, null);
+                this.size = 0;
+                this.usedBuckets = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryConsumer<V> processor) {
+            long stamp = readLock();
+
+            try {
+                for (int bucket = 0; bucket < capacity; bucket++) {
+                    long storedKey1 = keys[3 * bucket];
+                    if (storedKey1 != DeletedKey && storedKey1 != EmptyKey) {
+                        processor.accept(storedKey1, keys[3 * bucket + 1], (int) keys[3 * bucket + 2],
+                                (V) values[bucket]);
+                    }
+                }
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        private void rehash(int newCapacity) {
+            long[] newKeys = new long[3 * newCapacity];
+            Object[] newValues = new Object[newCapacity];
+            Arrays.fill(newKeys, EmptyKey);
+
+            // Re-hash table
+            for (int i = 0; i < capacity; i++) {
+                long storedKey1 = keys[3 * i];
+                if (storedKey1 != EmptyKey && storedKey1 != DeletedKey) {
+                    long storedKey2 = keys[3 * i + 1];
+                    int storedKey3 = (int) keys[3 * i + 2];
+                    int bucket = signSafeMod(hash(storedKey1, storedKey2, storedKey3), newCapacity);
+                    while (newKeys[3 * bucket] != EmptyKey) {
+                        bucket = (bucket + 1) & (newCapacity - 1);
+                    }
+                    newKeys[3 * bucket] = storedKey1;
+                    newKeys[3 * bucket + 1] = storedKey2;
+                    newKeys[3 * bucket + 2] = storedKey3;
+                    newValues[bucket] = values[i];
+                }
+            }
+
+            keys = newKeys;
+            values = newValues;
+            usedBuckets = size;
+            // Capacity needs to be updated after the values, so that we won't see
+            // a capacity value bigger than the actual array size
+            capacity = newCapacity;
+            resizeThreshold = (int) (capacity * MapFillFactor);
+        }
+    }
+
+    private static final long HashMixer = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+
+    static final long hash(long key1, long key2, int key3) {
+        long hash = key1 * HashMixer;
+        hash ^= hash >>> R;
+        hash *= HashMixer;
+        hash += 31 + (key2 * HashMixer);
+        hash ^= hash >>> R;
+        hash *= HashMixer;
+        hash += key3;
+        return hash;
+    }
+
+    static final int signSafeMod(long n, int max) {
+        return (int) (n & (max - 1));
+    }
+
+    private static int alignToPowerOfTwo(int n) {
+        return (int) Math.pow(2, 32 - Integer.numberOfLeadingZeros(n - 1));
+    }
+
+    private static void checkBiggerEqualZero(long n) {
+        if (n < 0L) {
+            throw new IllegalArgumentException("Keys must be >= 0");
+        }
+    }
+}
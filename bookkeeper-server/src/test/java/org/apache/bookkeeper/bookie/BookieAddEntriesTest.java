@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test that {@link BookieImpl#addEntries} adds and journals the entries of a batch together.
+ */
+public class BookieAddEntriesTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long OTHER_LEDGER_ID = 2L;
+    private static final byte[] MASTER_KEY = "master-key".getBytes();
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private TestBookieImpl bookie;
+
+    @Before
+    public void setUp() throws Exception {
+        File journalDir = tempDir.newFolder();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(journalDir));
+        File ledgerDir = tempDir.newFolder();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setJournalDirName(journalDir.getPath())
+                .setLedgerDirNames(new String[] { ledgerDir.getPath() })
+                .setMetadataServiceUri(null);
+        bookie = new TestBookieImpl(conf);
+        bookie.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (bookie != null) {
+            bookie.shutdown();
+        }
+    }
+
+    @Test
+    public void testEntriesJournaledTogether() throws Exception {
+        ByteBuf[] entries = {
+            newEntry(LEDGER_ID, 0), newEntry(LEDGER_ID, 1), newEntry(LEDGER_ID, 2), newEntry(OTHER_LEDGER_ID, 0)
+        };
+        CountDownLatch latch = new CountDownLatch(entries.length);
+        AtomicInteger failures = new AtomicInteger();
+        WriteCallback cb = (rc, ledgerId, entryId, addr, ctx) -> {
+            if (rc != BookieProtocol.EOK) {
+                failures.incrementAndGet();
+            }
+            latch.countDown();
+        };
+        WriteCallback[] cbs = { cb, cb, cb, cb };
+
+        // the run ends at the entry of the other ledger
+        assertEquals(3, bookie.addEntries(entries, cbs, 0, entries.length, null, MASTER_KEY));
+        verify(bookie.getJournal(), times(1)).logAddEntries(eq(entries), eq(cbs), eq(0), eq(3), eq(false), any());
+        assertEquals(1, bookie.addEntries(entries, cbs, 3, 1, null, MASTER_KEY));
+        verify(bookie.getJournal(), times(1)).logAddEntries(eq(entries), eq(cbs), eq(3), eq(1), eq(false), any());
+        // no entry went through the single add path
+        verify(bookie.getJournal(), never()).logAddEntry(any(ByteBuf.class), anyBoolean(), any(), any());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        for (ByteBuf entry : entries) {
+            long ledgerId = entry.getLong(0);
+            long entryId = entry.getLong(8);
+            ByteBuf expected = newEntry(ledgerId, entryId);
+            ByteBuf read = bookie.readEntry(ledgerId, entryId);
+            assertEquals(expected, read);
+            expected.release();
+            read.release();
+            // the buffers are left to the caller
+            assertEquals(1, entry.refCnt());
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testFirstEntryFailure() throws Exception {
+        bookie.addEntry(newEntry(LEDGER_ID, 0), false, (rc, ledgerId, entryId, addr, ctx) -> { }, null, MASTER_KEY);
+        ByteBuf[] entries = { newEntry(LEDGER_ID, 1) };
+        WriteCallback[] cbs = { (rc, ledgerId, entryId, addr, ctx) -> fail("The entry should not be added") };
+        bookie.fenceLedger(LEDGER_ID, MASTER_KEY).get(10, TimeUnit.SECONDS);
+
+        // the failure of the first entry is left to the caller, which adds it on its own
+        try {
+            bookie.addEntries(entries, cbs, 0, entries.length, null, MASTER_KEY);
+            fail("The fenced ledger should reject the batch");
+        } catch (BookieException.LedgerFencedException e) {
+            // expected
+        }
+        verify(bookie.getJournal(), never()).logAddEntries(any(), any(), eq(0), eq(1), anyBoolean(), any());
+        assertEquals(1, entries[0].refCnt());
+        entries[0].release();
+    }
+
+    private static ByteBuf newEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeLong(entryId - 1);
+        entry.writeBytes(("entry-" + entryId).getBytes());
+        return entry;
+    }
+}
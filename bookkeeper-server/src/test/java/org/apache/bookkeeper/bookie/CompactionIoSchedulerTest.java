@@ -0,0 +1,194 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the I/O budget given to the compaction by the {@link CompactionIoScheduler}.
+ */
+public class CompactionIoSchedulerTest {
+
+    private static final long LATENCY_TARGET_MS = 10;
+    private static final double MIN_RATE_FACTOR = 1.0 / 64;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final IoLatencyTracker journalLatency = new IoLatencyTracker();
+    private Counter pauseCounter;
+    private CompactionIoScheduler scheduler;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setCompactionIoBudgetJournalLatencyTargetMs(LATENCY_TARGET_MS);
+        conf.setCompactionIoBudgetReadLatencyTargetMs(LATENCY_TARGET_MS);
+        pauseCounter = mock(Counter.class);
+        scheduler = new CompactionIoScheduler(conf, pauseCounter, clock::get);
+        scheduler.setJournalLatencyTracker(journalLatency);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void nextInterval(long latencyMs) {
+        journalLatency.record(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Halve the rate down to its minimum, the next interval above target pauses the compaction.
+     */
+    private void slowDownToMinRate(AtomicBoolean cancelled) throws IOException {
+        double expected = 1.0;
+        while (expected > MIN_RATE_FACTOR) {
+            nextInterval(2 * LATENCY_TARGET_MS);
+            expected /= 2;
+            assertEquals(expected, scheduler.awaitBudget(cancelled), 0.0001);
+        }
+    }
+
+    private Future<Double> pauseCompaction(AtomicBoolean cancelled) throws Exception {
+        slowDownToMinRate(cancelled);
+        nextInterval(2 * LATENCY_TARGET_MS);
+        Future<Double> budget = executor.submit(() -> scheduler.awaitBudget(cancelled));
+        verify(pauseCounter, timeout(10000).times(1)).inc();
+        assertFalse(budget.isDone());
+        assertEquals(0, scheduler.getRatePercent());
+        return budget;
+    }
+
+    @Test
+    public void testRateFollowsLatency() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        assertEquals(1.0, scheduler.awaitBudget(cancelled), 0.0001);
+
+        // the rate is only updated once per interval
+        journalLatency.record(TimeUnit.MILLISECONDS.toNanos(2 * LATENCY_TARGET_MS));
+        assertEquals(1.0, scheduler.awaitBudget(cancelled), 0.0001);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0.5, scheduler.awaitBudget(cancelled), 0.0001);
+
+        // and raised linearly below the target, or without foreground I/O
+        nextInterval(LATENCY_TARGET_MS / 2);
+        assertEquals(0.6, scheduler.awaitBudget(cancelled), 0.0001);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0.7, scheduler.awaitBudget(cancelled), 0.0001);
+        verify(pauseCounter, times(0)).inc();
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Future<Double> budget = pauseCompaction(cancelled);
+
+        nextInterval(LATENCY_TARGET_MS / 2);
+        assertEquals(MIN_RATE_FACTOR, budget.get(10, TimeUnit.SECONDS), 0.0001);
+    }
+
+    @Test
+    public void testResumeAfterMaxPause() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Future<Double> budget = pauseCompaction(cancelled);
+
+        // the foreground latency stays above target
+        journalLatency.record(TimeUnit.MILLISECONDS.toNanos(2 * LATENCY_TARGET_MS));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertEquals(MIN_RATE_FACTOR, budget.get(10, TimeUnit.SECONDS), 0.0001);
+    }
+
+    @Test
+    public void testPausedCompactionDoesNotHoldTheMonitor() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Future<Double> budget = pauseCompaction(cancelled);
+
+        // another compaction reaches the scheduler while the first one is paused
+        Future<Double> stopped = executor.submit(() -> scheduler.awaitBudget(new AtomicBoolean(true)));
+        assertCancelled(stopped);
+        assertFalse(budget.isDone());
+
+        cancelled.set(true);
+        assertCancelled(budget);
+    }
+
+    @Test
+    public void testCompactionEfficiency() {
+        long mb = 1024 * 1024;
+        EntryLogMetadata emptyLog = new EntryLogMetadata(0L);
+        EntryLogMetadata liveLog = newEntryLog(1L, 64 * mb, 64 * mb);
+        EntryLogMetadata smallLog = newEntryLog(2L, 2 * mb, mb);
+        EntryLogMetadata largeLog = newEntryLog(3L, 1024 * mb, 512 * mb);
+        EntryLogMetadata emptierLargeLog = newEntryLog(4L, 1024 * mb, 256 * mb);
+
+        assertEquals(0, CompactionIoScheduler.compactionEfficiency(emptyLog), 0.0);
+        assertEquals(0, CompactionIoScheduler.compactionEfficiency(liveLog), 0.0);
+        // at the same usage, the fixed cost of compacting a log weighs more on a small log
+        assertEquals(smallLog.getUsage(), largeLog.getUsage(), 0.0);
+        assertTrue(CompactionIoScheduler.compactionEfficiency(smallLog)
+                < CompactionIoScheduler.compactionEfficiency(largeLog));
+        assertTrue(CompactionIoScheduler.compactionEfficiency(largeLog)
+                < CompactionIoScheduler.compactionEfficiency(emptierLargeLog));
+    }
+
+    private static EntryLogMetadata newEntryLog(long entryLogId, long totalSize, long remainingSize) {
+        EntryLogMetadata meta = new EntryLogMetadata(entryLogId);
+        meta.addLedgerSize(1L, remainingSize);
+        if (totalSize > remainingSize) {
+            meta.addLedgerSize(2L, totalSize - remainingSize);
+            meta.removeLedgerIf(ledgerId -> ledgerId == 2L);
+        }
+        return meta;
+    }
+
+    private static void assertCancelled(Future<Double> budget) throws Exception {
+        try {
+            budget.get(10, TimeUnit.SECONDS);
+            fail("The compaction should be stopped");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
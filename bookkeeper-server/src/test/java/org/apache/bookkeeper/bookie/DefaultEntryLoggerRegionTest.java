@@ -0,0 +1,163 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the file regions returned by {@link DefaultEntryLogger#readEntryOrRegion(long, long, long, int)}.
+ */
+public class DefaultEntryLoggerRegionTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int MIN_ENTRY_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private DefaultEntryLogger entryLogger;
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        LedgerDirsManager dirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = new DefaultEntryLogger(conf, dirsManager);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        entryLogger.close();
+    }
+
+    @Test
+    public void testReadEntryRegion() throws Exception {
+        byte[] small = newEntry(0L, MIN_ENTRY_SIZE / 2);
+        byte[] large = newEntry(1L, 4 * MIN_ENTRY_SIZE);
+        long smallLocation = entryLogger.addEntry(LEDGER_ID, Unpooled.wrappedBuffer(small));
+        long largeLocation = entryLogger.addEntry(LEDGER_ID, Unpooled.wrappedBuffer(large));
+
+        // the entries are still in the write buffer of the current log, and are read in memory instead
+        assertEntryRead(large, entryLogger.readEntryOrRegion(LEDGER_ID, 1L, largeLocation, MIN_ENTRY_SIZE));
+
+        entryLogger.flush();
+        assertEntryRead(small, entryLogger.readEntryOrRegion(LEDGER_ID, 0L, smallLocation, MIN_ENTRY_SIZE));
+
+        EntryReadResult result = entryLogger.readEntryOrRegion(LEDGER_ID, 1L, largeLocation, MIN_ENTRY_SIZE);
+        assertNull(result.getEntry());
+        FileRegion region = result.getRegion();
+        assertNotNull(region);
+        assertArrayEquals(large, transfer(region));
+        assertTrue(region.release());
+
+        try {
+            entryLogger.readEntryOrRegion(LEDGER_ID, 2L, largeLocation, MIN_ENTRY_SIZE);
+            fail("The region of another entry should not be returned");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRegionsShareTheLogChannel() throws Exception {
+        byte[] entry = newEntry(0L, 2 * MIN_ENTRY_SIZE);
+        long location = entryLogger.addEntry(LEDGER_ID, Unpooled.wrappedBuffer(entry));
+        entryLogger.flush();
+
+        FileRegion region1 = entryLogger.readEntryOrRegion(LEDGER_ID, 0L, location, MIN_ENTRY_SIZE).getRegion();
+        FileRegion region2 = entryLogger.readEntryOrRegion(LEDGER_ID, 0L, location, MIN_ENTRY_SIZE).getRegion();
+        DefaultEntryLogger.LogFileChannel logFc = ((DefaultEntryLogger.LogFileRegion) region1).getLogFileChannel();
+        assertSame(logFc, ((DefaultEntryLogger.LogFileRegion) region2).getLogFileChannel());
+        // a reference for the read channels of the logger and one for each region
+        assertEquals(3, logFc.refCnt());
+
+        // the regions stay readable after the log is removed
+        entryLogger.removeFromChannelsAndClose(DefaultEntryLogger.logIdForOffset(location));
+        FileChannel fc = logFc.getFileChannel();
+        assertTrue(fc.isOpen());
+        assertArrayEquals(entry, transfer(region1));
+        region1.release();
+        assertTrue(fc.isOpen());
+        assertArrayEquals(entry, transfer(region2));
+        region2.release();
+
+        assertEquals(0, logFc.refCnt());
+        assertFalse(fc.isOpen());
+    }
+
+    private static void assertEntryRead(byte[] expected, EntryReadResult result) {
+        assertNull(result.getRegion());
+        ByteBuf entry = result.getEntry();
+        try {
+            assertEquals(Unpooled.wrappedBuffer(expected), entry);
+        } finally {
+            entry.release();
+        }
+    }
+
+    private static byte[] newEntry(long entryId, int size) {
+        byte[] entry = new byte[size];
+        new Random(entryId).nextBytes(entry);
+        ByteBuf buf = Unpooled.wrappedBuffer(entry);
+        buf.writerIndex(0);
+        buf.writeLong(LEDGER_ID);
+        buf.writeLong(entryId);
+        return entry;
+    }
+
+    private static byte[] transfer(FileRegion region) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        long transferred = 0;
+        while (transferred < region.count()) {
+            transferred += region.transferTo(target, transferred);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.bookkeeper.common.util.nativeio.NativeIO;
+import org.apache.bookkeeper.common.util.nativeio.NativeIOException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the {@link DirectIOBufferedChannel}, against a {@link NativeIO} that checks the alignment of the
+ * direct writes.
+ */
+public class DirectIOBufferedChannelTest {
+
+    private static final int ALIGNMENT = DirectIOBufferedChannel.ALIGNMENT;
+    private static final int HEADER_SIZE = 512;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+    private AlignedNativeIO nativeIO;
+    private File file;
+    private RandomAccessFile raf;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(allocator.directBuffer(1).hasMemoryAddress());
+        nativeIO = new AlignedNativeIO();
+        file = tempDir.newFile();
+        raf = new RandomAccessFile(file, "rw");
+        // the header that precedes the data, like the journal header
+        byte[] header = new byte[HEADER_SIZE];
+        Arrays.fill(header, (byte) 'h');
+        raf.getChannel().write(ByteBuffer.wrap(header));
+    }
+
+    @Test
+    public void testWritesAcrossFlushes() throws Exception {
+        DirectIOBufferedChannel channel = new DirectIOBufferedChannel(allocator, nativeIO, file,
+                raf.getChannel(), 3 * ALIGNMENT);
+        byte[] expected = writeRandom(channel, 20 * ALIGNMENT + 123, 1000);
+        channel.flush();
+        channel.close();
+
+        assertFileContent(expected);
+    }
+
+    @Test
+    public void testShortWrites() throws Exception {
+        DirectIOBufferedChannel channel = new DirectIOBufferedChannel(allocator, nativeIO, file,
+                raf.getChannel(), 4 * ALIGNMENT);
+        // short writes that end within a block, at a block boundary and within the first block
+        nativeIO.shortWrites.add(ALIGNMENT + 100);
+        nativeIO.shortWrites.add(ALIGNMENT);
+        nativeIO.shortWrites.add(10);
+        byte[] expected = writeRandom(channel, 4 * ALIGNMENT + 1, 4 * ALIGNMENT + 1);
+        channel.flush();
+        assertTrue(nativeIO.shortWrites.isEmpty());
+        channel.close();
+
+        assertFileContent(expected);
+    }
+
+    @Test
+    public void testNoProgress() throws Exception {
+        DirectIOBufferedChannel channel = new DirectIOBufferedChannel(allocator, nativeIO, file,
+                raf.getChannel(), 4 * ALIGNMENT);
+        for (int i = 0; i < 100; i++) {
+            nativeIO.shortWrites.add(1);
+        }
+        writeRandom(channel, ALIGNMENT, ALIGNMENT);
+        try {
+            channel.flush();
+            fail("The flush should fail when the writes make no progress");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testPreallocate() throws Exception {
+        DirectIOBufferedChannel channel = new DirectIOBufferedChannel(allocator, nativeIO, file,
+                raf.getChannel(), 4 * ALIGNMENT);
+        long preallocEnd = 16 * ALIGNMENT;
+        channel.preallocate(preallocEnd);
+        assertEquals(preallocEnd, file.length());
+
+        // the data written after the preallocation is not overwritten by it
+        byte[] expected = writeRandom(channel, 2 * ALIGNMENT + 7, 2 * ALIGNMENT + 7);
+        channel.preallocate(ALIGNMENT);
+        channel.flush();
+        channel.preallocate(2 * ALIGNMENT);
+        channel.close();
+
+        assertEquals(preallocEnd, file.length());
+        assertFileContent(expected);
+        byte[] content = Files.readAllBytes(file.toPath());
+        for (int i = HEADER_SIZE + expected.length; i < content.length; i++) {
+            assertEquals(0, content[i]);
+        }
+    }
+
+    private static byte[] writeRandom(BufferedChannel channel, int length, int chunkSize) throws IOException {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            channel.write(Unpooled.wrappedBuffer(data, offset, Math.min(chunkSize, length - offset)));
+        }
+        return data;
+    }
+
+    private void assertFileContent(byte[] expected) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        assertTrue(content.length >= HEADER_SIZE + expected.length);
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            assertEquals((byte) 'h', content[i]);
+        }
+        assertArrayEquals(expected, Arrays.copyOfRange(content, HEADER_SIZE, HEADER_SIZE + expected.length));
+    }
+
+    /**
+     * A {@link NativeIO} writing with regular file I/O, which rejects unaligned writes like O_DIRECT does and
+     * can be told to write fewer bytes than requested.
+     */
+    private static class AlignedNativeIO implements NativeIO {
+
+        private static final int EINVAL = 22;
+
+        private final Map<Integer, RandomAccessFile> files = new HashMap<>();
+        private final Deque<Integer> shortWrites = new ArrayDeque<>();
+        private int nextFd = 100;
+
+        @Override
+        public synchronized int open(String pathname, int flags, int mode) throws NativeIOException {
+            try {
+                int fd = nextFd++;
+                files.put(fd, new RandomAccessFile(pathname, "rw"));
+                return fd;
+            } catch (IOException e) {
+                throw new NativeIOException(e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized int pwrite(int fd, long pointer, int count, long offset) throws NativeIOException {
+            if (pointer % ALIGNMENT != 0 || count % ALIGNMENT != 0 || offset % ALIGNMENT != 0) {
+                throw new NativeIOException("Unaligned direct write", EINVAL);
+            }
+            Integer shortWrite = shortWrites.poll();
+            int n = shortWrite == null ? count : Math.min(shortWrite, count);
+            byte[] data = new byte[n];
+            Unpooled.wrappedBuffer(pointer, n, false).getBytes(0, data);
+            try {
+                FileChannel fc = files.get(fd).getChannel();
+                ByteBuffer src = ByteBuffer.wrap(data);
+                while (src.hasRemaining()) {
+                    fc.write(src, offset + src.position());
+                }
+            } catch (IOException e) {
+                throw new NativeIOException(e.getMessage());
+            }
+            return n;
+        }
+
+        @Override
+        public int fsync(int fd) {
+            return 0;
+        }
+
+        @Override
+        public int fdatasync(int fd) {
+            return 0;
+        }
+
+        @Override
+        public int fallocate(int fd, int mode, long offset, long len) {
+            return 0;
+        }
+
+        @Override
+        public int posix_fadvise(int fd, long offset, long len, int flag) {
+            return 0;
+        }
+
+        @Override
+        public long posix_memalign(int alignment, int size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void free(long pointer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long lseek(int fd, long offset, int whence) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long pread(int fd, long pointer, long size, long offset) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized int close(int fd) throws NativeIOException {
+            try {
+                files.remove(fd).close();
+                return 0;
+            } catch (IOException e) {
+                throw new NativeIOException(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the GC cycles shared by the ledger storages registered to a {@link GarbageCollectionCoordinator}.
+ */
+public class GarbageCollectionCoordinatorTest {
+
+    private ServerConfiguration conf;
+    private LedgerManager ledgerManager;
+    private GarbageCollectionCoordinator coordinator;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setBookieId("127.0.0.1:3181");
+        // the results of a cycle stay valid for the whole test
+        conf.setGcWaitTime(TimeUnit.MINUTES.toMillis(10));
+        conf.setGcOverreplicatedLedgerWaitTime(0, TimeUnit.MILLISECONDS);
+        ledgerManager = mock(LedgerManager.class);
+        // the metadata store only has the ledgers 1 and 3
+        when(ledgerManager.getLedgerRanges(anyLong())).thenAnswer(invocation -> new LedgerRangeIterator() {
+            private boolean hasNext = true;
+
+            @Override
+            public boolean hasNext() {
+                return hasNext;
+            }
+
+            @Override
+            public LedgerRange next() {
+                hasNext = false;
+                return new LedgerRange(new HashSet<>(Arrays.asList(1L, 3L)));
+            }
+        });
+        coordinator = new GarbageCollectionCoordinator(conf, ledgerManager, 2);
+    }
+
+    @After
+    public void tearDown() {
+        coordinator.shutdown();
+    }
+
+    @Test
+    public void testSharedMetadataScan() throws Exception {
+        CompactableLedgerStorage storage1 = newStorage(1L, 2L);
+        CompactableLedgerStorage storage2 = newStorage(3L, 4L, 5L);
+        ScanAndCompareGarbageCollector gc1 = register(storage1);
+        ScanAndCompareGarbageCollector gc2 = register(storage2);
+
+        // the first storage runs the cycle for both
+        assertEquals(Collections.singletonList(2L), gc(gc1));
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+        verify(storage1, times(1)).getActiveLedgersInRange(0, Long.MAX_VALUE);
+        verify(storage2, times(1)).getActiveLedgersInRange(0, Long.MAX_VALUE);
+
+        // and the second one takes its results
+        assertEquals(Arrays.asList(4L, 5L), gc(gc2));
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+        verify(storage2, times(1)).getActiveLedgersInRange(0, Long.MAX_VALUE);
+
+        // once taken, the results are computed again by the next cycle
+        gc(gc1);
+        verify(ledgerManager, times(2)).getLedgerRanges(anyLong());
+        verify(storage2, times(2)).getActiveLedgersInRange(0, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testFailingStorageLeftOutOfCycle() throws Exception {
+        CompactableLedgerStorage failingStorage = mock(CompactableLedgerStorage.class);
+        when(failingStorage.getActiveLedgersInRange(0, Long.MAX_VALUE))
+                .thenThrow(new IOException("injected active ledgers failure"));
+        ScanAndCompareGarbageCollector gc1 = register(newStorage(1L, 2L));
+        ScanAndCompareGarbageCollector failingGc = register(failingStorage);
+        ScanAndCompareGarbageCollector gc2 = register(newStorage(4L));
+
+        // the cycle run by the failing storage still finds the ledgers to delete of the others
+        assertTrue(gc(failingGc).isEmpty());
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+        assertEquals(Collections.singletonList(2L), gc(gc1));
+        assertEquals(Collections.singletonList(4L), gc(gc2));
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+
+        // and the failing storage runs a new cycle the next time
+        assertTrue(gc(failingGc).isEmpty());
+        verify(ledgerManager, times(2)).getLedgerRanges(anyLong());
+        verify(failingStorage, times(2)).getActiveLedgersInRange(0, Long.MAX_VALUE);
+    }
+
+    private CompactableLedgerStorage newStorage(Long... activeLedgers) throws IOException {
+        CompactableLedgerStorage storage = mock(CompactableLedgerStorage.class);
+        when(storage.getActiveLedgersInRange(0, Long.MAX_VALUE)).thenReturn(Arrays.asList(activeLedgers));
+        return storage;
+    }
+
+    private ScanAndCompareGarbageCollector register(CompactableLedgerStorage storage) throws IOException {
+        ScanAndCompareGarbageCollector garbageCollector =
+                new ScanAndCompareGarbageCollector(ledgerManager, storage, conf, NullStatsLogger.INSTANCE);
+        coordinator.register(garbageCollector);
+        return garbageCollector;
+    }
+
+    private List<Long> gc(ScanAndCompareGarbageCollector garbageCollector) {
+        List<Long> deleted = new ArrayList<>();
+        coordinator.gc(garbageCollector, deleted::add);
+        return deleted;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the pipelined force writes of the {@link Journal} when a force write fails.
+ */
+public class JournalForceWritePipelineTest {
+
+    private static final String SYNC_THREAD_NAME_PREFIX = "ForceWriteThread-sync";
+
+    // the force writes of the journal, controlled by the test
+    private static final AtomicInteger SYNCS = new AtomicInteger(0);
+    private static volatile CountDownLatch firstSyncStarted;
+    private static volatile CountDownLatch releaseFirstSync;
+    private static volatile CountDownLatch secondSyncDone;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        SYNCS.set(0);
+        firstSyncStarted = new CountDownLatch(1);
+        releaseFirstSync = new CountDownLatch(1);
+        secondSyncDone = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testFailedForceWriteFailsTheGroupsBehindIt() throws Exception {
+        File journalDir = tempDir.newFolder();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(journalDir));
+        File ledgerDir = tempDir.newFolder();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setJournalDirName(journalDir.getPath())
+            .setLedgerDirNames(new String[] { ledgerDir.getPath() })
+            .setMetadataServiceUri(null);
+        conf.setJournalForceWritePipelineDepth(4);
+        conf.setJournalChannelProvider(FailingForceFileChannelProvider.class.getName());
+
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+            new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        Journal journal = new Journal(0, BookieImpl.getCurrentDirectory(journalDir), conf, ledgerDirsManager);
+        journal.start();
+        try {
+            // the sync of the first group blocks until the test releases it, then fails
+            CompletableFuture<Integer> firstAdd = logAddEntry(journal, 0L);
+            assertTrue(firstSyncStarted.await(10, TimeUnit.SECONDS));
+
+            // the sync of the second group succeeds while the first one is still in flight
+            CompletableFuture<Integer> secondAdd = logAddEntry(journal, 1L);
+            assertTrue(secondSyncDone.await(10, TimeUnit.SECONDS));
+            // the groups are completed in order
+            assertFalse(secondAdd.isDone());
+
+            releaseFirstSync.countDown();
+
+            assertEquals(BookieProtocol.EIO, (int) firstAdd.get(10, TimeUnit.SECONDS));
+            // the second group is durable on its own, but not the journal before it
+            assertEquals(BookieProtocol.EIO, (int) secondAdd.get(10, TimeUnit.SECONDS));
+        } finally {
+            releaseFirstSync.countDown();
+            journal.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Integer> logAddEntry(Journal journal, long entryId) throws Exception {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(1L);
+        entry.writeLong(entryId);
+        entry.writeBytes("entry".getBytes());
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        journal.logAddEntry(entry, false, (rc, ledgerId, eid, addr, ctx) -> result.complete(rc), null);
+        return result;
+    }
+
+    /**
+     * A provider of journal channels whose force writes are controlled by the test.
+     */
+    public static class FailingForceFileChannelProvider extends DefaultFileChannelProvider {
+
+        @Override
+        public BookieFileChannel open(File file, ServerConfiguration configuration) throws IOException {
+            BookieFileChannel channel = super.open(file, configuration);
+            return new BookieFileChannel() {
+
+                private FileChannel fileChannel;
+
+                @Override
+                public synchronized FileChannel getFileChannel() throws IOException {
+                    if (null == fileChannel) {
+                        fileChannel = new FailingForceFileChannel(channel.getFileChannel());
+                    }
+                    return fileChannel;
+                }
+
+                @Override
+                public boolean fileExists(File f) {
+                    return channel.fileExists(f);
+                }
+
+                @Override
+                public FileDescriptor getFD() throws IOException {
+                    return channel.getFD();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+    }
+
+    private static class FailingForceFileChannel extends FileChannel {
+
+        private final FileChannel delegate;
+
+        FailingForceFileChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (Thread.currentThread().getName().startsWith(SYNC_THREAD_NAME_PREFIX)) {
+                if (SYNCS.incrementAndGet() == 1) {
+                    firstSyncStarted.countDown();
+                    try {
+                        releaseFirstSync.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Injected force write failure");
+                }
+                delegate.force(metaData);
+                secondSyncDone.countDown();
+                return;
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the default range read of {@link LedgerStorage#getEntries(long, long, int, long)}.
+ */
+public class LedgerStorageGetEntriesTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int ENTRY_SIZE = 16;
+
+    private LedgerStorage storage;
+    private ByteBuf[] stored;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = mock(LedgerStorage.class, CALLS_REAL_METHODS);
+        stored = new ByteBuf[5];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = Unpooled.buffer(ENTRY_SIZE).writeLong(LEDGER_ID).writeLong(i);
+            doReturn(stored[i]).when(storage).getEntry(LEDGER_ID, i);
+        }
+        doThrow(new Bookie.NoEntryException(LEDGER_ID, stored.length))
+                .when(storage).getEntry(LEDGER_ID, stored.length);
+    }
+
+    @Test
+    public void testRanges() throws Exception {
+        List<ByteBuf> entries = storage.getEntries(LEDGER_ID, 1, 10, Long.MAX_VALUE);
+        assertEquals(stored.length - 1, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(stored[i + 1], entries.get(i));
+        }
+
+        entries = storage.getEntries(LEDGER_ID, 0, 10, 2 * ENTRY_SIZE + 1);
+        assertEquals(2, entries.size());
+        // the entry that exceeds the max size is released
+        assertEquals(0, stored[2].refCnt());
+    }
+
+    @Test
+    public void testEntriesReleasedOnFailure() throws Exception {
+        doThrow(new IllegalStateException("injected read failure")).when(storage).getEntry(LEDGER_ID, 3);
+        try {
+            storage.getEntries(LEDGER_ID, 0, 10, Long.MAX_VALUE);
+            fail("The range read should fail");
+        } catch (IllegalStateException e) {
+            assertEquals("injected read failure", e.getMessage());
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, stored[i].refCnt());
+        }
+    }
+}
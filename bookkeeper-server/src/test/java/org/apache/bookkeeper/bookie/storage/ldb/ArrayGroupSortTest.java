@@ -0,0 +1,102 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the {@link ArrayGroupSort}.
+ */
+public class ArrayGroupSortTest {
+
+    private static final int GROUP_SIZE = 4;
+
+    @Test
+    public void testSort() {
+        // large enough to be partitioned before the insertion sort
+        long[] array = newGroups(1000, new Random(0));
+        ArrayGroupSort.sort(array, 0, array.length);
+        assertSorted(array, 0, array.length);
+    }
+
+    @Test
+    public void testSortSubRange() {
+        Random random = new Random(1);
+        // a range small enough to only be sorted by insertion, preceded by groups with greater keys
+        int numGroups = 10;
+        long[] array = newGroups(3 * numGroups, random);
+        for (int i = 0; i < numGroups * GROUP_SIZE; i += GROUP_SIZE) {
+            array[i] = Long.MAX_VALUE;
+        }
+        long[] original = array.clone();
+
+        int offset = numGroups * GROUP_SIZE;
+        int length = numGroups * GROUP_SIZE;
+        ArrayGroupSort.sort(array, offset, length);
+
+        assertSorted(array, offset, length);
+        // the groups outside of the range are left untouched
+        assertArrayEquals(Arrays.copyOfRange(original, 0, offset), Arrays.copyOfRange(array, 0, offset));
+        assertArrayEquals(Arrays.copyOfRange(original, offset + length, original.length),
+                Arrays.copyOfRange(array, offset + length, array.length));
+        assertArrayEquals(sortedGroups(original, offset, length), Arrays.copyOfRange(array, offset, offset + length));
+    }
+
+    private static long[] newGroups(int numGroups, Random random) {
+        long[] array = new long[numGroups * GROUP_SIZE];
+        for (int i = 0; i < array.length; i += GROUP_SIZE) {
+            array[i] = random.nextInt(10);
+            array[i + 1] = random.nextInt(1000);
+            // the last items identify the group
+            array[i + 2] = i;
+            array[i + 3] = -i;
+        }
+        return array;
+    }
+
+    private static void assertSorted(long[] array, int offset, int length) {
+        for (int i = offset + GROUP_SIZE; i < offset + length; i += GROUP_SIZE) {
+            assertTrue(array[i - GROUP_SIZE] < array[i]
+                    || (array[i - GROUP_SIZE] == array[i] && array[i - GROUP_SIZE + 1] <= array[i + 1]));
+            assertTrue(array[i + 3] == -array[i + 2]);
+        }
+    }
+
+    private static long[] sortedGroups(long[] array, int offset, int length) {
+        long[][] groups = new long[length / GROUP_SIZE][];
+        for (int i = 0; i < groups.length; i++) {
+            int start = offset + i * GROUP_SIZE;
+            groups[i] = Arrays.copyOfRange(array, start, start + GROUP_SIZE);
+        }
+        // stable, and the insertion sort never swaps groups with equal keys
+        Arrays.sort(groups, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        long[] sorted = new long[length];
+        for (int i = 0; i < groups.length; i++) {
+            System.arraycopy(groups[i], 0, sorted, i * GROUP_SIZE, GROUP_SIZE);
+        }
+        return sorted;
+    }
+}
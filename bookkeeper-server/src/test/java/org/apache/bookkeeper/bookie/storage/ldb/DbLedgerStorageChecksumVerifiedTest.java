@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test that {@link SingleDirectoryDbLedgerStorage#getEntryReadResult(long, long)} flags the entries with the
+ * checksum verification of the lookup that returned them.
+ */
+public class DbLedgerStorageChecksumVerifiedTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long CACHE_SIZE = 16 * 1024 * 1024;
+    private static final int PAYLOAD_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private SingleDirectoryDbLedgerStorage storage;
+
+    private void startStorage(long readCacheSize) throws Exception {
+        File ledgerDir = tempDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        conf.setProperty(DbLedgerStorage.READ_CACHE_VERIFY_CHECKSUMS, true);
+        LedgerDirsManager dirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        storage = new SingleDirectoryDbLedgerStorage(conf, mock(LedgerManager.class), dirsManager, dirsManager,
+                new DefaultEntryLogger(conf, dirsManager), NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT,
+                CACHE_SIZE, readCacheSize, 0);
+        storage.setMasterKey(LEDGER_ID, "key".getBytes());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (storage != null) {
+            storage.shutdown();
+        }
+    }
+
+    @Test
+    public void testEntryInWriteCacheNotVerified() throws Exception {
+        startStorage(CACHE_SIZE);
+        storage.addEntry(newEntry(0, false));
+
+        assertRead(0, false, false);
+    }
+
+    @Test
+    public void testEntryReadFromEntryLogVerified() throws Exception {
+        startStorage(CACHE_SIZE);
+        storage.addEntry(newEntry(0, false));
+        storage.addEntry(newEntry(1, true));
+        storage.flush();
+
+        // read from the entry log, and verified when inserted in the read cache
+        assertRead(0, false, true);
+        assertRead(1, true, false);
+        // read from the read cache, with the flag of its index
+        assertRead(0, false, true);
+        assertRead(1, true, false);
+    }
+
+    @Test
+    public void testEntryNotCachedStillVerified() throws Exception {
+        // the read cache segments are too small to hold the entries
+        startStorage(PAYLOAD_SIZE);
+        storage.addEntry(newEntry(0, false));
+        storage.flush();
+
+        // the flag describes the entry that was read, even if it could not be cached
+        assertRead(0, false, true);
+        assertRead(0, false, true);
+    }
+
+    private void assertRead(long entryId, boolean corrupted, boolean verified) throws Exception {
+        EntryReadResult result = storage.getEntryReadResult(LEDGER_ID, entryId);
+        ByteBuf expected = newEntry(entryId, corrupted);
+        try {
+            assertEquals(expected, result.getEntry());
+            if (verified) {
+                assertTrue(result.isChecksumVerified());
+            } else {
+                assertFalse(result.isChecksumVerified());
+            }
+        } finally {
+            expected.release();
+            result.getEntry().release();
+        }
+    }
+
+    private static ByteBuf newEntry(long entryId, boolean corrupted) throws Exception {
+        DigestManager digestManager = DigestManager.instantiate(LEDGER_ID, new byte[0], DigestType.CRC32C,
+                UnpooledByteBufAllocator.DEFAULT, false);
+        ByteBuf payload = Unpooled.buffer(PAYLOAD_SIZE, PAYLOAD_SIZE);
+        while (payload.isWritable()) {
+            payload.writeByte((byte) (entryId + payload.writerIndex()));
+        }
+        ByteBufList packaged = (ByteBufList) digestManager.computeDigestAndPackageForSending(entryId, entryId - 1,
+                PAYLOAD_SIZE, payload, new byte[0], 0);
+        ByteBuf entry = ByteBufList.coalesce(packaged);
+        packaged.release();
+        if (corrupted) {
+            entry.setByte(entry.writerIndex() - 1, entry.getByte(entry.writerIndex() - 1) + 1);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.FileRegion;
+import java.io.File;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the entries and regions returned by {@link SingleDirectoryDbLedgerStorage#getEntryOrRegion(long, long, int)}.
+ */
+public class DbLedgerStorageEntryRegionTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long CACHE_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_ENTRY_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private SingleDirectoryDbLedgerStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        LedgerDirsManager dirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        storage = new SingleDirectoryDbLedgerStorage(conf, mock(LedgerManager.class), dirsManager, dirsManager,
+                new DefaultEntryLogger(conf, dirsManager), NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT,
+                CACHE_SIZE, CACHE_SIZE, 0);
+        storage.setMasterKey(LEDGER_ID, "key".getBytes());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (storage != null) {
+            storage.shutdown();
+        }
+    }
+
+    @Test
+    public void testEntryInWriteCacheReadInMemory() throws Exception {
+        storage.addEntry(newEntry(0, 4 * MIN_ENTRY_SIZE));
+
+        assertEntryRead(0, 4 * MIN_ENTRY_SIZE);
+    }
+
+    @Test
+    public void testEntryOrRegionFromEntryLog() throws Exception {
+        storage.addEntry(newEntry(0, MIN_ENTRY_SIZE / 2));
+        storage.addEntry(newEntry(1, 4 * MIN_ENTRY_SIZE));
+        storage.flush();
+
+        // the small entry is read with the same lookup, and cached
+        assertEntryRead(0, MIN_ENTRY_SIZE / 2);
+        assertTrue(storage.getReadCache().hasEntry(LEDGER_ID, 0));
+
+        // the large entry is returned as a region, that is not cached
+        EntryReadResult result = storage.getEntryOrRegion(LEDGER_ID, 1, MIN_ENTRY_SIZE);
+        assertNull(result.getEntry());
+        FileRegion region = result.getRegion();
+        assertNotNull(region);
+        assertEquals(4 * MIN_ENTRY_SIZE, region.count());
+        assertTrue(region.release());
+        assertFalse(storage.getReadCache().hasEntry(LEDGER_ID, 1));
+    }
+
+    @Test
+    public void testMissingEntry() throws Exception {
+        storage.addEntry(newEntry(0, MIN_ENTRY_SIZE));
+        storage.flush();
+
+        // a missing entry is reported as such, and not as an I/O error
+        try {
+            storage.getEntryOrRegion(LEDGER_ID, 1, MIN_ENTRY_SIZE);
+            fail("The entry should not be found");
+        } catch (Bookie.NoEntryException e) {
+            // expected
+        }
+    }
+
+    private void assertEntryRead(long entryId, int size) throws Exception {
+        EntryReadResult result = storage.getEntryOrRegion(LEDGER_ID, entryId, MIN_ENTRY_SIZE);
+        assertNull(result.getRegion());
+        ByteBuf expected = newEntry(entryId, size);
+        try {
+            assertEquals(expected, result.getEntry());
+        } finally {
+            expected.release();
+            result.getEntry().release();
+        }
+    }
+
+    private static ByteBuf newEntry(long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size, size);
+        entry.writeLong(LEDGER_ID);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((byte) (entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+}
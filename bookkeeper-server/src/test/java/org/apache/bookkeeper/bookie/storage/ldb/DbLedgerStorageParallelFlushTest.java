@@ -0,0 +1,132 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the failures of the parallel write cache flush of {@link SingleDirectoryDbLedgerStorage}.
+ */
+public class DbLedgerStorageParallelFlushTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long CACHE_SIZE = 64 * 1024 * 1024;
+    // more locations than the queue between the entry log writer and the index builder can hold
+    private static final int NUM_ENTRIES = 100_000;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private DefaultEntryLogger entryLogger;
+    private SingleDirectoryDbLedgerStorage storage;
+    private final AtomicBoolean failIndexBuild = new AtomicBoolean(false);
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        conf.setProperty(DbLedgerStorage.FLUSH_PARALLELISM, 2);
+        LedgerDirsManager dirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = spy(new DefaultEntryLogger(conf, dirsManager));
+        storage = new SingleDirectoryDbLedgerStorage(conf, mock(LedgerManager.class), dirsManager, dirsManager,
+                entryLogger, NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT, CACHE_SIZE, CACHE_SIZE,
+                100) {
+            @Override
+            void addFlushedLocation(Batch batch, long ledgerId, long entryId, long location) throws IOException {
+                if (failIndexBuild.get()) {
+                    throw new IllegalStateException("injected index failure");
+                }
+                super.addFlushedLocation(batch, ledgerId, entryId, location);
+            }
+        };
+        storage.setMasterKey(LEDGER_ID, "key".getBytes());
+        for (long entryId = 0; entryId < NUM_ENTRIES; entryId++) {
+            storage.addEntry(newEntry(entryId));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        storage.shutdown();
+    }
+
+    @Test(timeout = 60000)
+    public void testEntryLogFailure() throws Exception {
+        doThrow(new IllegalStateException("injected entry log failure"))
+                .when(entryLogger).addEntry(anyLong(), any(ByteBuf.class));
+        try {
+            storage.flush();
+            fail("The flush should fail");
+        } catch (IllegalStateException e) {
+            // the index builder was terminated, so the flush did not wait for it forever
+            assertEquals("injected entry log failure", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testIndexBuildFailure() throws Exception {
+        failIndexBuild.set(true);
+        try {
+            storage.flush();
+            fail("The flush should fail");
+        } catch (IOException e) {
+            // the index builder kept draining the locations, so the entry log writer was never blocked
+            assertEquals("injected index failure", e.getCause().getMessage());
+        }
+    }
+
+    private static ByteBuf newEntry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(64);
+        entry.writeLong(LEDGER_ID);
+        entry.writeLong(entryId);
+        entry.writeLong(-1L);
+        entry.writeBytes(new byte[40]);
+        return entry;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the range reads of {@link SingleDirectoryDbLedgerStorage#getEntries(long, long, int, long)}.
+ */
+public class DbLedgerStorageRangeReadTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long CACHE_SIZE = 16 * 1024 * 1024;
+    private static final int ENTRY_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private DefaultEntryLogger entryLogger;
+    private SingleDirectoryDbLedgerStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        LedgerDirsManager dirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = spy(new DefaultEntryLogger(conf, dirsManager));
+        // no read-ahead, so that the entries that are not in the write caches are read by the range read
+        storage = new SingleDirectoryDbLedgerStorage(conf, mock(LedgerManager.class), dirsManager, dirsManager,
+                entryLogger, NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT, CACHE_SIZE, CACHE_SIZE, 0);
+        storage.setMasterKey(LEDGER_ID, "key".getBytes());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        storage.shutdown();
+    }
+
+    @Test
+    public void testFullRange() throws Exception {
+        addEntries(0, 10);
+        storage.flush();
+        // the last entries are only in the write cache
+        addEntries(10, 15);
+
+        List<ByteBuf> entries = storage.getEntries(LEDGER_ID, 0, 15, Long.MAX_VALUE);
+        assertEntries(0, 15, entries);
+    }
+
+    @Test
+    public void testShortRange() throws Exception {
+        addEntries(0, 10);
+        storage.flush();
+
+        // the range ends at the last entry of the ledger
+        List<ByteBuf> entries = storage.getEntries(LEDGER_ID, 5, 100, Long.MAX_VALUE);
+        assertEntries(5, 10, entries);
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        addEntries(0, 10);
+        storage.flush();
+
+        List<ByteBuf> entries = storage.getEntries(LEDGER_ID, 0, 10, 3 * ENTRY_SIZE + ENTRY_SIZE / 2);
+        assertEntries(0, 3, entries);
+
+        // the first entry is returned even if it is larger than the max size
+        entries = storage.getEntries(LEDGER_ID, 0, 10, ENTRY_SIZE / 2);
+        assertEntries(0, 1, entries);
+    }
+
+    @Test
+    public void testMissingMiddleEntry() throws Exception {
+        addEntries(0, 5);
+        addEntries(6, 10);
+        storage.flush();
+
+        List<ByteBuf> entries = storage.getEntries(LEDGER_ID, 0, 10, Long.MAX_VALUE);
+        assertEntries(0, 5, entries);
+
+        // same when the entries are only in the write cache
+        addEntries(10, 15);
+        addEntries(16, 20);
+        entries = storage.getEntries(LEDGER_ID, 10, 10, Long.MAX_VALUE);
+        assertEntries(10, 15, entries);
+    }
+
+    @Test
+    public void testEntriesReleasedOnFailure() throws Exception {
+        addEntries(0, 10);
+        storage.flush();
+
+        List<ByteBuf> readEntries = new ArrayList<>();
+        doAnswer(invocation -> {
+            ByteBuf entry = (ByteBuf) invocation.callRealMethod();
+            readEntries.add(entry);
+            return entry;
+        }).when(entryLogger).readEntry(eq(LEDGER_ID), anyLong(), anyLong());
+        doAnswer(invocation -> {
+            throw new IllegalStateException("injected read failure");
+        }).when(entryLogger).readEntry(eq(LEDGER_ID), eq(5L), anyLong());
+
+        try {
+            storage.getEntries(LEDGER_ID, 0, 10, Long.MAX_VALUE);
+            fail("The range read should fail");
+        } catch (IllegalStateException e) {
+            assertEquals("injected read failure", e.getMessage());
+        }
+        assertEquals(5, readEntries.size());
+        for (ByteBuf entry : readEntries) {
+            assertEquals(0, entry.refCnt());
+        }
+    }
+
+    private void addEntries(long firstEntryId, long endEntryId) throws Exception {
+        for (long entryId = firstEntryId; entryId < endEntryId; entryId++) {
+            storage.addEntry(newEntry(entryId));
+        }
+    }
+
+    private static ByteBuf newEntry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(ENTRY_SIZE);
+        entry.writeLong(LEDGER_ID);
+        entry.writeLong(entryId);
+        entry.writeLong(-1L);
+        while (entry.isWritable()) {
+            entry.writeByte((byte) (entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    private static void assertEntries(long firstEntryId, long endEntryId, List<ByteBuf> entries) {
+        assertEquals(endEntryId - firstEntryId, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            assertEquals(newEntry(firstEntryId + i), entry);
+            entry.release();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the deletion of the entries of deleted ledgers from the {@link EntryLocationIndex}, and the count of the
+ * deleted entries.
+ */
+public class EntryLocationIndexDeleteTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private TestStatsProvider statsProvider;
+    private EntryLocationIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        statsProvider = new TestStatsProvider();
+        index = new EntryLocationIndex(TestBKConfiguration.newServerConfiguration(), KeyValueStorageRocksDB.factory,
+                tempDir.newFolder().getAbsolutePath(), statsProvider.getStatsLogger(""));
+
+        addEntries(1, 0, 5);
+        addEntries(2, 0, 10);
+        // the first entry of a ledger is not always 0
+        addEntries(3, 5, 15);
+        // ledger 4 has no entries
+        addEntries(5, 0, 3);
+        addEntries(6, 7, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    public void testCountAtLedgerBoundaries() throws Exception {
+        // the entries of the ledgers before and after are not counted, nor deleted
+        deleteLedgers(2);
+        assertDeletedEntries(10);
+        assertEntries(2, 0, 10, false);
+        assertEntries(1, 0, 5, true);
+        assertEntries(3, 5, 15, true);
+
+        deleteLedgers(1, 3);
+        assertDeletedEntries(10 + 5 + 10);
+        assertEntries(1, 0, 5, false);
+        assertEntries(3, 5, 15, false);
+        assertEntries(5, 0, 3, true);
+    }
+
+    @Test
+    public void testCountLedgersWithoutRange() throws Exception {
+        // a ledger without entries, followed by a ledger with entries
+        deleteLedgers(4);
+        assertDeletedEntries(0);
+        assertEntries(5, 0, 3, true);
+
+        // a ledger with a single entry, at the end of the index
+        deleteLedgers(6);
+        assertDeletedEntries(1);
+        assertEntries(6, 7, 8, false);
+
+        // a ledger after the end of the index
+        deleteLedgers(7);
+        assertDeletedEntries(1);
+        assertEntries(5, 0, 3, true);
+    }
+
+    private void addEntries(long ledgerId, long firstEntryId, long endEntryId) throws Exception {
+        for (long entryId = firstEntryId; entryId < endEntryId; entryId++) {
+            index.addLocation(ledgerId, entryId, locationOf(ledgerId, entryId));
+        }
+    }
+
+    private void deleteLedgers(long... ledgerIds) throws Exception {
+        for (long ledgerId : ledgerIds) {
+            index.delete(ledgerId);
+        }
+        index.removeOffsetFromDeletedLedgers();
+    }
+
+    private void assertDeletedEntries(long expected) {
+        assertEquals(expected, statsProvider.getCounter("deleted-ledger-entries").get().longValue());
+    }
+
+    private void assertEntries(long ledgerId, long firstEntryId, long endEntryId, boolean exist) throws Exception {
+        for (long entryId = firstEntryId; entryId < endEntryId; entryId++) {
+            assertEquals(exist ? locationOf(ledgerId, entryId) : 0L, index.getLocation(ledgerId, entryId));
+        }
+    }
+
+    private static long locationOf(long ledgerId, long entryId) {
+        return (ledgerId << 32) + entryId * 100 + 1;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the deletion of ledgers from the {@link LedgerMetadataIndex}, which removes the runs of contiguous ledger ids
+ * with range deletes.
+ */
+public class LedgerMetadataIndexDeleteTest {
+
+    private static final byte[] MASTER_KEY = "key".getBytes();
+    private static final int NUM_LEDGERS = 20;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private ServerConfiguration conf;
+    private String basePath;
+    private TestStatsProvider statsProvider;
+    private LedgerMetadataIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = TestBKConfiguration.newServerConfiguration();
+        File dir = tempDir.newFolder();
+        basePath = dir.getAbsolutePath();
+        statsProvider = new TestStatsProvider();
+        index = newIndex();
+        for (long ledgerId = 0; ledgerId < NUM_LEDGERS; ledgerId++) {
+            index.setMasterKey(ledgerId, MASTER_KEY);
+        }
+        index.flush();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    private LedgerMetadataIndex newIndex() throws Exception {
+        return new LedgerMetadataIndex(conf, KeyValueStorageRocksDB.factory, basePath,
+                statsProvider.getStatsLogger(""));
+    }
+
+    @Test
+    public void testDeleteContiguousLedgers() throws Exception {
+        // the runs at the start and at the end of the index, and one in the middle
+        deleteAndReopen(0L, 1L, 2L, 8L, 9L, 10L, 11L, 17L, 18L, 19L);
+
+        assertActiveLedgers(3L, 4L, 5L, 6L, 7L, 12L, 13L, 14L, 15L, 16L);
+        assertEquals(10L, statsProvider.getCounter("deleted-ledgers").get().longValue());
+    }
+
+    @Test
+    public void testDeleteNonContiguousLedgers() throws Exception {
+        deleteAndReopen(1L, 3L, 5L, 12L, 19L);
+
+        assertActiveLedgers(0L, 2L, 4L, 6L, 7L, 8L, 9L, 10L, 11L, 13L, 14L, 15L, 16L, 17L, 18L);
+        assertEquals(5L, statsProvider.getCounter("deleted-ledgers").get().longValue());
+    }
+
+    @Test
+    public void testDeleteMixedLedgers() throws Exception {
+        assertTrue(index.setStorageStateFlags(0, 1));
+
+        // deleted out of order, with a ledger deleted twice, and a run with an id that is not in the index
+        deleteAndReopen(15L, 6L, 4L, 5L, 5L, 16L, 14L, NUM_LEDGERS, 19L, 9L);
+
+        assertActiveLedgers(0L, 1L, 2L, 3L, 7L, 8L, 10L, 11L, 12L, 13L, 17L, 18L);
+        // the ledger deleted twice is counted once
+        assertEquals(9L, statsProvider.getCounter("deleted-ledgers").get().longValue());
+        // the storage flags, stored after the ledgers, are left as is
+        assertEquals(1, index.getStorageStateFlags());
+    }
+
+    private void deleteAndReopen(long... ledgerIds) throws Exception {
+        for (long ledgerId : ledgerIds) {
+            index.delete(ledgerId);
+        }
+        index.removeDeletedLedgers();
+        index.close();
+        // the ledgers left are the ones still in the db
+        index = newIndex();
+    }
+
+    private void assertActiveLedgers(Long... expected) {
+        List<Long> activeLedgers = new ArrayList<>();
+        index.getActiveLedgersInRange(0, Long.MAX_VALUE).forEach(activeLedgers::add);
+        activeLedgers.sort(null);
+        assertEquals(Arrays.asList(expected), activeLedgers);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the entries prefetched by the {@link ReadAheadManager}, depending on the access pattern of the ledgers.
+ *
+ * <p>The prefetches run inline, so the entries are in the read cache as soon as the read that triggered them
+ * returns.
+ */
+public class ReadAheadManagerTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long OTHER_LEDGER_ID = 2L;
+    // the ledger is followed by an entry of another ledger in the entry log
+    private static final long NUM_ENTRIES = 1000;
+    private static final int ENTRY_SIZE = 32;
+    private static final long ENTRY_LOG_ID = 1L;
+    private static final int MAX_READ_AHEAD_ENTRIES = 64;
+
+    private EntryLogger entryLogger;
+    private EntryReadCache readCache;
+    private DbLedgerStorageStats stats;
+    private final List<Long> cachedEntries = new ArrayList<>();
+    private ReadAheadManager readAheadManager;
+
+    @Before
+    public void setUp() throws Exception {
+        entryLogger = mock(EntryLogger.class);
+        when(entryLogger.readEntry(anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long location = invocation.getArgument(2);
+            return newEntry((location - locationOf(0)) / (4 + ENTRY_SIZE));
+        });
+        readCache = mock(EntryReadCache.class);
+        when(readCache.put(anyLong(), anyLong(), any(ByteBuf.class))).thenAnswer(invocation -> {
+            assertEquals(LEDGER_ID, (long) invocation.getArgument(0));
+            cachedEntries.add(invocation.getArgument(1));
+            return true;
+        });
+        stats = new DbLedgerStorageStats(NullStatsLogger.INSTANCE, () -> 0L, () -> 0L, () -> 0L, () -> 0L);
+        readAheadManager = new ReadAheadManager(entryLogger, readCache, stats, MAX_READ_AHEAD_ENTRIES,
+                Long.MAX_VALUE, MoreExecutors.newDirectExecutorService());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        readAheadManager.close();
+    }
+
+    @Test
+    public void testSequentialReadsGrowTheWindow() {
+        // the first miss at the start of the ledger prefetches twice the initial window
+        miss(0);
+        assertPrefetched(1, 17);
+
+        // the next window is prefetched while the reader consumes the second half of the current one, and
+        // grows up to the max read-ahead
+        hits(1, 8);
+        assertPrefetched(0, 0);
+        hits(9, 9);
+        assertPrefetched(17, 49);
+        hits(10, 32);
+        assertPrefetched(0, 0);
+        hits(33, 33);
+        assertPrefetched(49, 113);
+        hits(34, 80);
+        assertPrefetched(0, 0);
+        hits(81, 81);
+        assertPrefetched(113, 177);
+    }
+
+    @Test
+    public void testRandomReadsShrinkTheWindow() {
+        miss(0);
+        hits(1, 33);
+        cachedEntries.clear();
+
+        // a random read halves the window
+        miss(500);
+        assertPrefetched(501, 533);
+        // which grows again once the reads are sequential
+        hits(501, 516);
+        assertPrefetched(0, 0);
+        hits(517, 517);
+        assertPrefetched(533, 597);
+
+        // until the random reads bring it down to zero
+        long[] randomReads = { 200, 700, 300, 900, 100, 600 };
+        int window = MAX_READ_AHEAD_ENTRIES;
+        for (long entryId : randomReads) {
+            window /= 2;
+            miss(entryId);
+            assertPrefetched(entryId + 1, entryId + 1 + window);
+        }
+        miss(400);
+        miss(800);
+        assertPrefetched(0, 0);
+
+        // a sequential read starts again with a single entry
+        miss(801);
+        assertPrefetched(802, 803);
+    }
+
+    @Test
+    public void testNoPrefetchOnRandomReads() {
+        // the initial window is halved by each random read
+        miss(500);
+        assertPrefetched(501, 505);
+        miss(100);
+        assertPrefetched(101, 103);
+        miss(300);
+        assertPrefetched(301, 302);
+
+        // and nothing is prefetched anymore
+        for (long entryId : new long[] { 700, 200, 900, 50, 650 }) {
+            miss(entryId);
+        }
+        readAheadManager.onCacheHit(LEDGER_ID, 10);
+        readAheadManager.onCacheHit(OTHER_LEDGER_ID, 11);
+        assertPrefetched(0, 0);
+    }
+
+    @Test
+    public void testReadAheadStopsAtOtherLedger() {
+        miss(0);
+        cachedEntries.clear();
+
+        miss(NUM_ENTRIES - 5);
+        assertPrefetched(NUM_ENTRIES - 4, NUM_ENTRIES);
+    }
+
+    @Test
+    public void testFixedReadAheadWhenNotAdaptive() throws Exception {
+        readAheadManager.close();
+        readAheadManager = new ReadAheadManager(entryLogger, readCache, stats, MAX_READ_AHEAD_ENTRIES,
+                Long.MAX_VALUE, false, 1);
+
+        // every miss reads the max read-ahead, whatever the access pattern
+        for (long entryId : new long[] { 500, 100, 300 }) {
+            miss(entryId);
+            assertPrefetched(entryId + 1, entryId + 1 + MAX_READ_AHEAD_ENTRIES);
+        }
+        hits(301, 400);
+        assertPrefetched(0, 0);
+    }
+
+    private void miss(long entryId) {
+        readAheadManager.onCacheMiss(LEDGER_ID, entryId, locationOf(entryId + 1));
+    }
+
+    private void hits(long firstEntryId, long lastEntryId) {
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            readAheadManager.onCacheHit(LEDGER_ID, entryId);
+        }
+    }
+
+    /**
+     * Assert the entries cached since the previous call are the range from {@code firstEntryId} included to
+     * {@code endEntryId} excluded.
+     */
+    private void assertPrefetched(long firstEntryId, long endEntryId) {
+        List<Long> expected = LongStream.range(firstEntryId, endEntryId).boxed().collect(Collectors.toList());
+        assertEquals(expected, cachedEntries);
+        cachedEntries.clear();
+    }
+
+    private static long locationOf(long entryId) {
+        return (ENTRY_LOG_ID << 32) + entryId * (4 + ENTRY_SIZE);
+    }
+
+    private static ByteBuf newEntry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(ENTRY_SIZE, ENTRY_SIZE);
+        entry.writeLong(entryId < NUM_ENTRIES ? LEDGER_ID : OTHER_LEDGER_ID);
+        entry.writeLong(entryId);
+        entry.writeZero(entry.writableBytes());
+        return entry;
+    }
+}
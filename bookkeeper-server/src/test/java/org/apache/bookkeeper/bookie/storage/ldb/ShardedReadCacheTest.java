@@ -0,0 +1,315 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.EntryReadResult;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.Test;
+
+/**
+ * Test the {@link ShardedReadCache}.
+ */
+public class ShardedReadCacheTest {
+
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+
+    @Test
+    public void testPutGetAcrossShards() {
+        ShardedReadCache cache = new ShardedReadCache(allocator, 16 * MB, 4, MB, 64 * KB, false,
+                NullStatsLogger.INSTANCE);
+        assertEquals(4, cache.getNumShards());
+
+        int numLedgers = 100;
+        int numEntries = 10;
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            for (long entryId = 0; entryId < numEntries; entryId++) {
+                cache.put(ledgerId, entryId, newEntry(ledgerId, entryId, KB));
+            }
+        }
+        assertEquals(numLedgers * numEntries, cache.count());
+
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            for (long entryId = 0; entryId < numEntries; entryId++) {
+                assertTrue(cache.hasEntry(ledgerId, entryId));
+                ByteBuf entry = cache.get(ledgerId, entryId);
+                assertEquals(newEntry(ledgerId, entryId, KB), entry);
+                entry.release();
+            }
+        }
+        assertFalse(cache.hasEntry(numLedgers, 0));
+        assertNull(cache.get(numLedgers, 0));
+        cache.close();
+    }
+
+    @Test
+    public void testShardsFitMaxEntrySize() {
+        // 16 shards of 512 KB would have segments of 256 KB
+        ShardedReadCache cache = new ShardedReadCache(allocator, 8 * MB, 16, MB, false, NullStatsLogger.INSTANCE);
+        assertEquals(4, cache.getNumShards());
+
+        for (long ledgerId = 0; ledgerId < 8; ledgerId++) {
+            cache.put(ledgerId, 0, newEntry(ledgerId, 0, MB));
+        }
+        for (long ledgerId = 0; ledgerId < 8; ledgerId++) {
+            ByteBuf entry = cache.get(ledgerId, 0);
+            if (entry != null) {
+                assertEquals(newEntry(ledgerId, 0, MB), entry);
+                entry.release();
+            }
+        }
+        // the last entry put in a shard is always cached
+        ByteBuf entry = cache.get(7, 0);
+        assertEquals(newEntry(7, 0, MB), entry);
+        entry.release();
+        cache.close();
+    }
+
+    @Test
+    public void testOversizedEntriesAreCounted() {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        // a single shard of 2 segments of 512 KB
+        ShardedReadCache cache = new ShardedReadCache(allocator, MB, 4, MB, 2 * MB, false,
+                statsProvider.getStatsLogger(""));
+        assertEquals(1, cache.getNumShards());
+
+        cache.put(1, 0, newEntry(1, 0, 600 * KB));
+        cache.put(1, 1, newEntry(1, 1, 500 * KB));
+        assertNull(cache.get(1, 0));
+        ByteBuf entry = cache.get(1, 1);
+        assertEquals(newEntry(1, 1, 500 * KB), entry);
+        entry.release();
+
+        assertEquals(1, cache.count());
+        assertEquals(1L, statsProvider.getCounter("shard_0.read-cache-shard-skipped-entries").get().longValue());
+        cache.close();
+    }
+
+    @Test
+    public void testVerifiedFlagReturnedWithEntry() throws Exception {
+        ShardedReadCache cache = new ShardedReadCache(allocator, 16 * MB, 4, MB, 64 * KB, true,
+                NullStatsLogger.INSTANCE);
+
+        ByteBuf valid = newCrc32cEntry(1, 0, KB);
+        ByteBuf corrupted = newCrc32cEntry(1, 1, KB);
+        corrupted.setByte(corrupted.writerIndex() - 1, corrupted.getByte(corrupted.writerIndex() - 1) + 1);
+        assertTrue(cache.put(1, 0, valid));
+        assertFalse(cache.put(1, 1, corrupted));
+
+        EntryReadResult result = cache.getEntryReadResult(1, 0);
+        assertEquals(valid, result.getEntry());
+        assertTrue(result.isChecksumVerified());
+        result.getEntry().release();
+
+        result = cache.getEntryReadResult(1, 1);
+        assertEquals(corrupted, result.getEntry());
+        assertFalse(result.isChecksumVerified());
+        result.getEntry().release();
+
+        assertNull(cache.getEntryReadResult(1, 2));
+        cache.close();
+
+        // the entries are not verified when the cache does not verify the checksums
+        cache = new ShardedReadCache(allocator, 16 * MB, 4, MB, 64 * KB, false, NullStatsLogger.INSTANCE);
+        assertFalse(cache.put(1, 0, valid));
+        result = cache.getEntryReadResult(1, 0);
+        assertFalse(result.isChecksumVerified());
+        result.getEntry().release();
+        cache.close();
+    }
+
+    @Test
+    public void testReferencedEntrySurvivesEviction() {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        // a single shard of 4 segments of 512 KB, that hold 8 entries of 64 KB each
+        ShardedReadCache cache = new ShardedReadCache(allocator, 2 * MB, 1, 512 * KB, 64 * KB, false,
+                statsProvider.getStatsLogger(""));
+        assertEquals(1, cache.getNumShards());
+        int entrySize = 64 * KB;
+        int entriesPerSegment = 8;
+        int numSegments = 4;
+
+        long entryId = 0;
+        for (; entryId < entriesPerSegment; entryId++) {
+            cache.put(1, entryId, newEntry(1, entryId, entrySize));
+        }
+        ByteBuf entry = cache.get(1, 3);
+        entry.release();
+
+        // fill the other segments, the next entry reclaims the first one
+        for (; entryId <= numSegments * entriesPerSegment; entryId++) {
+            cache.put(1, entryId, newEntry(1, entryId, entrySize));
+        }
+        for (long i = 0; i < entriesPerSegment; i++) {
+            assertEquals("entry " + i, i == 3, cache.hasEntry(1, i));
+        }
+        assertEquals(1L, statsProvider.getCounter("shard_0.read-cache-shard-promotions").get().longValue());
+        assertEquals(entriesPerSegment - 1,
+                statsProvider.getCounter("shard_0.read-cache-shard-evictions").get().longValue());
+
+        // the promoted entry was not read again, it is evicted the next time its segment is reclaimed
+        long nextRollover = entryId + (numSegments * entriesPerSegment - 2);
+        for (; entryId < nextRollover; entryId++) {
+            cache.put(1, entryId, newEntry(1, entryId, entrySize));
+        }
+        assertTrue(cache.hasEntry(1, 3));
+        cache.put(1, entryId, newEntry(1, entryId, entrySize));
+        assertFalse(cache.hasEntry(1, 3));
+        assertEquals(1L, statsProvider.getCounter("shard_0.read-cache-shard-promotions").get().longValue());
+        cache.close();
+    }
+
+    @Test
+    public void testPromotedEntryContentIsPreserved() {
+        ShardedReadCache cache = new ShardedReadCache(allocator, 2 * MB, 1, 512 * KB, 64 * KB, false,
+                NullStatsLogger.INSTANCE);
+        // entries of different sizes, so that the promoted ones are moved to a different offset
+        long entryId = 0;
+        for (; entryId < 10; entryId++) {
+            cache.put(1, entryId, newEntry(1, entryId, 20 * KB + (int) entryId * 100));
+        }
+        for (long i = 5; i < 10; i++) {
+            cache.get(1, i).release();
+        }
+        while (cache.hasEntry(1, 0)) {
+            cache.put(1, entryId, newEntry(1, entryId, 20 * KB));
+            entryId++;
+        }
+
+        for (long i = 5; i < 10; i++) {
+            ByteBuf entry = cache.get(1, i);
+            assertEquals(newEntry(1, i, 20 * KB + (int) i * 100), entry);
+            entry.release();
+        }
+        cache.close();
+    }
+
+    @Test
+    public void testConcurrentPutAndGet() throws Exception {
+        // a small cache, so that the shards roll over while the entries are read
+        ShardedReadCache cache = new ShardedReadCache(allocator, 4 * MB, 4, 256 * KB, 64 * KB, false,
+                NullStatsLogger.INSTANCE);
+        int numThreads = 4;
+        int numEntries = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                long ledgerId = t;
+                long otherLedgerId = (t + 1) % numThreads;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(ledgerId);
+                    int hits = 0;
+                    start.await();
+                    for (long entryId = 0; entryId < numEntries; entryId++) {
+                        cache.put(ledgerId, entryId, newEntry(ledgerId, entryId, entrySize(entryId)));
+
+                        // read back an entry of this ledger, and one of a ledger written by another thread
+                        long readEntryId = random.nextInt((int) entryId + 1);
+                        hits += assertEntryOrMissing(cache, ledgerId, readEntryId);
+                        hits += assertEntryOrMissing(cache, otherLedgerId, readEntryId);
+                    }
+                    return hits;
+                }));
+            }
+            start.countDown();
+
+            int hits = 0;
+            for (Future<Integer> future : futures) {
+                hits += future.get(60, TimeUnit.SECONDS);
+            }
+            assertTrue(hits > 0);
+        } finally {
+            executor.shutdownNow();
+            cache.close();
+        }
+    }
+
+    private static int entrySize(long entryId) {
+        return KB + (int) (entryId % 7) * 100;
+    }
+
+    /**
+     * Check that an entry is either missing, or read with its exact content.
+     *
+     * @return 1 if the entry was found, 0 otherwise
+     */
+    private static int assertEntryOrMissing(ShardedReadCache cache, long ledgerId, long entryId) {
+        ByteBuf entry = cache.get(ledgerId, entryId);
+        if (entry == null) {
+            return 0;
+        }
+        try {
+            assertEquals(newEntry(ledgerId, entryId, entrySize(entryId)), entry);
+        } finally {
+            entry.release();
+        }
+        return 1;
+    }
+
+    private static ByteBuf newCrc32cEntry(long ledgerId, long entryId, int payloadSize) throws Exception {
+        DigestManager digestManager = DigestManager.instantiate(ledgerId, new byte[0], DigestType.CRC32C,
+                UnpooledByteBufAllocator.DEFAULT, false);
+        ByteBuf payload = Unpooled.buffer(payloadSize, payloadSize);
+        while (payload.isWritable()) {
+            payload.writeByte((byte) (entryId + payload.writerIndex()));
+        }
+        ByteBufList packaged = (ByteBufList) digestManager.computeDigestAndPackageForSending(entryId, entryId - 1,
+                payloadSize, payload, new byte[0], 0);
+        ByteBuf entry = ByteBufList.coalesce(packaged);
+        packaged.release();
+        return entry;
+    }
+
+    private static ByteBuf newEntry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size, size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((byte) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+}
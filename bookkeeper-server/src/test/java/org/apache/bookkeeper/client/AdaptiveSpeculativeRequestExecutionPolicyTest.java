@@ -0,0 +1,236 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the timeouts and the rate limit of the {@link AdaptiveSpeculativeRequestExecutionPolicy}.
+ *
+ * <p>The speculative reads are scheduled on a fake scheduler, and only run when the test runs them.
+ */
+public class AdaptiveSpeculativeRequestExecutionPolicyTest {
+
+    private static final double QUANTILE = 0.95;
+    private static final int FIRST_TIMEOUT_MS = 50;
+    private static final int MAX_TIMEOUT_MS = 200;
+    private static final float BACKOFF_MULTIPLIER = 2.0f;
+    private static final int RATE_PERCENT = 10;
+
+    private ScheduledExecutorService scheduler;
+    private final List<Runnable> scheduledReads = new ArrayList<>();
+    private final List<Long> scheduledDelays = new ArrayList<>();
+    private OpStatsLogger timeoutStats;
+    private Counter throttledCounter;
+    private BookKeeperClientStats clientStats;
+    private FakeRequestExecutor requestExecutor;
+
+    @Before
+    public void setUp() {
+        scheduler = mock(ScheduledExecutorService.class);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocation -> {
+            scheduledReads.add(invocation.getArgument(0));
+            scheduledDelays.add(invocation.getArgument(1));
+            return null;
+        });
+        timeoutStats = mock(OpStatsLogger.class);
+        throttledCounter = mock(Counter.class);
+        clientStats = mock(BookKeeperClientStats.class);
+        when(clientStats.getSpeculativeReadTimeoutLogger()).thenReturn(timeoutStats);
+        when(clientStats.getSpeculativeReadThrottledCounter()).thenReturn(throttledCounter);
+        requestExecutor = new FakeRequestExecutor();
+    }
+
+    private AdaptiveSpeculativeRequestExecutionPolicy newPolicy(int ratePercent) {
+        return new AdaptiveSpeculativeRequestExecutionPolicy(QUANTILE, FIRST_TIMEOUT_MS, MAX_TIMEOUT_MS,
+                BACKOFF_MULTIPLIER, ratePercent, clientStats);
+    }
+
+    @Test
+    public void testTimeoutFollowsLatency() {
+        AdaptiveSpeculativeRequestExecutionPolicy policy = newPolicy(RATE_PERCENT);
+
+        // the first timeout is used until the latency of the bookie is known
+        assertTimeout(policy, -1L, FIRST_TIMEOUT_MS);
+        // the latency is rounded up to the next millisecond
+        assertTimeout(policy, TimeUnit.MICROSECONDS.toNanos(3200), 4);
+        assertTimeout(policy, TimeUnit.MILLISECONDS.toNanos(120), 120);
+        assertTimeout(policy, 0L, 1);
+        // and capped by the max timeout
+        assertTimeout(policy, TimeUnit.SECONDS.toNanos(1), MAX_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testNextTimeoutsBackOff() {
+        AdaptiveSpeculativeRequestExecutionPolicy policy = newPolicy(RATE_PERCENT);
+        requestExecutor.latencyNanos = TimeUnit.MILLISECONDS.toNanos(30);
+        requestExecutor.issueNext = true;
+
+        policy.initiateSpeculativeRequest(scheduler, requestExecutor);
+        for (long expectedDelay : new long[] { 30, 60, 120, MAX_TIMEOUT_MS, MAX_TIMEOUT_MS }) {
+            assertEquals(1, scheduledReads.size());
+            assertEquals(expectedDelay, (long) scheduledDelays.get(0));
+            // each speculative request schedules the next one
+            Runnable read = scheduledReads.get(0);
+            scheduledReads.clear();
+            scheduledDelays.clear();
+            read.run();
+        }
+        assertEquals(5, requestExecutor.issued);
+        // the latency is only looked up for the first speculative request
+        assertEquals(1, requestExecutor.latencyLookups);
+    }
+
+    @Test
+    public void testCreditsRunOutAndRefill() {
+        ArgumentCaptor<Gauge<Double>> rateGauge = newRateGaugeCaptor();
+        AdaptiveSpeculativeRequestExecutionPolicy policy = newPolicy(RATE_PERCENT);
+        verify(clientStats).registerSpeculativeReadRateGauge(rateGauge.capture());
+        requestExecutor.issueNext = true;
+
+        // a burst of slow requests speculates up to the burst allowance
+        int numRequests = AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS + 50;
+        initiateRequests(policy, numRequests);
+        assertEquals(AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS, runScheduledReads());
+        verify(throttledCounter, times(50)).inc();
+        assertEquals(100.0 * AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS / numRequests,
+                rateGauge.getValue().getSample(), 0.0001);
+        assertEquals(0.0, rateGauge.getValue().getSample(), 0.0001);
+
+        // then each request adds the credits of a tenth of a speculative request
+        initiateRequests(policy, 100 / RATE_PERCENT - 1);
+        assertEquals(0, runScheduledReads());
+        initiateRequests(policy, 1);
+        assertEquals(1, runScheduledReads());
+        initiateRequests(policy, 100 / RATE_PERCENT);
+        assertEquals(1, runScheduledReads());
+        verify(throttledCounter, times(50 + (100 / RATE_PERCENT - 1) + (100 / RATE_PERCENT - 1))).inc();
+    }
+
+    @Test
+    public void testCreditsCappedByBurst() {
+        AdaptiveSpeculativeRequestExecutionPolicy policy = newPolicy(RATE_PERCENT);
+        requestExecutor.issueNext = true;
+
+        // the credits of the requests that did not speculate do not add up beyond the burst allowance
+        initiateRequests(policy, 10 * AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS);
+        scheduledReads.clear();
+        initiateRequests(policy, AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS + 1);
+        assertEquals(AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS, runScheduledReads());
+        verify(throttledCounter, times(1)).inc();
+    }
+
+    @Test
+    public void testCreditsReturnedWhenNoRequestIssued() {
+        // without refill, only the burst allowance is available
+        AdaptiveSpeculativeRequestExecutionPolicy policy = newPolicy(0);
+
+        // the speculative reads that found no bookie to send the request to do not use credits
+        requestExecutor.issueNext = false;
+        initiateRequests(policy, 2 * AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS);
+        assertEquals(2 * AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS, runScheduledReads());
+        verify(throttledCounter, never()).inc();
+
+        requestExecutor.issueNext = true;
+        initiateRequests(policy, 2 * AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS);
+        assertEquals(AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS, runScheduledReads());
+        verify(throttledCounter, times(AdaptiveSpeculativeRequestExecutionPolicy.MAX_BURST_REQUESTS)).inc();
+    }
+
+    private void assertTimeout(AdaptiveSpeculativeRequestExecutionPolicy policy, long latencyNanos,
+                               int expectedTimeoutMs) {
+        requestExecutor.latencyNanos = latencyNanos;
+        policy.initiateSpeculativeRequest(scheduler, requestExecutor);
+        assertEquals(1, scheduledDelays.size());
+        assertEquals(expectedTimeoutMs, (long) scheduledDelays.get(0));
+        verify(timeoutStats, times(1)).registerSuccessfulValue(expectedTimeoutMs);
+        scheduledReads.clear();
+        scheduledDelays.clear();
+    }
+
+    private void initiateRequests(AdaptiveSpeculativeRequestExecutionPolicy policy, int numRequests) {
+        for (int i = 0; i < numRequests; i++) {
+            policy.initiateSpeculativeRequest(scheduler, requestExecutor);
+        }
+    }
+
+    /**
+     * Run the speculative reads scheduled so far, the next ones they schedule are dropped.
+     *
+     * @return the number of speculative requests issued
+     */
+    private int runScheduledReads() {
+        List<Runnable> reads = new ArrayList<>(scheduledReads);
+        scheduledReads.clear();
+        scheduledDelays.clear();
+        int issuedBefore = requestExecutor.issued;
+        reads.forEach(Runnable::run);
+        scheduledReads.clear();
+        scheduledDelays.clear();
+        return requestExecutor.issued - issuedBefore;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Gauge<Double>> newRateGaugeCaptor() {
+        return ArgumentCaptor.forClass((Class<Gauge<Double>>) (Class<?>) Gauge.class);
+    }
+
+    private static class FakeRequestExecutor implements SpeculativeRequestExecutor {
+        private long latencyNanos = -1L;
+        private boolean issueNext;
+        private int issued;
+        private int latencyLookups;
+
+        @Override
+        public ListenableFuture<Boolean> issueSpeculativeRequest() {
+            issued++;
+            return Futures.immediateFuture(issueNext);
+        }
+
+        @Override
+        public long getRequestLatencyNanos(double quantile) {
+            assertEquals(QUANTILE, quantile, 0.0);
+            latencyLookups++;
+            return latencyNanos;
+        }
+    }
+}
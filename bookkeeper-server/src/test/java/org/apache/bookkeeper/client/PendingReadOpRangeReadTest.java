@@ -0,0 +1,174 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test how a {@link PendingReadOp} groups the entries it reads into range reads.
+ */
+public class PendingReadOpRangeReadTest {
+
+    private static final long LEDGER_ID = 1L;
+
+    private final List<BookieId> ensemble = new ArrayList<>();
+    private BookieClient bookieClient;
+    private ClientContext clientCtx;
+    private LedgerHandle lh;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 3; i++) {
+            ensemble.add(BookieId.parse("127.0.0.1:" + (3181 + i)));
+        }
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setRangeReadEnabled(true);
+        conf.setRangeReadMaxEntries(64);
+        conf.setFirstSpeculativeReadTimeout(0);
+        conf.setReorderReadSequenceEnabled(false);
+
+        bookieClient = mock(BookieClient.class);
+        clientCtx = mock(ClientContext.class);
+        when(clientCtx.getConf()).thenReturn(ClientInternalConf.fromConfig(conf));
+        when(clientCtx.getBookieClient()).thenReturn(bookieClient);
+        when(clientCtx.getClientStats()).thenReturn(BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+    }
+
+    private PendingReadOp newReadOp(int writeQuorumSize, long startEntryId, long endEntryId) {
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+            .withId(LEDGER_ID)
+            .withEnsembleSize(ensemble.size())
+            .withWriteQuorumSize(writeQuorumSize)
+            .withAckQuorumSize(writeQuorumSize)
+            .newEnsembleEntry(0L, ensemble)
+            .build();
+        DistributionSchedule schedule =
+            new RoundRobinDistributionSchedule(writeQuorumSize, writeQuorumSize, ensemble.size());
+
+        lh = mock(LedgerHandle.class);
+        when(lh.getLedgerMetadata()).thenReturn(metadata);
+        when(lh.getWriteSetForReadOperation(anyLong()))
+            .thenAnswer(invocation -> schedule.getWriteSet(invocation.getArgument(0)));
+        return new PendingReadOp(lh, clientCtx, startEntryId, endEntryId, false);
+    }
+
+    @Test
+    public void testRangeReadsWhenEnsembleLargerThanWriteQuorum() {
+        // E=3, WQ=2: bookie (e + 1) % 3 stores both the entries e and e + 1
+        newReadOp(2, 0L, 5L).initiate();
+
+        verifyRangeRead(ensemble.get(1), 0L, 2);
+        verifyRangeRead(ensemble.get(0), 2L, 2);
+        verifyRangeRead(ensemble.get(2), 4L, 2);
+        verify(bookieClient, never()).readEntry(any(BookieId.class), anyLong(), anyLong(),
+            any(ReadEntryCallback.class), any(), anyInt());
+    }
+
+    @Test
+    public void testRangeReadWhenEnsembleEqualsWriteQuorum() {
+        newReadOp(3, 0L, 5L).initiate();
+
+        verifyRangeRead(ensemble.get(0), 0L, 6);
+        verify(bookieClient, times(1)).readEntries(any(BookieId.class), anyLong(), anyLong(), anyInt(),
+            anyInt(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void testRangeReadAdvancesLastAddConfirmed() throws Exception {
+        PendingReadOp readOp = newReadOp(3, 0L, 2L);
+        DigestManager digestManager = DigestManager.instantiate(LEDGER_ID, new byte[0], DigestType.CRC32C,
+            UnpooledByteBufAllocator.DEFAULT, false);
+        setDigestManager(digestManager);
+        readOp.initiate();
+
+        ArgumentCaptor<ReadEntriesCallback> cb = ArgumentCaptor.forClass(ReadEntriesCallback.class);
+        ArgumentCaptor<Object> ctx = ArgumentCaptor.forClass(Object.class);
+        verify(bookieClient, times(1)).readEntries(eq(ensemble.get(0)), anyLong(), eq(0L), eq(3), anyInt(),
+            cb.capture(), ctx.capture(), anyInt());
+
+        List<ByteBuf> entries = new ArrayList<>();
+        for (long entryId = 0; entryId < 3; entryId++) {
+            entries.add(newEntry(digestManager, entryId));
+        }
+        cb.getValue().readEntriesComplete(BKException.Code.OK, LEDGER_ID, 0L, entries, ctx.getValue());
+
+        // the LAC is advanced to the one written with the last entry read, as for a single read
+        verify(lh, times(1)).updateLastConfirmed(1L, 0L);
+        try (LedgerEntries read = readOp.future().get(10, TimeUnit.SECONDS)) {
+            assertEquals(0L, read.getEntry(0L).getEntryId());
+            assertEquals(2L, read.getEntry(2L).getEntryId());
+        }
+        for (ByteBuf entry : entries) {
+            entry.release();
+        }
+    }
+
+    private void setDigestManager(DigestManager digestManager) throws Exception {
+        Field macManager = LedgerHandle.class.getDeclaredField("macManager");
+        macManager.setAccessible(true);
+        macManager.set(lh, digestManager);
+    }
+
+    private static ByteBuf newEntry(DigestManager digestManager, long entryId) {
+        ByteBuf payload = Unpooled.wrappedBuffer(("entry-" + entryId).getBytes());
+        ByteBufList packaged = (ByteBufList) digestManager.computeDigestAndPackageForSending(entryId, entryId - 1,
+            payload.readableBytes(), payload, new byte[0], 0);
+        ByteBuf entry = ByteBufList.coalesce(packaged);
+        packaged.release();
+        return entry;
+    }
+
+    private void verifyRangeRead(BookieId bookie, long firstEntryId, int count) {
+        verify(bookieClient, times(1)).readEntries(eq(bookie), anyLong(), eq(firstEntryId), eq(count),
+            anyInt(), any(), any(), anyInt());
+    }
+}
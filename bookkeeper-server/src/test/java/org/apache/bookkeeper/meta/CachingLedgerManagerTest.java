@@ -0,0 +1,224 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.meta;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test how the {@link CachingLedgerManager} serves, updates and evicts the cached ledger metadata.
+ */
+public class CachingLedgerManagerTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long MAX_SIZE_BYTES = 1024 * 1024;
+
+    private LedgerManager underlying;
+
+    @Before
+    public void setUp() {
+        underlying = mock(LedgerManager.class);
+    }
+
+    private static Versioned<LedgerMetadata> newMetadata(boolean closed, long version) {
+        List<BookieId> ensemble = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ensemble.add(BookieId.parse("127.0.0.1:" + (3181 + i)));
+        }
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+            .withId(LEDGER_ID)
+            .withEnsembleSize(3)
+            .withWriteQuorumSize(3)
+            .withAckQuorumSize(2)
+            .newEnsembleEntry(0L, ensemble);
+        if (closed) {
+            builder.withClosedState().withLastEntryId(10L).withLength(100L);
+        }
+        return new Versioned<>(builder.build(), new LongVersion(version));
+    }
+
+    private void mockRead(Versioned<LedgerMetadata> metadata) {
+        when(underlying.readLedgerMetadata(LEDGER_ID)).thenReturn(CompletableFuture.completedFuture(metadata));
+    }
+
+    private LedgerMetadataListener captureListener() {
+        ArgumentCaptor<LedgerMetadataListener> listener = ArgumentCaptor.forClass(LedgerMetadataListener.class);
+        verify(underlying).registerLedgerMetadataListener(eq(LEDGER_ID), listener.capture());
+        return listener.getValue();
+    }
+
+    /**
+     * Read the metadata of the ledger once it was cached and watched.
+     */
+    private LedgerMetadataListener cacheWatchedMetadata(CachingLedgerManager lm, Versioned<LedgerMetadata> metadata)
+            throws Exception {
+        mockRead(metadata);
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        LedgerMetadataListener listener = captureListener();
+        listener.onChanged(LEDGER_ID, metadata);
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(1)).readLedgerMetadata(LEDGER_ID);
+        return listener;
+    }
+
+    @Test
+    public void testServedOnceTheWatchIsConfirmed() throws Exception {
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, true, 0,
+            NullStatsLogger.INSTANCE);
+        Versioned<LedgerMetadata> metadata = newMetadata(false, 1L);
+        mockRead(metadata);
+
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        LedgerMetadataListener listener = captureListener();
+        // the watch did not confirm the metadata yet, so it is read again from the metadata store
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+
+        listener.onChanged(LEDGER_ID, metadata);
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+
+        // the changes notified by the watch are served
+        Versioned<LedgerMetadata> newMetadata = newMetadata(true, 2L);
+        listener.onChanged(LEDGER_ID, newMetadata);
+        assertSame(newMetadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+    }
+
+    @Test
+    public void testDeletedLedgerEvictedOnNextRead() throws Exception {
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, true, 0,
+            NullStatsLogger.INSTANCE);
+        LedgerMetadataListener listener = cacheWatchedMetadata(lm, newMetadata(false, 1L));
+
+        listener.onChanged(LEDGER_ID, null);
+        verify(underlying, never()).unregisterLedgerMetadataListener(anyLong(), any());
+
+        CompletableFuture<Versioned<LedgerMetadata>> noLedger = new CompletableFuture<>();
+        noLedger.completeExceptionally(new BKException.BKNoSuchLedgerExistsOnMetadataServerException());
+        when(underlying.readLedgerMetadata(LEDGER_ID)).thenReturn(noLedger);
+        try {
+            lm.readLedgerMetadata(LEDGER_ID).get();
+            fail("The metadata of a deleted ledger should not be served");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BKException.BKNoSuchLedgerExistsOnMetadataServerException);
+        }
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+        verify(underlying).unregisterLedgerMetadataListener(LEDGER_ID, listener);
+    }
+
+    @Test
+    public void testFailedWriteEvicts() throws Exception {
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, true, 0,
+            NullStatsLogger.INSTANCE);
+        Versioned<LedgerMetadata> metadata = newMetadata(false, 1L);
+        LedgerMetadataListener listener = cacheWatchedMetadata(lm, metadata);
+
+        CompletableFuture<Versioned<LedgerMetadata>> badVersion = new CompletableFuture<>();
+        badVersion.completeExceptionally(new BKException.BKMetadataVersionException());
+        when(underlying.writeLedgerMetadata(eq(LEDGER_ID), any(), any(Version.class))).thenReturn(badVersion);
+        try {
+            lm.writeLedgerMetadata(LEDGER_ID, newMetadata(true, 1L).getValue(), metadata.getVersion()).get();
+            fail("The write should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BKException.BKMetadataVersionException);
+        }
+        verify(underlying).unregisterLedgerMetadataListener(LEDGER_ID, listener);
+
+        // the retry of the write reads the latest metadata from the metadata store
+        Versioned<LedgerMetadata> latest = newMetadata(false, 2L);
+        mockRead(latest);
+        assertSame(latest, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+    }
+
+    @Test
+    public void testSuccessfulWriteUpdates() throws Exception {
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, true, 0,
+            NullStatsLogger.INSTANCE);
+        Versioned<LedgerMetadata> metadata = newMetadata(false, 1L);
+        cacheWatchedMetadata(lm, metadata);
+
+        Versioned<LedgerMetadata> written = newMetadata(true, 2L);
+        when(underlying.writeLedgerMetadata(eq(LEDGER_ID), any(), any(Version.class)))
+            .thenReturn(CompletableFuture.completedFuture(written));
+        lm.writeLedgerMetadata(LEDGER_ID, written.getValue(), metadata.getVersion()).get();
+        assertSame(written, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(1)).readLedgerMetadata(LEDGER_ID);
+    }
+
+    @Test
+    public void testClosedLedgersServedUnwatched() throws Exception {
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, false, 0,
+            NullStatsLogger.INSTANCE);
+        Versioned<LedgerMetadata> metadata = newMetadata(true, 1L);
+        mockRead(metadata);
+
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(1)).readLedgerMetadata(LEDGER_ID);
+        verify(underlying, never()).registerLedgerMetadataListener(anyLong(), any());
+    }
+
+    @Test
+    public void testUnwatchedMetadataExpires() throws Exception {
+        long ttlMs = 10;
+        CachingLedgerManager lm = new CachingLedgerManager(underlying, MAX_SIZE_BYTES, false, ttlMs,
+            NullStatsLogger.INSTANCE);
+        Versioned<LedgerMetadata> metadata = newMetadata(true, 1L);
+        mockRead(metadata);
+        assertSame(metadata, lm.readLedgerMetadata(LEDGER_ID).get());
+
+        Thread.sleep(2 * ttlMs);
+        // the ensembles changed by a re-replication are seen once the ttl expired
+        Versioned<LedgerMetadata> replicated = newMetadata(true, 2L);
+        mockRead(replicated);
+        assertSame(replicated, lm.readLedgerMetadata(LEDGER_ID).get());
+        verify(underlying, times(2)).readLedgerMetadata(LEDGER_ID);
+        verify(underlying, never()).registerLedgerMetadataListener(anyLong(), any());
+    }
+}
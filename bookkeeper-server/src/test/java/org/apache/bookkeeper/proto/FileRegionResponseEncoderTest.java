@@ -0,0 +1,134 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.protobuf.ExtensionRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.SslHandler;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test how the {@link BookieProtoEncoding.ResponseEncoder} writes the read responses sent from file regions.
+ */
+public class FileRegionResponseEncoderTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long ENTRY_ID = 2L;
+    private static final int RESPONSE_HEADERS_SIZE = 24;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private byte[] entry;
+    private FileRegion region;
+
+    @Before
+    public void setUp() throws Exception {
+        entry = new byte[10000];
+        new Random(0).nextBytes(entry);
+        File file = tempDir.newFile();
+        Files.write(file.toPath(), entry);
+        region = new DefaultFileRegion(file, 0, entry.length);
+    }
+
+    private BookieProtocol.FileRegionReadResponse newResponse() {
+        return new BookieProtocol.FileRegionReadResponse(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                LEDGER_ID, ENTRY_ID, region);
+    }
+
+    @Test
+    public void testWriteRegion() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new BookieProtoEncoding.ResponseEncoder(ExtensionRegistry.newInstance()));
+        channel.writeOutbound(newResponse());
+
+        ByteBuf headers = channel.readOutbound();
+        assertHeaders(headers);
+        headers.release();
+        // the region itself is written to the channel
+        FileRegion written = channel.readOutbound();
+        assertSame(region, written);
+        assertNull(channel.readOutbound());
+        written.release();
+        channel.finish();
+    }
+
+    @Test
+    public void testCopyRegionWithSslHandler() throws Exception {
+        SSLEngine engine = SSLContext.getDefault().createSSLEngine();
+        engine.setUseClientMode(false);
+        List<Object> written = new ArrayList<>();
+        // records the messages it should encrypt
+        SslHandler sslHandler = new SslHandler(engine) {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                written.add(msg);
+                promise.trySuccess();
+            }
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(sslHandler,
+                new BookieProtoEncoding.ResponseEncoder(ExtensionRegistry.newInstance()));
+        channel.writeAndFlush(newResponse());
+
+        assertEquals(2, written.size());
+        ByteBuf headers = (ByteBuf) written.get(0);
+        assertHeaders(headers);
+        headers.release();
+        // the entry is copied from the region, that is released
+        ByteBuf data = (ByteBuf) written.get(1);
+        assertArrayEquals(entry, ByteBufUtil.getBytes(data));
+        data.release();
+        assertEquals(0, region.refCnt());
+
+        channel.pipeline().remove(sslHandler);
+        channel.finish();
+    }
+
+    private void assertHeaders(ByteBuf headers) {
+        assertEquals(RESPONSE_HEADERS_SIZE + entry.length, headers.readInt());
+        assertEquals(BookieProtocol.READENTRY, BookieProtocol.PacketHeader.getOpCode(headers.readInt()));
+        assertEquals(BookieProtocol.EOK, headers.readInt());
+        assertEquals(LEDGER_ID, headers.readLong());
+        assertEquals(ENTRY_ID, headers.readLong());
+        assertEquals(0, headers.readableBytes());
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCounted;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedAddRequest;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedRangeAddRequest;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test how a {@link PerChannelBookieClient} batches the v2 adds of a ledger into range add requests.
+ */
+public class PerChannelBookieClientAddBatchTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int SMALL_ENTRY_SIZE = 100;
+    private static final int LARGE_ENTRY_SIZE = BookieProtoEncoding.SMALL_ENTRY_SIZE_THRESHOLD + 1;
+    private static final byte[] MASTER_KEY = new byte[BookieProtocol.MASTER_KEY_LENGTH];
+    private static final WriteCallback NOOP_CALLBACK = (rc, ledgerId, entryId, addr, ctx) -> { };
+
+    static {
+        Arrays.fill(MASTER_KEY, (byte) 1);
+    }
+
+    private final BookieProtoEncoding.RequestEnDeCoderPreV3 decoder =
+            new BookieProtoEncoding.RequestEnDeCoderPreV3(null);
+    private OrderedExecutor executor;
+    private EmbeddedChannel channel;
+    private PerChannelBookieClient client;
+
+    private void startClient(int maxEntries, int maxBytes, long lingerTimeMicros) throws Exception {
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setUseV2WireProtocol(true);
+        conf.setAddBatchingEnabled(true);
+        conf.setAddBatchMaxEntries(maxEntries);
+        conf.setAddBatchMaxBytes(maxBytes);
+        conf.setAddBatchLingerTimeMicros(lingerTimeMicros);
+        executor = OrderedExecutor.newBuilder().name("add-batch-test").numThreads(1).build();
+        client = new PerChannelBookieClient(conf, executor, null, BookieId.parse("127.0.0.1:3181"),
+                NullStatsLogger.INSTANCE, null, null, null, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        channel = new EmbeddedChannel();
+        client.channel = channel;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        if (channel != null) {
+            channel.finishAndReleaseAll();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchFlushedOnMaxEntries() throws Exception {
+        startClient(3, 1024 * 1024, TimeUnit.SECONDS.toMicros(60));
+
+        // nothing to wait for, the first add is sent on its own
+        addEntry(0, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(0L), decodeEntryIds(channel.readOutbound()));
+
+        addEntry(1, SMALL_ENTRY_SIZE);
+        addEntry(2, SMALL_ENTRY_SIZE);
+        assertNull(channel.readOutbound());
+        addEntry(3, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(1L, 2L, 3L), decodeEntryIds(channel.readOutbound()));
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testBatchFlushedOnMaxBytes() throws Exception {
+        ByteBuf add = (ByteBuf) newAdd(0, SMALL_ENTRY_SIZE);
+        int addSize = add.readableBytes();
+        add.release();
+        startClient(100, 2 * addSize, TimeUnit.SECONDS.toMicros(60));
+
+        addEntry(0, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(0L), decodeEntryIds(channel.readOutbound()));
+
+        addEntry(1, SMALL_ENTRY_SIZE);
+        assertNull(channel.readOutbound());
+        addEntry(2, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(1L, 2L), decodeEntryIds(channel.readOutbound()));
+
+        // an add larger than the max batch size is sent right away, after the adds queued before it
+        addEntry(3, SMALL_ENTRY_SIZE);
+        assertNull(channel.readOutbound());
+        addEntry(4, LARGE_ENTRY_SIZE);
+        assertEquals(Arrays.asList(3L), decodeEntryIds(channel.readOutbound()));
+        assertEquals(Arrays.asList(4L), decodeEntryIds(channel.readOutbound()));
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testBatchFlushedAfterLinger() throws Exception {
+        startClient(100, 1024 * 1024, 1000);
+
+        addEntry(0, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(0L), decodeEntryIds(channel.readOutbound()));
+
+        addEntry(1, SMALL_ENTRY_SIZE);
+        addEntry(2, SMALL_ENTRY_SIZE);
+        assertNull(channel.readOutbound());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Object batch = null;
+        while (batch == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            channel.runScheduledPendingTasks();
+            batch = channel.readOutbound();
+        }
+        assertEquals(Arrays.asList(1L, 2L), decodeEntryIds(batch));
+
+        // the adds after the flush start a new batch
+        addEntry(3, SMALL_ENTRY_SIZE);
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testRangeAddRoundTrip() throws Exception {
+        startClient(3, 1024 * 1024, TimeUnit.SECONDS.toMicros(60));
+        addEntry(0, SMALL_ENTRY_SIZE);
+        assertEquals(Arrays.asList(0L), decodeEntryIds(channel.readOutbound()));
+
+        // the large entry is sent as a list of buffers, and the small ones as a single buffer
+        int[] sizes = { SMALL_ENTRY_SIZE, LARGE_ENTRY_SIZE, SMALL_ENTRY_SIZE };
+        for (int i = 0; i < sizes.length; i++) {
+            addEntry(i + 1, sizes[i]);
+        }
+
+        ByteBuf packet = toPacket(channel.readOutbound());
+        try {
+            Object request = decoder.decode(packet);
+            assertTrue(request instanceof ParsedRangeAddRequest);
+            ParsedRangeAddRequest rangeAdd = (ParsedRangeAddRequest) request;
+            assertEquals(BookieProtocol.RANGE_ADD_ENTRY, rangeAdd.getOpCode());
+            assertEquals(LEDGER_ID, rangeAdd.getLedgerId());
+            assertEquals(1L, rangeAdd.getEntryId());
+            ParsedAddRequest[] adds = rangeAdd.getAdds();
+            assertEquals(sizes.length, adds.length);
+            for (int i = 0; i < adds.length; i++) {
+                long entryId = i + 1;
+                assertEquals(LEDGER_ID, adds[i].getLedgerId());
+                assertEquals(entryId, adds[i].getEntryId());
+                assertArrayEquals(MASTER_KEY, adds[i].getMasterKey());
+                ByteBuf expected = expectedEntry(entryId, sizes[i]);
+                assertEquals(expected, adds[i].getData());
+                expected.release();
+                adds[i].release();
+                adds[i].recycle();
+            }
+        } finally {
+            packet.release();
+        }
+    }
+
+    private void addEntry(long entryId, int payloadSize) throws Exception {
+        ReferenceCounted toSend = newAdd(entryId, payloadSize);
+        client.addEntry(LEDGER_ID, MASTER_KEY, entryId, toSend, NOOP_CALLBACK, null, BookieProtocol.FLAG_NONE,
+                false, EnumSet.noneOf(WriteFlag.class));
+        toSend.release();
+    }
+
+    private static ReferenceCounted newAdd(long entryId, int payloadSize) throws Exception {
+        DigestManager digestManager = DigestManager.instantiate(LEDGER_ID, new byte[0], DigestType.CRC32C,
+                UnpooledByteBufAllocator.DEFAULT, true);
+        return digestManager.computeDigestAndPackageForSending(entryId, entryId - 1, payloadSize,
+                newPayload(entryId, payloadSize), MASTER_KEY, BookieProtocol.FLAG_NONE);
+    }
+
+    /**
+     * The entry stored by the bookie, that is the add request without its frame size, header and master key.
+     */
+    private static ByteBuf expectedEntry(long entryId, int payloadSize) throws Exception {
+        ByteBuf add = toBuffer(newAdd(entryId, payloadSize));
+        add.skipBytes(4 + 4 + BookieProtocol.MASTER_KEY_LENGTH);
+        return add;
+    }
+
+    private static ByteBuf newPayload(long entryId, int payloadSize) {
+        ByteBuf payload = Unpooled.buffer(payloadSize, payloadSize);
+        while (payload.isWritable()) {
+            payload.writeByte((byte) (entryId + payload.writerIndex()));
+        }
+        return payload;
+    }
+
+    private static ByteBuf toBuffer(Object msg) {
+        ByteBuf buf;
+        if (msg instanceof ByteBufList) {
+            buf = ByteBufList.coalesce((ByteBufList) msg);
+        } else {
+            buf = ((ByteBuf) msg).copy();
+        }
+        ((ReferenceCounted) msg).release();
+        return buf;
+    }
+
+    /**
+     * Strip the frame size of a sent request, as the frame decoder of the bookie does.
+     */
+    private static ByteBuf toPacket(Object msg) {
+        ByteBuf packet = toBuffer(msg);
+        assertEquals(packet.readableBytes() - 4, packet.readInt());
+        return packet;
+    }
+
+    private List<Long> decodeEntryIds(Object msg) throws Exception {
+        ByteBuf packet = toPacket(msg);
+        List<Long> entryIds = new ArrayList<>();
+        try {
+            Object request = decoder.decode(packet);
+            ParsedAddRequest[] adds = request instanceof ParsedRangeAddRequest
+                    ? ((ParsedRangeAddRequest) request).getAdds()
+                    : new ParsedAddRequest[] { (ParsedAddRequest) request };
+            for (ParsedAddRequest add : adds) {
+                assertEquals(LEDGER_ID, add.getLedgerId());
+                entryIds.add(add.getEntryId());
+                add.release();
+                add.recycle();
+            }
+        } finally {
+            packet.release();
+        }
+        return entryIds;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedAddRequest;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedRangeAddRequest;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test how a {@link RangeWriteEntryProcessor} adds the entries of a range add, and answers each of them.
+ */
+public class RangeWriteEntryProcessorTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final byte[] MASTER_KEY = new byte[BookieProtocol.MASTER_KEY_LENGTH];
+
+    private EmbeddedChannel channel;
+    private Bookie bookie;
+    private BookieRequestHandler requestHandler;
+    private BookieRequestProcessor requestProcessor;
+    private final List<Long> succeeded = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        channel = new EmbeddedChannel();
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        requestHandler = mock(BookieRequestHandler.class);
+        when(requestHandler.ctx()).thenReturn(ctx);
+        // the successful adds are answered in a single flush of the handler
+        doAnswer(invocation -> {
+            int rc = invocation.getArgument(0);
+            ParsedAddRequest add = invocation.getArgument(1);
+            assertEquals(BookieProtocol.EOK, rc);
+            succeeded.add(add.getEntryId());
+            return null;
+        }).when(requestHandler).prepareSendResponseV2(anyInt(), any(ParsedAddRequest.class));
+
+        bookie = mock(Bookie.class);
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPartialFailure() throws Exception {
+        long failedEntryId = 2L;
+        // the bookie adds the entries up to the failed one, and fails when the batch starts with it
+        when(bookie.addEntries(any(), any(), anyInt(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            ByteBuf[] entries = invocation.getArgument(0);
+            WriteCallback[] cbs = invocation.getArgument(1);
+            int offset = invocation.getArgument(2);
+            int length = invocation.getArgument(3);
+            if (entryIdOf(entries[offset]) == failedEntryId) {
+                throw new IOException("injected add failure");
+            }
+            int added = 0;
+            while (added < length && entryIdOf(entries[offset + added]) != failedEntryId) {
+                cbs[offset + added].writeComplete(BookieProtocol.EOK, LEDGER_ID,
+                        entryIdOf(entries[offset + added]), null, invocation.getArgument(4));
+                added++;
+            }
+            return added;
+        });
+        doAnswer(invocation -> {
+            throw new IOException("injected add failure");
+        }).when(bookie).addEntry(any(ByteBuf.class), anyBoolean(), any(WriteCallback.class), any(), any());
+
+        ParsedRangeAddRequest request = newRangeAdd(5);
+        ByteBuf[] data = dataOf(request);
+        RangeWriteEntryProcessor.create(request, requestHandler, requestProcessor).run();
+
+        // the failed entry is added again on its own, and is the only one answered with an error
+        verify(bookie, times(3)).addEntries(any(), any(), anyInt(), anyInt(), any(), any());
+        verify(bookie, times(1)).addEntry(any(ByteBuf.class), anyBoolean(), any(WriteCallback.class), any(), any());
+        assertEquals(Arrays.asList(0L, 1L, 3L, 4L), succeeded);
+        assertErrorResponse(failedEntryId, BookieProtocol.EIO);
+        assertNull(channel.readOutbound());
+
+        // the entries added in batches are released by the processor
+        for (int i = 0; i < data.length; i++) {
+            if (i != failedEntryId) {
+                assertEquals(0, data[i].refCnt());
+            }
+        }
+    }
+
+    @Test
+    public void testReadOnlyBookie() throws Exception {
+        when(bookie.isReadOnly()).thenReturn(true);
+
+        ParsedRangeAddRequest request = newRangeAdd(3);
+        ByteBuf[] data = dataOf(request);
+        RangeWriteEntryProcessor.create(request, requestHandler, requestProcessor).run();
+
+        // each entry is rejected on its own, as a single add would be
+        verify(bookie, never()).addEntries(any(), any(), anyInt(), anyInt(), any(), any());
+        for (long entryId = 0; entryId < data.length; entryId++) {
+            assertErrorResponse(entryId, BookieProtocol.EREADONLY);
+        }
+        assertNull(channel.readOutbound());
+        assertEquals(0, succeeded.size());
+        for (ByteBuf entry : data) {
+            assertEquals(0, entry.refCnt());
+        }
+    }
+
+    private void assertErrorResponse(long entryId, int rc) {
+        BookieProtocol.Response response = channel.readOutbound();
+        assertEquals(BookieProtocol.ADDENTRY, response.getOpCode());
+        assertEquals(LEDGER_ID, response.getLedgerId());
+        assertEquals(entryId, response.getEntryId());
+        assertEquals(rc, response.getErrorCode());
+        response.recycle();
+    }
+
+    private static ParsedRangeAddRequest newRangeAdd(int count) {
+        ParsedAddRequest[] adds = new ParsedAddRequest[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuf entry = Unpooled.buffer().writeLong(LEDGER_ID).writeLong(i).writeBytes(new byte[16]);
+            adds[i] = ParsedAddRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION, LEDGER_ID, i,
+                    BookieProtocol.FLAG_NONE, MASTER_KEY, entry);
+            // the request holds the only reference, as when decoded from a packet
+            entry.release();
+        }
+        return new ParsedRangeAddRequest(BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.FLAG_NONE, adds);
+    }
+
+    private static ByteBuf[] dataOf(ParsedRangeAddRequest request) {
+        ParsedAddRequest[] adds = request.getAdds();
+        ByteBuf[] data = new ByteBuf[adds.length];
+        for (int i = 0; i < adds.length; i++) {
+            data[i] = adds[i].getData();
+        }
+        return data;
+    }
+
+    private static long entryIdOf(ByteBuf entry) {
+        return entry.getLong(entry.readerIndex() + 8);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the flushes of the responses held and consolidated by a {@link ResponseFlushConsolidationHandler}.
+ */
+public class ResponseFlushConsolidationHandlerTest {
+
+    private static final int MAX_PENDING_FLUSHES = 4;
+    // above the overhead of the small messages in the outbound buffer
+    private static final int LOW_WATER_MARK = 1024;
+    private static final int HIGH_WATER_MARK = 2048;
+
+    private OpStatsLogger flushSizeStats;
+    private Counter flushesSavedCounter;
+    private FlushCounter flushCounter;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        flushSizeStats = mock(OpStatsLogger.class);
+        flushesSavedCounter = mock(Counter.class);
+        channel = newChannel(MAX_PENDING_FLUSHES);
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private EmbeddedChannel newChannel(int maxPendingFlushes) {
+        flushCounter = new FlushCounter();
+        // the responses to the requests read are written and flushed right away, as the request processor does
+        return new EmbeddedChannel(flushCounter,
+                new ResponseFlushConsolidationHandler(maxPendingFlushes, 0, flushSizeStats, flushesSavedCounter),
+                new Responder());
+    }
+
+    @Test
+    public void testFlushesConsolidatedWithinRead() {
+        for (int i = 0; i < 3; i++) {
+            channel.pipeline().fireChannelRead(newMessage(4));
+        }
+        assertEquals(0, flushCounter.flushes);
+        assertNull(channel.readOutbound());
+
+        // the responses are flushed together once the read completes
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(1, flushCounter.flushes);
+        assertOutbound(3);
+        verify(flushSizeStats, times(1)).registerSuccessfulValue(3);
+        verify(flushesSavedCounter, times(1)).addCount(2);
+    }
+
+    @Test
+    public void testMaxPendingFlushesWithinRead() {
+        for (int i = 0; i < MAX_PENDING_FLUSHES + 1; i++) {
+            channel.pipeline().fireChannelRead(newMessage(4));
+        }
+        // the flushes are not held beyond the max pending flushes
+        assertEquals(1, flushCounter.flushes);
+        assertOutbound(MAX_PENDING_FLUSHES);
+
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, flushCounter.flushes);
+        assertOutbound(1);
+        verify(flushSizeStats, times(1)).registerSuccessfulValue(MAX_PENDING_FLUSHES);
+        verify(flushSizeStats, times(1)).registerSuccessfulValue(1);
+        verify(flushesSavedCounter, times(1)).addCount(anyLong());
+        verify(flushesSavedCounter, times(1)).addCount(MAX_PENDING_FLUSHES - 1);
+    }
+
+    @Test
+    public void testFlushesOutsideReadHeldUntilEndOfTick() {
+        // the responses completed by other threads are flushed after the tasks queued on the event loop
+        channel.writeAndFlush(newMessage(4));
+        channel.writeAndFlush(newMessage(4));
+        assertEquals(0, flushCounter.flushes);
+
+        channel.runPendingTasks();
+        assertEquals(1, flushCounter.flushes);
+        assertOutbound(2);
+        verify(flushSizeStats, times(1)).registerSuccessfulValue(2);
+        verify(flushesSavedCounter, times(1)).addCount(1);
+
+        // a read completing in the same tick takes the pending flush
+        channel.writeAndFlush(newMessage(4));
+        channel.pipeline().fireChannelRead(newMessage(4));
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, flushCounter.flushes);
+        assertOutbound(2);
+        channel.runPendingTasks();
+        assertEquals(2, flushCounter.flushes);
+    }
+
+    @Test
+    public void testFlushesPassedThroughOutsideRead() {
+        channel.finishAndReleaseAll();
+        channel = newChannel(1);
+
+        channel.writeAndFlush(newMessage(4));
+        assertEquals(1, flushCounter.flushes);
+        assertOutbound(1);
+        channel.pipeline().fireChannelRead(newMessage(4));
+        assertEquals(2, flushCounter.flushes);
+        assertOutbound(1);
+
+        channel.runPendingTasks();
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, flushCounter.flushes);
+        verify(flushSizeStats, times(2)).registerSuccessfulValue(1);
+        verify(flushesSavedCounter, never()).addCount(anyLong());
+    }
+
+    @Test
+    public void testFlushesNotHeldWhileUnwritable() {
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(LOW_WATER_MARK, HIGH_WATER_MARK));
+
+        // a large write, not flushed yet, makes the channel unwritable
+        channel.write(newMessage(2 * HIGH_WATER_MARK));
+        assertFalse(channel.isWritable());
+        assertEquals(0, flushCounter.flushes);
+
+        // so the flush of a response is not held
+        channel.pipeline().fireChannelRead(newMessage(4));
+        assertEquals(1, flushCounter.flushes);
+        assertTrue(channel.isWritable());
+        assertOutbound(2);
+
+        // and the flush held is done as soon as the channel becomes unwritable
+        channel.pipeline().fireChannelRead(newMessage(4));
+        assertEquals(1, flushCounter.flushes);
+        channel.write(newMessage(2 * HIGH_WATER_MARK));
+        assertEquals(2, flushCounter.flushes);
+        assertOutbound(2);
+
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, flushCounter.flushes);
+        verify(flushSizeStats, times(2)).registerSuccessfulValue(1);
+        verify(flushesSavedCounter, never()).addCount(anyLong());
+    }
+
+    private void assertOutbound(int numMessages) {
+        for (int i = 0; i < numMessages; i++) {
+            ByteBuf msg = channel.readOutbound();
+            assertTrue(msg.release());
+        }
+        assertNull(channel.readOutbound());
+    }
+
+    private static ByteBuf newMessage(int size) {
+        return Unpooled.wrappedBuffer(new byte[size]);
+    }
+
+    /**
+     * Count the flushes that reach the socket.
+     */
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            ctx.flush();
+        }
+    }
+
+    /**
+     * Send back each request read as its response.
+     */
+    private static class Responder extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+}
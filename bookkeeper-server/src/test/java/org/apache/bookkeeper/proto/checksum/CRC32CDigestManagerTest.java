@@ -0,0 +1,114 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto.checksum;
+
+import static org.junit.Assert.assertEquals;
+
+import com.scurrilous.circe.checksum.Crc32cIntChecksum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the CRC32C checksums computed by chunks, against the checksums computed in a single pass.
+ */
+public class CRC32CDigestManagerTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private ExecutorService executor;
+    private ByteBuf data;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        byte[] bytes = new byte[CRC32CDigestManager.PARALLEL_CHECKSUM_MIN_LENGTH * 3];
+        new Random(0).nextBytes(bytes);
+        data = Unpooled.wrappedBuffer(bytes);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCombineChecksums() {
+        int len = 10 * CHUNK_SIZE;
+        int checksum = Crc32cIntChecksum.computeChecksum(data, 0, len);
+        int[] splits = { 0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, len / 2, len - 1, len };
+        for (int split : splits) {
+            int checksum1 = Crc32cIntChecksum.computeChecksum(data, 0, split);
+            int checksum2 = Crc32cIntChecksum.computeChecksum(data, split, len - split);
+            assertEquals("split at " + split, checksum,
+                    Crc32cIntChecksum.combineChecksums(checksum1, checksum2, len - split));
+        }
+    }
+
+    @Test
+    public void testParallelChecksumAtChunkBoundaries() {
+        int[] lengths = { 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, 2 * CHUNK_SIZE - 1, 2 * CHUNK_SIZE,
+                2 * CHUNK_SIZE + 1, 100 * CHUNK_SIZE, 100 * CHUNK_SIZE + 7 };
+        int previousChecksum = Crc32cIntChecksum.computeChecksum(data, 0, 3);
+        for (int len : lengths) {
+            int expected = Crc32cIntChecksum.resumeChecksum(previousChecksum, data, 3, len);
+            assertEquals("length " + len, expected,
+                    Crc32cIntChecksum.resumeChecksumParallel(previousChecksum, data, 3, len, CHUNK_SIZE, executor));
+        }
+    }
+
+    @Test
+    public void testParallelChecksumWhenExecutorRejects() {
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException();
+        };
+        int len = 10 * CHUNK_SIZE + 1;
+        // the calling thread computes all the chunks
+        assertEquals(Crc32cIntChecksum.computeChecksum(data, 0, len),
+                Crc32cIntChecksum.resumeChecksumParallel(0, data, 0, len, CHUNK_SIZE, rejecting));
+    }
+
+    @Test
+    public void testDigestManagerParallelChecksum() {
+        ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+        CRC32CDigestManager serial = new CRC32CDigestManager(1L, true, allocator);
+        CRC32CDigestManager parallel = new CRC32CDigestManager(1L, true, allocator, executor);
+
+        int[] lengths = { CRC32CDigestManager.PARALLEL_CHECKSUM_MIN_LENGTH - 1,
+                CRC32CDigestManager.PARALLEL_CHECKSUM_MIN_LENGTH,
+                CRC32CDigestManager.PARALLEL_CHECKSUM_MIN_LENGTH + CRC32CDigestManager.PARALLEL_CHECKSUM_CHUNK_SIZE + 1,
+                data.readableBytes() - 5 };
+        for (int len : lengths) {
+            int digest = serial.update(0, data, 5, len);
+            assertEquals(Crc32cIntChecksum.resumeChecksum(0, data, 5, len), digest);
+            assertEquals("length " + len, digest, parallel.update(0, data, 5, len));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the percentiles and the decay of the {@link DecayingLatencyHistogram}.
+ */
+public class DecayingLatencyHistogramTest {
+
+    private static final long HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(8);
+    private static final long REFRESH_NANOS = HALF_LIFE_NANOS / 8;
+    private static final double DELTA = 1e-9;
+
+    private long nowNanos;
+    private DecayingLatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        nowNanos = 1000L;
+        histogram = new DecayingLatencyHistogram(HALF_LIFE_NANOS, TimeUnit.NANOSECONDS, () -> nowNanos);
+    }
+
+    @Test
+    public void testBuckets() {
+        long previousUpperBound = 0;
+        for (int bucket = 0; bucket < 100; bucket++) {
+            long upperBound = DecayingLatencyHistogram.upperBoundOf(bucket);
+            assertTrue(upperBound > previousUpperBound);
+            // the upper bound belongs to the next bucket
+            assertEquals(bucket, DecayingLatencyHistogram.bucketOf(upperBound - 1));
+            assertEquals(bucket + 1, DecayingLatencyHistogram.bucketOf(upperBound));
+            previousUpperBound = upperBound;
+        }
+        for (long micros = 1; micros < 10_000_000; micros = micros * 3 / 2 + 1) {
+            long upperBound = DecayingLatencyHistogram.upperBoundOf(DecayingLatencyHistogram.bucketOf(micros));
+            assertTrue(upperBound > micros);
+            assertTrue(upperBound <= micros * 1.125 + 1);
+        }
+    }
+
+    @Test
+    public void testQuantiles() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // the samples are only seen once the snapshot is refreshed
+        assertEquals(0, histogram.getCount(), DELTA);
+        assertEquals(-1L, histogram.getQuantileNanos(0.5, 1));
+
+        nowNanos += REFRESH_NANOS;
+        assertEquals(100, histogram.getCount(), DELTA);
+        assertEquals(upperBoundNanos(100), histogram.getQuantileNanos(0, 1));
+        assertEquals(upperBoundNanos(100), histogram.getQuantileNanos(0.5, 1));
+        assertEquals(upperBoundNanos(100), histogram.getQuantileNanos(0.9, 1));
+        assertEquals(upperBoundNanos(10_000), histogram.getQuantileNanos(0.95, 1));
+        assertEquals(upperBoundNanos(10_000), histogram.getQuantileNanos(1, 1));
+        // not enough samples
+        assertEquals(-1L, histogram.getQuantileNanos(0.5, 101));
+        assertEquals(upperBoundNanos(100), histogram.getQuantileNanos(0.5, 1));
+    }
+
+    @Test
+    public void testDecay() {
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        nowNanos += REFRESH_NANOS;
+        assertEquals(100, histogram.getCount(), DELTA);
+
+        // the weight of the samples halves every half-life
+        nowNanos += HALF_LIFE_NANOS;
+        assertEquals(50, histogram.getCount(), DELTA);
+        nowNanos += 2 * HALF_LIFE_NANOS;
+        assertEquals(12.5, histogram.getCount(), DELTA);
+        // not refreshed before the refresh interval
+        nowNanos += REFRESH_NANOS - 1;
+        assertEquals(12.5, histogram.getCount(), DELTA);
+
+        // the recent samples outweigh the old ones
+        for (int i = 0; i < 20; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        nowNanos += 1;
+        double decayedCount = 12.5 * Math.pow(0.5, 1.0 / 8);
+        assertEquals(decayedCount + 20, histogram.getCount(), DELTA);
+        assertEquals(upperBoundNanos(100), histogram.getQuantileNanos(0.25, 1));
+        assertEquals(upperBoundNanos(10_000), histogram.getQuantileNanos(0.5, 1));
+    }
+
+    private static long upperBoundNanos(long micros) {
+        return TimeUnit.MICROSECONDS.toNanos(
+                DecayingLatencyHistogram.upperBoundOf(DecayingLatencyHistogram.bucketOf(micros)));
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Test the ConcurrentLongLongIntMultiMap.
+ */
+public class ConcurrentLongLongIntMultiMapTest {
+
+    @Test
+    public void testConstructor() {
+        try {
+            ConcurrentLongLongIntMultiMap.<String>newBuilder().expectedItems(0).build();
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        try {
+            ConcurrentLongLongIntMultiMap.<String>newBuilder().concurrencyLevel(0).build();
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        try {
+            ConcurrentLongLongIntMultiMap.<String>newBuilder().expectedItems(4).concurrencyLevel(8).build();
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testSimpleInsertions() {
+        ConcurrentLongLongIntMultiMap<String> map = ConcurrentLongLongIntMultiMap.<String>newBuilder()
+            .expectedItems(16).build();
+
+        assertTrue(map.isEmpty());
+        map.put(1, 1, 1, "one");
+        assertFalse(map.isEmpty());
+        map.put(1, 2, 1, "two");
+        map.put(1, 1, 2, "three");
+        assertEquals(3, map.size());
+
+        assertEquals("one", map.get(1, 1, 1));
+        assertEquals("two", map.get(1, 2, 1));
+        assertEquals("three", map.get(1, 1, 2));
+        assertNull(map.get(2, 1, 1));
+
+        assertEquals("one", map.remove(1, 1, 1));
+        assertNull(map.get(1, 1, 1));
+        assertNull(map.remove(1, 1, 1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testNegativeKey() {
+        ConcurrentLongLongIntMultiMap<String> map = ConcurrentLongLongIntMultiMap.<String>newBuilder().build();
+        try {
+            map.put(-1, 0, 0, "zero");
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        // only the first key must be positive
+        map.put(0, -1, -1, "zero");
+        assertEquals("zero", map.get(0, -1, -1));
+    }
+
+    @Test
+    public void testMultipleValuesPerKey() {
+        ConcurrentLongLongIntMultiMap<String> map = ConcurrentLongLongIntMultiMap.<String>newBuilder()
+            .expectedItems(16).build();
+
+        String first = new String("value");
+        String second = new String("value");
+        map.put(1, 1, 1, first);
+        map.put(1, 1, 1, second);
+        assertEquals(2, map.size());
+
+        // the given value is removed, even if it is not the first one stored for the key
+        assertTrue(map.remove(1, 1, 1, second));
+        assertFalse(map.remove(1, 1, 1, second));
+        assertSame(first, map.get(1, 1, 1));
+
+        assertSame(first, map.remove(1, 1, 1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testRemoveIfAndForEach() {
+        ConcurrentLongLongIntMultiMap<Integer> map = ConcurrentLongLongIntMultiMap.<Integer>newBuilder()
+            .expectedItems(16).concurrencyLevel(2).build();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i * 2, i % 3, i);
+        }
+
+        assertEquals(50, map.removeIf(v -> v % 2 == 0));
+        assertEquals(50, map.size());
+
+        Set<Integer> values = new HashSet<>();
+        map.forEach((key1, key2, key3, value) -> {
+            assertEquals(value.intValue(), key1);
+            assertEquals(value * 2, key2);
+            assertEquals(value % 3, key3);
+            values.add(value);
+        });
+        assertEquals(50, values.size());
+        for (int value : values) {
+            assertEquals(1, value % 2);
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1, 2, 1));
+    }
+
+    @Test
+    public void testRehashing() {
+        int n = 16;
+        ConcurrentLongLongIntMultiMap<Integer> map = ConcurrentLongLongIntMultiMap.<Integer>newBuilder()
+            .expectedItems(n / 2).concurrencyLevel(1).build();
+        for (int i = 0; i < n * 100; i++) {
+            map.put(i, i, i, i);
+        }
+        assertEquals(n * 100, map.size());
+        for (int i = 0; i < n * 100; i++) {
+            assertEquals(i, map.get(i, i, i).intValue());
+        }
+    }
+
+    @Test
+    public void testRemoveReuseBuckets() {
+        ConcurrentLongLongIntMultiMap<Integer> map = ConcurrentLongLongIntMultiMap.<Integer>newBuilder()
+            .expectedItems(16).concurrencyLevel(1).build();
+        // put and remove more keys than the capacity, the freed buckets are reused
+        for (int i = 0; i < 10000; i++) {
+            map.put(i, 1, 1, i);
+            assertEquals(i, map.remove(i, 1, 1).intValue());
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentPutRemoveGetDuringResize() throws Exception {
+        final int numWriters = 8;
+        final int numReaders = 4;
+        final int keysPerWriter = 5000;
+        final int numStableKeys = 1000;
+        // a small initial capacity, so that the sections are resized while the readers run
+        ConcurrentLongLongIntMultiMap<Long> map = ConcurrentLongLongIntMultiMap.<Long>newBuilder()
+            .expectedItems(16).concurrencyLevel(4).build();
+
+        // the stable keys are never removed, the readers must always find them
+        for (long i = 0; i < numStableKeys; i++) {
+            map.put(i, i, (int) i, i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numWriters + numReaders);
+        AtomicBoolean writersDone = new AtomicBoolean(false);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < numWriters; w++) {
+                final long base = numStableKeys + (long) w * keysPerWriter;
+                writers.add(executor.submit(() -> {
+                    for (long key = base; key < base + keysPerWriter; key++) {
+                        map.put(key, key, (int) key, key);
+                    }
+                    for (long key = base; key < base + keysPerWriter; key++) {
+                        assertEquals(key, map.get(key, key, (int) key).longValue());
+                        if (key % 2 == 0) {
+                            assertEquals(key, map.remove(key, key, (int) key).longValue());
+                        }
+                    }
+                }));
+            }
+
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < numReaders; r++) {
+                readers.add(executor.submit(() -> {
+                    while (!writersDone.get()) {
+                        for (long i = 0; i < numStableKeys; i++) {
+                            Long value = map.get(i, i, (int) i);
+                            if (value == null || value != i) {
+                                throw new AssertionError("Wrong value " + value + " for key " + i);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writersDone.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            writersDone.set(true);
+            executor.shutdownNow();
+        }
+
+        assertEquals(numStableKeys + numWriters * keysPerWriter / 2, map.size());
+        for (int w = 0; w < numWriters; w++) {
+            long base = numStableKeys + (long) w * keysPerWriter;
+            for (long key = base; key < base + keysPerWriter; key++) {
+                Long value = map.get(key, key, (int) key);
+                if (key % 2 == 0) {
+                    assertNull(value);
+                } else {
+                    assertEquals(key, value.longValue());
+                }
+            }
+        }
+    }
+}
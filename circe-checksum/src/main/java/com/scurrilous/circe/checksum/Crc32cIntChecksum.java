@@ -20,11 +20,18 @@ package com.scurrilous.circe.checksum;
 
 import com.scurrilous.circe.crc.Sse42Crc32C;
 import io.netty.buffer.ByteBuf;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Crc32cIntChecksum {
 
     private final static IntHash CRC32C_HASH;
 
+    // reflected CRC-32C (Castagnoli) polynomial
+    private final static int CRC32C_POLYNOMIAL = 0x82F63B78;
+
     static {
         if (Sse42Crc32C.isSupported()) {
             CRC32C_HASH = new JniIntHash();
@@ -79,4 +86,174 @@ public class Crc32cIntChecksum {
         return CRC32C_HASH.resume(previousChecksum, payload, offset, len);
     }
 
+    /**
+     * Computes incremental checksum with input previousChecksum and input payload, splitting the payload in chunks
+     * whose checksums are computed in parallel and then combined. This pays off for payloads of several chunks of
+     * hundreds of KB, for smaller payloads {@link #resumeChecksum(int, ByteBuf, int, int)} is faster.
+     *
+     * <p>The calling thread computes the chunks with the help of the executor threads, and computes the chunks
+     * they have not started itself, so the executor can be bounded and busy.
+     *
+     * @param previousChecksum : previously computed checksum
+     * @param payload
+     * @param chunkSize : the size of the chunks computed in parallel
+     * @param executor : the executor that helps computing the chunks
+     * @return
+     */
+    public static int resumeChecksumParallel(int previousChecksum, ByteBuf payload, int offset, int len,
+                                             int chunkSize, Executor executor) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize should be positive");
+        }
+        int numChunks = (int) ((len + (long) chunkSize - 1) / chunkSize);
+        if (numChunks <= 1) {
+            return resumeChecksum(previousChecksum, payload, offset, len);
+        }
+
+        ChunkedChecksum chunks = new ChunkedChecksum(payload, offset, len, chunkSize, numChunks);
+        for (int i = 1; i < numChunks; i++) {
+            try {
+                executor.execute(chunks);
+            } catch (RejectedExecutionException e) {
+                // the calling thread computes the remaining chunks
+                break;
+            }
+        }
+        chunks.run();
+        int[] checksums = chunks.await();
+
+        int checksum = previousChecksum;
+        for (int i = 0; i < numChunks; i++) {
+            checksum = combineChecksums(checksum, checksums[i], Math.min(chunkSize, len - i * chunkSize));
+        }
+        return checksum;
+    }
+
+    /**
+     * The checksums of the chunks of a payload, each chunk is computed by the first thread that claims it.
+     */
+    private static class ChunkedChecksum implements Runnable {
+        private final ByteBuf payload;
+        private final int offset;
+        private final int len;
+        private final int chunkSize;
+        private final int[] checksums;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch pendingChunks;
+        private volatile RuntimeException failure;
+
+        ChunkedChecksum(ByteBuf payload, int offset, int len, int chunkSize, int numChunks) {
+            this.payload = payload;
+            this.offset = offset;
+            this.len = len;
+            this.chunkSize = chunkSize;
+            this.checksums = new int[numChunks];
+            this.pendingChunks = new CountDownLatch(numChunks);
+        }
+
+        @Override
+        public void run() {
+            int i;
+            while ((i = nextChunk.getAndIncrement()) < checksums.length) {
+                int chunkOffset = i * chunkSize;
+                try {
+                    checksums[i] = computeChecksum(payload, offset + chunkOffset,
+                            Math.min(chunkSize, len - chunkOffset));
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    pendingChunks.countDown();
+                }
+            }
+        }
+
+        int[] await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    pendingChunks.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // the chunks claimed by the executor threads are computed soon, wait for them anyway
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return checksums;
+        }
+    }
+
+    /**
+     * Combines the checksums of two consecutive payloads into the checksum of their concatenation, without reading
+     * the payloads again. The cost is logarithmic in the length of the second payload.
+     *
+     * @param checksum1 : checksum of the first payload, or the checksum it resumes
+     * @param checksum2 : checksum of the second payload, computed from scratch
+     * @param len2 : the length of the second payload
+     * @return the checksum of the first payload followed by the second one
+     */
+    public static int combineChecksums(int checksum1, int checksum2, long len2) {
+        // Same as zlib's crc32_combine: appending len2 zero bytes to the first payload is a linear operation on
+        // its checksum, computed by squaring the matrix of the operator appending a single zero bit.
+        if (len2 <= 0) {
+            return checksum1;
+        }
+
+        int[] even = new int[32];
+        int[] odd = new int[32];
+
+        // operator for one zero bit
+        odd[0] = CRC32C_POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // operator for two zero bits
+        gf2MatrixSquare(even, odd);
+        // operator for four zero bits
+        gf2MatrixSquare(odd, even);
+
+        // apply len2 zero bytes to checksum1, the first square gives the operator for one zero byte
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                checksum1 = gf2MatrixTimes(even, checksum1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                checksum1 = gf2MatrixTimes(odd, checksum1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+
+        return checksum1 ^ checksum2;
+    }
+
+    private static int gf2MatrixTimes(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
 }
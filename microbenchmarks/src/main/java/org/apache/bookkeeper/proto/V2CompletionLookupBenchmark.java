@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.util.Recycler;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongIntMultiMap;
+import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
+import org.apache.bookkeeper.util.collections.SynchronizedHashMultiMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarking the lookup of v2 completions by the responses of a bookie connection.
+ *
+ * <p>Each operation registers the completion of a request and removes it as its response would, while
+ * {@code outstanding} other requests are pending. {@code objectKeys} is the former lookup, by recycled key objects
+ * with a fallback multimap for duplicates, and {@code primitiveKeys} the lookup on (ledgerId, entryId, type).
+ * Run with {@code -prof gc} to get the bytes allocated per operation.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class V2CompletionLookupBenchmark {
+
+    private static final int READ_ENTRY = OperationType.READ_ENTRY.getNumber();
+
+    @Param({"100", "10000"})
+    int outstanding;
+
+    ConcurrentOpenHashMap<Key, Object> completionObjects;
+    SynchronizedHashMultiMap<Key, Object> completionObjectsConflicts;
+    ConcurrentLongLongIntMultiMap<Object> v2CompletionObjects;
+
+    final Object completion = new Object();
+    final long ledgerId = 1234L;
+    long entryId;
+
+    @Setup
+    public void prepare() {
+        completionObjects = ConcurrentOpenHashMap.<Key, Object>newBuilder().build();
+        completionObjectsConflicts = new SynchronizedHashMultiMap<>();
+        v2CompletionObjects = ConcurrentLongLongIntMultiMap.<Object>newBuilder().build();
+        for (entryId = 0; entryId < outstanding; entryId++) {
+            completionObjects.put(Key.acquire(ledgerId, entryId, READ_ENTRY), completion);
+            v2CompletionObjects.put(ledgerId, entryId, READ_ENTRY, completion);
+        }
+    }
+
+    @Benchmark
+    public Object objectKeys() {
+        long id = entryId++;
+        Key requestKey = Key.acquire(ledgerId, id, READ_ENTRY);
+        if (completionObjects.putIfAbsent(requestKey, completion) != null) {
+            completionObjectsConflicts.put(requestKey, completion);
+        }
+
+        Key responseKey = Key.acquire(ledgerId, id, READ_ENTRY);
+        Object value = completionObjects.remove(responseKey);
+        if (value == null) {
+            value = completionObjectsConflicts.removeAny(responseKey).orElse(null);
+        }
+        responseKey.release();
+        requestKey.release();
+        return value;
+    }
+
+    @Benchmark
+    public Object primitiveKeys() {
+        long id = entryId++;
+        v2CompletionObjects.put(ledgerId, id, READ_ENTRY, completion);
+        return v2CompletionObjects.remove(ledgerId, id, READ_ENTRY);
+    }
+
+    /**
+     * A recycled key, as used by the client before the primitive lookup.
+     */
+    static final class Key {
+        private static final Recycler<Key> RECYCLER = new Recycler<Key>() {
+            @Override
+            protected Key newObject(Handle<Key> handle) {
+                return new Key(handle);
+            }
+        };
+
+        private final Recycler.Handle<Key> handle;
+        long ledgerId;
+        long entryId;
+        int type;
+
+        private Key(Recycler.Handle<Key> handle) {
+            this.handle = handle;
+        }
+
+        static Key acquire(long ledgerId, long entryId, int type) {
+            Key key = RECYCLER.get();
+            key.ledgerId = ledgerId;
+            key.entryId = entryId;
+            key.type = type;
+            return key;
+        }
+
+        void release() {
+            handle.recycle(this);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) object;
+            return this.entryId == that.entryId && this.ledgerId == that.ledgerId && this.type == that.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(ledgerId) * 31 + Long.hashCode(entryId);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarking the v2 read responses processed per second by a {@link PerChannelBookieClient}.
+ *
+ * <p>Each invocation sends {@code BATCH} read requests through the client, over a channel that drops the requests,
+ * then feeds the client with their responses, as the decoder of the connection would, and waits for the read
+ * callbacks to run on the ordered executor. It covers the registration and lookup of the completions, their
+ * recycling and the dispatch of the callbacks. {@code ledgers} sets the number of ledgers the reads are spread
+ * over, and so the number of executor threads that run the callbacks.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class V2ReadResponseBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"1", "4"})
+    int ledgers;
+
+    OrderedExecutor executor;
+    EmbeddedChannel channel;
+    PerChannelBookieClient client;
+    ByteBuf entry;
+
+    final AtomicLong completed = new AtomicLong();
+    final ReadEntryCallback callback = (rc, ledgerId, entryId, buffer, ctx) -> completed.incrementAndGet();
+    long entryId;
+
+    @Setup
+    public void prepare() throws Exception {
+        executor = OrderedExecutor.newBuilder().name("benchmark-executor").numThreads(ledgers).build();
+        channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                // the requests are not sent anywhere, the benchmark feeds the responses
+                ReferenceCountUtil.release(msg);
+                promise.setSuccess();
+            }
+        });
+
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setUseV2WireProtocol(true);
+        BookieId bookieId = BookieId.parse("127.0.0.1:3181");
+        client = new PerChannelBookieClient(conf, executor, channel.eventLoop(), bookieId,
+                NullStatsLogger.INSTANCE, null, null, null, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        client.channel = channel;
+        client.state = PerChannelBookieClient.ConnectionState.CONNECTED;
+
+        entry = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[100]));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        channel.close();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long readResponses() throws Exception {
+        long firstEntryId = entryId;
+        long target = completed.get() + BATCH;
+        for (int i = 0; i < BATCH; i++) {
+            client.readEntry(i % ledgers, firstEntryId + i, callback, null, BookieProtocol.FLAG_NONE, null, false);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            client.channelRead(null, new BookieProtocol.ReadResponse(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    BookieProtocol.EOK, i % ledgers, firstEntryId + i, entry));
+        }
+        entryId += BATCH;
+        while (completed.get() < target) {
+            Thread.yield();
+        }
+        return completed.get();
+    }
+}
@@ -19,12 +19,17 @@
 
 package org.apache.bookkeeper.proto.checksum;
 
+import com.scurrilous.circe.checksum.Crc32cIntChecksum;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ReferenceCounted;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.proto.BookieProtocol;
 import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -38,6 +43,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
@@ -50,6 +56,10 @@ import org.openjdk.jmh.annotations.Warmup;
  * To run:
  * build project from command line.
  * execute ./run.sh
+ *
+ * <p>{@code crc32cSequential} and {@code crc32cParallel} compare the CRC32C of a whole entry to the CRC32C
+ * computed by chunks in parallel, which the digest manager uses for the entries of at least
+ * {@link CRC32CDigestManager#PARALLEL_CHECKSUM_MIN_LENGTH} bytes when the client has parallel checksum threads.
  */
 public class DigestManagerBenchmark {
 
@@ -65,27 +75,46 @@ public class DigestManagerBenchmark {
     @State(Scope.Thread)
     public static class MyState {
 
-        @Param({"64", "1024", "4086", "8192"})
+        @Param({"100", "1024", "8192", "65536", "1048576", "5242880"})
         public int entrySize;
 
         private DigestManager dm;
+        private final byte[] masterKey = new byte[BookieProtocol.MASTER_KEY_LENGTH];
 
+        public ByteBuf data;
         public ByteBuf digestBuf;
+        public ExecutorService parallelChecksumExecutor;
 
         @Setup(Level.Trial)
         public void doSetup() throws Exception {
             final byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+            parallelChecksumExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
             dm = DigestManager.instantiate(ThreadLocalRandom.current().nextLong(0, Long.MAX_VALUE),
                     password, DigestType.CRC32C, PooledByteBufAllocator.DEFAULT, true);
 
-            ByteBuf data = ByteBufAllocator.DEFAULT.directBuffer(entrySize, entrySize);
+            data = ByteBufAllocator.DEFAULT.directBuffer(entrySize, entrySize);
             data.writeBytes(randomBytes(entrySize));
 
+            ReferenceCounted packaged = dm.computeDigestAndPackageForSending(1234, 1234, entrySize, data.retain(),
+                    masterKey, 0);
+            ByteBuf packagedBuf = packaged instanceof ByteBufList
+                    ? ByteBufList.coalesce((ByteBufList) packaged) : (ByteBuf) packaged;
+            // skip the add request header, to verify the entry as read from the bookie
+            packagedBuf.skipBytes(4 + 4 + BookieProtocol.MASTER_KEY_LENGTH);
             digestBuf = ByteBufAllocator.DEFAULT.directBuffer();
-            digestBuf.writeBytes((ByteBuf)
-                    dm.computeDigestAndPackageForSending(1234, 1234, entrySize, data,
-                            new byte[0], 0));
+            digestBuf.writeBytes(packagedBuf);
+            packagedBuf.release();
+            if (packaged != packagedBuf) {
+                packaged.release();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() {
+            data.release();
+            digestBuf.release();
+            parallelChecksumExecutor.shutdown();
         }
     }
 
@@ -100,4 +129,39 @@ public class DigestManagerBenchmark {
         state.digestBuf.readerIndex(0);
         state.dm.verifyDigestAndReturnData(1234, state.digestBuf);
     }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(2)
+    @Fork(1)
+    public void computeDigest(MyState state) {
+        state.dm.computeDigestAndPackageForSending(1234, 1234, state.entrySize, state.data.retain(),
+                state.masterKey, 0).release();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(2)
+    @Fork(1)
+    public int crc32cSequential(MyState state) {
+        return Crc32cIntChecksum.computeChecksum(state.data, 0, state.entrySize);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(2)
+    @Fork(1)
+    public int crc32cParallel(MyState state) {
+        return Crc32cIntChecksum.resumeChecksumParallel(0, state.data, 0, state.entrySize,
+                CRC32CDigestManager.PARALLEL_CHECKSUM_CHUNK_SIZE, state.parallelChecksumExecutor);
+    }
 }
@@ -41,6 +41,11 @@ public interface NativeIO {
 
     int fsync(int fd) throws NativeIOException;
 
+    /**
+     * fdatasync is not available on every platform, so on those platforms this falls back to fsync.
+     */
+    int fdatasync(int fd) throws NativeIOException;
+
     /**
      * fallocate is a linux-only syscall, so callers must handle the possibility that it does
      * not exist.
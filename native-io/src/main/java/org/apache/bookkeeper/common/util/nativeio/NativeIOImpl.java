@@ -35,6 +35,11 @@ public class NativeIOImpl implements NativeIO {
         return NativeIOJni.fsync(fd);
     }
 
+    @Override
+    public int fdatasync(int fd) throws NativeIOException {
+        return NativeIOJni.fdatasync(fd);
+    }
+
     @Override
     public int fallocate(int fd, int mode, long offset, long len) throws NativeIOException {
         return NativeIOJni.fallocate(fd, mode, offset, len);
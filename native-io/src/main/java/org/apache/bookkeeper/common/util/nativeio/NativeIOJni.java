@@ -28,6 +28,8 @@ class NativeIOJni {
 
     static native int fsync(int fd) throws NativeIOException;
 
+    static native int fdatasync(int fd) throws NativeIOException;
+
     /**
      * fallocate is a linux-only syscall, so callers must handle the possibility that it does
      * not exist.
@@ -174,6 +174,28 @@ Java_org_apache_bookkeeper_common_util_nativeio_NativeIOJni_fsync(JNIEnv * env,
     return res;
 }
 
+/*
+ * Class:     org_apache_bookkeeper_common_util_nativeio_NativeIOJni
+ * Method:    fdatasync
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL
+Java_org_apache_bookkeeper_common_util_nativeio_NativeIOJni_fdatasync(JNIEnv * env,
+                                                                   jclass clazz,
+                                                                   jint fd) {
+#ifdef __linux__
+    int res = fdatasync(fd);
+#else
+    int res = fsync(fd);
+#endif
+
+    if (res == -1) {
+      throwExceptionWithErrno(env, "Failed to fdatasync");
+    }
+
+    return res;
+}
+
 /*
  * Class:     org_apache_bookkeeper_common_util_nativeio_NativeIOJni
  * Method:    fallocate
@@ -134,7 +134,7 @@ public class StorageClientImpl extends AbstractAutoAsyncCloseable implements Sto
                     props,
                     serverManager,
                     scheduler.chooseThread(props.getStreamId()),
-                    settings.backoffPolicy()
+                    settings
                 ).initialize();
             }),
             future
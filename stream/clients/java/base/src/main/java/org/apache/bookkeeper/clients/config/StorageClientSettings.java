@@ -102,6 +102,38 @@ public interface StorageClientSettings {
      */
     boolean enableServerSideRouting();
 
+    /**
+     * Configure the max number of writes of a table range coalesced into a single transaction.
+     *
+     * <p>When it is positive, the puts, increments and single-key deletes issued while a write of the same range
+     * is in flight are sent together in the next transaction, which is applied by the storage container in a single
+     * write batch. 0 disables the write batching.
+     *
+     * @return the max number of writes of a table range coalesced into a single transaction.
+     */
+    int tableWriteBatchSize();
+
+    /**
+     * Configure the max size in bytes of the read cache of a table.
+     *
+     * <p>When it is positive, the single-key gets of a table are cached by the client. The writes of the client
+     * invalidate the keys they update, so a cached value is never older than the last write of the client to the
+     * key. 0 disables the read cache.
+     *
+     * @return the max size in bytes of the read cache of a table.
+     */
+    long tableReadCacheSizeBytes();
+
+    /**
+     * Configure the ttl in milliseconds of the values in the read cache of a table.
+     *
+     * <p>It bounds how stale a cached value written by other clients can be. 0 disables the expiration, the cached
+     * values are then only invalidated by the writes of this client.
+     *
+     * @return the ttl in milliseconds of the values in the read cache of a table.
+     */
+    long tableReadCacheTtlMs();
+
     /**
      * Builder of {@link StorageClientSettings} instances.
      */
@@ -113,6 +145,9 @@ public interface StorageClientSettings {
             backoffPolicy(ClientConstants.DEFAULT_INFINIT_BACKOFF_POLICY);
             endpointResolver(EndpointResolver.identity());
             enableServerSideRouting(false);
+            tableWriteBatchSize(0);
+            tableReadCacheSizeBytes(0L);
+            tableReadCacheTtlMs(1000L);
         }
 
         @Override
@@ -27,6 +27,7 @@ import org.apache.bookkeeper.api.kv.impl.result.ResultFactory;
 import org.apache.bookkeeper.api.kv.impl.result.TxnResultImpl;
 import org.apache.bookkeeper.api.kv.op.CompareOp;
 import org.apache.bookkeeper.api.kv.op.DeleteOp;
+import org.apache.bookkeeper.api.kv.op.IncrementOp;
 import org.apache.bookkeeper.api.kv.op.Op;
 import org.apache.bookkeeper.api.kv.op.PutOp;
 import org.apache.bookkeeper.api.kv.op.RangeOp;
@@ -232,6 +233,13 @@ public final class KvUtils {
             .setValue(toProtoKey(op.value()));
     }
 
+    public static IncrementRequest.Builder toProtoIncrementRequest(IncrementOp<ByteBuf, ByteBuf> op) {
+        return IncrementRequest.newBuilder()
+            .setKey(toProtoKey(op.key()))
+            .setAmount(op.amount())
+            .setGetTotal(op.option().getTotal());
+    }
+
     public static DeleteRangeRequest.Builder toProtoDeleteRequest(DeleteOp<ByteBuf, ByteBuf> op) {
         DeleteRangeRequest.Builder builder = DeleteRangeRequest.newBuilder()
             .setKey(toProtoKey(op.key()))
@@ -266,6 +274,9 @@ public final class KvUtils {
             case PUT:
                 reqBuilder.setRequestPut(toProtoPutRequest((PutOp<ByteBuf, ByteBuf>) op));
                 break;
+            case INCREMENT:
+                reqBuilder.setRequestIncrement(toProtoIncrementRequest((IncrementOp<ByteBuf, ByteBuf>) op));
+                break;
             default:
                 throw new IllegalArgumentException("Type '" + op.type() + "' is not supported in a txn yet.");
         }
@@ -295,6 +306,11 @@ public final class KvUtils {
                         op.getResponseDeleteRange(),
                         resultFactory,
                         kvFactory);
+                case RESPONSE_INCREMENT:
+                    return newIncrementResult(
+                        op.getResponseIncrement(),
+                        resultFactory,
+                        kvFactory);
                 default:
                     throw new IllegalArgumentException("Unknown response type '" + op.getResponseCase() + "'");
             }
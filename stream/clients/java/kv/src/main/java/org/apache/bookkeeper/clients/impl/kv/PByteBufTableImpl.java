@@ -44,12 +44,14 @@ import org.apache.bookkeeper.api.kv.result.IncrementResult;
 import org.apache.bookkeeper.api.kv.result.PutResult;
 import org.apache.bookkeeper.api.kv.result.RangeResult;
 import org.apache.bookkeeper.api.kv.result.TxnResult;
+import org.apache.bookkeeper.clients.config.StorageClientSettings;
 import org.apache.bookkeeper.clients.impl.internal.api.HashStreamRanges;
 import org.apache.bookkeeper.clients.impl.internal.api.StorageServerClientManager;
 import org.apache.bookkeeper.clients.impl.routing.RangeRouter;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.router.ByteBufHashRouter;
 import org.apache.bookkeeper.common.util.Backoff;
+import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stream.proto.StreamProperties;
 
 /**
@@ -153,6 +155,8 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
     // States
     private final RangeRouter<ByteBuf> rangeRouter;
     private final ConcurrentMap<Long, PTable<ByteBuf, ByteBuf>> tableRanges;
+    // the read cache shared by the ranges, or null if the gets are not cached
+    private final TableReadCache readCache;
 
 
     public PByteBufTableImpl(String streamName,
@@ -160,6 +164,36 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
                              StorageServerClientManager clientManager,
                              ScheduledExecutorService executor,
                              Backoff.Policy backoffPolicy) {
+        this(streamName, props, clientManager, executor, backoffPolicy, 0, null);
+    }
+
+    public PByteBufTableImpl(String streamName,
+                             StreamProperties props,
+                             StorageServerClientManager clientManager,
+                             ScheduledExecutorService executor,
+                             StorageClientSettings settings) {
+        this(
+            streamName,
+            props,
+            clientManager,
+            executor,
+            settings.backoffPolicy(),
+            settings.tableWriteBatchSize(),
+            settings.tableReadCacheSizeBytes() > 0
+                ? new TableReadCache(
+                    settings.tableReadCacheSizeBytes(),
+                    settings.tableReadCacheTtlMs(),
+                    settings.statsLogger().orElse(NullStatsLogger.INSTANCE).scope("table_read_cache"))
+                : null);
+    }
+
+    private PByteBufTableImpl(String streamName,
+                              StreamProperties props,
+                              StorageServerClientManager clientManager,
+                              ScheduledExecutorService executor,
+                              Backoff.Policy backoffPolicy,
+                              int writeBatchSize,
+                              TableReadCache readCache) {
         this(
             streamName,
             props,
@@ -174,8 +208,11 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
                     opFactory,
                     resultFactory,
                     kvFactory,
-                    backoffPolicy),
-            Optional.empty());
+                    backoffPolicy,
+                    writeBatchSize,
+                    readCache),
+            Optional.empty(),
+            readCache);
     }
 
     public PByteBufTableImpl(String streamName,
@@ -184,6 +221,16 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
                              ScheduledExecutorService executor,
                              TableRangeFactory<ByteBuf, ByteBuf> factory,
                              Optional<RangeRouter<ByteBuf>> rangeRouterOverride) {
+        this(streamName, props, clientManager, executor, factory, rangeRouterOverride, null);
+    }
+
+    private PByteBufTableImpl(String streamName,
+                              StreamProperties props,
+                              StorageServerClientManager clientManager,
+                              ScheduledExecutorService executor,
+                              TableRangeFactory<ByteBuf, ByteBuf> factory,
+                              Optional<RangeRouter<ByteBuf>> rangeRouterOverride,
+                              TableReadCache readCache) {
         this.streamName = streamName;
         this.props = props;
         this.clientManager = clientManager;
@@ -196,6 +243,7 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
         this.resultFactory = new ResultFactory<>();
         this.kvFactory = new KeyValueFactory<>();
         this.failRequestTable = new FailRequestKeyValueSpace(opFactory);
+        this.readCache = readCache;
     }
 
     @Override
@@ -260,6 +308,10 @@ public class PByteBufTableImpl implements PTable<ByteBuf, ByteBuf> {
             rsIter.remove();
             PTable oldRangeSpace = entry.getValue();
             oldRangeSpace.close();
+            // the keys of the range are now routed to other ranges
+            if (null != readCache) {
+                readCache.invalidateRange(rid);
+            }
         }
         return FutureUtils.value(this);
     }
@@ -24,6 +24,7 @@ import io.netty.util.ReferenceCountUtil;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.api.kv.PTable;
 import org.apache.bookkeeper.api.kv.Txn;
@@ -42,8 +43,11 @@ import org.apache.bookkeeper.api.kv.result.PutResult;
 import org.apache.bookkeeper.api.kv.result.RangeResult;
 import org.apache.bookkeeper.api.kv.result.TxnResult;
 import org.apache.bookkeeper.clients.impl.container.StorageContainerChannel;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.Backoff;
 import org.apache.bookkeeper.stream.proto.RangeProperties;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RangeResponse;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RequestOp;
 import org.apache.bookkeeper.stream.proto.kv.rpc.RoutingHeader;
 import org.apache.bookkeeper.stream.proto.kv.rpc.TxnRequest;
 
@@ -61,6 +65,10 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
     private final ResultFactory<ByteBuf, ByteBuf> resultFactory;
     private final KeyValueFactory<ByteBuf, ByteBuf> kvFactory;
     private final Backoff.Policy backoffPolicy;
+    // the batcher of the writes, or null if the writes are not batched
+    private final TableRangeWriteBatcher writeBatcher;
+    // the read cache of the table, or null if the gets are not cached
+    private final TableReadCache readCache;
 
     PByteBufTableRangeImpl(long streamId,
                            RangeProperties rangeProps,
@@ -70,6 +78,19 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
                            ResultFactory<ByteBuf, ByteBuf> resultFactory,
                            KeyValueFactory<ByteBuf, ByteBuf> kvFactory,
                            Backoff.Policy backoffPolicy) {
+        this(streamId, rangeProps, scChannel, executor, opFactory, resultFactory, kvFactory, backoffPolicy, 0, null);
+    }
+
+    PByteBufTableRangeImpl(long streamId,
+                           RangeProperties rangeProps,
+                           StorageContainerChannel scChannel,
+                           ScheduledExecutorService executor,
+                           OpFactory<ByteBuf, ByteBuf> opFactory,
+                           ResultFactory<ByteBuf, ByteBuf> resultFactory,
+                           KeyValueFactory<ByteBuf, ByteBuf> kvFactory,
+                           Backoff.Policy backoffPolicy,
+                           int writeBatchSize,
+                           TableReadCache readCache) {
         this.streamId = streamId;
         this.rangeProps = rangeProps;
         this.scChannel = scChannel;
@@ -78,6 +99,12 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
         this.resultFactory = resultFactory;
         this.kvFactory = kvFactory;
         this.backoffPolicy = backoffPolicy;
+        if (writeBatchSize > 0) {
+            this.writeBatcher = new TableRangeWriteBatcher(scChannel, executor, backoffPolicy, writeBatchSize);
+        } else {
+            this.writeBatcher = null;
+        }
+        this.readCache = readCache;
     }
 
     private RoutingHeader.Builder newRoutingHeader(ByteBuf pKey) {
@@ -90,6 +117,9 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
     @Override
     public CompletableFuture<RangeResult<ByteBuf, ByteBuf>> get(
         ByteBuf pKey, ByteBuf lKey, RangeOption<ByteBuf> option) {
+        if (null != readCache && TableReadCache.isCacheable(option)) {
+            return getCached(pKey, lKey, option);
+        }
         pKey.retain();
         lKey.retain();
         if (null != option.endKey()) {
@@ -112,6 +142,40 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
         });
     }
 
+    private CompletableFuture<RangeResult<ByteBuf, ByteBuf>> getCached(
+        ByteBuf pKey, ByteBuf lKey, RangeOption<ByteBuf> option) {
+        long rangeId = rangeProps.getRangeId();
+        TableReadCache.CacheKey cacheKey = readCache.newKey(rangeId, pKey, lKey);
+        RangeResponse cachedResponse = readCache.get(cacheKey);
+        if (null != cachedResponse) {
+            return FutureUtils.value(KvUtils.newRangeResult(cachedResponse, resultFactory, kvFactory));
+        }
+        long writeEpoch = readCache.startGet(rangeId);
+        pKey.retain();
+        lKey.retain();
+        return RangeRequestProcessor.of(
+            KvUtils.newRangeRequest(lKey, option)
+                .setHeader(newRoutingHeader(pKey))
+                .build(),
+            response -> {
+                readCache.fill(cacheKey, writeEpoch, response);
+                return KvUtils.newRangeResult(response, resultFactory, kvFactory);
+            },
+            scChannel,
+            executor,
+            backoffPolicy
+        ).process().whenComplete((value, cause) -> {
+            ReferenceCountUtil.release(pKey);
+            ReferenceCountUtil.release(lKey);
+        });
+    }
+
+    private void invalidateCache(ByteBuf pKey, ByteBuf lKey) {
+        if (null != readCache) {
+            readCache.invalidate(rangeProps.getRangeId(), pKey, lKey);
+        }
+    }
+
     @Override
     public CompletableFuture<PutResult<ByteBuf, ByteBuf>> put(ByteBuf pKey,
                                                               ByteBuf lKey,
@@ -120,15 +184,27 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
         pKey.retain();
         lKey.retain();
         value.retain();
-        return PutRequestProcessor.of(
-            KvUtils.newPutRequest(lKey, value, option)
-                .setHeader(newRoutingHeader(pKey))
-                .build(),
-            response -> KvUtils.newPutResult(response, resultFactory, kvFactory),
-            scChannel,
-            executor,
-            backoffPolicy
-        ).process().whenComplete((ignored, cause) -> {
+        CompletableFuture<PutResult<ByteBuf, ByteBuf>> putFuture;
+        if (null != writeBatcher) {
+            putFuture = writeBatcher.write(
+                RequestOp.newBuilder()
+                    .setRequestPut(KvUtils.newPutRequest(lKey, value, option)
+                        .setHeader(newRoutingHeader(pKey)))
+                    .build(),
+                response -> KvUtils.newPutResult(response.getResponsePut(), resultFactory, kvFactory));
+        } else {
+            putFuture = PutRequestProcessor.of(
+                KvUtils.newPutRequest(lKey, value, option)
+                    .setHeader(newRoutingHeader(pKey))
+                    .build(),
+                response -> KvUtils.newPutResult(response, resultFactory, kvFactory),
+                scChannel,
+                executor,
+                backoffPolicy
+            ).process();
+        }
+        return putFuture.whenComplete((ignored, cause) -> {
+            invalidateCache(pKey, lKey);
             ReferenceCountUtil.release(pKey);
             ReferenceCountUtil.release(lKey);
             ReferenceCountUtil.release(value);
@@ -144,7 +220,8 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
         if (null != option.endKey()) {
             option.endKey().retain();
         }
-        return DeleteRequestProcessor.of(
+        CompletableFuture<DeleteResult<ByteBuf, ByteBuf>> deleteFuture;
+        Supplier<CompletableFuture<DeleteResult<ByteBuf, ByteBuf>>> deleteSender = () -> DeleteRequestProcessor.of(
             KvUtils.newDeleteRequest(lKey, option)
                 .setHeader(newRoutingHeader(pKey))
                 .build(),
@@ -152,7 +229,26 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
             scChannel,
             executor,
             backoffPolicy
-        ).process().whenComplete((ignored, cause) -> {
+        ).process();
+        if (null == writeBatcher) {
+            deleteFuture = deleteSender.get();
+        } else if (null == option.endKey()) {
+            deleteFuture = writeBatcher.write(
+                RequestOp.newBuilder()
+                    .setRequestDeleteRange(KvUtils.newDeleteRequest(lKey, option)
+                        .setHeader(newRoutingHeader(pKey)))
+                    .build(),
+                response -> KvUtils.newDeleteResult(response.getResponseDeleteRange(), resultFactory, kvFactory));
+        } else {
+            // a key range can overlap the writes of any batch, so it is ordered after the writes issued before it
+            deleteFuture = writeBatcher.writeBarrier(deleteSender);
+        }
+        return deleteFuture.whenComplete((ignored, cause) -> {
+            if (null == option.endKey()) {
+                invalidateCache(pKey, lKey);
+            } else if (null != readCache) {
+                readCache.invalidateRange(rangeProps.getRangeId());
+            }
             ReferenceCountUtil.release(pKey);
             ReferenceCountUtil.release(lKey);
             if (null != option.endKey()) {
@@ -168,15 +264,27 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
                                                                           IncrementOption<ByteBuf> option) {
         pKey.retain();
         lKey.retain();
-        return IncrementRequestProcessor.of(
-            KvUtils.newIncrementRequest(lKey, amount, option)
-                .setHeader(newRoutingHeader(pKey))
-                .build(),
-            response -> KvUtils.newIncrementResult(response, resultFactory, kvFactory),
-            scChannel,
-            executor,
-            backoffPolicy
-        ).process().whenComplete((ignored, cause) -> {
+        CompletableFuture<IncrementResult<ByteBuf, ByteBuf>> incrFuture;
+        if (null != writeBatcher) {
+            incrFuture = writeBatcher.write(
+                RequestOp.newBuilder()
+                    .setRequestIncrement(KvUtils.newIncrementRequest(lKey, amount, option)
+                        .setHeader(newRoutingHeader(pKey)))
+                    .build(),
+                response -> KvUtils.newIncrementResult(response.getResponseIncrement(), resultFactory, kvFactory));
+        } else {
+            incrFuture = IncrementRequestProcessor.of(
+                KvUtils.newIncrementRequest(lKey, amount, option)
+                    .setHeader(newRoutingHeader(pKey))
+                    .build(),
+                response -> KvUtils.newIncrementResult(response, resultFactory, kvFactory),
+                scChannel,
+                executor,
+                backoffPolicy
+            ).process();
+        }
+        return incrFuture.whenComplete((ignored, cause) -> {
+            invalidateCache(pKey, lKey);
             ReferenceCountUtil.release(pKey);
             ReferenceCountUtil.release(lKey);
         });
@@ -245,13 +353,21 @@ class PByteBufTableRangeImpl implements PTable<ByteBuf, ByteBuf> {
 
         @Override
         public CompletableFuture<TxnResult<ByteBuf, ByteBuf>> commit() {
-            return TxnRequestProcessor.of(
+            Supplier<CompletableFuture<TxnResult<ByteBuf, ByteBuf>>> txnSender = () -> TxnRequestProcessor.of(
                 txnBuilder.setHeader(newRoutingHeader(pKey)).build(),
                 response -> KvUtils.newKvTxnResult(response, resultFactory, kvFactory),
                 scChannel,
                 executor,
                 backoffPolicy
-            ).process().whenComplete((ignored, cause) -> {
+            ).process();
+            // the ops of a txn can write any keys of the range, so it is ordered after the writes issued before it
+            CompletableFuture<TxnResult<ByteBuf, ByteBuf>> txnFuture =
+                null == writeBatcher ? txnSender.get() : writeBatcher.writeBarrier(txnSender);
+            return txnFuture.whenComplete((ignored, cause) -> {
+                // the ops of a txn can update any keys of the range
+                if (null != readCache) {
+                    readCache.invalidateRange(rangeProps.getRangeId());
+                }
                 ReferenceCountUtil.release(pKey);
                 for (AutoCloseable resource : resourcesToRelease) {
                     closeResource(resource);
@@ -0,0 +1,285 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.clients.impl.kv;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.protobuf.ByteString;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.clients.exceptions.InternalServerException;
+import org.apache.bookkeeper.clients.impl.container.StorageContainerChannel;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.Backoff;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RequestOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RoutingHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnResponse;
+import org.apache.bookkeeper.stream.proto.storage.StatusCode;
+
+/**
+ * Coalesce the put, increment and delete requests of a table range into transactions.
+ *
+ * <p>Only one transaction of a range is in flight at a time. The writes issued while it is in flight are queued
+ * and sent as the success ops of the next transaction, which has no compares, so the storage container applies
+ * them in a single write batch. The writes of a key are applied in the order they were issued, since a key is
+ * never written twice in the same transaction.
+ *
+ * <p>The requests that can write any key of the range, like range deletes and transactions, are barriers: they are
+ * sent alone, once the batches queued before them completed, and the writes issued after them wait for them.
+ */
+@Slf4j
+class TableRangeWriteBatcher {
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static class WriteKey {
+        private final ByteString rKey;
+        private final ByteString lKey;
+    }
+
+    @RequiredArgsConstructor
+    private static class Write<T> {
+        private final RoutingHeader header;
+        private final RequestOp request;
+        private final Function<ResponseOp, T> responseFunc;
+        private final CompletableFuture<T> future;
+
+        void complete(ResponseOp response) {
+            ResponseHeader respHeader = getResponseHeader(response);
+            if (null == respHeader || StatusCode.SUCCESS != respHeader.getCode()) {
+                future.completeExceptionally(new InternalServerException(
+                    "Encountered internal server exception : code = "
+                        + (null == respHeader ? StatusCode.INTERNAL_SERVER_ERROR : respHeader.getCode())));
+                return;
+            }
+            try {
+                future.complete(responseFunc.apply(response));
+            } catch (Throwable cause) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private static class Batch {
+        private final List<Write<?>> writes = Lists.newArrayList();
+        private final Set<WriteKey> keys = Sets.newHashSet();
+        // sends a barrier request, or null if the batch holds writes
+        private final Supplier<CompletableFuture<?>> barrier;
+
+        Batch() {
+            this(null);
+        }
+
+        Batch(Supplier<CompletableFuture<?>> barrier) {
+            this.barrier = barrier;
+        }
+    }
+
+    private final StorageContainerChannel scChannel;
+    private final ScheduledExecutorService executor;
+    private final Backoff.Policy backoffPolicy;
+    private final int maxBatchSize;
+
+    private final Deque<Batch> pendingBatches = new ArrayDeque<>();
+    private boolean inFlight = false;
+
+    TableRangeWriteBatcher(StorageContainerChannel scChannel,
+                           ScheduledExecutorService executor,
+                           Backoff.Policy backoffPolicy,
+                           int maxBatchSize) {
+        checkArgument(maxBatchSize > 0, "maxBatchSize should be positive");
+        this.scChannel = scChannel;
+        this.executor = executor;
+        this.backoffPolicy = backoffPolicy;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Write a put, increment or single-key delete request.
+     *
+     * @param request the request, with its routing header set
+     * @param responseFunc the function to convert the response of the request
+     * @return the future of the converted response
+     */
+    <T> CompletableFuture<T> write(RequestOp request, Function<ResponseOp, T> responseFunc) {
+        RoutingHeader header;
+        ByteString lKey;
+        switch (request.getRequestCase()) {
+            case REQUEST_PUT:
+                header = request.getRequestPut().getHeader();
+                lKey = request.getRequestPut().getKey();
+                break;
+            case REQUEST_INCREMENT:
+                header = request.getRequestIncrement().getHeader();
+                lKey = request.getRequestIncrement().getKey();
+                break;
+            case REQUEST_DELETE_RANGE:
+                checkArgument(request.getRequestDeleteRange().getRangeEnd().isEmpty(),
+                    "Can't batch a delete request of a key range");
+                header = request.getRequestDeleteRange().getHeader();
+                lKey = request.getRequestDeleteRange().getKey();
+                break;
+            default:
+                throw new IllegalArgumentException("Can't batch a request of type " + request.getRequestCase());
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Write<T> write = new Write<>(header, request, responseFunc, future);
+        WriteKey key = new WriteKey(header.getRKey(), lKey);
+        Batch batchToSend = null;
+        synchronized (this) {
+            Batch batch = pendingBatches.peekLast();
+            if (null == batch || null != batch.barrier || batch.writes.size() >= maxBatchSize
+                || batch.keys.contains(key)) {
+                batch = new Batch();
+                pendingBatches.addLast(batch);
+            }
+            batch.writes.add(write);
+            batch.keys.add(key);
+            if (!inFlight) {
+                inFlight = true;
+                batchToSend = pendingBatches.pollFirst();
+            }
+        }
+        if (null != batchToSend) {
+            send(batchToSend);
+        }
+        return future;
+    }
+
+    /**
+     * Send a request that can write any key of the range, once the writes issued before it completed.
+     *
+     * @param sender the function sending the request
+     * @return the future of the response
+     */
+    <T> CompletableFuture<T> writeBarrier(Supplier<CompletableFuture<T>> sender) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Batch barrier = new Batch(() -> {
+            CompletableFuture<T> sent;
+            try {
+                sent = sender.get();
+            } catch (Throwable cause) {
+                sent = FutureUtils.exception(cause);
+            }
+            return sent.whenComplete((value, cause) -> {
+                if (null != cause) {
+                    future.completeExceptionally(cause);
+                } else {
+                    future.complete(value);
+                }
+            });
+        });
+        boolean sendNow;
+        synchronized (this) {
+            sendNow = !inFlight;
+            if (sendNow) {
+                inFlight = true;
+            } else {
+                pendingBatches.addLast(barrier);
+            }
+        }
+        if (sendNow) {
+            send(barrier);
+        }
+        return future;
+    }
+
+    private void sendNext() {
+        Batch batchToSend;
+        synchronized (this) {
+            batchToSend = pendingBatches.pollFirst();
+            if (null == batchToSend) {
+                inFlight = false;
+                return;
+            }
+        }
+        send(batchToSend);
+    }
+
+    private void send(Batch batch) {
+        if (null != batch.barrier) {
+            batch.barrier.get().whenComplete((value, cause) -> sendNext());
+            return;
+        }
+        TxnRequest.Builder txnBuilder = TxnRequest.newBuilder()
+            .setHeader(batch.writes.get(0).header);
+        for (Write<?> write : batch.writes) {
+            txnBuilder.addSuccess(write.request);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Sending a write batch of {} requests to range {}",
+                batch.writes.size(), batch.writes.get(0).header.getRangeId());
+        }
+        TxnRequestProcessor.of(
+            txnBuilder.build(),
+            response -> response,
+            scChannel,
+            executor,
+            backoffPolicy
+        ).process().whenComplete((response, cause) -> {
+            try {
+                if (null != cause) {
+                    for (Write<?> write : batch.writes) {
+                        write.future.completeExceptionally(cause);
+                    }
+                } else {
+                    completeWrites(batch, response);
+                }
+            } finally {
+                sendNext();
+            }
+        });
+    }
+
+    private static void completeWrites(Batch batch, TxnResponse response) {
+        for (int i = 0; i < batch.writes.size(); i++) {
+            Write<?> write = batch.writes.get(i);
+            if (i < response.getResponsesCount()) {
+                write.complete(response.getResponses(i));
+            } else {
+                write.future.completeExceptionally(new InternalServerException(
+                    "Encountered internal server exception : missing the response of request " + i));
+            }
+        }
+    }
+
+    private static ResponseHeader getResponseHeader(ResponseOp response) {
+        switch (response.getResponseCase()) {
+            case RESPONSE_PUT:
+                return response.getResponsePut().getHeader();
+            case RESPONSE_INCREMENT:
+                return response.getResponseIncrement().getHeader();
+            case RESPONSE_DELETE_RANGE:
+                return response.getResponseDeleteRange().getHeader();
+            default:
+                return null;
+        }
+    }
+}
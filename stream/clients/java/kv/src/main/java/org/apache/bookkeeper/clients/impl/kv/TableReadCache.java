@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.clients.impl.kv;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.apache.bookkeeper.api.kv.options.RangeOption;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RangeResponse;
+
+/**
+ * A read-through cache of the single-key gets of a table, shared by its ranges.
+ *
+ * <p>The responses are cached by range and key, bounded by their size in bytes and expired after a ttl, which
+ * bounds how stale a value written by other clients can be. The writes of this client to a key invalidate it once
+ * they complete, and bump the write epoch of the range: a get only fills the cache if no write of the range
+ * completed while it was in flight, so a cached value is never older than the last write of this client. When
+ * concurrent gets fill the same key, the response with the highest mod revision of the key is kept.
+ *
+ * <p>The keys of a range are invalidated at once by bumping the invalidation epoch of the range: the responses
+ * cached at an older epoch are dropped when they are read, or evicted as any other entry.
+ */
+class TableReadCache {
+
+    // the estimated memory overhead of a cache entry
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    static class CacheKey {
+        private final long rangeId;
+        private final ByteString rKey;
+        private final ByteString lKey;
+    }
+
+    @RequiredArgsConstructor
+    private static class CachedResponse {
+        private final RangeResponse response;
+        // the mod revision of the key, or -1 if the key doesn't exist
+        private final long modRevision;
+        // the invalidation epoch of the range when the response was cached
+        private final long invalidationEpoch;
+    }
+
+    private static class RangeEpochs {
+        // bumped by every write to the range
+        private final AtomicLong writeEpoch = new AtomicLong(0L);
+        // bumped when all the keys of the range are invalidated
+        private final AtomicLong invalidationEpoch = new AtomicLong(0L);
+    }
+
+    /**
+     * Whether the gets of the given option can be served from the cache.
+     */
+    static boolean isCacheable(RangeOption<ByteBuf> option) {
+        return null == option.endKey()
+            && !option.countOnly()
+            && !option.keysOnly()
+            && Long.MIN_VALUE == option.minModRev()
+            && Long.MAX_VALUE == option.maxModRev()
+            && Long.MIN_VALUE == option.minCreateRev()
+            && Long.MAX_VALUE == option.maxCreateRev();
+    }
+
+    private final Cache<CacheKey, CachedResponse> cache;
+    private final ConcurrentMap<Long, RangeEpochs> rangeEpochs;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+
+    TableReadCache(long maxBytes, long ttlMs, StatsLogger statsLogger) {
+        checkArgument(maxBytes > 0, "maxBytes should be positive");
+        this.hitCounter = statsLogger.getCounter("hits");
+        this.missCounter = statsLogger.getCounter("misses");
+        this.evictionCounter = statsLogger.getCounter("evictions");
+        CacheBuilder<CacheKey, CachedResponse> builder = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .<CacheKey, CachedResponse>weigher((key, value) -> ENTRY_OVERHEAD_BYTES
+                + key.rKey.size() + key.lKey.size() + value.response.getSerializedSize())
+            .removalListener(notification -> {
+                if (notification.wasEvicted()) {
+                    evictionCounter.inc();
+                }
+            });
+        if (ttlMs > 0) {
+            builder = builder.expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS);
+        }
+        this.cache = builder.build();
+        this.rangeEpochs = new ConcurrentHashMap<>();
+    }
+
+    CacheKey newKey(long rangeId, ByteBuf pKey, ByteBuf lKey) {
+        return new CacheKey(rangeId, ByteString.copyFrom(pKey.nioBuffer()), ByteString.copyFrom(lKey.nioBuffer()));
+    }
+
+    private RangeEpochs getEpochs(long rangeId) {
+        return rangeEpochs.computeIfAbsent(rangeId, rid -> new RangeEpochs());
+    }
+
+    /**
+     * Get the cached response of a key.
+     *
+     * @return the cached response, or null if the key is not cached.
+     */
+    RangeResponse get(CacheKey key) {
+        CachedResponse cached = cache.getIfPresent(key);
+        if (null != cached && cached.invalidationEpoch != getEpochs(key.rangeId).invalidationEpoch.get()) {
+            // the range was invalidated after the response was cached
+            cache.asMap().remove(key, cached);
+            cached = null;
+        }
+        if (null == cached) {
+            missCounter.inc();
+            return null;
+        }
+        hitCounter.inc();
+        return cached.response;
+    }
+
+    /**
+     * Start a get of a range. It should be called before the get is sent.
+     *
+     * @return the write epoch of the range, to pass to {@link #fill(CacheKey, long, RangeResponse)}.
+     */
+    long startGet(long rangeId) {
+        return getEpochs(rangeId).writeEpoch.get();
+    }
+
+    /**
+     * Fill the cache with the response of a get.
+     *
+     * @param key the key of the get
+     * @param epoch the write epoch of the range when the get started
+     * @param response the response of the get
+     */
+    void fill(CacheKey key, long epoch, RangeResponse response) {
+        RangeEpochs epochs = getEpochs(key.rangeId);
+        AtomicLong writeEpoch = epochs.writeEpoch;
+        if (writeEpoch.get() != epoch) {
+            return;
+        }
+        long modRevision = response.getKvsCount() > 0 ? response.getKvs(0).getModRevision() : -1L;
+        long invalidationEpoch = epochs.invalidationEpoch.get();
+        CachedResponse cached = new CachedResponse(response, modRevision, invalidationEpoch);
+        cache.asMap().merge(key, cached,
+            (oldCached, newCached) -> oldCached.invalidationEpoch != newCached.invalidationEpoch
+                || newCached.modRevision >= oldCached.modRevision ? newCached : oldCached);
+        // a write completed while filling the cache, its invalidation may have run before the fill
+        if (writeEpoch.get() != epoch) {
+            cache.asMap().remove(key, cached);
+        }
+    }
+
+    /**
+     * Invalidate a key after a write to it completed.
+     */
+    void invalidate(long rangeId, ByteBuf pKey, ByteBuf lKey) {
+        getEpochs(rangeId).writeEpoch.incrementAndGet();
+        cache.invalidate(newKey(rangeId, pKey, lKey));
+    }
+
+    /**
+     * Invalidate all the keys of a range, after a write to multiple keys completed or after the range was removed.
+     */
+    void invalidateRange(long rangeId) {
+        RangeEpochs epochs = getEpochs(rangeId);
+        // a fill that passed the write epoch check before it was bumped either reads the previous invalidation
+        // epoch, or sees the write epoch bumped once it cached its response and removes it
+        epochs.writeEpoch.incrementAndGet();
+        epochs.invalidationEpoch.incrementAndGet();
+    }
+}
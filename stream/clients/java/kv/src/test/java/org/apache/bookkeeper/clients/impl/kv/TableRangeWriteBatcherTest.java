@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.clients.impl.kv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.clients.exceptions.InternalServerException;
+import org.apache.bookkeeper.clients.impl.channel.StorageServerChannel;
+import org.apache.bookkeeper.clients.impl.container.StorageContainerChannel;
+import org.apache.bookkeeper.clients.utils.ClientConstants;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.stream.proto.kv.rpc.PutRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.PutResponse;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RequestOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RoutingHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TableServiceGrpc.TableServiceImplBase;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnResponse;
+import org.apache.bookkeeper.stream.proto.storage.StatusCode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link TableRangeWriteBatcher}.
+ */
+public class TableRangeWriteBatcherTest {
+
+    private static final long RANGE_ID = 1L;
+    private static final int MAX_BATCH_SIZE = 3;
+
+    /**
+     * A txn received by the table service, answered by the test.
+     */
+    private static class ReceivedTxn {
+        private final TxnRequest request;
+        private final StreamObserver<TxnResponse> observer;
+
+        ReceivedTxn(TxnRequest request, StreamObserver<TxnResponse> observer) {
+            this.request = request;
+            this.observer = observer;
+        }
+
+        void respond(StatusCode... codes) {
+            TxnResponse.Builder response = TxnResponse.newBuilder()
+                .setHeader(ResponseHeader.newBuilder().setCode(StatusCode.SUCCESS))
+                .setSucceeded(true);
+            for (StatusCode code : codes) {
+                response.addResponses(ResponseOp.newBuilder()
+                    .setResponsePut(PutResponse.newBuilder()
+                        .setHeader(ResponseHeader.newBuilder().setCode(code))));
+            }
+            observer.onNext(response.build());
+            observer.onCompleted();
+        }
+
+        void respondSuccess() {
+            StatusCode[] codes = new StatusCode[request.getSuccessCount()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = StatusCode.SUCCESS;
+            }
+            respond(codes);
+        }
+
+        List<String> keys() {
+            List<String> keys = new ArrayList<>();
+            for (RequestOp op : request.getSuccessList()) {
+                keys.add(op.getRequestPut().getKey().toStringUtf8());
+            }
+            return keys;
+        }
+    }
+
+    private final BlockingQueue<ReceivedTxn> receivedTxns = new LinkedBlockingQueue<>();
+    private Server server;
+    private ManagedChannel channel;
+    private ScheduledExecutorService executor;
+    private TableRangeWriteBatcher batcher;
+
+    @Before
+    public void setUp() throws Exception {
+        String serverName = "table-range-write-batcher-test-" + System.nanoTime();
+        server = InProcessServerBuilder.forName(serverName)
+            .addService(new TableServiceImplBase() {
+                @Override
+                public void txn(TxnRequest request, StreamObserver<TxnResponse> responseObserver) {
+                    receivedTxns.add(new ReceivedTxn(request, responseObserver));
+                }
+            })
+            .directExecutor()
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        StorageContainerChannel scChannel = mock(StorageContainerChannel.class);
+        when(scChannel.getStorageContainerChannelFuture())
+            .thenReturn(FutureUtils.value(new StorageServerChannel(channel, Optional.empty())));
+        executor = Executors.newSingleThreadScheduledExecutor();
+        batcher = new TableRangeWriteBatcher(scChannel, executor, ClientConstants.DEFAULT_BACKOFF_POLICY,
+            MAX_BATCH_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.shutdownNow();
+        server.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<ResponseOp> put(String key) {
+        return batcher.write(
+            RequestOp.newBuilder()
+                .setRequestPut(PutRequest.newBuilder()
+                    .setHeader(RoutingHeader.newBuilder()
+                        .setRangeId(RANGE_ID)
+                        .setRKey(ByteString.copyFromUtf8(key)))
+                    .setKey(ByteString.copyFromUtf8(key))
+                    .setValue(ByteString.copyFromUtf8("value")))
+                .build(),
+            response -> response);
+    }
+
+    private ReceivedTxn nextTxn() throws InterruptedException {
+        ReceivedTxn txn = receivedTxns.poll(10, TimeUnit.SECONDS);
+        if (null == txn) {
+            fail("No txn received");
+        }
+        return txn;
+    }
+
+    private void assertNoTxn() throws InterruptedException {
+        assertNull(receivedTxns.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBatchSplitOnDuplicateKey() throws Exception {
+        CompletableFuture<ResponseOp> first = put("k1");
+        ReceivedTxn txn = nextTxn();
+        assertEquals(1, txn.request.getSuccessCount());
+
+        // queued while the first txn is in flight, a key is never written twice in the same txn
+        List<CompletableFuture<ResponseOp>> futures = new ArrayList<>();
+        futures.add(put("k2"));
+        futures.add(put("k3"));
+        futures.add(put("k2"));
+        futures.add(put("k4"));
+        assertNoTxn();
+
+        txn.respondSuccess();
+        first.get();
+        txn = nextTxn();
+        assertEquals(Lists.newArrayList("k2", "k3"), txn.keys());
+        assertNoTxn();
+        txn.respondSuccess();
+
+        txn = nextTxn();
+        assertEquals(Lists.newArrayList("k2", "k4"), txn.keys());
+        txn.respondSuccess();
+        for (CompletableFuture<ResponseOp> future : futures) {
+            assertEquals(StatusCode.SUCCESS, future.get().getResponsePut().getHeader().getCode());
+        }
+    }
+
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        put("k0");
+        ReceivedTxn txn = nextTxn();
+
+        List<CompletableFuture<ResponseOp>> futures = new ArrayList<>();
+        for (int i = 1; i <= 2 * MAX_BATCH_SIZE + 1; i++) {
+            futures.add(put("k" + i));
+        }
+        txn.respondSuccess();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        while (batchSizes.stream().mapToInt(Integer::intValue).sum() < futures.size()) {
+            txn = nextTxn();
+            batchSizes.add(txn.request.getSuccessCount());
+            txn.respondSuccess();
+        }
+        assertEquals(Lists.newArrayList(MAX_BATCH_SIZE, MAX_BATCH_SIZE, 1), batchSizes);
+        for (CompletableFuture<ResponseOp> future : futures) {
+            future.get();
+        }
+    }
+
+    @Test
+    public void testPerOpFailure() throws Exception {
+        put("k0");
+        ReceivedTxn txn = nextTxn();
+        CompletableFuture<ResponseOp> succeeded = put("k1");
+        CompletableFuture<ResponseOp> failed = put("k2");
+        CompletableFuture<ResponseOp> missing = put("k3");
+        txn.respondSuccess();
+
+        // the response of the last op of the batch is missing
+        nextTxn().respond(StatusCode.SUCCESS, StatusCode.KEY_NOT_FOUND);
+        assertEquals(StatusCode.SUCCESS, succeeded.get().getResponsePut().getHeader().getCode());
+        assertFailed(failed);
+        assertFailed(missing);
+
+        // the writes after a failed batch are still sent
+        CompletableFuture<ResponseOp> next = put("k4");
+        nextTxn().respondSuccess();
+        next.get();
+    }
+
+    @Test
+    public void testBarrierOrdering() throws Exception {
+        List<String> events = new ArrayList<>();
+        CompletableFuture<ResponseOp> before = put("k1");
+        ReceivedTxn txn = nextTxn();
+
+        CompletableFuture<String> barrierResponse = new CompletableFuture<>();
+        CompletableFuture<String> barrier = batcher.writeBarrier(() -> {
+            synchronized (events) {
+                events.add("barrier");
+            }
+            return barrierResponse;
+        });
+        CompletableFuture<ResponseOp> after = put("k1");
+
+        // the barrier waits for the writes issued before it
+        assertNoTxn();
+        synchronized (events) {
+            assertTrue(events.isEmpty());
+        }
+        txn.respondSuccess();
+        before.get();
+
+        // the writes issued after the barrier wait for it
+        assertNoTxn();
+        synchronized (events) {
+            assertEquals(Lists.newArrayList("barrier"), events);
+        }
+        assertFalse(after.isDone());
+        barrierResponse.complete("deleted");
+        assertEquals("deleted", barrier.get());
+
+        txn = nextTxn();
+        assertEquals(Lists.newArrayList("k1"), txn.keys());
+        txn.respondSuccess();
+        after.get();
+    }
+
+    @Test
+    public void testFailedBarrier() throws Exception {
+        CompletableFuture<String> barrier = batcher.writeBarrier(() -> {
+            throw new IllegalStateException("injected");
+        });
+        try {
+            barrier.get();
+            fail("The barrier should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        CompletableFuture<ResponseOp> next = put("k1");
+        nextTxn().respondSuccess();
+        next.get();
+    }
+
+    private static void assertFailed(CompletableFuture<ResponseOp> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("The write should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InternalServerException);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.clients.impl.kv;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stream.proto.kv.KeyValue;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RangeResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link TableReadCache}.
+ */
+public class TableReadCacheTest {
+
+    private static final long RANGE_ID = 1L;
+    private static final long OTHER_RANGE_ID = 2L;
+
+    private TableReadCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new TableReadCache(1024 * 1024, 0, NullStatsLogger.INSTANCE);
+    }
+
+    private TableReadCache.CacheKey newKey(long rangeId, String key) {
+        return cache.newKey(rangeId, Unpooled.wrappedBuffer(key.getBytes(UTF_8)),
+            Unpooled.wrappedBuffer(key.getBytes(UTF_8)));
+    }
+
+    private static RangeResponse newResponse(String key, long modRevision) {
+        return RangeResponse.newBuilder()
+            .addKvs(KeyValue.newBuilder()
+                .setKey(ByteString.copyFromUtf8(key))
+                .setValue(ByteString.copyFromUtf8("value-" + modRevision))
+                .setModRevision(modRevision))
+            .build();
+    }
+
+    @Test
+    public void testInvalidateRange() {
+        TableReadCache.CacheKey key1 = newKey(RANGE_ID, "key1");
+        TableReadCache.CacheKey key2 = newKey(RANGE_ID, "key2");
+        TableReadCache.CacheKey otherKey = newKey(OTHER_RANGE_ID, "key1");
+        RangeResponse response1 = newResponse("key1", 1L);
+        RangeResponse response2 = newResponse("key2", 2L);
+        RangeResponse otherResponse = newResponse("key1", 3L);
+        cache.fill(key1, cache.startGet(RANGE_ID), response1);
+        cache.fill(key2, cache.startGet(RANGE_ID), response2);
+        cache.fill(otherKey, cache.startGet(OTHER_RANGE_ID), otherResponse);
+        assertSame(response1, cache.get(key1));
+        assertSame(response2, cache.get(key2));
+
+        cache.invalidateRange(RANGE_ID);
+        assertNull(cache.get(key1));
+        assertNull(cache.get(key2));
+        // the other ranges are left untouched
+        assertSame(otherResponse, cache.get(otherKey));
+
+        // the gets started after the invalidation fill the cache again
+        RangeResponse newResponse1 = newResponse("key1", 4L);
+        cache.fill(key1, cache.startGet(RANGE_ID), newResponse1);
+        assertSame(newResponse1, cache.get(key1));
+    }
+
+    @Test
+    public void testFillStartedBeforeInvalidation() {
+        TableReadCache.CacheKey key = newKey(RANGE_ID, "key");
+        long epoch = cache.startGet(RANGE_ID);
+        cache.invalidateRange(RANGE_ID);
+        cache.fill(key, epoch, newResponse("key", 1L));
+        assertNull(cache.get(key));
+
+        epoch = cache.startGet(RANGE_ID);
+        cache.invalidate(RANGE_ID, Unpooled.wrappedBuffer("key".getBytes(UTF_8)),
+            Unpooled.wrappedBuffer("key".getBytes(UTF_8)));
+        cache.fill(key, epoch, newResponse("key", 1L));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testFillsRacingWithInvalidations() throws Exception {
+        TableReadCache.CacheKey key = newKey(RANGE_ID, "key");
+        // the revision that the gets return, and the revision whose invalidation completed
+        AtomicLong committedRevision = new AtomicLong(0L);
+        AtomicLong invalidatedRevision = new AtomicLong(0L);
+        AtomicLong staleReads = new AtomicLong(0L);
+        AtomicBoolean done = new AtomicBoolean(false);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    long minRevision = invalidatedRevision.get();
+                    RangeResponse cached = cache.get(key);
+                    if (null != cached && cached.getKvs(0).getModRevision() < minRevision) {
+                        staleReads.incrementAndGet();
+                    }
+                    long epoch = cache.startGet(RANGE_ID);
+                    long revision = committedRevision.get();
+                    cache.fill(key, epoch, newResponse("key", revision));
+                }
+            }, "reader-" + i);
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (long revision = 1; revision <= 20000; revision++) {
+            committedRevision.set(revision);
+            cache.invalidateRange(RANGE_ID);
+            invalidatedRevision.set(revision);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0L, staleReads.get());
+    }
+}
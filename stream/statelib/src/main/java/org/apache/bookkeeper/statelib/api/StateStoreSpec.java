@@ -21,6 +21,7 @@ package org.apache.bookkeeper.statelib.api;
 import java.io.File;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import lombok.Builder;
 import lombok.Builder.Default;
@@ -28,6 +29,8 @@ import lombok.Getter;
 import lombok.Singular;
 import org.apache.bookkeeper.common.coder.Coder;
 import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 
 /**
  * Specification for a state store.
@@ -62,7 +65,21 @@ public class StateStoreSpec {
     @Default
     // Max idle time while waiting to restore from a checkpoint.
     private Duration checkpointRestoreIdleLimit = Duration.ofMinutes(5);
+    // Executor transferring the checkpoint files, it must not be the checkpoint io scheduler.
+    private ExecutorService checkpointTransferExecutor;
+    // Max number of checkpoint files transferred in parallel by a checkpoint or a restore.
+    @Default
+    private int checkpointTransferParallelism = 1;
 
     @Default
     private int ttlSeconds = 0;
+
+    // Number of journal records read at once when replaying the journal, 0 to replay the records one by one.
+    @Default
+    private int journalReplayBulkSize = 0;
+    // Executor decoding the journal records in parallel when replaying the journal in bulk.
+    private ExecutorService journalReplayDecodeExecutor;
+
+    @Default
+    private StatsLogger statsLogger = NullStatsLogger.INSTANCE;
 }
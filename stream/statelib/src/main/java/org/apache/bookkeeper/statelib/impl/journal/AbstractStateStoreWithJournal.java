@@ -25,8 +25,12 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -37,6 +41,7 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.statelib.api.AsyncStateStore;
 import org.apache.bookkeeper.statelib.api.StateStore;
 import org.apache.bookkeeper.statelib.api.StateStoreSpec;
@@ -45,6 +50,9 @@ import org.apache.bookkeeper.statelib.api.exceptions.StateStoreClosedException;
 import org.apache.bookkeeper.statelib.api.exceptions.StateStoreException;
 import org.apache.bookkeeper.statelib.api.exceptions.StateStoreRuntimeException;
 import org.apache.bookkeeper.statelib.impl.Constants;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.distributedlog.DLSN;
 import org.apache.distributedlog.LogRecord;
 import org.apache.distributedlog.LogRecordWithDLSN;
@@ -63,6 +71,15 @@ import org.apache.distributedlog.util.Utils;
 @Slf4j
 public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends StateStore> implements AsyncStateStore {
 
+    // number of journal records decoded by a task when replaying the journal in bulk
+    private static final int REPLAY_DECODE_CHUNK_SIZE = 256;
+
+    private static final String JOURNAL_REPLAY_RECORDS = "journal_replay_records";
+    private static final String JOURNAL_REPLAY_BYTES = "journal_replay_bytes";
+    private static final String JOURNAL_REPLAY_TIME = "journal_replay_time";
+    private static final String JOURNAL_REPLAY_RECORDS_PER_SECOND = "journal_replay_records_per_second";
+    private static final String JOURNAL_REPLAY_BYTES_PER_SECOND = "journal_replay_bytes_per_second";
+
     // local state store instance
     @Getter
     protected final LocalStateStoreT localStore;
@@ -89,6 +106,16 @@ public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends Sta
     private ScheduledFuture<?> checkpointTask;
     private Duration checkpointInterval;
 
+    // replay stats
+    private Counter replayRecordsCounter;
+    private Counter replayBytesCounter;
+    private OpStatsLogger replayTimeStats;
+    private OpStatsLogger replayRecordsRateStats;
+    private OpStatsLogger replayBytesRateStats;
+    private long replayStartNanos;
+    private long replayedRecords;
+    private long replayedBytes;
+
     // close state
     protected boolean isInitialized = false;
     protected CompletableFuture<Void> closeFuture = null;
@@ -197,6 +224,13 @@ public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends Sta
             this.checkpointInterval = null;
         }
 
+        StatsLogger statsLogger = spec.getStatsLogger();
+        this.replayRecordsCounter = statsLogger.getCounter(JOURNAL_REPLAY_RECORDS);
+        this.replayBytesCounter = statsLogger.getCounter(JOURNAL_REPLAY_BYTES);
+        this.replayTimeStats = statsLogger.getOpStatsLogger(JOURNAL_REPLAY_TIME);
+        this.replayRecordsRateStats = statsLogger.getOpStatsLogger(JOURNAL_REPLAY_RECORDS_PER_SECOND);
+        this.replayBytesRateStats = statsLogger.getOpStatsLogger(JOURNAL_REPLAY_BYTES_PER_SECOND);
+
         if (spec.isReadonly()) {
             return initializeLocalStore(spec)
                 .thenComposeAsync(ignored -> getLastDLSN(spec), writeIOScheduler)
@@ -323,11 +357,45 @@ public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends Sta
                     });
 
                 log.info("Successfully open the journal reader for mvcc store {} : end dlsn = {}", name(), endDLSN);
-                replayJournal(r, endDLSN, replayFuture, lastRevision);
+                replayStartNanos = MathUtils.nowInNano();
+                replayedRecords = 0L;
+                replayedBytes = 0L;
+                if (spec.getJournalReplayBulkSize() > 0 && commandProcessor instanceof BatchCommandProcessor) {
+                    replayJournalInBulk(r, endDLSN, replayFuture, lastRevision);
+                } else {
+                    replayJournal(r, endDLSN, replayFuture, lastRevision);
+                }
                 return replayFuture;
             }, writeIOScheduler);
     }
 
+    private void recordReplayed(LogRecordWithDLSN record) {
+        replayedRecords++;
+        replayedBytes += record.getPayloadBuf().readableBytes();
+    }
+
+    private void finishReplay(AsyncLogReader reader, CompletableFuture<Void> future, boolean checkpoint) {
+        long elapsedNanos = MathUtils.elapsedNanos(replayStartNanos);
+        double elapsedSeconds = Math.max(elapsedNanos, 1L) / 1e9;
+        long recordsPerSecond = (long) (replayedRecords / elapsedSeconds);
+        long bytesPerSecond = (long) (replayedBytes / elapsedSeconds);
+        replayRecordsCounter.addCount(replayedRecords);
+        replayBytesCounter.addCount(replayedBytes);
+        replayTimeStats.registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+        replayRecordsRateStats.registerSuccessfulValue(recordsPerSecond);
+        replayBytesRateStats.registerSuccessfulValue(bytesPerSecond);
+        log.info("Finished replaying journal for state store {} : {} records, {} bytes in {} ms"
+                + " ({} records/s, {} bytes/s)", name(), replayedRecords, replayedBytes,
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos), recordsPerSecond, bytesPerSecond);
+
+        // checkpoint the replayed records, so that the next recovery doesn't replay them again
+        if (checkpoint && null != checkpointInterval && replayedRecords > 1) {
+            localStore.checkpoint();
+        }
+        markInitialized(reader);
+        FutureUtils.complete(future, null);
+    }
+
     private void replayJournal(AsyncLogReader reader,
                                DLSN endDLSN,
                                CompletableFuture<Void> future,
@@ -386,11 +454,10 @@ public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends Sta
                             record.getTransactionId(), record, record.getDlsn(), name());
                     }
                     commandProcessor.applyCommand(record.getTransactionId(), record.getPayloadBuf(), localStore);
+                    recordReplayed(record);
 
                     if (record.getDlsn().compareTo(endDLSN) >= 0) {
-                        log.info("Finished replaying journal for state store {}", name());
-                        markInitialized(reader);
-                        FutureUtils.complete(future, null);
+                        finishReplay(reader, future, false);
                         return;
                     }
 
@@ -414,6 +481,117 @@ public abstract class AbstractStateStoreWithJournal<LocalStateStoreT extends Sta
         };
     }
 
+    /**
+     * Replay the journal by reading the records in bulk. The records of a bulk are decoded in parallel and
+     * applied together by the {@link BatchCommandProcessor}.
+     */
+    private void replayJournalInBulk(AsyncLogReader reader,
+                                     DLSN endDLSN,
+                                     CompletableFuture<Void> future,
+                                     long startingTxId) {
+        synchronized (this) {
+            if (null != closeFuture) {
+                FutureUtils.completeExceptionally(future, new StateStoreClosedException(name()));
+                return;
+            }
+        }
+
+        reader.readBulk(spec.getJournalReplayBulkSize()).whenComplete(
+            new FutureEventListener<List<LogRecordWithDLSN>>() {
+                @Override
+                public void onSuccess(List<LogRecordWithDLSN> records) {
+                    long firstTxId = records.get(0).getTransactionId();
+                    if (startingTxId != -1 && startingTxId != firstTxId) {
+                        String msg = String.format(
+                            "replayJournal failed: Invalid starting transaction %d expecting %d for stream %s",
+                            firstTxId, startingTxId, name);
+                        log.error(msg);
+                        FutureUtils.completeExceptionally(future, new InvalidStateStoreException(msg));
+                        return;
+                    }
+                    decodeCommands(records)
+                        .thenAcceptAsync(commands -> applyCommands(reader, endDLSN, future, records, commands),
+                            writeIOScheduler)
+                        .exceptionally(cause -> {
+                            FutureUtils.completeExceptionally(future,
+                                cause instanceof CompletionException ? cause.getCause() : cause);
+                            return null;
+                        });
+                }
+
+                @Override
+                public void onFailure(Throwable cause) {
+                    FutureUtils.completeExceptionally(future, cause);
+                }
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private BatchCommandProcessor<LocalStateStoreT, Object> batchCommandProcessor() {
+        return (BatchCommandProcessor<LocalStateStoreT, Object>) commandProcessor;
+    }
+
+    private CompletableFuture<List<Object>> decodeCommands(List<LogRecordWithDLSN> records) {
+        ExecutorService executor = spec.getJournalReplayDecodeExecutor();
+        if (null == executor || records.size() <= REPLAY_DECODE_CHUNK_SIZE) {
+            try {
+                return FutureUtils.value(decodeCommandChunk(records));
+            } catch (RuntimeException e) {
+                return FutureUtils.exception(e);
+            }
+        }
+        List<CompletableFuture<List<Object>>> chunkFutures = new ArrayList<>();
+        for (int i = 0; i < records.size(); i += REPLAY_DECODE_CHUNK_SIZE) {
+            List<LogRecordWithDLSN> chunk = records.subList(i, Math.min(records.size(), i + REPLAY_DECODE_CHUNK_SIZE));
+            chunkFutures.add(CompletableFuture.supplyAsync(() -> decodeCommandChunk(chunk), executor));
+        }
+        return FutureUtils.collect(chunkFutures).thenApply(chunks -> {
+            List<Object> commands = new ArrayList<>(records.size());
+            chunks.forEach(commands::addAll);
+            return commands;
+        });
+    }
+
+    private List<Object> decodeCommandChunk(List<LogRecordWithDLSN> records) {
+        BatchCommandProcessor<LocalStateStoreT, Object> processor = batchCommandProcessor();
+        List<Object> commands = new ArrayList<>(records.size());
+        for (LogRecordWithDLSN record : records) {
+            commands.add(processor.decodeCommand(record.getPayloadBuf()));
+        }
+        return commands;
+    }
+
+    private void applyCommands(AsyncLogReader reader,
+                               DLSN endDLSN,
+                               CompletableFuture<Void> future,
+                               List<LogRecordWithDLSN> records,
+                               List<Object> commands) {
+        LogRecordWithDLSN lastRecord = records.get(records.size() - 1);
+        long[] txids = new long[records.size()];
+        for (int i = 0; i < txids.length; i++) {
+            txids[i] = records.get(i).getTransactionId();
+        }
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Applying command transactions {} to {} @ {} to mvcc store {}",
+                    txids[0], txids[txids.length - 1], lastRecord.getDlsn(), name());
+            }
+            batchCommandProcessor().applyCommands(txids, commands, localStore);
+        } catch (Exception e) {
+            log.error("Exception is thrown when applying command records {} to {} @ {} to mvcc store {}",
+                txids[0], txids[txids.length - 1], lastRecord.getDlsn(), name(), e);
+            FutureUtils.completeExceptionally(future, e);
+            return;
+        }
+        records.forEach(this::recordReplayed);
+
+        if (lastRecord.getDlsn().compareTo(endDLSN) >= 0) {
+            finishReplay(reader, future, true);
+        } else {
+            replayJournalInBulk(reader, endDLSN, future, -1);
+        }
+    }
+
     private void replayLoop(AsyncLogReader reader) {
         synchronized (this) {
             if (null != closeFuture) {
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.statelib.impl.journal;
+
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+
+/**
+ * A command processor that can apply the commands replayed from the journal in batches.
+ *
+ * <p>The commands are decoded first, possibly in parallel, and then applied in the order of the journal.
+ */
+public interface BatchCommandProcessor<LocalStateStoreT, CommandT> extends CommandProcessor<LocalStateStoreT> {
+
+    /**
+     * Decode a command. It can be called concurrently for different commands.
+     *
+     * @param cmdBuf command buffer
+     * @return the decoded command
+     */
+    CommandT decodeCommand(ByteBuf cmdBuf);
+
+    /**
+     * Apply decoded commands to the local state store, in order.
+     *
+     * @param txids    tx ids of the commands
+     * @param commands decoded commands
+     * @param store    local state store.
+     */
+    void applyCommands(long[] txids, List<CommandT> commands, LocalStateStoreT store);
+
+}
@@ -67,6 +67,7 @@ import org.apache.bookkeeper.statelib.api.kv.KVStore;
 import org.apache.bookkeeper.statelib.impl.Bytes;
 import org.apache.bookkeeper.statelib.impl.rocksdb.RocksUtils;
 import org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint.CheckpointInfo;
+import org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint.CheckpointTransferer;
 import org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint.RocksCheckpointer;
 import org.apache.commons.lang3.tuple.Pair;
 import org.rocksdb.BlockBasedTableConfig;
@@ -131,6 +132,7 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
     protected volatile boolean isInitialized = false;
     protected volatile boolean closed = false;
     protected volatile long lastRevision = -1L;
+    // serialized last revision, only accessed by the writes of the store
     private final byte[] lastRevisionBytes = new byte[Long.BYTES];
 
     // checkpointer store
@@ -138,6 +140,7 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
     private ScheduledExecutorService checkpointScheduler;
     // rocksdb checkpointer
     private RocksCheckpointer checkpointer;
+    private CheckpointTransferer checkpointTransferer;
 
     static {
         RocksDB.loadLibrary();
@@ -181,7 +184,8 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
         List<CheckpointInfo> checkpoints = RocksCheckpointer.getCheckpoints(dbName, spec.getCheckpointStore());
         for (CheckpointInfo cpi : checkpoints) {
             try {
-                cpi.restore(dbName, localStorePath, spec.getCheckpointStore(), spec.getCheckpointRestoreIdleLimit());
+                cpi.restore(dbName, localStorePath, spec.getCheckpointStore(), spec.getCheckpointRestoreIdleLimit(),
+                    checkpointTransferer);
                 openRocksdb(spec);
                 checkpoints.stream()
                     .filter(cp -> cp != cpi) // ignore the current restored checkpoint
@@ -200,8 +204,10 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
     @Override
     public synchronized void checkpoint() {
         log.info("Checkpoint local state store {} at revision {}", name, getLastRevision());
+        // the bytes of the last revision are only stable under the lock of the writes, which is not the monitor of
+        // every store, so copy the revision itself that is updated atomically
         byte[] checkpointAtRevisionBytes = new byte[Long.BYTES];
-        System.arraycopy(lastRevisionBytes, 0, checkpointAtRevisionBytes, 0, checkpointAtRevisionBytes.length);
+        Bytes.toBytes(getLastRevision(), checkpointAtRevisionBytes, 0);
         checkpointScheduler.submit(() -> {
             try {
                 // TODO: move create checkpoint to the checkpoint method
@@ -282,6 +288,10 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
 
         checkpointStore = spec.getCheckpointStore();
         if (null != checkpointStore) {
+            checkpointTransferer = new CheckpointTransferer(
+                spec.getCheckpointTransferExecutor(),
+                spec.getCheckpointTransferParallelism(),
+                spec.getStatsLogger().scope("checkpoint"));
             // load checkpoint from checkpoint store
             loadRocksdbFromCheckpointStore(spec);
         } else {
@@ -302,7 +312,8 @@ public class RocksdbKVStore<K, V> implements KVStore<K, V> {
                 true,
                 true,
                 spec.isCheckpointChecksumEnable(),
-                spec.isCheckpointChecksumCompatible());
+                spec.isCheckpointChecksumCompatible(),
+                checkpointTransferer);
             checkpointScheduler = spec.getCheckpointIOScheduler();
         }
 
@@ -18,7 +18,9 @@
  */
 package org.apache.bookkeeper.statelib.impl.mvcc;
 
+import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBuf;
+import java.util.List;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,16 +34,17 @@ import org.apache.bookkeeper.api.kv.result.IncrementResult;
 import org.apache.bookkeeper.api.kv.result.PutResult;
 import org.apache.bookkeeper.api.kv.result.TxnResult;
 import org.apache.bookkeeper.statelib.api.exceptions.MVCCStoreException;
-import org.apache.bookkeeper.statelib.impl.journal.CommandProcessor;
+import org.apache.bookkeeper.statelib.impl.journal.BatchCommandProcessor;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoDeleteOpImpl;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoIncrementOpImpl;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoPutOpImpl;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoTxnOpImpl;
+import org.apache.bookkeeper.stream.proto.kv.rpc.DeleteRangeRequest;
 import org.apache.bookkeeper.stream.proto.kv.store.Command;
 
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-class MVCCCommandProcessor implements CommandProcessor<MVCCStoreImpl<byte[], byte[]>> {
+class MVCCCommandProcessor implements BatchCommandProcessor<MVCCStoreImpl<byte[], byte[]>, Command> {
 
     public static MVCCCommandProcessor of() {
         return new MVCCCommandProcessor();
@@ -140,7 +143,10 @@ class MVCCCommandProcessor implements CommandProcessor<MVCCStoreImpl<byte[], byt
 
     @Override
     public void applyCommand(long txid, ByteBuf cmdBuf, MVCCStoreImpl<byte[], byte[]> store) {
-        Command command = MVCCUtils.newCommand(cmdBuf);
+        applyCommand(txid, MVCCUtils.newCommand(cmdBuf), store);
+    }
+
+    private void applyCommand(long txid, Command command, MVCCStoreImpl<byte[], byte[]> store) {
         switch (command.getReqCase()) {
             case NOP_REQ:
                 return;
@@ -160,4 +166,78 @@ class MVCCCommandProcessor implements CommandProcessor<MVCCStoreImpl<byte[], byt
                 return;
         }
     }
+
+    @Override
+    public Command decodeCommand(ByteBuf cmdBuf) {
+        return MVCCUtils.newCommand(cmdBuf);
+    }
+
+    /**
+     * Apply the puts, increments and single-key deletes in batches, which are committed when a key is updated
+     * twice or before a txn or a range delete, which are applied as single commands.
+     */
+    @Override
+    public void applyCommands(long[] txids, List<Command> commands, MVCCStoreImpl<byte[], byte[]> store) {
+        try (MVCCStoreImpl<byte[], byte[]>.ReplayBatch batch = store.newReplayBatch()) {
+            for (int i = 0; i < commands.size(); i++) {
+                long revision = txids[i];
+                Command command = commands.get(i);
+                byte[] key = getSingleKey(command);
+                if (null == key) {
+                    batch.commit();
+                    applyCommand(revision, command, store);
+                    continue;
+                }
+                if (batch.contains(key)) {
+                    batch.commit();
+                }
+                Code code;
+                switch (command.getReqCase()) {
+                    case PUT_REQ:
+                        try (ProtoPutOpImpl op = ProtoPutOpImpl.newPutOp(command)) {
+                            code = batch.put(revision, op);
+                        }
+                        break;
+                    case INCR_REQ:
+                        try (ProtoIncrementOpImpl op = ProtoIncrementOpImpl.newIncrementOp(command)) {
+                            code = batch.increment(revision, op);
+                        }
+                        break;
+                    default:
+                        try (ProtoDeleteOpImpl op = ProtoDeleteOpImpl.newDeleteOp(command.getDeleteReq())) {
+                            code = batch.delete(revision, op);
+                        }
+                        break;
+                }
+                if (Code.OK != code && Code.SMALLER_REVISION != code) {
+                    throw new MVCCStoreException(code,
+                        "Failed to apply command " + command.getReqCase() + " at revision "
+                            + revision + " to the state store " + store.name());
+                }
+            }
+            batch.commit();
+        }
+    }
+
+    /**
+     * Get the key updated by a put, an increment or a single-key delete command, or null for the other commands.
+     */
+    private static byte[] getSingleKey(Command command) {
+        switch (command.getReqCase()) {
+            case PUT_REQ:
+                return command.getPutReq().getKey().toByteArray();
+            case INCR_REQ:
+                return command.getIncrReq().getKey().toByteArray();
+            case DELETE_REQ:
+                // as ProtoDeleteOpImpl#endKey, a range end of a single zero byte is no range end
+                DeleteRangeRequest deleteReq = command.getDeleteReq();
+                ByteString rangeEnd = deleteReq.getRangeEnd();
+                if (rangeEnd.size() > 1 || (1 == rangeEnd.size() && rangeEnd.byteAt(0) != 0)) {
+                    return null;
+                }
+                return deleteReq.getKey().toByteArray();
+            default:
+                return null;
+        }
+    }
 }
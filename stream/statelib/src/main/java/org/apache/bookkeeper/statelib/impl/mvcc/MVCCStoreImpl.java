@@ -35,6 +35,12 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.api.kv.impl.op.OpFactoryImpl;
@@ -81,15 +87,23 @@ import org.apache.bookkeeper.statelib.impl.rocksdb.RocksUtils;
 import org.apache.bookkeeper.stream.proto.kv.store.ValueType;
 import org.apache.commons.lang.mutable.MutableLong;
 import org.apache.commons.lang3.tuple.Pair;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
 
 /**
  * MVCC Store Implementation.
  *
- * <p>The current implementation executes write operations in one single io thread.
- * It can be improved later to leverage the revision numbers to achieve mvcc.
+ * <p>The reads are not serialized with the writes: point reads are single rocksdb gets and range reads
+ * iterate over a rocksdb snapshot, so they only take the shared side of the store lock, which excludes
+ * closing the store.
+ *
+ * <p>The writes of a store are already serialized on the write io thread of its stream, so they all hold a
+ * single write lock. It keeps the compares and the operations of a txn atomic with respect to the writes
+ * issued from other threads, such as the journal replay, and keeps the last revision stored in rocksdb
+ * from going backward. A checkpoint reads the last revision atomically, without taking the write lock.
  */
 @Slf4j
 class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V> {
@@ -101,6 +115,13 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     private final OpFactory<K, V> opFactory;
     private final Coder<MVCCRecord> recordCoder = MVCCRecordCoder.of();
 
+    // shared by the operations, exclusive when closing the store: guards the rocksdb resources released by close()
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+    // held by the writes, after the shared side of the store lock: guards the last revision and its serialized
+    // bytes, and the read-modify-write sequences of the operations. The monitor of the store is not taken by the
+    // writes, it only guards the lifecycle inherited from RocksdbKVStore
+    private final Lock writeLock = new ReentrantLock();
+
     MVCCStoreImpl() {
         this.resultFactory = new ResultFactory<>();
         this.recordFactory = new KeyValueFactory<>();
@@ -118,17 +139,17 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     }
 
     @Override
-    public synchronized V putIfAbsent(K key, V value) {
+    public V putIfAbsent(K key, V value) {
         throw new UnsupportedOperationException("Please use #put(PutOp op) instead");
     }
 
     @Override
-    public synchronized KVMulti<K, V> multi() {
+    public KVMulti<K, V> multi() {
         throw new UnsupportedOperationException("Please use #txn(TxnOp op) instead");
     }
 
     @Override
-    public synchronized V delete(K key) {
+    public V delete(K key) {
         throw new UnsupportedOperationException("Please use #delete(DeleteOp op) instead");
     }
 
@@ -206,7 +227,7 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     }
 
     @Override
-    public synchronized V get(K key) {
+    public V get(K key) {
         try (RangeOp<K, V> op = opFactory.newRange(
             key,
             opFactory.optionFactory().newRangeOption()
@@ -227,12 +248,28 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     }
 
     @Override
-    public synchronized KVIterator<K, V> range(K from, K to) {
-        checkStoreOpen();
+    public KVIterator<K, V> range(K from, K to) {
+        storeLock.readLock().lock();
+        try {
+            checkStoreOpen();
 
-        RangeResultIterator iter = new RangeResultIterator(from, to);
-        kvIters.add(iter);
-        return iter;
+            RangeResultIterator iter = new RangeResultIterator(from, to);
+            kvIters.add(iter);
+            return iter;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        // wait for the operations in progress before releasing the rocksdb resources
+        storeLock.writeLock().lock();
+        try {
+            super.close();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
     }
 
     class RangeResultIterator implements KVIterator<K, V> {
@@ -341,6 +378,104 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
+    private void commitBatch(WriteBatch batch, long revision) {
+        // called with the write lock held, which keeps the last revision updated and written in the same order
+        updateLastRevision(batch, revision);
+        executeBatch(batch);
+    }
+
+    private void lockWrites() {
+        storeLock.readLock().lock();
+        writeLock.lock();
+    }
+
+    private void unlockWrites() {
+        writeLock.unlock();
+        storeLock.readLock().unlock();
+    }
+
+    /**
+     * Open a batch to apply the updates replayed from the journal.
+     *
+     * <p>The updates of the batch are committed in one write. They are validated against the committed records,
+     * so a batch can update a key at most once, which is checked by {@link ReplayBatch#contains(byte[])}.
+     */
+    ReplayBatch newReplayBatch() {
+        return new ReplayBatch();
+    }
+
+    /**
+     * A batch of single-key updates replayed from the journal. It holds the write lock until it is closed.
+     */
+    class ReplayBatch implements AutoCloseable {
+
+        private final WriteBatch batch;
+        private final Set<byte[]> keys = new TreeSet<>(COMPARATOR);
+        private long lastRevision = -1L;
+
+        private ReplayBatch() {
+            lockWrites();
+            this.batch = new WriteBatch();
+        }
+
+        boolean isEmpty() {
+            return keys.isEmpty();
+        }
+
+        boolean contains(byte[] rawKey) {
+            return keys.contains(rawKey);
+        }
+
+        Code put(long revision, PutOp<K, V> op) {
+            checkStoreOpen();
+            try (PutResult<K, V> result = MVCCStoreImpl.this.put(revision, batch, op)) {
+                return added(keyCoder.encode(op.key()), revision, result.code());
+            }
+        }
+
+        Code increment(long revision, IncrementOp<K, V> op) {
+            checkStoreOpen();
+            byte[] rawKey = keyCoder.encode(op.key());
+            try (IncrementResult<K, V> result = MVCCStoreImpl.this.increment(revision, batch, op, rawKey)) {
+                return added(rawKey, revision, result.code());
+            }
+        }
+
+        Code delete(long revision, DeleteOp<K, V> op) {
+            checkStoreOpen();
+            try (DeleteResult<K, V> result = MVCCStoreImpl.this.delete(revision, batch, op, true)) {
+                return added(keyCoder.encode(op.key()), revision, result.code());
+            }
+        }
+
+        private Code added(byte[] rawKey, long revision, Code code) {
+            keys.add(rawKey);
+            lastRevision = Math.max(lastRevision, revision);
+            return code;
+        }
+
+        /**
+         * Commit the updates of the batch, and clear it to accept more updates.
+         */
+        void commit() {
+            if (keys.isEmpty()) {
+                return;
+            }
+            commitBatch(batch, lastRevision);
+            batch.clear();
+            keys.clear();
+        }
+
+        @Override
+        public void close() {
+            try {
+                RocksUtils.close(batch);
+            } finally {
+                unlockWrites();
+            }
+        }
+    }
+
     /**
      * TODO: the increment operation can be optimized using rocksdb merge operator.
      */
@@ -359,34 +494,36 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
-    synchronized IncrementResult<K, V> processIncrement(long revision, IncrementOp<K, V> op) {
-        checkStoreOpen();
-
-        WriteBatch batch = new WriteBatch();
-        IncrementResult<K, V> result = null;
+    IncrementResult<K, V> processIncrement(long revision, IncrementOp<K, V> op) {
+        final byte[] rawKey = keyCoder.encode(op.key());
+        lockWrites();
         try {
-            result = increment(revision, batch, op);
-            updateLastRevision(batch, revision);
-            executeBatch(batch);
-            return result;
-        } catch (StateStoreRuntimeException e) {
-            if (null != result) {
-                result.close();
+            checkStoreOpen();
+
+            WriteBatch batch = new WriteBatch();
+            IncrementResult<K, V> result = null;
+            try {
+                result = increment(revision, batch, op, rawKey);
+                commitBatch(batch, revision);
+                return result;
+            } catch (StateStoreRuntimeException e) {
+                if (null != result) {
+                    result.close();
+                }
+                throw e;
+            } finally {
+                RocksUtils.close(batch);
             }
-            throw e;
         } finally {
-            RocksUtils.close(batch);
+            unlockWrites();
         }
     }
 
-    private IncrementResult<K, V> increment(long revision, WriteBatch batch, IncrementOp<K, V> op) {
+    private IncrementResult<K, V> increment(long revision, WriteBatch batch, IncrementOp<K, V> op, byte[] rawKey) {
         // parameters
         final K key = op.key();
         final long amount = op.amount();
 
-        // raw key
-        final byte[] rawKey = keyCoder.encode(key);
-
         MVCCRecord record;
         try {
             record = getKeyRecord(key, rawKey);
@@ -459,23 +596,27 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
-    synchronized PutResult<K, V> processPut(long revision, PutOp<K, V> op) {
-        checkStoreOpen();
-
-        WriteBatch batch = new WriteBatch();
-        PutResult<K, V> result = null;
+    PutResult<K, V> processPut(long revision, PutOp<K, V> op) {
+        lockWrites();
         try {
-            result = put(revision, batch, op);
-            updateLastRevision(batch, revision);
-            executeBatch(batch);
-            return result;
-        } catch (StateStoreRuntimeException e) {
-            if (null != result) {
-                result.close();
+            checkStoreOpen();
+
+            WriteBatch batch = new WriteBatch();
+            PutResult<K, V> result = null;
+            try {
+                result = put(revision, batch, op);
+                commitBatch(batch, revision);
+                return result;
+            } catch (StateStoreRuntimeException e) {
+                if (null != result) {
+                    result.close();
+                }
+                throw e;
+            } finally {
+                RocksUtils.close(batch);
             }
-            throw e;
         } finally {
-            RocksUtils.close(batch);
+            unlockWrites();
         }
     }
 
@@ -574,23 +715,27 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
-    synchronized DeleteResult<K, V> processDelete(long revision, DeleteOp<K, V> op) {
-        checkStoreOpen();
-
-        WriteBatch batch = new WriteBatch();
-        DeleteResult<K, V> result = null;
+    DeleteResult<K, V> processDelete(long revision, DeleteOp<K, V> op) {
+        lockWrites();
         try {
-            result = delete(revision, batch, op, true);
-            updateLastRevision(batch, revision);
-            executeBatch(batch);
-            return result;
-        } catch (StateStoreRuntimeException e) {
-            if (null != result) {
-                result.close();
+            checkStoreOpen();
+
+            WriteBatch batch = new WriteBatch();
+            DeleteResult<K, V> result = null;
+            try {
+                result = delete(revision, batch, op, true);
+                commitBatch(batch, revision);
+                return result;
+            } catch (StateStoreRuntimeException e) {
+                if (null != result) {
+                    result.close();
+                }
+                throw e;
+            } finally {
+                RocksUtils.close(batch);
             }
-            throw e;
         } finally {
-            RocksUtils.close(batch);
+            unlockWrites();
         }
     }
 
@@ -708,7 +853,7 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     //
 
     @Override
-    public synchronized TxnResult<K, V> txn(long revision, TxnOp<K, V> op) {
+    public TxnResult<K, V> txn(long revision, TxnOp<K, V> op) {
         try {
             return processTxn(revision, op);
         } catch (MVCCStoreException e) {
@@ -722,7 +867,17 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
-    synchronized TxnResult<K, V> processTxn(long revision, TxnOp<K, V> op) {
+    TxnResult<K, V> processTxn(long revision, TxnOp<K, V> op) {
+        // no other write can happen between the compares and the operations of the txn
+        lockWrites();
+        try {
+            return processTxnLocked(revision, op);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    private TxnResult<K, V> processTxnLocked(long revision, TxnOp<K, V> op) {
         checkStoreOpen();
 
         // 1. process the compares
@@ -746,8 +901,7 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
             for (Op<K, V> o : operations) {
                 results.add(executeOp(revision, batch, o));
             }
-            updateLastRevision(batch, revision);
-            executeBatch(batch);
+            commitBatch(batch, revision);
 
             // 4. repare the result
             TxnResultImpl<K, V> txnResult = resultFactory.newTxnResult(revision);
@@ -862,6 +1016,9 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
             return delete(revision, batch, (DeleteOp<K, V>) op, true);
         } else if (op instanceof RangeOp) {
             return range((RangeOp<K, V>) op);
+        } else if (op instanceof IncrementOp) {
+            IncrementOp<K, V> incrOp = (IncrementOp<K, V>) op;
+            return increment(revision, batch, incrOp, keyCoder.encode(incrOp.key()));
         } else {
             throw new MVCCStoreException(Code.ILLEGAL_OP, "Unknown operation in a transaction : " + op);
         }
@@ -879,7 +1036,20 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
                                   RangeOption<K> rangeOption,
                                   long limit,
                                   boolean countOnly) {
-        try (RocksIterator iter = db.newIterator(dataCfHandle)) {
+        return getKeyRecords(null, rawKey, rawEndKey, resultKeys, resultValues, numKvs, rangeOption, limit,
+            countOnly);
+    }
+
+    private boolean getKeyRecords(@Nullable ReadOptions readOpts,
+                                  byte[] rawKey,
+                                  byte[] rawEndKey,
+                                  List<byte[]> resultKeys,
+                                  List<MVCCRecord> resultValues,
+                                  MutableLong numKvs,
+                                  RangeOption<K> rangeOption,
+                                  long limit,
+                                  boolean countOnly) {
+        try (RocksIterator iter = newDataIterator(readOpts)) {
             iter.seek(rawKey);
             boolean eor = false;
             while (iter.isValid() && (limit < 0 || resultKeys.size() < limit)) {
@@ -950,6 +1120,10 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
 
     }
 
+    private RocksIterator newDataIterator(@Nullable ReadOptions readOpts) {
+        return null == readOpts ? db.newIterator(dataCfHandle) : db.newIterator(dataCfHandle, readOpts);
+    }
+
     @Override
     public RangeResult<K, V> range(RangeOp<K, V> rangeOp) {
         try {
@@ -965,9 +1139,17 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         }
     }
 
-    synchronized RangeResult<K, V> processRange(RangeOp<K, V> rangeOp) {
-        checkStoreOpen();
+    RangeResult<K, V> processRange(RangeOp<K, V> rangeOp) {
+        storeLock.readLock().lock();
+        try {
+            checkStoreOpen();
+            return processRangeLocked(rangeOp);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
 
+    private RangeResult<K, V> processRangeLocked(RangeOp<K, V> rangeOp) {
         // parameters
         final K key = rangeOp.key();
         final K endKey = rangeOp.option().endKey();
@@ -1003,18 +1185,20 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
         } else {
             rawEndKey = keyCoder.encode(endKey);
         }
-        Pair<byte[], byte[]> realRange = getRealRange(rawKey, rawEndKey);
-        rawKey = realRange.getLeft();
-        rawEndKey = realRange.getRight();
 
-        // range lookup
+        // range lookup, on a snapshot so that it is not affected by the concurrent writes
         List<byte[]> keys = Lists.newArrayList();
         List<MVCCRecord> records = Lists.newArrayList();
         MutableLong numKvs = new MutableLong(0L);
 
-        try {
+        final Snapshot snapshot = db.getSnapshot();
+        try (ReadOptions readOpts = new ReadOptions().setSnapshot(snapshot)) {
+            Pair<byte[], byte[]> realRange = getRealRange(readOpts, rawKey, rawEndKey);
+            rawKey = realRange.getLeft();
+            rawEndKey = realRange.getRight();
 
             boolean hasMore = getKeyRecords(
+                readOpts,
                 rawKey,
                 rawEndKey,
                 keys,
@@ -1031,6 +1215,7 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
             result.count(kvs.size());
             result.more(hasMore);
         } finally {
+            db.releaseSnapshot(snapshot);
             records.forEach(MVCCRecord::recycle);
         }
         return result;
@@ -1052,10 +1237,14 @@ class MVCCStoreImpl<K, V> extends RocksdbKVStore<K, V> implements MVCCStore<K, V
     }
 
     private Pair<byte[], byte[]> getRealRange(byte[] rawKey, byte[] rawEndKey) {
+        return getRealRange(null, rawKey, rawEndKey);
+    }
+
+    private Pair<byte[], byte[]> getRealRange(@Nullable ReadOptions readOpts, byte[] rawKey, byte[] rawEndKey) {
         boolean isNullStartKey = Constants.isNullStartKey(rawKey);
         boolean isNullEndKey = Constants.isNullEndKey(rawEndKey);
         if (isNullStartKey || isNullEndKey) {
-            try (RocksIterator iter = db.newIterator(dataCfHandle)) {
+            try (RocksIterator iter = newDataIterator(readOpts)) {
                 if (isNullStartKey) {
                     iter.seekToFirst();
                     if (!iter.isValid()) {
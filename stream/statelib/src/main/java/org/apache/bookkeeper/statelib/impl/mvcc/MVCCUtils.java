@@ -46,6 +46,7 @@ import org.apache.bookkeeper.statelib.api.exceptions.MVCCStoreException;
 import org.apache.bookkeeper.statelib.api.exceptions.StateStoreRuntimeException;
 import org.apache.bookkeeper.statelib.impl.Constants;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoDeleteOpImpl;
+import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoIncrementOpImpl;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoPutOpImpl;
 import org.apache.bookkeeper.statelib.impl.mvcc.op.proto.ProtoRangeOpImpl;
 import org.apache.bookkeeper.stream.proto.kv.rpc.Compare;
@@ -139,6 +140,11 @@ public final class MVCCUtils {
                         .setRequestRange(toRangeRequest((RangeOp<byte[], byte[]>) op))
                         .build());
                     break;
+                case INCREMENT:
+                    requestOps.add(RequestOp.newBuilder()
+                        .setRequestIncrement(toIncrementRequest((IncrementOp<byte[], byte[]>) op))
+                        .build());
+                    break;
                 default:
                     throw new IllegalArgumentException("Unknown request "
                         + op.type() + " found in a txn request");
@@ -155,6 +161,8 @@ public final class MVCCUtils {
                 return ProtoRangeOpImpl.newRangeOp(protoOp.getRequestRange());
             case REQUEST_DELETE_RANGE:
                 return ProtoDeleteOpImpl.newDeleteOp(protoOp.getRequestDeleteRange());
+            case REQUEST_INCREMENT:
+                return ProtoIncrementOpImpl.newIncrementOp(protoOp.getRequestIncrement());
             default:
                 throw new IllegalArgumentException("Unknown request "
                     + protoOp.getRequestCase() + " found in a txn request");
@@ -38,6 +38,12 @@ public class ProtoIncrementOpImpl implements IncrementOp<byte[], byte[]>, Increm
         return op;
     }
 
+    public static ProtoIncrementOpImpl newIncrementOp(IncrementRequest req) {
+        ProtoIncrementOpImpl op = RECYCLER.get();
+        op.req = req;
+        return op;
+    }
+
     private static final Recycler<ProtoIncrementOpImpl> RECYCLER = new Recycler<ProtoIncrementOpImpl>() {
         @Override
         protected ProtoIncrementOpImpl newObject(Handle<ProtoIncrementOpImpl> handle) {
@@ -102,6 +102,17 @@ public class CheckpointFile {
         return isSstFile;
     }
 
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Check whether a local file has the same content as this checkpoint file, by comparing their checksums.
+     */
+    public boolean hasSameChecksum(File localFile) {
+        return null != checksum && checksum.equals(CheckpointFileBuilder.computeChecksum(localFile));
+    }
+
     public String getName() {
         return file.getName();
     }
@@ -174,11 +185,12 @@ public class CheckpointFile {
         return true;
     }
 
-    public void copyToRemote(CheckpointStore checkpointStore, String dbPrefix, String checkpointId) throws IOException {
+    public long copyToRemote(CheckpointStore checkpointStore, String dbPrefix, String checkpointId) throws IOException {
         String destPath = RocksUtils.getDestPath(dbPrefix, checkpointId, getName());
         try (OutputStream os = checkpointStore.openOutputStream(destPath)) {
             Files.copy(file, os);
         }
+        return file.length();
     }
 
     public void finalize(CheckpointStore checkpointStore,
@@ -209,7 +221,7 @@ public class CheckpointFile {
         }
     }
 
-    public void copyFromRemote(CheckpointStore checkpointStore,
+    public long copyFromRemote(CheckpointStore checkpointStore,
                                String dbPrefix,
                                String checkpointId,
                                Duration idleWait) throws IOException, TimeoutException {
@@ -251,6 +263,7 @@ public class CheckpointFile {
                 }
             }
         }
+        return cis.getCount();
     }
 
 
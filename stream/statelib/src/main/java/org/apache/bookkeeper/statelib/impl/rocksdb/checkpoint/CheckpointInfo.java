@@ -73,7 +73,8 @@ public class CheckpointInfo implements Comparable<CheckpointInfo> {
             public CheckpointMetadata restore(String dbName,
                                               File dbPath,
                                               CheckpointStore store,
-                                              Duration maxIdle) throws StateStoreException {
+                                              Duration maxIdle,
+                                              CheckpointTransferer transferer) throws StateStoreException {
                 try {
                     Files.createDirectories(getCheckpointPath(dbPath));
                     updateCurrent(dbPath);
@@ -148,9 +149,19 @@ public class CheckpointInfo implements Comparable<CheckpointInfo> {
     public CheckpointMetadata restore(String dbName, File dbPath, CheckpointStore store, Duration maxIdle)
         throws StateStoreException, TimeoutException {
 
+        return restore(dbName, dbPath, store, maxIdle, CheckpointTransferer.SERIAL);
+    }
+
+    public CheckpointMetadata restore(String dbName,
+                                      File dbPath,
+                                      CheckpointStore store,
+                                      Duration maxIdle,
+                                      CheckpointTransferer transferer)
+        throws StateStoreException, TimeoutException {
+
         try {
             File checkpointsDir = new File(dbPath, "checkpoints");
-            RocksdbRestoreTask task = new RocksdbRestoreTask(dbName, checkpointsDir, store, maxIdle);
+            RocksdbRestoreTask task = new RocksdbRestoreTask(dbName, checkpointsDir, store, maxIdle, transferer);
             return restore(dbPath, task);
         } catch (IOException ioe) {
             log.error("Failed to restore rocksdb {}", dbName, ioe);
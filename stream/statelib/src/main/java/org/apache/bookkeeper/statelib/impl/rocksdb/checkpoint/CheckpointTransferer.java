@@ -0,0 +1,135 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+
+/**
+ * Run the file operations of checkpoints and restores with a bounded parallelism, and record their stats.
+ *
+ * <p>The executor must not run the checkpoint or restore tasks themselves, otherwise the tasks can wait on the
+ * file operations queued behind them.
+ */
+@Getter
+public class CheckpointTransferer {
+
+    /**
+     * A file operation.
+     */
+    @FunctionalInterface
+    public interface FileTask<T> {
+        void run(T file) throws IOException, TimeoutException;
+    }
+
+    public static final CheckpointTransferer SERIAL =
+        new CheckpointTransferer(null, 1, NullStatsLogger.INSTANCE);
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    private final OpStatsLogger checkpointTimeStats;
+    private final Counter uploadedBytesCounter;
+    private final Counter deduplicatedBytesCounter;
+    private final OpStatsLogger restoreTimeStats;
+    private final Counter downloadedBytesCounter;
+    private final Counter reusedBytesCounter;
+
+    public CheckpointTransferer(ExecutorService executor, int parallelism, StatsLogger statsLogger) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.checkpointTimeStats = statsLogger.getOpStatsLogger("checkpoint_time");
+        this.uploadedBytesCounter = statsLogger.getCounter("checkpoint_uploaded_bytes");
+        this.deduplicatedBytesCounter = statsLogger.getCounter("checkpoint_deduplicated_bytes");
+        this.restoreTimeStats = statsLogger.getOpStatsLogger("restore_time");
+        this.downloadedBytesCounter = statsLogger.getCounter("restore_downloaded_bytes");
+        this.reusedBytesCounter = statsLogger.getCounter("restore_reused_bytes");
+    }
+
+    /**
+     * Run a task on each file, at most {@code parallelism} at a time. The first failure stops the tasks that are
+     * not started yet, and is thrown once the running tasks are done.
+     */
+    public <T> void runAll(List<T> files, FileTask<T> task) throws IOException, TimeoutException {
+        if (null == executor || parallelism <= 1 || files.size() <= 1) {
+            for (T file : files) {
+                task.run(file);
+            }
+            return;
+        }
+
+        AtomicInteger nextFile = new AtomicInteger(0);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int numWorkers = Math.min(parallelism, files.size());
+        List<Future<Void>> workers = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            workers.add(executor.submit(() -> {
+                int idx;
+                while (!failed.get() && (idx = nextFile.getAndIncrement()) < files.size()) {
+                    try {
+                        task.run(files.get(idx));
+                    } catch (IOException | TimeoutException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            }));
+        }
+
+        Throwable cause = null;
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                failed.set(true);
+                workers.forEach(w -> w.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the checkpoint files to be transferred", e);
+            } catch (ExecutionException e) {
+                if (null == cause) {
+                    cause = e.getCause();
+                }
+            }
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof TimeoutException) {
+            throw (TimeoutException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (null != cause) {
+            throw new IOException("Failed to transfer the checkpoint files", cause);
+        }
+    }
+}
@@ -27,6 +27,8 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
@@ -128,6 +130,8 @@ public class RocksCheckpointer implements AutoCloseable {
     private final boolean removeRemoteCheckpointsAfterSuccessfulCheckpoint;
     private final boolean checkpointChecksumEnable;
     private final boolean checkpointChecksumCompatible;
+    private final CheckpointTransferer transferer;
+    private final Map<String, String> sstChecksums = new ConcurrentHashMap<>();
 
     public RocksCheckpointer(String dbName,
                              File dbPath,
@@ -137,6 +141,20 @@ public class RocksCheckpointer implements AutoCloseable {
                              boolean removeRemoteCheckpointsAfterSuccessfulCheckpoint,
                              boolean checkpointChecksumEnable,
                              boolean checkpointChecksumCompatible) {
+        this(dbName, dbPath, rocksDB, checkpointStore, removeLocalCheckpointAfterSuccessfulCheckpoint,
+            removeRemoteCheckpointsAfterSuccessfulCheckpoint, checkpointChecksumEnable, checkpointChecksumCompatible,
+            CheckpointTransferer.SERIAL);
+    }
+
+    public RocksCheckpointer(String dbName,
+                             File dbPath,
+                             RocksDB rocksDB,
+                             CheckpointStore checkpointStore,
+                             boolean removeLocalCheckpointAfterSuccessfulCheckpoint,
+                             boolean removeRemoteCheckpointsAfterSuccessfulCheckpoint,
+                             boolean checkpointChecksumEnable,
+                             boolean checkpointChecksumCompatible,
+                             CheckpointTransferer transferer) {
         this.dbName = dbName;
         this.dbPath = dbPath;
         this.checkpoint = Checkpoint.create(rocksDB);
@@ -145,6 +163,7 @@ public class RocksCheckpointer implements AutoCloseable {
         this.removeRemoteCheckpointsAfterSuccessfulCheckpoint = removeRemoteCheckpointsAfterSuccessfulCheckpoint;
         this.checkpointChecksumEnable = checkpointChecksumEnable;
         this.checkpointChecksumCompatible = checkpointChecksumCompatible;
+        this.transferer = transferer;
     }
 
     public String checkpointAtTxid(byte[] txid) throws StateStoreException {
@@ -156,7 +175,9 @@ public class RocksCheckpointer implements AutoCloseable {
             removeLocalCheckpointAfterSuccessfulCheckpoint,
             removeRemoteCheckpointsAfterSuccessfulCheckpoint,
             checkpointChecksumEnable,
-            checkpointChecksumCompatible
+            checkpointChecksumCompatible,
+            transferer,
+            sstChecksums
         );
         return task.checkpoint(txid);
     }
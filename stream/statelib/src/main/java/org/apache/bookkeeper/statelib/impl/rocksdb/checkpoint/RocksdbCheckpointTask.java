@@ -25,11 +25,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
 import org.apache.bookkeeper.statelib.api.exceptions.StateStoreException;
 import org.apache.bookkeeper.statelib.impl.rocksdb.RocksUtils;
@@ -62,6 +69,9 @@ public class RocksdbCheckpointTask {
     private final boolean removeRemoteCheckpointsAfterSuccessfulCheckpoint;
     private final boolean checkpointChecksumCompatible;
     private final boolean checkpointChecksumEnable;
+    private final CheckpointTransferer transferer;
+    // the checksums of the sst files of the previous checkpoints, sst files are immutable
+    private final Map<String, String> sstChecksums;
 
     // for testing only
     private InjectedError<String> injectedError = (String checkpointId) -> {};
@@ -74,6 +84,21 @@ public class RocksdbCheckpointTask {
                                  boolean removeRemoteCheckpoints,
                                  boolean checkpointChecksumEnable,
                                  boolean checkpointChecksumCompatible) {
+        this(dbName, checkpoint, checkpointDir, checkpointStore, removeLocalCheckpoint, removeRemoteCheckpoints,
+            checkpointChecksumEnable, checkpointChecksumCompatible, CheckpointTransferer.SERIAL,
+            new ConcurrentHashMap<>());
+    }
+
+    public RocksdbCheckpointTask(String dbName,
+                                 Checkpoint checkpoint,
+                                 File checkpointDir,
+                                 CheckpointStore checkpointStore,
+                                 boolean removeLocalCheckpoint,
+                                 boolean removeRemoteCheckpoints,
+                                 boolean checkpointChecksumEnable,
+                                 boolean checkpointChecksumCompatible,
+                                 CheckpointTransferer transferer,
+                                 Map<String, String> sstChecksums) {
         this.dbName = dbName;
         this.checkpoint = checkpoint;
         this.checkpointDir = checkpointDir;
@@ -83,6 +108,8 @@ public class RocksdbCheckpointTask {
         this.removeRemoteCheckpointsAfterSuccessfulCheckpoint = removeRemoteCheckpoints;
         this.checkpointChecksumEnable = checkpointChecksumEnable;
         this.checkpointChecksumCompatible = checkpointChecksumCompatible;
+        this.transferer = transferer;
+        this.sstChecksums = sstChecksums;
     }
 
     public void setInjectedError(InjectedError<String> injectedError) {
@@ -95,6 +122,8 @@ public class RocksdbCheckpointTask {
         File tempDir = new File(checkpointDir, checkpointId);
         log.info("Create a local checkpoint of state store {} at {}",
             dbName, tempDir);
+        long startNanos = MathUtils.nowInNano();
+        boolean success = false;
         try {
             try {
                 checkpoint.createCheckpoint(tempDir.getAbsolutePath());
@@ -113,9 +142,16 @@ public class RocksdbCheckpointTask {
 
             injectedError.accept(checkpointId);
 
-            List<CheckpointFile> checkpointFiles = CheckpointFile.list(tempDir);
+            List<CheckpointFile> checkpointFiles = listCheckpointFiles(tempDir);
+            Set<CheckpointFile> remoteFiles = ConcurrentHashMap.newKeySet();
+            transferer.runAll(checkpointFiles, f -> {
+                if (!f.needCopy(checkpointStore, dbPrefix, checkpointChecksumEnable)) {
+                    remoteFiles.add(f);
+                    transferer.getDeduplicatedBytesCounter().addCount(f.getFile().length());
+                }
+            });
             List<CheckpointFile> filesToCopy = checkpointFiles.stream()
-                .filter(f -> f.needCopy(checkpointStore, dbPrefix, checkpointChecksumEnable))
+                .filter(f -> !remoteFiles.contains(f))
                 .collect(Collectors.toList());
 
             // copy the files
@@ -132,13 +168,32 @@ public class RocksdbCheckpointTask {
                 cleanupRemoteCheckpoints(tempDir, checkpointId, checkpointFiles);
             }
 
+            // remember the checksums of the current sst files for the next checkpoints
+            Map<String, String> currentSstChecksums = checkpointFiles.stream()
+                .filter(f -> f.isSstFile() && null != f.getChecksum() && !f.getChecksum().startsWith("invalid-"))
+                .collect(Collectors.toMap(CheckpointFile::getName, CheckpointFile::getChecksum));
+            sstChecksums.keySet().retainAll(currentSstChecksums.keySet());
+            sstChecksums.putAll(currentSstChecksums);
+
+            success = true;
             return checkpointId;
+        } catch (TimeoutException te) {
+            log.error("Timeout to checkpoint db {} to dir {}", dbName, tempDir, te);
+            throw new StateStoreException(
+                "Timeout to checkpoint db " + dbName + " to dir " + tempDir,
+                te);
         } catch (IOException ioe) {
             log.error("Failed to checkpoint db {} to dir {}", new Object[] { dbName, tempDir, ioe });
             throw new StateStoreException(
                 "Failed to checkpoint db " + dbName + " to dir " + tempDir,
                 ioe);
         } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(startNanos);
+            if (success) {
+                transferer.getCheckpointTimeStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            } else {
+                transferer.getCheckpointTimeStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
             if (removeLocalCheckpointAfterSuccessfulCheckpoint && tempDir.exists()) {
                 try {
                     MoreFiles.deleteRecursively(
@@ -152,23 +207,47 @@ public class RocksdbCheckpointTask {
     }
 
     /**
-     * All sst files are copied to checkpoint location first.
+     * List the files of a local checkpoint. The checksums of the sst files of the previous checkpoints are reused,
+     * the other checksums are computed in parallel.
      */
-    private void copyFilesToDest(String checkpointId, List<CheckpointFile> files) throws IOException {
-        for (CheckpointFile file : files) {
-            file.copyToRemote(checkpointStore, dbPrefix, checkpointId);
+    private List<CheckpointFile> listCheckpointFiles(File checkpointedDir) throws IOException, TimeoutException {
+        File[] localFiles = checkpointedDir.listFiles();
+        if (null == localFiles) {
+            return Collections.emptyList();
         }
+        List<File> files = Arrays.asList(localFiles);
+        Map<File, CheckpointFile> checkpointFiles = new ConcurrentHashMap<>();
+        transferer.runAll(files, f -> {
+            String checksum = RocksUtils.isSstFile(f) ? sstChecksums.get(f.getName()) : null;
+            CheckpointFile.CheckpointFileBuilder builder = CheckpointFile.builder().file(f);
+            if (null != checksum) {
+                builder.checksum(checksum);
+            } else {
+                builder.computeChecksum();
+            }
+            checkpointFiles.put(f, builder.build());
+        });
+        return files.stream().map(checkpointFiles::get).collect(Collectors.toList());
+    }
+
+    /**
+     * All sst files are copied to checkpoint location first.
+     */
+    private void copyFilesToDest(String checkpointId,
+                                 List<CheckpointFile> files) throws IOException, TimeoutException {
+        transferer.runAll(files, file -> {
+            long bytes = file.copyToRemote(checkpointStore, dbPrefix, checkpointId);
+            transferer.getUploadedBytesCounter().addCount(bytes);
+        });
     }
 
     /**
      * Move the sst files to a common location.
      */
     private void finalizeCopyFiles(String checkpointId,
-                                   List<CheckpointFile> files) throws IOException {
-        for (CheckpointFile file : files) {
-            file.finalize(checkpointStore, dbPrefix, checkpointId,
-                checkpointChecksumEnable, checkpointChecksumCompatible);
-        }
+                                   List<CheckpointFile> files) throws IOException, TimeoutException {
+        transferer.runAll(files, file -> file.finalize(checkpointStore, dbPrefix, checkpointId,
+            checkpointChecksumEnable, checkpointChecksumCompatible));
     }
 
     private void finalizeCheckpoint(List<CheckpointFile> files,
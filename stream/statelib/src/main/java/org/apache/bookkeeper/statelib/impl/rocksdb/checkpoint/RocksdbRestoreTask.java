@@ -20,11 +20,14 @@ package org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
 import org.apache.bookkeeper.statelib.api.exceptions.StateStoreException;
 import org.apache.bookkeeper.stream.proto.kv.store.CheckpointMetadata;
@@ -40,6 +43,7 @@ public class RocksdbRestoreTask {
     private final CheckpointStore checkpointStore;
     private final String dbPrefix;
     private final Duration idleWait;
+    private final CheckpointTransferer transferer;
 
     public RocksdbRestoreTask(String dbName,
                               File checkpointDir,
@@ -51,16 +55,27 @@ public class RocksdbRestoreTask {
                               File checkpointDir,
                               CheckpointStore checkpointStore,
                               Duration idleWait) {
+        this(dbName, checkpointDir, checkpointStore, idleWait, CheckpointTransferer.SERIAL);
+    }
+
+    public RocksdbRestoreTask(String dbName,
+                              File checkpointDir,
+                              CheckpointStore checkpointStore,
+                              Duration idleWait,
+                              CheckpointTransferer transferer) {
         this.dbName = dbName;
         this.checkpointDir = checkpointDir;
         this.checkpointStore = checkpointStore;
         this.dbPrefix = String.format("%s", dbName);
         this.idleWait = idleWait;
+        this.transferer = transferer;
     }
 
     public void restore(String checkpointId, CheckpointMetadata metadata) throws StateStoreException, TimeoutException {
         File checkpointedDir = new File(checkpointDir, checkpointId);
 
+        long startNanos = MathUtils.nowInNano();
+        boolean success = false;
         try {
 
             if (!checkpointedDir.exists()) {
@@ -69,12 +84,20 @@ public class RocksdbRestoreTask {
             }
             List<CheckpointFile> files = getCheckpointFiles(checkpointedDir, metadata);
             copyFilesFromRemote(checkpointId, files);
+            success = true;
         } catch (IOException ioe) {
             log.error("Failed to restore checkpoint {} to local directory {}",
                 new Object[] { checkpointId, checkpointedDir, ioe });
             throw new StateStoreException(
                 "Failed to restore checkpoint " + checkpointId + " to local directory " + checkpointedDir,
                 ioe);
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(startNanos);
+            if (success) {
+                transferer.getRestoreTimeStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            } else {
+                transferer.getRestoreTimeStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
         }
     }
 
@@ -84,8 +107,59 @@ public class RocksdbRestoreTask {
 
     private void copyFilesFromRemote(String checkpointId,
                                      List<CheckpointFile> remoteFiles) throws IOException, TimeoutException {
-        for (CheckpointFile file : remoteFiles) {
-            file.copyFromRemote(checkpointStore, dbPrefix, checkpointId, idleWait);
+        transferer.runAll(remoteFiles, file -> {
+            if (reuseLocalFile(checkpointId, file)) {
+                transferer.getReusedBytesCounter().addCount(file.getFile().length());
+                return;
+            }
+            long bytes = file.copyFromRemote(checkpointStore, dbPrefix, checkpointId, idleWait);
+            transferer.getDownloadedBytesCounter().addCount(bytes);
+        });
+    }
+
+    /**
+     * Reuse the local copy of a sst file left by a previous checkpoint of the store, e.g. when a store is moved
+     * back to this server. The local copy is linked to the restored checkpoint if it has the same checksum.
+     *
+     * <p>The sst files of a store are immutable and never reuse a name, so the local copies with the same name and
+     * size as the remote file are the same file, and only the first one is hashed.
+     */
+    private boolean reuseLocalFile(String checkpointId, CheckpointFile file) throws IOException {
+        if (!file.isSstFile() || null == file.getChecksum()) {
+            return false;
+        }
+        File[] localCheckpoints = checkpointDir.listFiles(File::isDirectory);
+        if (null == localCheckpoints) {
+            return false;
+        }
+        Path target = file.getFile().toPath();
+        long remoteLength = -1L;
+        for (File localCheckpoint : localCheckpoints) {
+            File localFile = new File(localCheckpoint, file.getName());
+            if (!localFile.isFile()) {
+                continue;
+            }
+            if (remoteLength < 0) {
+                remoteLength = checkpointStore.getFileLength(file.getRemotePath(dbPrefix, checkpointId, true));
+            }
+            if (localFile.length() != remoteLength) {
+                continue;
+            }
+            if (!file.hasSameChecksum(localFile)) {
+                return false;
+            }
+            if (localFile.equals(file.getFile())) {
+                return true;
+            }
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, localFile.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(localFile.toPath(), target);
+            }
+            log.info("Reuse local sst file {} for restoring {}", localFile, target);
+            return true;
         }
+        return false;
     }
 }
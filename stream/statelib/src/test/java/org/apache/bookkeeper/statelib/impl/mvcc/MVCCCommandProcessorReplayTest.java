@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.statelib.impl.mvcc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.api.kv.op.CompareResult;
+import org.apache.bookkeeper.api.kv.op.Op;
+import org.apache.bookkeeper.api.kv.op.OpFactory;
+import org.apache.bookkeeper.api.kv.options.Options;
+import org.apache.bookkeeper.api.kv.result.Code;
+import org.apache.bookkeeper.api.kv.result.KeyValue;
+import org.apache.bookkeeper.api.kv.result.RangeResult;
+import org.apache.bookkeeper.common.coder.ByteArrayCoder;
+import org.apache.bookkeeper.statelib.api.StateStoreSpec;
+import org.apache.bookkeeper.stream.proto.kv.store.Command;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test that replaying the journal in bulk with {@link MVCCCommandProcessor#applyCommands} leaves the store in the
+ * same state as replaying it one record at a time.
+ */
+public class MVCCCommandProcessorReplayTest {
+
+    private static final List<String> KEYS = Arrays.asList("a", "b", "c", "d", "e", "n");
+
+    @Rule
+    public final TemporaryFolder testDir = new TemporaryFolder();
+
+    private final MVCCCommandProcessor processor = MVCCCommandProcessor.of();
+    private final List<MVCCStoreImpl<byte[], byte[]>> stores = new ArrayList<>();
+    private List<Command> journal;
+
+    @Before
+    public void setUp() throws Exception {
+        OpFactory<byte[], byte[]> opFactory = newStore().getOpFactory();
+        journal = Arrays.asList(
+            toCommand(opFactory.newPut(bytes("a"), bytes("v1"), Options.blindPut())),
+            toCommand(opFactory.newPut(bytes("b"), bytes("v1"), Options.blindPut())),
+            toCommand(opFactory.newIncrement(bytes("n"), 1L, Options.blindIncrement())),
+            // a key updated twice commits the batch
+            toCommand(opFactory.newPut(bytes("a"), bytes("v2"), Options.blindPut())),
+            // a txn is applied on its own, between the updates batched before and after it
+            toCommand(opFactory.newTxn()
+                .If(opFactory.compareValue(CompareResult.EQUAL, bytes("a"), bytes("v2")))
+                .Then(opFactory.newPut(bytes("c"), bytes("v1"), Options.blindPut()))
+                .Else(opFactory.newPut(bytes("c"), bytes("v0"), Options.blindPut()))
+                .build()),
+            toCommand(opFactory.newPut(bytes("b"), bytes("v2"), Options.blindPut())),
+            toCommand(opFactory.newDelete(bytes("a"), Options.delete())),
+            toCommand(opFactory.newIncrement(bytes("n"), 2L, Options.blindIncrement())),
+            toCommand(opFactory.newPut(bytes("d"), bytes("v1"), Options.blindPut())),
+            // so is a range delete
+            toCommand(opFactory.newDelete(bytes("c"), opFactory.optionFactory().newDeleteOption()
+                .endKey(bytes("e"))
+                .prevKv(false)
+                .build())),
+            toCommand(opFactory.newPut(bytes("c"), bytes("v3"), Options.blindPut())),
+            toCommand(opFactory.newTxn()
+                .If(opFactory.compareValue(CompareResult.EQUAL, bytes("b"), bytes("v1")))
+                .Then(opFactory.newDelete(bytes("b"), Options.delete()))
+                .Else(opFactory.newPut(bytes("d"), bytes("v2"), Options.blindPut()))
+                .build()),
+            toCommand(opFactory.newPut(bytes("a"), bytes("v4"), Options.blindPut())),
+            toCommand(opFactory.newIncrement(bytes("n"), 3L, Options.blindIncrement())),
+            toCommand(opFactory.newPut(bytes("e"), bytes("v1"), Options.blindPut())));
+    }
+
+    @After
+    public void tearDown() {
+        stores.forEach(MVCCStoreImpl::close);
+    }
+
+    private MVCCStoreImpl<byte[], byte[]> newStore() throws Exception {
+        String name = "test-store-" + stores.size();
+        MVCCStoreImpl<byte[], byte[]> store = new MVCCStoreImpl<>();
+        store.init(StateStoreSpec.builder()
+            .name(name)
+            .keyCoder(ByteArrayCoder.of())
+            .valCoder(ByteArrayCoder.of())
+            .localStateStoreDir(testDir.newFolder(name))
+            .stream(name)
+            .build());
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    public void testBulkReplayMatchesSingleReplay() throws Exception {
+        MVCCStoreImpl<byte[], byte[]> expected = newStore();
+        replaySingle(expected);
+
+        // every bulk size puts the bulk boundaries at different places around the txns and the batch commits
+        for (int bulkSize = 1; bulkSize <= journal.size(); bulkSize++) {
+            MVCCStoreImpl<byte[], byte[]> store = newStore();
+            replayInBulk(store, bulkSize);
+            assertSameState("bulk size " + bulkSize, expected, store);
+        }
+    }
+
+    @Test
+    public void testBulkReplayOverAppliedRecords() throws Exception {
+        // the records already applied before a restart are replayed again, and rejected with a smaller revision
+        for (int applied : new int[] { 3, 8, journal.size() }) {
+            MVCCStoreImpl<byte[], byte[]> single = newStore();
+            MVCCStoreImpl<byte[], byte[]> bulk = newStore();
+            for (int i = 0; i < applied; i++) {
+                applySingle(single, i);
+                applySingle(bulk, i);
+            }
+            replaySingle(single);
+            replayInBulk(bulk, 4);
+            assertSameState(applied + " records applied", single, bulk);
+            assertEquals(journal.size(), bulk.getLastRevision());
+        }
+    }
+
+    private void replaySingle(MVCCStoreImpl<byte[], byte[]> store) {
+        for (int i = 0; i < journal.size(); i++) {
+            applySingle(store, i);
+        }
+    }
+
+    private void applySingle(MVCCStoreImpl<byte[], byte[]> store, int index) {
+        ByteBuf record = MVCCUtils.newLogRecordBuf(journal.get(index));
+        try {
+            processor.applyCommand(revisionOf(index), record, store);
+        } finally {
+            record.release();
+        }
+    }
+
+    private void replayInBulk(MVCCStoreImpl<byte[], byte[]> store, int bulkSize) {
+        for (int start = 0; start < journal.size(); start += bulkSize) {
+            int end = Math.min(journal.size(), start + bulkSize);
+            long[] txids = new long[end - start];
+            List<Command> commands = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                txids[i - start] = revisionOf(i);
+                // the commands are decoded from the records, as when they are read from the journal
+                ByteBuf record = MVCCUtils.newLogRecordBuf(journal.get(i));
+                try {
+                    commands.add(processor.decodeCommand(record));
+                } finally {
+                    record.release();
+                }
+            }
+            processor.applyCommands(txids, commands, store);
+        }
+    }
+
+    private static long revisionOf(int index) {
+        return index + 1L;
+    }
+
+    private static void assertSameState(String message,
+                                        MVCCStoreImpl<byte[], byte[]> expected,
+                                        MVCCStoreImpl<byte[], byte[]> actual) {
+        for (String key : KEYS) {
+            assertEquals(message + " : key " + key, describe(expected, key), describe(actual, key));
+        }
+        assertEquals(message, expected.getLastRevision(), actual.getLastRevision());
+    }
+
+    private static String describe(MVCCStoreImpl<byte[], byte[]> store, String key) {
+        try (RangeResult<byte[], byte[]> result = store.range(store.getOpFactory().newRange(bytes(key),
+            Options.get()))) {
+            assertEquals(Code.OK, result.code());
+            if (result.kvs().isEmpty()) {
+                return "(none)";
+            }
+            KeyValue<byte[], byte[]> kv = result.kvs().get(0);
+            String value = kv.isNumber() ? Long.toString(kv.numberValue()) : new String(kv.value(), UTF_8);
+            return value + " created at " + kv.createRevision() + ", modified at " + kv.modifiedRevision()
+                + ", version " + kv.version();
+        }
+    }
+
+    private static Command toCommand(Op<byte[], byte[]> op) {
+        return MVCCUtils.toCommand(op);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.statelib.impl.mvcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.api.kv.op.CompareResult;
+import org.apache.bookkeeper.api.kv.op.OpFactory;
+import org.apache.bookkeeper.api.kv.op.TxnOp;
+import org.apache.bookkeeper.api.kv.options.Options;
+import org.apache.bookkeeper.api.kv.result.Code;
+import org.apache.bookkeeper.api.kv.result.RangeResult;
+import org.apache.bookkeeper.api.kv.result.TxnResult;
+import org.apache.bookkeeper.common.coder.StringUtf8Coder;
+import org.apache.bookkeeper.statelib.api.StateStoreSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the atomicity of the txns of {@link MVCCStoreImpl} against concurrent single-key writes.
+ */
+public class MVCCStoreImplConcurrencyTest {
+
+    private static final String KEY = "key";
+    private static final int NUM_VALUES = 4;
+    private static final int NUM_OPS = 2000;
+
+    @Rule
+    public final TemporaryFolder testDir = new TemporaryFolder();
+
+    private MVCCStoreImpl<String, String> store;
+    private OpFactory<String, String> opFactory;
+    private final AtomicLong revision = new AtomicLong(0L);
+
+    @Before
+    public void setUp() throws Exception {
+        store = new MVCCStoreImpl<>();
+        store.init(StateStoreSpec.builder()
+            .name("test-store")
+            .keyCoder(StringUtf8Coder.of())
+            .valCoder(StringUtf8Coder.of())
+            .localStateStoreDir(testDir.newFolder("test-store"))
+            .stream("test-stream")
+            .build());
+        opFactory = store.getOpFactory();
+    }
+
+    @After
+    public void tearDown() {
+        if (null != store) {
+            store.close();
+        }
+    }
+
+    private static String randomValue() {
+        return "value-" + ThreadLocalRandom.current().nextInt(NUM_VALUES);
+    }
+
+    @Test
+    public void testTxnAtomicWithConcurrentPuts() throws Exception {
+        store.processPut(revision.incrementAndGet(), opFactory.newPut(KEY, randomValue(), Options.blindPut()))
+            .close();
+
+        AtomicLong successfulTxns = new AtomicLong(0L);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < NUM_OPS; j++) {
+                    // the puts racing with each other may be rejected with a smaller revision
+                    store.processPut(revision.incrementAndGet(),
+                        opFactory.newPut(KEY, randomValue(), Options.blindPut())).close();
+                }
+            }, "writer-" + i));
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < NUM_OPS; j++) {
+                    String value = randomValue();
+                    TxnOp<String, String> txn = opFactory.newTxn()
+                        .If(opFactory.compareValue(CompareResult.EQUAL, KEY, value))
+                        .Then(opFactory.newRange(KEY, Options.get()))
+                        .build();
+                    try (TxnResult<String, String> result = store.processTxn(revision.incrementAndGet(), txn)) {
+                        assertEquals(Code.OK, result.code());
+                        if (result.isSuccess()) {
+                            // no put was applied between the compare and the read of the txn
+                            RangeResult<String, String> rangeResult =
+                                (RangeResult<String, String>) result.results().get(0);
+                            assertEquals(value, rangeResult.kvs().get(0).value());
+                            successfulTxns.incrementAndGet();
+                        }
+                    }
+                }
+            }, "txn-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertTrue(successfulTxns.get() > 0);
+    }
+}
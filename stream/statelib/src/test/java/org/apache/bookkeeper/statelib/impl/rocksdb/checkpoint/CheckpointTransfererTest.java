@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the file operations run in parallel by {@link CheckpointTransferer#runAll}.
+ */
+public class CheckpointTransfererTest {
+
+    private static final int PARALLELISM = 4;
+    private static final int NUM_FILES = 64;
+
+    private ExecutorService executor;
+    private CheckpointTransferer transferer;
+    private List<Integer> files;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(PARALLELISM);
+        transferer = new CheckpointTransferer(executor, PARALLELISM, NullStatsLogger.INSTANCE);
+        files = IntStream.range(0, NUM_FILES).boxed().collect(Collectors.toList());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunAllInParallel() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(PARALLELISM);
+        Set<Integer> done = ConcurrentHashMap.newKeySet();
+        AtomicInteger runs = new AtomicInteger();
+
+        transferer.runAll(files, file -> {
+            runs.incrementAndGet();
+            if (file < PARALLELISM) {
+                // each worker takes one of the first files, which are only done once they are all started
+                allStarted.countDown();
+                awaitOrTimeout(allStarted);
+            }
+            done.add(file);
+        });
+
+        // each file is run exactly once
+        assertEquals(NUM_FILES, runs.get());
+        assertEquals(NUM_FILES, done.size());
+    }
+
+    @Test
+    public void testFailureInOneWorker() throws Exception {
+        IOException failure = new IOException("injected transfer failure");
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        try {
+            transferer.runAll(files, file -> {
+                runs.incrementAndGet();
+                if (file == 1) {
+                    failed.countDown();
+                    throw failure;
+                }
+                // the other workers are busy until the failure
+                awaitOrTimeout(failed);
+            });
+            fail("The failure of a worker should be thrown");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+
+        // the files not started yet are not run once a worker failed
+        assertTrue("Run " + runs.get() + " files", runs.get() < NUM_FILES);
+    }
+
+    @Test
+    public void testSerialTransferer() throws Exception {
+        AtomicInteger next = new AtomicInteger();
+
+        CheckpointTransferer.SERIAL.runAll(files, file -> assertEquals(next.getAndIncrement(), (int) file));
+
+        assertEquals(NUM_FILES, next.get());
+    }
+
+    private static void awaitOrTimeout(CountDownLatch latch) throws IOException, TimeoutException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new TimeoutException("The files are not run in parallel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
+import org.apache.bookkeeper.statelib.impl.rocksdb.RocksUtils;
+import org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint.fs.FSCheckpointManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stream.proto.kv.store.CheckpointMetadata;
+import org.apache.bookkeeper.stream.proto.kv.store.FileInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.Checkpoint;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+/**
+ * Test that {@link RocksdbCheckpointTask} reuses the checksums of the sst files of the previous checkpoints.
+ */
+public class RocksdbCheckpointTaskTest {
+
+    private static final String DB_NAME = "test-db";
+
+    @Rule
+    public final TemporaryFolder testDir = new TemporaryFolder();
+
+    private File dbDir;
+    private File checkpointDir;
+    private CheckpointStore checkpointStore;
+    private ExecutorService executor;
+    private CheckpointTransferer transferer;
+
+    @Before
+    public void setUp() throws Exception {
+        RocksDB.loadLibrary();
+        dbDir = testDir.newFolder("db");
+        checkpointDir = testDir.newFolder("checkpoints");
+        checkpointStore = new FSCheckpointManager(testDir.newFolder("remote"));
+        executor = Executors.newFixedThreadPool(4);
+        transferer = new CheckpointTransferer(executor, 4, NullStatsLogger.INSTANCE);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSstChecksumsReusedAcrossCheckpoints() throws Exception {
+        Map<String, String> sstChecksums = new ConcurrentHashMap<>();
+        try (Options options = new Options().setCreateIfMissing(true);
+             RocksDB db = RocksDB.open(options, dbDir.getAbsolutePath());
+             Checkpoint checkpoint = Checkpoint.create(db)) {
+            RocksdbCheckpointTask task = new RocksdbCheckpointTask(DB_NAME, checkpoint, checkpointDir,
+                checkpointStore, false, false, true, false, transferer, sstChecksums);
+
+            putAndFlush(db, "key-1");
+            String firstCheckpoint = task.checkpoint(null);
+            Map<String, String> firstSsts = sstChecksumsOf(firstCheckpoint);
+            assertEquals(1, firstSsts.size());
+            assertEquals(firstSsts, sstChecksums);
+
+            // mark the cached checksums, to tell them from the computed ones
+            sstChecksums.replaceAll((name, checksum) -> "cached-" + checksum);
+
+            putAndFlush(db, "key-2");
+            String secondCheckpoint = task.checkpoint(null);
+            Map<String, String> secondSsts = sstChecksumsOf(secondCheckpoint);
+            assertEquals(2, secondSsts.size());
+            for (Map.Entry<String, String> sst : secondSsts.entrySet()) {
+                String firstChecksum = firstSsts.get(sst.getKey());
+                if (null != firstChecksum) {
+                    // the sst of the first checkpoint is not hashed again
+                    assertEquals("cached-" + firstChecksum, sst.getValue());
+                } else {
+                    // the new sst is
+                    File localSst = new File(new File(checkpointDir, secondCheckpoint), sst.getKey());
+                    assertEquals(CheckpointFile.builder().file(localSst).computeChecksum().build().getChecksum(),
+                        sst.getValue());
+                    assertFalse(sst.getValue().startsWith("cached-"));
+                }
+            }
+            // and the cache follows the ssts of the last checkpoint
+            assertEquals(secondSsts, sstChecksums);
+        }
+    }
+
+    private static void putAndFlush(RocksDB db, String key) throws Exception {
+        db.put(key.getBytes(UTF_8), ("value-of-" + key).getBytes(UTF_8));
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            db.flush(flushOptions);
+        }
+    }
+
+    private Map<String, String> sstChecksumsOf(String checkpointId) throws Exception {
+        CheckpointMetadata metadata;
+        try (InputStream is = checkpointStore.openInputStream(
+            RocksUtils.getDestCheckpointMetadataPath(DB_NAME, checkpointId))) {
+            metadata = CheckpointMetadata.parseFrom(is);
+        }
+        Map<String, String> checksums = new HashMap<>();
+        for (FileInfo fileInfo : metadata.getFileInfosList()) {
+            if (RocksUtils.isSstFile(new File(fileInfo.getName()))) {
+                assertTrue(checkpointStore.fileExists(
+                    RocksUtils.getDestSstPath(DB_NAME, fileInfo.getName() + "_" + fileInfo.getChecksum())));
+                checksums.put(fileInfo.getName(), fileInfo.getChecksum());
+            }
+        }
+        return checksums;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
+import org.apache.bookkeeper.statelib.impl.rocksdb.RocksUtils;
+import org.apache.bookkeeper.statelib.impl.rocksdb.checkpoint.fs.FSCheckpointManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stream.proto.kv.store.CheckpointMetadata;
+import org.apache.bookkeeper.stream.proto.kv.store.FileInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test that {@link RocksdbRestoreTask} reuses the local sst files left by previous checkpoints.
+ */
+public class RocksdbRestoreTaskTest {
+
+    private static final String DB_NAME = "test-db";
+    private static final String CHECKPOINT_ID = "restored";
+
+    @Rule
+    public final TemporaryFolder testDir = new TemporaryFolder();
+
+    private File checkpointDir;
+    private CheckpointStore checkpointStore;
+    private ExecutorService executor;
+    private CheckpointTransferer transferer;
+    private CheckpointMetadata.Builder metadata;
+
+    @Before
+    public void setUp() throws Exception {
+        checkpointDir = testDir.newFolder("checkpoints");
+        checkpointStore = new FSCheckpointManager(testDir.newFolder("remote"));
+        checkpointStore.createDirectories(RocksUtils.getDestSstsPath(DB_NAME));
+        checkpointStore.createDirectories(RocksUtils.getDestCheckpointPath(DB_NAME, CHECKPOINT_ID));
+        executor = Executors.newFixedThreadPool(4);
+        transferer = new CheckpointTransferer(executor, 4, NullStatsLogger.INSTANCE);
+        metadata = CheckpointMetadata.newBuilder();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReuseLocalSstWithSameChecksum() throws Exception {
+        byte[] sameSst = bytes("sst-1-content");
+        byte[] remoteSst = bytes("sst-2-remote");
+        byte[] localSst = bytes("sst-2-local!");
+        assertEquals(remoteSst.length, localSst.length);
+        addRemoteFile("000001.sst", sameSst);
+        addRemoteFile("000002.sst", remoteSst);
+        addRemoteFile("CURRENT", bytes("MANIFEST-000003"));
+
+        // a previous checkpoint left a copy of the first sst, and a file of the same size under the second name
+        File localCheckpoint = new File(checkpointDir, "previous");
+        assertTrue(localCheckpoint.mkdirs());
+        File localSst1 = writeFile(new File(localCheckpoint, "000001.sst"), sameSst);
+        File localSst2 = writeFile(new File(localCheckpoint, "000002.sst"), localSst);
+        // and an older one a file of another size under the first name
+        File olderCheckpoint = new File(checkpointDir, "older");
+        assertTrue(olderCheckpoint.mkdirs());
+        writeFile(new File(olderCheckpoint, "000001.sst"), bytes("other"));
+
+        new RocksdbRestoreTask(DB_NAME, checkpointDir, checkpointStore, Duration.ofSeconds(10), transferer)
+            .restore(CHECKPOINT_ID, metadata.build());
+
+        File restoredDir = new File(checkpointDir, CHECKPOINT_ID);
+        // the sst with the same checksum is linked
+        File restoredSst1 = new File(restoredDir, "000001.sst");
+        assertTrue(Files.isSameFile(localSst1.toPath(), restoredSst1.toPath()));
+        assertArrayEquals(sameSst, Files.readAllBytes(restoredSst1.toPath()));
+        // the sst with another checksum is downloaded, and the local copy is left as is
+        File restoredSst2 = new File(restoredDir, "000002.sst");
+        assertFalse(Files.isSameFile(localSst2.toPath(), restoredSst2.toPath()));
+        assertArrayEquals(remoteSst, Files.readAllBytes(restoredSst2.toPath()));
+        assertArrayEquals(localSst, Files.readAllBytes(localSst2.toPath()));
+        assertArrayEquals(bytes("MANIFEST-000003"), Files.readAllBytes(new File(restoredDir, "CURRENT").toPath()));
+    }
+
+    private void addRemoteFile(String name, byte[] content) throws Exception {
+        String checksum = Hashing.sha256().hashBytes(content).toString();
+        String remotePath = RocksUtils.isSstFile(new File(name))
+            ? RocksUtils.getDestSstPath(DB_NAME, name + "_" + checksum)
+            : RocksUtils.getDestPath(DB_NAME, CHECKPOINT_ID, name);
+        try (OutputStream os = checkpointStore.openOutputStream(remotePath)) {
+            os.write(content);
+        }
+        metadata.addFiles(name);
+        metadata.addFileInfos(FileInfo.newBuilder().setName(name).setChecksum(checksum).build());
+    }
+
+    private static File writeFile(File file, byte[] content) throws Exception {
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(UTF_8);
+    }
+}
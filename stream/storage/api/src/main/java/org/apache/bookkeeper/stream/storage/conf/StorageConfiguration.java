@@ -39,6 +39,12 @@ public class StorageConfiguration extends ComponentConfiguration {
 
     private static final String CHECKPOINT_RESTORE_IDLE_LIMIT_MS = "checkpoint.restore.idle.limit.ms";
 
+    private static final String CHECKPOINT_TRANSFER_PARALLELISM = "checkpoint.transfer.parallelism";
+
+    private static final String CONCURRENT_READS_ENABLE = "concurrent.reads.enable";
+
+    private static final String JOURNAL_REPLAY_BULK_SIZE = "journal.replay.bulk.size";
+
     public StorageConfiguration(CompositeConfiguration conf) {
         super(conf, COMPONENT_PREFIX);
     }
@@ -112,4 +118,48 @@ public class StorageConfiguration extends ComponentConfiguration {
     public long getCheckpointRestoreIdleLimitMs() {
         return getLong(CHECKPOINT_RESTORE_IDLE_LIMIT_MS, TimeUnit.MINUTES.toMillis(5));
     }
+
+    /**
+     * Get the max number of files that a checkpoint or a restore of a range store transfers in parallel.
+     *
+     * @return the max number of files transferred in parallel.
+     */
+    public int getCheckpointTransferParallelism() {
+        return getInt(CHECKPOINT_TRANSFER_PARALLELISM, 1);
+    }
+
+    public StorageConfiguration setCheckpointTransferParallelism(int parallelism) {
+        setProperty(CHECKPOINT_TRANSFER_PARALLELISM, parallelism);
+        return this;
+    }
+
+    /**
+     * Whether the reads of a range store run on all the read io threads, instead of only the read io
+     * thread of its stream. The reads don't need to be ordered between them, and the range stores
+     * serve the reads concurrently.
+     *
+     * @return true if the reads of a range store run concurrently.
+     */
+    public boolean getConcurrentReadsEnable() {
+        return getBoolean(CONCURRENT_READS_ENABLE, false);
+    }
+
+    public StorageConfiguration setConcurrentReadsEnable(boolean enable) {
+        setProperty(CONCURRENT_READS_ENABLE, enable);
+        return this;
+    }
+
+    /**
+     * Get the number of journal records read and applied together when replaying the journal of a range store.
+     *
+     * @return the number of journal records of a replay bulk, or 0 to replay the records one by one.
+     */
+    public int getJournalReplayBulkSize() {
+        return getInt(JOURNAL_REPLAY_BULK_SIZE, 0);
+    }
+
+    public StorageConfiguration setJournalReplayBulkSize(int bulkSize) {
+        setProperty(JOURNAL_REPLAY_BULK_SIZE, bulkSize);
+        return this;
+    }
 }
@@ -77,6 +77,7 @@ public class StorageResources {
     private final Resource<OrderedScheduler> ioWriteScheduler;
     private final Resource<OrderedScheduler> ioReadScheduler;
     private final Resource<OrderedScheduler> checkpointScheduler;
+    private final Resource<OrderedScheduler> checkpointTransferScheduler;
     private final Resource<HashedWheelTimer> timer;
 
     private StorageResources(StorageResourcesSpec spec) {
@@ -88,6 +89,8 @@ public class StorageResources {
             "io-read-scheduler", spec.numIOReadThreads());
         this.checkpointScheduler = createSchedulerResource(
             "io-checkpoint-scheduler", spec.numCheckpointThreads());
+        this.checkpointTransferScheduler = createSchedulerResource(
+            "io-checkpoint-transfer-scheduler", spec.numCheckpointTransferThreads());
 
         this.timer =
             new Resource<HashedWheelTimer>() {
@@ -40,5 +40,7 @@ public class StorageResourcesSpec {
     private int numIOReadThreads = Runtime.getRuntime().availableProcessors() * 2;
     @Default
     private int numCheckpointThreads = Runtime.getRuntime().availableProcessors() * 2;
+    @Default
+    private int numCheckpointTransferThreads = Runtime.getRuntime().availableProcessors() * 2;
 
 }
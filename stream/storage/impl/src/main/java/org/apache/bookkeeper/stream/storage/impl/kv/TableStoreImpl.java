@@ -18,6 +18,7 @@
 package org.apache.bookkeeper.stream.storage.impl.kv;
 
 import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.fromProtoCompare;
+import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.getRoutingHeader;
 import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.handleCause;
 import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.newStoreKey;
 import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.processDeleteResult;
@@ -272,7 +273,7 @@ public class TableStoreImpl implements TableStore {
         return doTxn(txnReq)
             .thenApply(txnResult -> {
                 try {
-                    return processTxnResult(txnReq.getHeader(), txnResult);
+                    return processTxnResult(txnReq, txnResult);
                 } finally {
                     txnResult.close();
                 }
@@ -309,9 +310,11 @@ public class TableStoreImpl implements TableStore {
     private Op<byte[], byte[]> buildTxnOp(RoutingHeader header, RequestOp reqOp) {
         switch (reqOp.getRequestCase()) {
             case REQUEST_PUT:
-                return buildPutOp(header, reqOp.getRequestPut());
+                return buildPutOp(getRoutingHeader(header, reqOp), reqOp.getRequestPut());
+            case REQUEST_INCREMENT:
+                return buildIncrementOp(getRoutingHeader(header, reqOp), reqOp.getRequestIncrement());
             case REQUEST_DELETE_RANGE:
-                return buildDeleteOp(header, reqOp.getRequestDeleteRange());
+                return buildDeleteOp(getRoutingHeader(header, reqOp), reqOp.getRequestDeleteRange());
             case REQUEST_RANGE:
                 return buildRangeOp(header, reqOp.getRequestRange());
             default:
@@ -23,6 +23,7 @@ import com.google.protobuf.UnsafeByteOperations;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -44,9 +45,11 @@ import org.apache.bookkeeper.stream.proto.kv.rpc.DeleteRangeResponse;
 import org.apache.bookkeeper.stream.proto.kv.rpc.IncrementResponse;
 import org.apache.bookkeeper.stream.proto.kv.rpc.PutResponse;
 import org.apache.bookkeeper.stream.proto.kv.rpc.RangeResponse;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RequestOp;
 import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseHeader;
 import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseOp;
 import org.apache.bookkeeper.stream.proto.kv.rpc.RoutingHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnRequest;
 import org.apache.bookkeeper.stream.proto.kv.rpc.TxnResponse;
 import org.apache.bookkeeper.stream.proto.storage.StatusCode;
 
@@ -205,17 +208,39 @@ final class TableStoreUtils {
             .build();
     }
 
-    static TxnResponse processTxnResult(RoutingHeader routingHeader,
+    /**
+     * Get the routing header of a request of a txn: its own header if it has one, otherwise the header of the txn.
+     */
+    static RoutingHeader getRoutingHeader(RoutingHeader txnHeader, RequestOp reqOp) {
+        switch (reqOp.getRequestCase()) {
+            case REQUEST_PUT:
+                return reqOp.getRequestPut().hasHeader() ? reqOp.getRequestPut().getHeader() : txnHeader;
+            case REQUEST_INCREMENT:
+                return reqOp.getRequestIncrement().hasHeader() ? reqOp.getRequestIncrement().getHeader() : txnHeader;
+            case REQUEST_DELETE_RANGE:
+                return reqOp.getRequestDeleteRange().hasHeader()
+                    ? reqOp.getRequestDeleteRange().getHeader() : txnHeader;
+            default:
+                return txnHeader;
+        }
+    }
+
+    static TxnResponse processTxnResult(TxnRequest txnReq,
                                         TxnResult<byte[], byte[]> txnResult) {
-        return TxnResponse.newBuilder()
+        RoutingHeader routingHeader = txnReq.getHeader();
+        List<RequestOp> reqOps = txnResult.isSuccess() ? txnReq.getSuccessList() : txnReq.getFailureList();
+        List<Result<byte[], byte[]>> results = txnResult.results();
+        TxnResponse.Builder txnRespBuilder = TxnResponse.newBuilder()
             .setHeader(ResponseHeader.newBuilder()
                 .setCode(mvccCodeToStatusCode(txnResult.code()))
                 .setRoutingHeader(routingHeader)
                 .build())
-            .setSucceeded(txnResult.isSuccess())
-            .addAllResponses(Lists.transform(txnResult.results(), result -> processTxnResult(
-                routingHeader, result)))
-            .build();
+            .setSucceeded(txnResult.isSuccess());
+        for (int i = 0; i < results.size(); i++) {
+            RoutingHeader opHeader = i < reqOps.size() ? getRoutingHeader(routingHeader, reqOps.get(i)) : routingHeader;
+            txnRespBuilder.addResponses(processTxnResult(opHeader, results.get(i)));
+        }
+        return txnRespBuilder.build();
     }
 
     static ResponseOp processTxnResult(RoutingHeader routingHeader,
@@ -238,6 +263,11 @@ final class TableStoreUtils {
                 respBuilder.setResponseRange(
                     processRangeResult(routingHeader, rangeResult));
                 break;
+            case INCREMENT:
+                IncrementResult<byte[], byte[]> incrResult = (IncrementResult<byte[], byte[]>) result;
+                respBuilder.setResponseIncrement(
+                    processIncrementResult(routingHeader, incrResult));
+                break;
             default:
                 break;
         }
@@ -41,6 +41,7 @@ import org.apache.bookkeeper.statelib.StateStores;
 import org.apache.bookkeeper.statelib.api.StateStoreSpec;
 import org.apache.bookkeeper.statelib.api.checkpoint.CheckpointStore;
 import org.apache.bookkeeper.statelib.api.mvcc.MVCCAsyncStore;
+import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stream.protocol.RangeId;
 import org.apache.bookkeeper.stream.storage.StorageResources;
 import org.apache.bookkeeper.stream.storage.conf.StorageConfiguration;
@@ -64,6 +65,8 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
     private final OrderedScheduler readIOScheduler;
     @Getter(value = AccessLevel.PACKAGE)
     private final OrderedScheduler checkpointScheduler;
+    @Getter(value = AccessLevel.PACKAGE)
+    private final OrderedScheduler checkpointTransferScheduler;
     // dirs
     private final File[] localStateDirs;
     // checkpoint manager
@@ -74,12 +77,14 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
     private final boolean serveReadOnlyTable;
     private boolean closed = false;
     private final StorageConfiguration storageConf;
+    private final StatsLogger statsLogger;
 
     public MVCCStoreFactoryImpl(Supplier<Namespace> namespaceSupplier,
                                 Supplier<CheckpointStore> checkpointStoreSupplier,
                                 File[] localStoreDirs,
                                 StorageResources storageResources,
-                                boolean serveReadOnlyTable, StorageConfiguration storageConf) {
+                                boolean serveReadOnlyTable, StorageConfiguration storageConf,
+                                StatsLogger statsLogger) {
         this.storeSupplier = StateStores.mvccKvBytesStoreSupplier(namespaceSupplier);
         this.storageResources = storageResources;
         this.writeIOScheduler =
@@ -88,9 +93,12 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
             SharedResourceManager.shared().get(storageResources.ioReadScheduler());
         this.checkpointScheduler =
             SharedResourceManager.shared().get(storageResources.checkpointScheduler());
+        this.checkpointTransferScheduler =
+            SharedResourceManager.shared().get(storageResources.checkpointTransferScheduler());
         this.localStateDirs = localStoreDirs;
         this.checkpointStoreSupplier = checkpointStoreSupplier;
         this.storageConf = storageConf;
+        this.statsLogger = statsLogger;
         this.stores = Maps.newHashMap();
         this.serveReadOnlyTable = serveReadOnlyTable;
     }
@@ -100,6 +108,10 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
     }
 
     private ScheduledExecutorService chooseReadIOExecutor(long streamId) {
+        if (storageConf.getConcurrentReadsEnable()) {
+            // the reads of the store are spread over all the read io threads
+            return readIOScheduler;
+        }
         return readIOScheduler.chooseThread(streamId);
     }
 
@@ -215,7 +227,12 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
             .localStorageCleanupEnable(storageConf.getLocalStorageCleanupEnable())
             .checkpointRestoreIdleLimit(
                 Duration.ofMillis(storageConf.getCheckpointRestoreIdleLimitMs()))
+            .checkpointTransferExecutor(checkpointTransferScheduler)
+            .checkpointTransferParallelism(storageConf.getCheckpointTransferParallelism())
             .ttlSeconds(ttlSeconds)
+            .journalReplayBulkSize(storageConf.getJournalReplayBulkSize())
+            .journalReplayDecodeExecutor(readIOScheduler)
+            .statsLogger(statsLogger)
             .build();
 
 
@@ -292,5 +309,7 @@ public class MVCCStoreFactoryImpl implements MVCCStoreFactory {
             storageResources.ioReadScheduler(), readIOScheduler);
         SharedResourceManager.shared().release(
             storageResources.checkpointScheduler(), checkpointScheduler);
+        SharedResourceManager.shared().release(
+            storageResources.checkpointTransferScheduler(), checkpointTransferScheduler);
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.stream.storage.impl.kv;
+
+import static org.apache.bookkeeper.stream.storage.impl.kv.TableStoreUtils.newStoreKey;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import org.apache.bookkeeper.api.kv.impl.op.OpFactoryImpl;
+import org.apache.bookkeeper.api.kv.impl.result.IncrementResultImpl;
+import org.apache.bookkeeper.api.kv.impl.result.PutResultImpl;
+import org.apache.bookkeeper.api.kv.impl.result.ResultFactory;
+import org.apache.bookkeeper.api.kv.impl.result.TxnResultImpl;
+import org.apache.bookkeeper.api.kv.op.IncrementOp;
+import org.apache.bookkeeper.api.kv.op.Op;
+import org.apache.bookkeeper.api.kv.op.OpType;
+import org.apache.bookkeeper.api.kv.op.PutOp;
+import org.apache.bookkeeper.api.kv.op.TxnOp;
+import org.apache.bookkeeper.api.kv.result.Code;
+import org.apache.bookkeeper.api.kv.result.Result;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.statelib.api.mvcc.MVCCAsyncStore;
+import org.apache.bookkeeper.stream.proto.kv.rpc.IncrementRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.PutRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RequestOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.ResponseOp;
+import org.apache.bookkeeper.stream.proto.kv.rpc.RoutingHeader;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnRequest;
+import org.apache.bookkeeper.stream.proto.kv.rpc.TxnResponse;
+import org.apache.bookkeeper.stream.proto.storage.StatusCode;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the txns of {@link TableStoreImpl} that batch the writes of several keys.
+ */
+public class TableStoreImplTxnTest {
+
+    private static final RoutingHeader TXN_HEADER = newHeader("txn-rkey");
+    private static final RoutingHeader PUT_HEADER = newHeader("put-rkey");
+    private static final RoutingHeader INCR_HEADER = newHeader("incr-rkey");
+    private static final ByteString PUT_KEY = ByteString.copyFromUtf8("put-key");
+    private static final ByteString INCR_KEY = ByteString.copyFromUtf8("incr-key");
+
+    private MVCCAsyncStore<byte[], byte[]> store;
+    private TableStoreImpl tableStore;
+    private final ResultFactory<byte[], byte[]> resultFactory = new ResultFactory<>();
+    private final List<byte[]> appliedKeys = Lists.newArrayList();
+    private final List<OpType> appliedTypes = Lists.newArrayList();
+    private final List<Long> appliedAmounts = Lists.newArrayList();
+
+    private static RoutingHeader newHeader(String rKey) {
+        return RoutingHeader.newBuilder()
+            .setStreamId(1L)
+            .setRangeId(2L)
+            .setRKey(ByteString.copyFromUtf8(rKey))
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        store = mock(MVCCAsyncStore.class);
+        when(store.getOpFactory()).thenReturn(new OpFactoryImpl<>());
+        doAnswer(invocation -> {
+            TxnOp<byte[], byte[]> txnOp = invocation.getArgument(0);
+            List<Result<byte[], byte[]>> results = Lists.newArrayList();
+            // the ops are released once the txn completed, so record them now
+            for (Op<byte[], byte[]> op : txnOp.successOps()) {
+                appliedTypes.add(op.type());
+                if (OpType.PUT == op.type()) {
+                    appliedKeys.add(((PutOp<byte[], byte[]>) op).key());
+                    appliedAmounts.add(0L);
+                    PutResultImpl<byte[], byte[]> result = resultFactory.newPutResult(1L);
+                    result.code(Code.OK);
+                    results.add(result);
+                } else {
+                    IncrementOp<byte[], byte[]> incrOp = (IncrementOp<byte[], byte[]>) op;
+                    appliedKeys.add(incrOp.key());
+                    appliedAmounts.add(incrOp.amount());
+                    IncrementResultImpl<byte[], byte[]> result = resultFactory.newIncrementResult(1L);
+                    result.totalAmount(100L + incrOp.amount());
+                    result.code(Code.OK);
+                    results.add(result);
+                }
+            }
+            TxnResultImpl<byte[], byte[]> txnResult = resultFactory.newTxnResult(1L);
+            txnResult.isSuccess(true);
+            txnResult.results(results);
+            txnResult.code(Code.OK);
+            return FutureUtils.value(txnResult);
+        }).when(store).txn(any(TxnOp.class));
+        tableStore = new TableStoreImpl(store);
+    }
+
+    private static RequestOp newPut(RoutingHeader header) {
+        PutRequest.Builder put = PutRequest.newBuilder()
+            .setKey(PUT_KEY)
+            .setValue(ByteString.copyFromUtf8("value"));
+        if (null != header) {
+            put.setHeader(header);
+        }
+        return RequestOp.newBuilder().setRequestPut(put).build();
+    }
+
+    private static RequestOp newIncrement(RoutingHeader header, long amount) {
+        IncrementRequest.Builder incr = IncrementRequest.newBuilder()
+            .setKey(INCR_KEY)
+            .setAmount(amount)
+            .setGetTotal(true);
+        if (null != header) {
+            incr.setHeader(header);
+        }
+        return RequestOp.newBuilder().setRequestIncrement(incr).build();
+    }
+
+    @Test
+    public void testTxnWithPerOpRoutingHeaders() throws Exception {
+        TxnRequest txnReq = TxnRequest.newBuilder()
+            .setHeader(TXN_HEADER)
+            .addSuccess(newPut(PUT_HEADER))
+            .addSuccess(newIncrement(INCR_HEADER, 5L))
+            .build();
+
+        TxnResponse response = FutureUtils.result(tableStore.txn(txnReq));
+
+        // each op is applied to the key of its own routing header
+        assertEquals(Lists.newArrayList(OpType.PUT, OpType.INCREMENT), appliedTypes);
+        assertArrayEquals(newStoreKey(PUT_HEADER.getRKey(), PUT_KEY), appliedKeys.get(0));
+        assertArrayEquals(newStoreKey(INCR_HEADER.getRKey(), INCR_KEY), appliedKeys.get(1));
+        assertEquals(5L, (long) appliedAmounts.get(1));
+
+        // and answered with its own routing header
+        assertEquals(StatusCode.SUCCESS, response.getHeader().getCode());
+        assertEquals(TXN_HEADER, response.getHeader().getRoutingHeader());
+        assertTrue(response.getSucceeded());
+        assertEquals(2, response.getResponsesCount());
+        ResponseOp putResp = response.getResponses(0);
+        assertEquals(ResponseOp.ResponseCase.RESPONSE_PUT, putResp.getResponseCase());
+        assertEquals(StatusCode.SUCCESS, putResp.getResponsePut().getHeader().getCode());
+        assertEquals(PUT_HEADER, putResp.getResponsePut().getHeader().getRoutingHeader());
+        ResponseOp incrResp = response.getResponses(1);
+        assertEquals(ResponseOp.ResponseCase.RESPONSE_INCREMENT, incrResp.getResponseCase());
+        assertEquals(StatusCode.SUCCESS, incrResp.getResponseIncrement().getHeader().getCode());
+        assertEquals(INCR_HEADER, incrResp.getResponseIncrement().getHeader().getRoutingHeader());
+        assertEquals(105L, incrResp.getResponseIncrement().getTotalAmount());
+    }
+
+    @Test
+    public void testTxnOpsWithoutRoutingHeader() throws Exception {
+        TxnRequest txnReq = TxnRequest.newBuilder()
+            .setHeader(TXN_HEADER)
+            .addSuccess(newPut(null))
+            .addSuccess(newIncrement(null, 7L))
+            .build();
+
+        TxnResponse response = FutureUtils.result(tableStore.txn(txnReq));
+
+        // the ops without a header fall back to the header of the txn
+        assertArrayEquals(newStoreKey(TXN_HEADER.getRKey(), PUT_KEY), appliedKeys.get(0));
+        assertArrayEquals(newStoreKey(TXN_HEADER.getRKey(), INCR_KEY), appliedKeys.get(1));
+        assertEquals(TXN_HEADER, response.getResponses(0).getResponsePut().getHeader().getRoutingHeader());
+        assertEquals(TXN_HEADER, response.getResponses(1).getResponseIncrement().getHeader().getRoutingHeader());
+        assertEquals(107L, response.getResponses(1).getResponseIncrement().getTotalAmount());
+    }
+}
@@ -133,6 +133,13 @@ public class PerfClient implements Runnable {
             description = "Number of client operations to test")
         public int numOps = 0;
 
+        @Parameter(
+            names = {
+                "-nt", "--num-threads"
+            },
+            description = "Number of threads issuing the reads of readrandom, to measure how the reads scale")
+        public int numThreads = 1;
+
         @Parameter(
             names = {
                 "-ns", "--namespace"
@@ -315,6 +322,23 @@ public class PerfClient implements Runnable {
                                 semaphore
                             ));
                             break;
+                        case "readrandom":
+                            long numReadsPerThread = Math.max(flags.numOps, flags.numKeys)
+                                / Math.max(1, flags.numThreads);
+                            for (int i = 0; i < Math.max(1, flags.numThreads); i++) {
+                                tasks.add(new ReadRandomTask(
+                                    table,
+                                    currentTaskId++,
+                                    randSeed,
+                                    numReadsPerThread,
+                                    flags.numKeys,
+                                    flags,
+                                    generator,
+                                    limiter,
+                                    semaphore
+                                ));
+                            }
+                            break;
                         default:
                             System.err.println("Unknown benchmark: " + benchmark);
                             break;